@@ -0,0 +1,41 @@
+package com.example.ledger;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.storage.LedgerStorage;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Deterministic ledger data shared by the benchmarks.
+ */
+public final class BenchmarkFixtures {
+
+    public static final OffsetDateTime START = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+
+    private BenchmarkFixtures() {
+    }
+
+    public static String accountId(int i) {
+        return "ACC-" + i;
+    }
+
+    /** The n-th transaction of an account; one row per minute, every tenth has a referenceId */
+    public static Transaction transaction(String accountId, long n) {
+        return new Transaction("tx-" + accountId + "-" + n, accountId, AccountType.CREDIT_CARD,
+                n % 3 == 0 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT,
+                BigDecimal.valueOf(100 + n % 10_000, 2), "USD",
+                START.plusMinutes(n), n % 10 == 0 ? "ref-" + n : null, "BENCH-" + (n % 16));
+    }
+
+    /** Give each of accounts accounts depth transactions */
+    public static void fill(LedgerStorage storage, int accounts, int depth) {
+        for (int a = 0; a < accounts; a++) {
+            String accountId = accountId(a);
+            storage.setCurrency(accountId, "USD");
+            for (int n = 0; n < depth; n++) storage.appendTransaction(accountId, transaction(accountId, n));
+        }
+    }
+}
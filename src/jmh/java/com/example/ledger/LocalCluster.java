@@ -0,0 +1,74 @@
+package com.example.ledger;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A ledger cluster inside this JVM: {@code nodes} ledger nodes and one router in
+ * front of them, each a full application on its own free localhost port.
+ *
+ * Nodes run with ledger.cluster.role=node and the given extra properties (e.g. a
+ * storage mode); the router runs with ledger.cluster.role=router over the nodes'
+ * URLs. Every instance shares this process's heap and CPUs, so a cluster here
+ * measures routing and scatter-gather overhead and the gain from spreading lock
+ * and index contention, not the capacity of separate machines.
+ */
+public final class LocalCluster implements AutoCloseable {
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private final List<String> nodeUrls = new ArrayList<>();
+    private ConfigurableApplicationContext router;
+    private String routerUrl;
+
+    private LocalCluster() {
+    }
+
+    public static LocalCluster start(int nodes, String... nodeProperties) {
+        LocalCluster cluster = new LocalCluster();
+        try {
+            for (int i = 0; i < nodes; i++) {
+                ConfigurableApplicationContext node = new SpringApplicationBuilder(TinyLedgerApplication.class)
+                        .properties(Stream.concat(Stream.of(
+                                "server.port=0",
+                                "ledger.cluster.role=node",
+                                "logging.level.root=WARN"), Stream.of(nodeProperties)).toArray(String[]::new))
+                        .run();
+                cluster.nodes.add(node);
+                cluster.nodeUrls.add(urlOf(node));
+            }
+            cluster.router = new SpringApplicationBuilder(TinyLedgerApplication.class).properties(
+                    "server.port=0",
+                    "ledger.cluster.role=router",
+                    "ledger.cluster.nodes=" + String.join(",", cluster.nodeUrls),
+                    "logging.level.root=WARN").run();
+            cluster.routerUrl = urlOf(cluster.router);
+            return cluster;
+        } catch (RuntimeException e) {
+            cluster.close();
+            throw e;
+        }
+    }
+
+    private static String urlOf(ConfigurableApplicationContext context) {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    /** Base URL of the router; the API is under /api */
+    public String routerUrl() {
+        return routerUrl;
+    }
+
+    public List<String> nodeUrls() {
+        return List.copyOf(nodeUrls);
+    }
+
+    @Override
+    public void close() {
+        if (router != null) router.close();
+        for (ConfigurableApplicationContext node : nodes) node.close();
+    }
+}
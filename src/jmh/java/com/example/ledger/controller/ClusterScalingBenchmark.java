@@ -0,0 +1,116 @@
+package com.example.ledger.controller;
+
+import com.example.ledger.LocalCluster;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of a {@link LocalCluster} of 1 to N ledger nodes behind a router,
+ * driven over HTTP by 32 client threads:
+ * <ul>
+ *   <li>{@code deposit} - POST a deposit, routed to the account's node</li>
+ *   <li>{@code balances} - GET 100 balances, split across the owning nodes</li>
+ *   <li>{@code ledgerPage} - GET the first 100 ledger rows, gathered from every node and merged</li>
+ * </ul>
+ * Nodes, router and clients share the fork, so the absolute numbers include the
+ * extra hop and say nothing about separate machines; compare how each operation
+ * changes as nodes are added.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class ClusterScalingBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+
+    @Param({"1", "2", "4"})
+    int nodes;
+
+    @Param({"deposit", "balances", "ledgerPage"})
+    String operation;
+
+    LocalCluster cluster;
+    HttpClient client;
+    String baseUrl;
+    String balancesQuery;
+    final AtomicInteger counter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void startCluster() throws IOException, InterruptedException {
+        cluster = LocalCluster.start(nodes);
+        baseUrl = cluster.routerUrl() + "/api";
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+        StringJoiner batch = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < ACCOUNTS; i++) {
+            batch.add("""
+                    {"accountId":"ACC-%d","accountType":"CREDIT_CARD","type":"DEPOSIT","amount":1000.00,"currency":"USD"}"""
+                    .formatted(i));
+        }
+        HttpResponse<Void> seeded = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/transactions/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(batch.toString()))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (seeded.statusCode() != 200) throw new IllegalStateException("seeding failed: " + seeded.statusCode());
+
+        StringJoiner ids = new StringJoiner(",");
+        for (int i = 0; i < 100; i++) ids.add("ACC-" + i * (ACCOUNTS / 100));
+        balancesQuery = "/balances?accountIds=" + ids;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopCluster() {
+        cluster.close();
+    }
+
+    @Benchmark
+    public int request() throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request(counter.getAndIncrement()), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) throw new IllegalStateException("HTTP " + response.statusCode());
+        return response.statusCode();
+    }
+
+    private HttpRequest request(int n) {
+        String accountId = "ACC-" + (n % ACCOUNTS);
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(60));
+        return switch (operation) {
+            case "deposit" -> builder.uri(URI.create(baseUrl + "/accounts/" + accountId + "/transactions"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("""
+                            {"accountType":"CREDIT_CARD","type":"DEPOSIT","amount":1.00,"currency":"USD"}"""))
+                    .build();
+            case "balances" -> builder.uri(URI.create(baseUrl + balancesQuery)).GET().build();
+            case "ledgerPage" -> builder.uri(URI.create(baseUrl + "/ledger?limit=100")).GET().build();
+            default -> throw new IllegalArgumentException("unknown operation " + operation);
+        };
+    }
+}
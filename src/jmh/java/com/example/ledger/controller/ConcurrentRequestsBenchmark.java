@@ -0,0 +1,181 @@
+package com.example.ledger.controller;
+
+import com.example.ledger.TinyLedgerApplication;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.service.LedgerService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Throughput and tail latency of the HTTP API with {@code connections} clients
+ * in flight at once, on Tomcat's platform-thread pool versus virtual threads.
+ *
+ * Each invocation opens that many concurrent requests (one connection each) and
+ * waits for all of them. The primary score is the wall time of the whole burst;
+ * the secondary results are requests per second, the p99 latency in microseconds
+ * and the number of failed requests. The app runs in durable mode so writes
+ * block on fsync, which is where a fixed thread pool runs dry:
+ * <ul>
+ *   <li>{@code balance} - GET one account's balance</li>
+ *   <li>{@code balances} - GET 200 balances, fanned out across subtasks</li>
+ *   <li>{@code deposit} - POST a deposit, synced to the write-ahead log</li>
+ * </ul>
+ * Client and server share the fork, so absolute numbers are conservative; the
+ * comparison between the two thread modes is what matters. 10,000 connections
+ * need a file descriptor limit above that ({@code ulimit -n 65536}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class ConcurrentRequestsBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    @Param({"balance", "balances", "deposit"})
+    String operation;
+
+    @Param({"10000"})
+    int connections;
+
+    ConfigurableApplicationContext context;
+    Path dataDir;
+    HttpClient client;
+    ExecutorService clients;
+    String baseUrl;
+    String balancesQuery;
+    final AtomicInteger counter = new AtomicInteger();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Results {
+        public double requestsPerSecond;
+        public long p99Micros;
+        public long failures;
+    }
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        dataDir = Files.createTempDirectory("ledger-http-bench");
+        context = new SpringApplicationBuilder(TinyLedgerApplication.class).properties(
+                "server.port=0",
+                "server.tomcat.max-connections=" + (connections * 2),
+                "server.tomcat.accept-count=" + connections,
+                "spring.threads.virtual.enabled=" + threads.equals("virtual"),
+                "ledger.storage.mode=durable",
+                "ledger.storage.wal.directory=" + dataDir.resolve("wal"),
+                "ledger.storage.snapshot.directory=" + dataDir.resolve("snapshots"),
+                "ledger.storage.snapshot.interval=0s",
+                "logging.level.root=WARN").run();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+
+        LedgerService service = context.getBean(LedgerService.class);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            service.recordTransaction("ACC-" + i, AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                    new BigDecimal("1000.00"), null, null, "SEED", "USD");
+        }
+        StringJoiner ids = new StringJoiner(",");
+        for (int i = 0; i < 200; i++) ids.add("ACC-" + i * (ACCOUNTS / 200));
+        balancesQuery = "/balances?accountIds=" + ids;
+
+        clients = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(clients)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws IOException {
+        clients.shutdownNow();
+        context.close();
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void burst(Results results) throws InterruptedException {
+        long[] latencies = new long[connections];
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService burst = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                int slot = i;
+                HttpRequest request = request(counter.getAndIncrement());
+                burst.execute(() -> {
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) failures.incrementAndGet();
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    latencies[slot] = System.nanoTime() - t0;
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        results.p99Micros = latencies[(int) (latencies.length * 0.99)] / 1_000;
+        results.requestsPerSecond = connections / (elapsed / 1e9);
+        results.failures = failures.get();
+    }
+
+    private HttpRequest request(int n) {
+        String accountId = "ACC-" + (n % ACCOUNTS);
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(60));
+        return switch (operation) {
+            case "balance" -> builder.uri(URI.create(baseUrl + "/accounts/" + accountId + "/balance")).GET().build();
+            case "balances" -> builder.uri(URI.create(baseUrl + balancesQuery)).GET().build();
+            case "deposit" -> builder.uri(URI.create(baseUrl + "/accounts/" + accountId + "/transactions"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("""
+                            {"accountType":"CREDIT_CARD","type":"DEPOSIT","amount":1.00,"currency":"USD"}"""))
+                    .build();
+            default -> throw new IllegalArgumentException("unknown operation " + operation);
+        };
+    }
+}
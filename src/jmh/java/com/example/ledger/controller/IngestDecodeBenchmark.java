@@ -0,0 +1,91 @@
+package com.example.ledger.controller;
+
+import com.example.ledger.BenchmarkFixtures;
+import com.example.ledger.dto.TransactionRequest;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a request body into service call arguments: JSON transaction
+ * requests (Jackson plus OffsetDateTime parsing, as the JSON endpoints do) versus
+ * the fixed-layout binary records of {@link TransactionWireFormat}. Run with
+ * {@code -prof gc} to compare allocation per record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestDecodeBenchmark {
+
+    @Param({"1", "1000"})
+    int records;
+
+    ObjectMapper mapper;
+    byte[] json;
+    byte[] binary;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = new ObjectMapper().findAndRegisterModules();
+        List<Map<String, Object>> requests = new ArrayList<>(records);
+        ByteBuffer buffer = ByteBuffer.allocate(records * 128);
+        for (int i = 0; i < records; i++) {
+            Transaction tx = BenchmarkFixtures.transaction(BenchmarkFixtures.accountId(i % 100), i);
+            requests.add(Map.of(
+                    "accountType", tx.getAccountType().name(),
+                    "type", tx.getType().name(),
+                    "amount", tx.getAmount(),
+                    "currency", tx.getCurrency(),
+                    "referenceId", "ref-" + i,
+                    "timestamp", tx.getTimestamp().toString(),
+                    "transactionCode", tx.getTransactionCode()));
+            TransactionWireFormat.encode(buffer, tx.getAccountId(), AccountType.CREDIT_CARD, tx.getType(),
+                    tx.getAmount(), tx.getTimestamp(), "ref-" + i, tx.getTransactionCode(), tx.getCurrency());
+        }
+        json = mapper.writeValueAsBytes(requests);
+        binary = Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    @Benchmark
+    public void decodeJson(Blackhole bh) throws Exception {
+        for (TransactionRequest req : mapper.readValue(json, TransactionRequest[].class)) {
+            bh.consume(req.getAmount());
+            bh.consume(OffsetDateTime.parse(req.getTimestamp()));
+            bh.consume(req.getReferenceId());
+        }
+    }
+
+    @Benchmark
+    public void decodeBinary(Blackhole bh) {
+        ByteBuffer in = ByteBuffer.wrap(binary);
+        TransactionWireFormat.Record record = new TransactionWireFormat.Record();
+        while (TransactionWireFormat.decode(in, record)) {
+            bh.consume(record.amount);
+            bh.consume(record.timestamp);
+            bh.consume(record.referenceId);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.ledger.controller;
+
+import com.example.ledger.BenchmarkFixtures;
+import com.example.ledger.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of Transaction as the list endpoints produce it,
+ * configured like Spring Boot's ObjectMapper (JSR-310 module, ISO dates).
+ * {@code cacheBytes} > 0 registers TransactionJsonCache with that budget; the
+ * list is serialized once during setup, so the measured calls replay cached bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionJsonBenchmark {
+
+    @Param({"1", "1000"})
+    int rows;
+
+    @Param({"0", "67108864"})
+    long cacheBytes;
+
+    ObjectMapper mapper;
+    List<Transaction> transactions;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (cacheBytes > 0) mapper.registerModule(new TransactionJsonCache(cacheBytes));
+        transactions = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) transactions.add(BenchmarkFixtures.transaction("ACC-0", i));
+        serializeList();
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws Exception {
+        return mapper.writeValueAsBytes(transactions);
+    }
+}
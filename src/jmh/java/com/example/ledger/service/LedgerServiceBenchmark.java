@@ -0,0 +1,110 @@
+package com.example.ledger.service;
+
+import com.example.ledger.BenchmarkFixtures;
+import com.example.ledger.dto.LedgerPage;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.storage.InMemoryLedgerStorage;
+import com.example.ledger.storage.LedgerStorage;
+import com.example.ledger.storage.ShardedLedgerStorage;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LedgerServiceImpl write path under contention and the global ledger read paths.
+ *
+ * With accounts=1 every writer thread queues on the same account lock; with more
+ * accounts the striped locks let them proceed in parallel. In sharded storage the
+ * writers instead hand their commits to the shard threads owning the accounts.
+ * With hotAccounts=true the contended accounts switch to coalesced micro-batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerServiceBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"1", "16", "10000"})
+    int accounts;
+
+    @Param({"100", "1000"})
+    int historyDepth;
+
+    @Param({"memory", "sharded"})
+    String storageMode;
+
+    @Param({"false", "true"})
+    boolean hotAccounts;
+
+    LedgerStorage storage;
+    LedgerService service;
+
+    @Setup
+    public void setUp() {
+        storage = switch (storageMode) {
+            case "memory" -> new InMemoryLedgerStorage();
+            case "sharded" -> new ShardedLedgerStorage(0, 1024);
+            default -> throw new IllegalArgumentException("unknown storage " + storageMode);
+        };
+        BenchmarkFixtures.fill(storage, accounts, historyDepth);
+        service = new LedgerServiceImpl(storage, new CompositeMeterRegistry(), true, new ChangeFeed(),
+                new HotAccounts(hotAccounts, Duration.ofNanos(20_000), 32, Duration.ofMillis(100),
+                        Duration.ofSeconds(1), 256, new CompositeMeterRegistry()));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (storage instanceof AutoCloseable closeable) closeable.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Transaction recordTransactionContended() {
+        String accountId = BenchmarkFixtures.accountId(ThreadLocalRandom.current().nextInt(accounts));
+        return service.recordTransaction(accountId, AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                AMOUNT, null, null, "BENCH", "USD");
+    }
+
+    @Benchmark
+    public BigDecimal getBalanceAt() {
+        String accountId = BenchmarkFixtures.accountId(ThreadLocalRandom.current().nextInt(accounts));
+        return service.getBalanceAt(accountId,
+                BenchmarkFixtures.START.plusMinutes(ThreadLocalRandom.current().nextInt(historyDepth)));
+    }
+
+    /** Full ledger: accounts * historyDepth rows merged in time order */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Transaction> getLedgerRows() {
+        return service.getLedgerRows();
+    }
+
+    @Benchmark
+    public LedgerPage getLedgerFirstPage() {
+        return service.getLedgerPage(null, 100);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.ledger.service;
+
+import com.example.ledger.BenchmarkFixtures;
+import com.example.ledger.dto.ReconciliationReport;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.storage.InMemoryLedgerStorage;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall time of a full end-of-day reconciliation over {@code accounts} x
+ * {@code historyDepth} transactions in memory mode:
+ * <ul>
+ *   <li>{@code reconcile} - ReconciliationService with {@code parallelism} fork-join
+ *       workers (0 = one per processor, 1 = sequential)</li>
+ *   <li>{@code allTransactionsScan} - the previous approach: one getAllTransactions()
+ *       list summed on one thread</li>
+ * </ul>
+ * The 10M-row default fits an 8 GB heap. For 50M rows use
+ * {@code -p historyDepth=5000 -jvmArgsAppend -Xmx32g}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:+UseParallelGC"})
+public class ReconciliationBenchmark {
+
+    @Param({"10000"})
+    int accounts;
+
+    @Param({"1000"})
+    int historyDepth;
+
+    @Param({"0", "1"})
+    int parallelism;
+
+    InMemoryLedgerStorage storage;
+    ReconciliationService service;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        storage = new InMemoryLedgerStorage();
+        BenchmarkFixtures.fill(storage, accounts, historyDepth);
+        service = new ReconciliationService(storage, Duration.ofHours(1), parallelism, new CompositeMeterRegistry());
+    }
+
+    @Benchmark
+    public ReconciliationReport reconcile() {
+        return service.reconcile();
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> allTransactionsScan() {
+        Map<String, BigDecimal> sums = new HashMap<>();
+        for (Transaction tx : storage.getAllTransactions()) {
+            sums.merge(tx.getCurrency() + "/" + tx.getAccountType(), tx.signedAmount(), BigDecimal::add);
+        }
+        return sums;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.ledger.service;
+
+import com.example.ledger.BenchmarkFixtures;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.storage.InMemoryLedgerStorage;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bytes allocated per single-account write, meant to be run with the GC profiler:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="WritePathAllocationBenchmark -prof gc"
+ * </pre>
+ * and read from {@code gc.alloc.rate.norm}. recordTransaction should allocate
+ * little beyond the entry it stores (the Transaction, its id string, timestamp
+ * and running balance); the id and currency pairs compare the generators the
+ * write path uses with the ones it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WritePathAllocationBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    private static final int ACCOUNTS = 16;
+
+    // the query indexes add their own entries per write
+    @Param({"false", "true"})
+    boolean indexed;
+
+    LedgerService service;
+    String[] accountIds;
+    // a per-request copy, as JSON decoding produces, so the canonical lookup is exercised
+    String currency;
+    int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        // A fresh ledger per iteration keeps the stored histories from filling the heap
+        service = new LedgerServiceImpl(new InMemoryLedgerStorage(), new CompositeMeterRegistry(), indexed,
+                new ChangeFeed(), new HotAccounts());
+        accountIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) accountIds[i] = BenchmarkFixtures.accountId(i);
+        currency = new String(new char[]{'u', 's', 'd'});
+    }
+
+    @Benchmark
+    public Transaction recordTransaction() {
+        return service.recordTransaction(accountIds[next++ & (ACCOUNTS - 1)], AccountType.CREDIT_CARD,
+                TransactionType.DEPOSIT, AMOUNT, null, null, "BENCH", currency);
+    }
+
+    @Benchmark
+    public String transactionIdTimeOrdered() {
+        return TransactionIds.next();
+    }
+
+    @Benchmark
+    public String transactionIdRandomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String currencyCanonical() {
+        return CurrencyCodes.canonical(currency);
+    }
+
+    @Benchmark
+    public String currencyToUpperCase() {
+        return currency.toUpperCase(Locale.ROOT);
+    }
+}
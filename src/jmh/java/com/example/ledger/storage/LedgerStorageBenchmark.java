@@ -0,0 +1,98 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.BenchmarkFixtures;
+import com.example.ledger.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InMemoryLedgerStorage hot paths against ledgers of different shapes: the same
+ * {@code rows} spread over {@code accounts}, so deep histories are measured on
+ * few accounts and many accounts with short histories. Capping the rows rather
+ * than crossing accounts with a depth keeps the largest ledger at 1M rows, which
+ * fits the 4 GB heap; raise both for larger ledgers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LedgerStorageBenchmark {
+
+    @Param({"1", "100", "10000"})
+    int accounts;
+
+    @Param({"100000", "1000000"})
+    int rows;
+
+    int historyDepth;
+    InMemoryLedgerStorage storage;
+    long appended;
+
+    @Setup
+    public void setUp() {
+        historyDepth = rows / accounts;
+        storage = new InMemoryLedgerStorage();
+        BenchmarkFixtures.fill(storage, accounts, historyDepth);
+        appended = historyDepth;
+    }
+
+    /** In-order append, including the running balance and reference index updates */
+    @Benchmark
+    public void appendTransaction() {
+        String accountId = randomAccount();
+        storage.appendTransaction(accountId, BenchmarkFixtures.transaction(accountId, appended++));
+    }
+
+    /** Idempotency replay: a referenceId that is indexed */
+    @Benchmark
+    public Optional<Transaction> findByReferenceHit() {
+        int n = ThreadLocalRandom.current().nextInt(historyDepth / 10) * 10;
+        return storage.findByReference(randomAccount(), "ref-" + n);
+    }
+
+    /** First-time request: a referenceId that is not indexed */
+    @Benchmark
+    public Optional<Transaction> findByReferenceMiss() {
+        return storage.findByReference(randomAccount(), "ref-new");
+    }
+
+    @Benchmark
+    public BigDecimal getBalance() {
+        return storage.getBalance(randomAccount());
+    }
+
+    /** Point-in-time balance somewhere inside the history */
+    @Benchmark
+    public BigDecimal getBalanceAt() {
+        OffsetDateTime at = BenchmarkFixtures.START.plusMinutes(ThreadLocalRandom.current().nextInt(historyDepth));
+        return storage.getBalanceAt(randomAccount(), at);
+    }
+
+    /** One 100-row page of an account's history */
+    @Benchmark
+    public List<HistoryEntry> getTransactionsAfter() {
+        return storage.getTransactionsAfter(randomAccount(), null, -1, 100);
+    }
+
+    private String randomAccount() {
+        return BenchmarkFixtures.accountId(ThreadLocalRandom.current().nextInt(accounts));
+    }
+}
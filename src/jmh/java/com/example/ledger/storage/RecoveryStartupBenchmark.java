@@ -0,0 +1,113 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup-time comparison of full log replay against snapshot-plus-tail recovery.
+ *
+ * Setup writes the log once: a head covered by a snapshot, then a tail of
+ * tailPercent of the rows on top of it. Each invocation recovers a fresh
+ * DurableLedgerStorage from that directory. Needs roughly 0.5 GB of heap per
+ * million rows, e.g. {@code -Djmh.args="RecoveryStartup -jvmArgs -Xmx8g -p transactions=10000000"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RecoveryStartupBenchmark {
+
+    private static final long SEGMENT_BYTES = 256L << 20;
+
+    @Param({"1000000"})
+    long transactions;
+
+    @Param({"100000"})
+    int accounts;
+
+    @Param({"1"})
+    int tailPercent;
+
+    Path dir;
+    Path walDir;
+    Path snapshotDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("ledger-recovery-bench");
+        walDir = dir.resolve("wal");
+        snapshotDir = dir.resolve("snapshots");
+        long head = transactions - transactions * tailPercent / 100;
+        OffsetDateTime start = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+
+        try (WriteAheadLog log = new WriteAheadLog(walDir, SEGMENT_BYTES)) {
+            for (long i = 0; i < head; i++) log.append(tx(i, start), System.currentTimeMillis());
+            log.sync(log.lastSequence());
+        }
+        try (DurableLedgerStorage storage = new DurableLedgerStorage(new InMemoryLedgerStorage(),
+                new WriteAheadLog(walDir, SEGMENT_BYTES), new SnapshotStore(snapshotDir), Duration.ZERO)) {
+            storage.snapshot();
+        }
+        try (WriteAheadLog log = new WriteAheadLog(walDir, SEGMENT_BYTES)) {
+            for (long i = head; i < transactions; i++) log.append(tx(i, start), System.currentTimeMillis());
+            log.sync(log.lastSequence());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /** Replays every record in the log, ignoring the snapshot */
+    @Benchmark
+    public DurableLedgerStorage fullReplay() {
+        try (DurableLedgerStorage storage = new DurableLedgerStorage(new InMemoryLedgerStorage(),
+                new WriteAheadLog(walDir, SEGMENT_BYTES))) {
+            return storage;
+        }
+    }
+
+    @Benchmark
+    public DurableLedgerStorage snapshotPlusTail() {
+        try (DurableLedgerStorage storage = new DurableLedgerStorage(new InMemoryLedgerStorage(),
+                new WriteAheadLog(walDir, SEGMENT_BYTES), new SnapshotStore(snapshotDir), Duration.ZERO)) {
+            return storage;
+        }
+    }
+
+    private Transaction tx(long i, OffsetDateTime start) {
+        String accountId = "ACC-" + (i % accounts);
+        return new Transaction("tx-" + i, accountId, AccountType.CREDIT_CARD,
+                i % 3 == 0 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT,
+                BigDecimal.valueOf(100 + i % 10_000, 2), "USD",
+                start.plusSeconds(i / accounts), i % 10 == 0 ? "ref-" + i : null, "BENCH");
+    }
+}
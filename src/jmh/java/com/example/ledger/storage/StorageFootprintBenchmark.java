@@ -0,0 +1,105 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.BenchmarkFixtures;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retained heap per stored transaction for each storage mode.
+ *
+ * Each invocation fills a fresh storage with rows shaped like the service's
+ * (random UUID ids, nanosecond timestamps, a referenceId on every tenth row)
+ * and reports the heap still in use after a full GC, divided by the row count,
+ * as the {@code bytesPerTransaction} secondary result. The primary score is the
+ * fill time. For mapped storage this is the heap left after moving rows off-heap;
+ * for tiered storage, after compacting rows older than its hot window (all of
+ * them, given the fixture timestamps).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:+UseParallelGC"})
+public class StorageFootprintBenchmark {
+
+    @Param({"memory", "columnar", "mapped", "tiered"})
+    String storage;
+
+    @Param({"1000"})
+    int accounts;
+
+    @Param({"1000"})
+    int historyDepth;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerTransaction;
+    }
+
+    @Benchmark
+    public void fill(Footprint footprint) throws IOException {
+        long before = usedHeapAfterGc();
+        LedgerStorage target = switch (storage) {
+            case "memory" -> new InMemoryLedgerStorage();
+            case "columnar" -> new ColumnarLedgerStorage();
+            case "mapped" -> new MappedLedgerStorage(Files.createTempDirectory("ledger-footprint"), 256L << 20);
+            case "tiered" -> new TieredLedgerStorage(TieredLedgerStorage.DEFAULT_SEGMENT_ROWS,
+                    TieredLedgerStorage.DEFAULT_HOT_WINDOW, TieredLedgerStorage.DEFAULT_CACHE_ROWS);
+            default -> throw new IllegalArgumentException("unknown storage " + storage);
+        };
+
+        Random random = new Random(42);
+        for (int n = 0; n < historyDepth; n++) {
+            for (int a = 0; a < accounts; a++) {
+                String accountId = BenchmarkFixtures.accountId(a);
+                target.appendTransaction(accountId, new Transaction(
+                        new UUID(random.nextLong(), random.nextLong()).toString(), accountId,
+                        AccountType.CREDIT_CARD, n % 3 == 0 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT,
+                        BigDecimal.valueOf(100 + random.nextInt(100_000), 2), "USD",
+                        BenchmarkFixtures.START.plusSeconds(n).plusNanos(random.nextInt(1_000_000_000)),
+                        n % 10 == 0 ? "ref-" + a + "-" + n : null, "POS-" + (n % 16)));
+            }
+        }
+
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(target);
+        if (target instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        footprint.bytesPerTransaction = (after - before) / ((long) accounts * historyDepth);
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.ledger.controller;
+
+import com.example.ledger.service.ChangeFeed;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Server-Sent Events feed of committed transactions for downstream consumers.
+ *
+ * Each consumer is served by its own streaming thread that pulls batches from the
+ * {@link ChangeFeed} ring and writes them with blocking writes, so a slow client
+ * holds back only its own stream (TCP backpressure) and never the writers. A
+ * consumer that falls a full buffer behind gets an {@code overrun} event naming
+ * the oldest retained offset and the stream ends.
+ *
+ * Event ids are {@code <epoch>-<offset>}. Offsets restart at 0 with the
+ * application, so a Last-Event-ID from an earlier run, like an offset not
+ * published yet, is rejected rather than silently skipping new commits.
+ */
+@RestController
+@RequestMapping("/api")
+public class ChangeFeedController {
+
+    static final int MAX_BATCH_EVENTS = 256;
+    static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    private final ChangeFeed feed;
+    private final JsonFactory jsonFactory;
+    private final ObjectWriter eventWriter;
+
+    public ChangeFeedController(ChangeFeed feed, ObjectMapper objectMapper) {
+        this.feed = feed;
+        this.jsonFactory = objectMapper.getFactory();
+        this.eventWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * GET /api/feed?fromOffset={opt} (text/event-stream)
+     * Committed transactions from fromOffset on (default: only new ones), one
+     * {@code transaction} event each with the feed epoch and offset as its id. A
+     * reconnecting EventSource sends Last-Event-ID and resumes after it.
+     */
+    @GetMapping(value = "/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFeed(
+            @RequestParam(value = "fromOffset", required = false) Long fromOffset,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        long from = startOffset(fromOffset, lastEventId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header("Cache-Control", "no-cache")
+                .body(out -> writeEvents(from, out));
+    }
+
+    long startOffset(Long fromOffset, String lastEventId) {
+        long from;
+        if (fromOffset != null) {
+            from = fromOffset;
+        } else if (lastEventId != null && !lastEventId.isBlank()) {
+            from = resumeOffset(lastEventId.trim());
+        } else {
+            return feed.nextOffset();
+        }
+        if (from < feed.oldestOffset())
+            throw new IllegalArgumentException("offset " + from + " is no longer retained; oldest is " + feed.oldestOffset());
+        if (from > feed.nextOffset())
+            throw new IllegalArgumentException("offset " + from + " has not been published; next is " + feed.nextOffset());
+        return from;
+    }
+
+    /** The offset after a Last-Event-ID, which must carry this run's epoch */
+    private long resumeOffset(String lastEventId) {
+        int dash = lastEventId.indexOf('-');
+        long epoch;
+        long offset;
+        try {
+            if (dash < 0) throw new NumberFormatException();
+            epoch = Long.parseLong(lastEventId.substring(0, dash));
+            offset = Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Last-Event-ID must be a feed event id (<epoch>-<offset>)");
+        }
+        if (epoch != feed.epoch())
+            throw new IllegalArgumentException("Last-Event-ID " + lastEventId
+                    + " is from an earlier run of the feed; reconnect without it to receive new commits");
+        return offset + 1;
+    }
+
+    /** Write events from offset until the client goes away or the thread is interrupted */
+    void writeEvents(long offset, OutputStream out) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        List<ChangeFeed.Event> batch = new ArrayList<>(MAX_BATCH_EVENTS);
+        feed.attached();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.clear();
+                try {
+                    feed.read(offset, batch, MAX_BATCH_EVENTS);
+                } catch (IllegalArgumentException e) {
+                    generator.writeRaw("event: overrun\ndata: " + feed.oldestOffset() + "\n\n");
+                    generator.flush();
+                    return;
+                }
+                if (batch.isEmpty()) {
+                    // Comments keep proxies from closing an idle stream and surface disconnects
+                    if (!feed.awaitAfter(offset, HEARTBEAT_INTERVAL)) {
+                        generator.writeRaw(": heartbeat\n\n");
+                        generator.flush();
+                    }
+                    continue;
+                }
+                for (ChangeFeed.Event event : batch) {
+                    generator.writeRaw("id: " + feed.epoch() + "-" + event.offset() + "\nevent: transaction\ndata: ");
+                    eventWriter.writeValue(generator, event.transaction());
+                    generator.writeRaw("\n\n");
+                }
+                generator.flush();
+                offset += batch.size();
+            }
+        } finally {
+            feed.detached();
+        }
+    }
+}
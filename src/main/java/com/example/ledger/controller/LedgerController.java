@@ -1,26 +1,60 @@
 package com.example.ledger.controller;
 
+import com.example.ledger.dto.AggregateBucket;
+import com.example.ledger.dto.BatchItemResult;
+import com.example.ledger.dto.BatchTransactionItem;
+import com.example.ledger.dto.LedgerPage;
 import com.example.ledger.dto.TransactionRequest;
+import com.example.ledger.dto.TransferRequest;
+import com.example.ledger.dto.TransferResult;
+import com.example.ledger.exception.AccountNotHeldException;
+import com.example.ledger.exception.InsufficientBalanceException;
+import com.example.ledger.model.AggregatePeriod;
 import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
 import com.example.ledger.service.LedgerService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api")
 public class LedgerController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_BINARY_RECORDS = 10_000;
+
     private final LedgerService ledgerService;
+    private final JsonFactory jsonFactory;
+    private final ObjectWriter rowWriter;
 
     // Inject interface instead of implementation
-    public LedgerController(LedgerService ledgerService) {
+    public LedgerController(LedgerService ledgerService, ObjectMapper objectMapper) {
         this.ledgerService = ledgerService;
+        this.jsonFactory = objectMapper.getFactory();
+        // streamed rows are flushed by the generator's buffer, not after every row
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     /**
@@ -50,14 +84,149 @@ public class LedgerController {
         return ResponseEntity.ok(tx);
     }
 
+    /**
+     * POST /api/transactions/batch
+     * Body: [ { accountId, accountType, type, amount, currency, referenceId (opt), timestamp (opt ISO), transactionCode }, ... ]
+     * Returns one result per row (COMMITTED / DUPLICATE / REJECTED) in request order.
+     */
+    @PostMapping("/transactions/batch")
+    public ResponseEntity<List<BatchItemResult>> createTransactions(@RequestBody List<BatchTransactionItem> items) {
+        return ResponseEntity.ok(ledgerService.recordTransactions(items));
+    }
+
+    /**
+     * POST /api/transactions/binary (application/octet-stream)
+     * Body: records in the {@link TransactionWireFormat} layout. The whole body is
+     * decoded first, so a body with broken framing or too many records is rejected
+     * before anything is committed. Each record is then recorded like a single POST
+     * (same validation and idempotency); the response holds one status entry per
+     * record, in order, including records whose commit failed.
+     */
+    @PostMapping(value = "/transactions/binary",
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> createTransactionsBinary(@RequestBody byte[] body) {
+        ByteBuffer in = ByteBuffer.wrap(body);
+        List<TransactionWireFormat.Record> records = new ArrayList<>();
+        TransactionWireFormat.Record next = new TransactionWireFormat.Record();
+        while (TransactionWireFormat.decode(in, next)) {
+            if (records.size() == MAX_BINARY_RECORDS)
+                throw new IllegalArgumentException("at most " + MAX_BINARY_RECORDS + " records per request");
+            records.add(next);
+            next = new TransactionWireFormat.Record();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length));
+        for (TransactionWireFormat.Record record : records) {
+            try {
+                Transaction tx = ledgerService.recordTransaction(record.accountId, record.accountType, record.type,
+                        record.amount, record.timestamp, record.referenceId, record.transactionCode, record.currency);
+                TransactionWireFormat.writeResult(out, TransactionWireFormat.OK, tx.getId());
+            } catch (InsufficientBalanceException e) {
+                TransactionWireFormat.writeResult(out, TransactionWireFormat.INSUFFICIENT_FUNDS, e.getMessage());
+            } catch (IllegalArgumentException | AccountNotHeldException e) {
+                TransactionWireFormat.writeResult(out, TransactionWireFormat.REJECTED, e.getMessage());
+            } catch (RuntimeException e) {
+                // Like a batch row: later records still get their own outcome
+                TransactionWireFormat.writeResult(out, TransactionWireFormat.REJECTED, "commit failed: " + e.getMessage());
+            }
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(out.toByteArray());
+    }
+
+    /**
+     * POST /api/transfers
+     * Body: { fromAccountId, fromAccountType, toAccountId, toAccountType, amount, currency,
+     *         referenceId (opt), timestamp (opt ISO), transactionCode }
+     * Debits one account and credits the other atomically; returns both legs.
+     */
+    @PostMapping("/transfers")
+    public ResponseEntity<TransferResult> createTransfer(@RequestBody TransferRequest req) {
+        OffsetDateTime ts = (req.getTimestamp() == null || req.getTimestamp().isBlank())
+                ? null
+                : OffsetDateTime.parse(req.getTimestamp());
+
+        TransferResult transfer = ledgerService.transfer(
+                req.getFromAccountId(),
+                req.getFromAccountType(),
+                req.getToAccountId(),
+                req.getToAccountType(),
+                req.getAmount(),
+                ts,
+                req.getReferenceId(),
+                req.getTransactionCode(),
+                req.getCurrency()
+        );
+
+        return ResponseEntity.ok(transfer);
+    }
+
+    /**
+     * GET /api/ledger — all rows, or one page when cursor/limit is given.
+     * The cursor for the next page is returned in the X-Next-Cursor header.
+     */
     @GetMapping("/ledger")
-    public ResponseEntity<List<Transaction>> getLedgerRows() {
-        return ResponseEntity.ok(ledgerService.getLedgerRows());
+    public ResponseEntity<List<Transaction>> getLedgerRows(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        if (cursor == null && limit == null) {
+            return ResponseEntity.ok(ledgerService.getLedgerRows());
+        }
+        return pageResponse(ledgerService.getLedgerPage(cursor, limit == null ? DEFAULT_PAGE_SIZE : limit));
+    }
+
+    /**
+     * GET /api/transactions/search?accountId=&codePrefix=&type=&minAmount=&maxAmount=&from=&to=&cursor=&limit=
+     * One page of transactions matching every given filter, in timestamp order, served
+     * from secondary indexes. from is inclusive, to exclusive (ISO date-times); the
+     * cursor for the next page is returned in the X-Next-Cursor header.
+     */
+    @GetMapping("/transactions/search")
+    public ResponseEntity<List<Transaction>> searchTransactions(
+            @RequestParam(value = "accountId", required = false) String accountId,
+            @RequestParam(value = "codePrefix", required = false) String codePrefix,
+            @RequestParam(value = "type", required = false) TransactionType type,
+            @RequestParam(value = "minAmount", required = false) BigDecimal minAmount,
+            @RequestParam(value = "maxAmount", required = false) BigDecimal maxAmount,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return pageResponse(ledgerService.searchTransactions(accountId, codePrefix, type, minAmount, maxAmount,
+                from, to, cursor, limit == null ? DEFAULT_PAGE_SIZE : limit));
+    }
+
+    /**
+     * GET /api/ledger/stream — every row (after the optional cursor) as NDJSON,
+     * merged lazily from the per-account histories while it is written.
+     */
+    @GetMapping(value = "/ledger/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamLedger(
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        Stream<Transaction> rows = ledgerService.streamLedger(cursor);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> writeNdjson(rows, out));
     }
 
     @GetMapping("/accounts/{accountId}/transactions")
-    public ResponseEntity<List<Transaction>> getAccountTransactions(@PathVariable String accountId) {
-        return ResponseEntity.ok(ledgerService.getTransactionHistory(accountId));
+    public ResponseEntity<List<Transaction>> getAccountTransactions(
+            @PathVariable String accountId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        if (cursor == null && limit == null) {
+            return ResponseEntity.ok(ledgerService.getTransactionHistory(accountId));
+        }
+        return pageResponse(ledgerService.getTransactionHistoryPage(
+                accountId, cursor, limit == null ? DEFAULT_PAGE_SIZE : limit));
+    }
+
+    @GetMapping(value = "/accounts/{accountId}/transactions/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAccountTransactions(@PathVariable String accountId) {
+        Stream<Transaction> rows = ledgerService.streamTransactionHistory(accountId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> writeNdjson(rows, out));
     }
 
     @GetMapping("/accounts/{accountId}/balance")
@@ -71,4 +240,47 @@ public class LedgerController {
             @RequestParam("at") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime at) {
         return ResponseEntity.ok(Map.of("balance", ledgerService.getBalanceAt(accountId, at)));
     }
+
+    /**
+     * GET /api/accounts/{accountId}/aggregates?period=DAY|MONTH&from=2025-10-01&to=2025-10-31
+     * Count, deposit and withdrawal totals and min/max amount per UTC day or month,
+     * from the bucket containing from to the one containing to; empty buckets are omitted.
+     */
+    @GetMapping("/accounts/{accountId}/aggregates")
+    public ResponseEntity<List<AggregateBucket>> getAggregates(
+            @PathVariable String accountId,
+            @RequestParam(value = "period", defaultValue = "DAY") AggregatePeriod period,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(ledgerService.getAggregates(accountId, period, from, to));
+    }
+
+    /**
+     * GET /api/balances?accountIds=A1,A2,...
+     * Current balances of up to 1,000 accounts, read in parallel; accounts without
+     * transactions report zero.
+     */
+    @GetMapping("/balances")
+    public ResponseEntity<Map<String, BigDecimal>> getBalances(@RequestParam("accountIds") List<String> accountIds) {
+        return ResponseEntity.ok(ledgerService.getBalances(accountIds));
+    }
+
+    private static ResponseEntity<List<Transaction>> pageResponse(LedgerPage page) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (page.getNextCursor() != null) ok.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        return ok.body(page.getItems());
+    }
+
+    private void writeNdjson(Stream<Transaction> rows, OutputStream out) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (rows) {
+            Iterator<Transaction> it = rows.iterator();
+            while (it.hasNext()) {
+                rowWriter.writeValue(generator, it.next());
+                generator.writeRaw('\n');
+            }
+        }
+        generator.flush();
+    }
 }
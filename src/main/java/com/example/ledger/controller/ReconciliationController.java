@@ -0,0 +1,36 @@
+package com.example.ledger.controller;
+
+import com.example.ledger.dto.ReconciliationReport;
+import com.example.ledger.service.ReconciliationService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * End-of-day reconciliation of a ledger node's accounts. Cluster routers do not
+ * hold accounts, so each node is reconciled on its own.
+ */
+@RestController
+@RequestMapping("/api")
+@ConditionalOnProperty(name = "ledger.cluster.role", havingValue = "node", matchIfMissing = true)
+public class ReconciliationController {
+
+    private final ReconciliationService reconciliationService;
+
+    public ReconciliationController(ReconciliationService reconciliationService) {
+        this.reconciliationService = reconciliationService;
+    }
+
+    /**
+     * POST /api/reconciliation
+     * Checks every account's stored balance against the sum of its history and
+     * returns the mismatches and a trial balance per currency and account type.
+     * Runs within ledger.reconciliation.time-budget; complete=false if it ran out.
+     */
+    @PostMapping("/reconciliation")
+    public ResponseEntity<ReconciliationReport> reconcile() {
+        return ResponseEntity.ok(reconciliationService.reconcile());
+    }
+}
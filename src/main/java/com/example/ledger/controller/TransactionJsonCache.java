@@ -0,0 +1,291 @@
+package com.example.ledger.controller;
+
+import com.example.ledger.model.Transaction;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Jackson module that serializes each Transaction once and replays its JSON bytes.
+ *
+ * Transactions never change once committed, so the bytes the regular bean
+ * serializer produces for one (timestamp and amount formatting included) stay
+ * valid for its lifetime. The module wraps that serializer: the first write of a
+ * transaction id encodes it and caches the bytes, later writes copy them straight
+ * into the generator's output buffer as a raw value. Every response that holds
+ * transactions (history, ledger pages and streams, search, batch results, the
+ * change feed) therefore produces exactly the JSON it did before. Spring Boot
+ * registers the module with its ObjectMapper.
+ *
+ * The cache is split into {@value #STRIPES} independently locked LRU stripes
+ * that together hold at most {@code maxBytes} of encoded JSON plus a fixed
+ * per-entry overhead; 0 disables it. Records {@code ledger.json.cache.lookups}
+ * (hit/miss) and {@code ledger.json.cache.bytes} (bytes currently held).
+ */
+@Component
+public class TransactionJsonCache extends SimpleModule {
+
+    static final int STRIPES = 16;
+    // approximate heap cost of an entry besides the JSON: map entry, key string, array header
+    static final int ENTRY_OVERHEAD = 128;
+
+    // Side buffer generators copy the features of the generator they encode for; the
+    // bean serializer takes its other settings (e.g. date formats) from the SerializerProvider
+    private static final JsonFactory ENCODER = new JsonFactory();
+
+    /** One LRU stripe; access order, so iteration starts at the least recently written entry */
+    private static final class Stripe {
+        final LinkedHashMap<String, CachedJson> entries = new LinkedHashMap<>(256, 0.75f, true);
+        long bytes;
+    }
+
+    private final long maxBytesPerStripe;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Counter hits;
+    private final Counter misses;
+
+    /** Without a registry (an empty composite), meters are no-ops */
+    public TransactionJsonCache(long maxBytes) {
+        this(maxBytes, new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public TransactionJsonCache(@Value("${ledger.json-cache.max-bytes:67108864}") long maxBytes,
+                                MeterRegistry meterRegistry) {
+        super("TransactionJsonCache");
+        if (maxBytes < 0) throw new IllegalArgumentException("json cache bytes must be >= 0");
+        this.maxBytesPerStripe = maxBytes / STRIPES;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+        this.hits = Counter.builder("ledger.json.cache.lookups").tag("result", "hit")
+                .description("Transaction JSON served from cached bytes")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ledger.json.cache.lookups").tag("result", "miss")
+                .description("Transaction JSON served from cached bytes")
+                .register(meterRegistry);
+        Gauge.builder("ledger.json.cache.bytes", this, TransactionJsonCache::bytes)
+                .description("Encoded transaction JSON currently cached, including per-entry overhead")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        if (maxBytes > 0) {
+            setSerializerModifier(new BeanSerializerModifier() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+                                                          JsonSerializer<?> serializer) {
+                    if (beanDesc.getBeanClass() != Transaction.class) return serializer;
+                    return new CachingSerializer((JsonSerializer<Transaction>) serializer);
+                }
+            });
+        }
+    }
+
+    /** Cached JSON of the transaction, encoding it with the bean serializer on a miss */
+    CachedJson json(Transaction tx, JsonSerializer<Transaction> encoder, JsonGenerator target,
+                    SerializerProvider provider) throws IOException {
+        Stripe stripe = stripeOf(tx.getId());
+        synchronized (stripe) {
+            CachedJson cached = stripe.entries.get(tx.getId());
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+
+        ByteArrayBuilder buffer = new ByteArrayBuilder(512);
+        try (JsonGenerator generator = ENCODER.createGenerator(buffer)) {
+            // every standard feature takes the target's state, enabled or not
+            generator.overrideStdFeatures(target.getFeatureMask(), ~0);
+            encoder.serialize(tx, generator, provider);
+        }
+        CachedJson json = new CachedJson(buffer.toByteArray());
+        long cost = json.bytes.length + ENTRY_OVERHEAD;
+        if (cost > maxBytesPerStripe) return json;
+
+        synchronized (stripe) {
+            CachedJson previous = stripe.entries.put(tx.getId(), json);
+            stripe.bytes += cost - (previous == null ? 0 : previous.bytes.length + ENTRY_OVERHEAD);
+            Iterator<CachedJson> eldest = stripe.entries.values().iterator();
+            while (stripe.bytes > maxBytesPerStripe) {
+                stripe.bytes -= eldest.next().bytes.length + ENTRY_OVERHEAD;
+                eldest.remove();
+            }
+        }
+        return json;
+    }
+
+    /** Bytes held across all stripes, including per-entry overhead */
+    long bytes() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.bytes;
+            }
+        }
+        return total;
+    }
+
+    private Stripe stripeOf(String id) {
+        int h = id.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /** The bean serializer of Transaction, answering from the cache */
+    private final class CachingSerializer extends StdSerializer<Transaction> implements ResolvableSerializer {
+
+        private final JsonSerializer<Transaction> encoder;
+
+        CachingSerializer(JsonSerializer<Transaction> encoder) {
+            super(Transaction.class);
+            this.encoder = encoder;
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (encoder instanceof ResolvableSerializer resolvable) resolvable.resolve(provider);
+        }
+
+        @Override
+        public void serialize(Transaction tx, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            // Indented output depends on the nesting depth, so only compact JSON is cached
+            if (tx.getId() == null || generator.getPrettyPrinter() != null) {
+                encoder.serialize(tx, generator, provider);
+                return;
+            }
+            generator.writeRawValue(json(tx, encoder, generator, provider));
+        }
+
+        @Override
+        public void serializeWithType(Transaction tx, JsonGenerator generator, SerializerProvider provider,
+                                      TypeSerializer typeSer) throws IOException {
+            // Polymorphic type ids are written around the properties, so bypass the cache
+            encoder.serializeWithType(tx, generator, provider, typeSer);
+        }
+    }
+
+    /**
+     * Encoded JSON of one transaction, handed to the generator as a raw value: UTF-8
+     * generators copy the bytes into their output buffer, others decode them. The
+     * quoted forms, which raw output never uses, escape the JSON text as a string
+     * value, as SerializedString does.
+     */
+    static final class CachedJson implements SerializableString {
+
+        final byte[] bytes;
+
+        CachedJson(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String getValue() {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int charLength() {
+            return getValue().length();
+        }
+
+        @Override
+        public char[] asQuotedChars() {
+            return JsonStringEncoder.getInstance().quoteAsString(getValue());
+        }
+
+        @Override
+        public byte[] asUnquotedUTF8() {
+            return bytes;
+        }
+
+        @Override
+        public byte[] asQuotedUTF8() {
+            return JsonStringEncoder.getInstance().quoteAsUTF8(getValue());
+        }
+
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            byte[] quoted = asQuotedUTF8();
+            if (offset + quoted.length > buffer.length) return -1;
+            System.arraycopy(quoted, 0, buffer, offset, quoted.length);
+            return quoted.length;
+        }
+
+        @Override
+        public int appendQuoted(char[] buffer, int offset) {
+            char[] quoted = asQuotedChars();
+            if (offset + quoted.length > buffer.length) return -1;
+            System.arraycopy(quoted, 0, buffer, offset, quoted.length);
+            return quoted.length;
+        }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            if (offset + bytes.length > buffer.length) return -1;
+            System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+            return bytes.length;
+        }
+
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            String value = getValue();
+            if (offset + value.length() > buffer.length) return -1;
+            value.getChars(0, value.length(), buffer, offset);
+            return value.length();
+        }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) throws IOException {
+            byte[] quoted = asQuotedUTF8();
+            out.write(quoted);
+            return quoted.length;
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(bytes);
+            return bytes.length;
+        }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) {
+            byte[] quoted = asQuotedUTF8();
+            if (quoted.length > buffer.remaining()) return -1;
+            buffer.put(quoted);
+            return quoted.length;
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) {
+            if (bytes.length > buffer.remaining()) return -1;
+            buffer.put(bytes);
+            return bytes.length;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.ledger.controller;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.TransactionType;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Fixed-layout binary encoding of transaction requests for the binary ingest
+ * endpoint, so high-frequency clients skip JSON, timestamp and decimal parsing.
+ *
+ * A request body is a sequence of records, each a 29-byte big-endian header
+ * followed by its strings:
+ * <pre>
+ *  0  long   amount unscaled value
+ *  8  long   timestamp, epoch microseconds (Long.MIN_VALUE = server time)
+ * 16  int    timestamp offset, seconds
+ * 20  byte   AccountType ordinal
+ * 21  byte   TransactionType ordinal
+ * 22  byte   amount scale
+ * 23  3 byte currency, ASCII
+ * 26  byte   accountId length (1..255)
+ * 27  byte   referenceId length (0 = none)
+ * 28  byte   transactionCode length (0 = none)
+ * 29  ...    accountId, referenceId, transactionCode, UTF-8
+ * </pre>
+ * The response has one entry per record, in order: a status byte, an unsigned
+ * short length and that many UTF-8 bytes holding the transaction id (OK; a
+ * replayed referenceId returns the original id) or the error message.
+ */
+final class TransactionWireFormat {
+
+    static final int HEADER_BYTES = 29;
+    static final long SERVER_TIME = Long.MIN_VALUE;
+
+    static final byte OK = 0;
+    static final byte REJECTED = 1;
+    static final byte INSUFFICIENT_FUNDS = 2;
+
+    private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+    private static final int MAX_MESSAGE_BYTES = 0xFFFF;
+
+    /** One decoded record */
+    static final class Record {
+        String accountId;
+        AccountType accountType;
+        TransactionType type;
+        BigDecimal amount;
+        OffsetDateTime timestamp;
+        String referenceId;
+        String transactionCode;
+        String currency;
+    }
+
+    private TransactionWireFormat() {
+    }
+
+    /**
+     * Decode the record at the buffer's position into record and advance past it.
+     * Returns false at the end of the buffer. Out-of-range enum ordinals decode to
+     * null so the service rejects the record; a truncated record breaks the framing
+     * of the whole body and is an IllegalArgumentException.
+     */
+    static boolean decode(ByteBuffer in, Record record) {
+        if (!in.hasRemaining()) return false;
+        if (in.remaining() < HEADER_BYTES) throw new IllegalArgumentException("truncated record header");
+        int at = in.position();
+        try {
+            long unscaled = in.getLong(at);
+            long micros = in.getLong(at + 8);
+            int offsetSeconds = in.getInt(at + 16);
+            int accountType = in.get(at + 20) & 0xFF;
+            int type = in.get(at + 21) & 0xFF;
+            int scale = in.get(at + 22);
+            int accountIdLength = in.get(at + 26) & 0xFF;
+            int referenceIdLength = in.get(at + 27) & 0xFF;
+            int codeLength = in.get(at + 28) & 0xFF;
+
+            int strings = at + HEADER_BYTES;
+            if (in.limit() - strings < accountIdLength + referenceIdLength + codeLength)
+                throw new IllegalArgumentException("truncated record strings");
+
+            record.amount = BigDecimal.valueOf(unscaled, scale);
+            record.timestamp = micros == SERVER_TIME ? null : OffsetDateTime.ofInstant(
+                    Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L),
+                    ZoneOffset.ofTotalSeconds(offsetSeconds));
+            record.accountType = accountType < ACCOUNT_TYPES.length ? ACCOUNT_TYPES[accountType] : null;
+            record.type = type < TRANSACTION_TYPES.length ? TRANSACTION_TYPES[type] : null;
+            record.currency = ascii(in, at + 23, 3);
+            record.accountId = utf8(in, strings, accountIdLength);
+            record.referenceId = utf8(in, strings + accountIdLength, referenceIdLength);
+            record.transactionCode = utf8(in, strings + accountIdLength + referenceIdLength, codeLength);
+
+            in.position(strings + accountIdLength + referenceIdLength + codeLength);
+            return true;
+        } catch (DateTimeException | BufferUnderflowException e) {
+            throw new IllegalArgumentException("malformed record at offset " + at + ": " + e.getMessage());
+        }
+    }
+
+    /** Encode one record; the counterpart of {@link #decode}, for clients and tests */
+    static void encode(ByteBuffer out, String accountId, AccountType accountType, TransactionType type,
+                       BigDecimal amount, OffsetDateTime timestamp, String referenceId, String transactionCode,
+                       String currency) {
+        if (amount.unscaledValue().bitLength() > 63 || amount.scale() < Byte.MIN_VALUE || amount.scale() > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("amount does not fit the wire format: " + amount);
+        byte[] currencyBytes = currency.getBytes(StandardCharsets.US_ASCII);
+        if (currencyBytes.length != 3) throw new IllegalArgumentException("currency must be a 3-letter code");
+        byte[] accountIdBytes = checkedUtf8(accountId, "accountId");
+        byte[] referenceIdBytes = referenceId == null ? new byte[0] : checkedUtf8(referenceId, "referenceId");
+        byte[] codeBytes = transactionCode == null ? new byte[0] : checkedUtf8(transactionCode, "transactionCode");
+        if (accountIdBytes.length == 0) throw new IllegalArgumentException("accountId required");
+
+        out.putLong(amount.unscaledValue().longValueExact());
+        if (timestamp == null) {
+            out.putLong(SERVER_TIME);
+            out.putInt(0);
+        } else {
+            Instant instant = timestamp.toInstant();
+            out.putLong(Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000));
+            out.putInt(timestamp.getOffset().getTotalSeconds());
+        }
+        out.put((byte) accountType.ordinal());
+        out.put((byte) type.ordinal());
+        out.put((byte) amount.scale());
+        out.put(currencyBytes);
+        out.put((byte) accountIdBytes.length);
+        out.put((byte) referenceIdBytes.length);
+        out.put((byte) codeBytes.length);
+        out.put(accountIdBytes);
+        out.put(referenceIdBytes);
+        out.put(codeBytes);
+    }
+
+    /** Append one response entry */
+    static void writeResult(ByteArrayOutputStream out, byte status, String text) {
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_MESSAGE_BYTES);
+        out.write(status);
+        out.write(length >>> 8);
+        out.write(length);
+        out.write(bytes, 0, length);
+    }
+
+    private static String ascii(ByteBuffer in, int at, int length) {
+        if (in.hasArray()) return new String(in.array(), in.arrayOffset() + at, length, StandardCharsets.US_ASCII);
+        byte[] bytes = new byte[length];
+        in.get(at, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static String utf8(ByteBuffer in, int at, int length) {
+        if (length == 0) return null;
+        if (in.hasArray()) return new String(in.array(), in.arrayOffset() + at, length, StandardCharsets.UTF_8);
+        byte[] bytes = new byte[length];
+        in.get(at, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] checkedUtf8(String value, String field) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 255) throw new IllegalArgumentException(field + " longer than 255 bytes");
+        return bytes;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.ledger.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Totals of one account's transactions in one UTC day or month, starting at start.
+ * minAmount and maxAmount are over the bucket's transaction amounts, either type.
+ */
+public class AggregateBucket {
+    private final LocalDate start;
+    private final long count;
+    private final BigDecimal deposits;
+    private final BigDecimal withdrawals;
+    private final BigDecimal minAmount;
+    private final BigDecimal maxAmount;
+
+    public AggregateBucket(LocalDate start, long count, BigDecimal deposits, BigDecimal withdrawals,
+                           BigDecimal minAmount, BigDecimal maxAmount) {
+        this.start = start;
+        this.count = count;
+        this.deposits = deposits;
+        this.withdrawals = withdrawals;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+    }
+
+    public LocalDate getStart() { return start; }
+    public long getCount() { return count; }
+    public BigDecimal getDeposits() { return deposits; }
+    public BigDecimal getWithdrawals() { return withdrawals; }
+    public BigDecimal getMinAmount() { return minAmount; }
+    public BigDecimal getMaxAmount() { return maxAmount; }
+
+    /** Deposits minus withdrawals */
+    public BigDecimal getNet() { return deposits.subtract(withdrawals); }
+}
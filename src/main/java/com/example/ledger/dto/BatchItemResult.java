@@ -0,0 +1,44 @@
+package com.example.ledger.dto;
+
+import com.example.ledger.model.Transaction;
+
+/**
+ * Outcome of one batch row, reported at the row's position in the request.
+ */
+public class BatchItemResult {
+
+    public enum Status {
+        COMMITTED,   // new transaction recorded
+        DUPLICATE,   // referenceId already recorded; transaction is the original
+        REJECTED     // validation, currency or funds check failed; see error
+    }
+
+    private final int index;
+    private final Status status;
+    private final Transaction transaction;
+    private final String error;
+
+    private BatchItemResult(int index, Status status, Transaction transaction, String error) {
+        this.index = index;
+        this.status = status;
+        this.transaction = transaction;
+        this.error = error;
+    }
+
+    public static BatchItemResult committed(int index, Transaction tx) {
+        return new BatchItemResult(index, Status.COMMITTED, tx, null);
+    }
+
+    public static BatchItemResult duplicate(int index, Transaction original) {
+        return new BatchItemResult(index, Status.DUPLICATE, original, null);
+    }
+
+    public static BatchItemResult rejected(int index, String error) {
+        return new BatchItemResult(index, Status.REJECTED, null, error);
+    }
+
+    public int getIndex() { return index; }
+    public Status getStatus() { return status; }
+    public Transaction getTransaction() { return transaction; }
+    public String getError() { return error; }
+}
@@ -0,0 +1,11 @@
+package com.example.ledger.dto;
+
+/**
+ * One row of a batch submission: a TransactionRequest plus the account it targets.
+ */
+public class BatchTransactionItem extends TransactionRequest {
+    private String accountId;
+
+    public String getAccountId() { return accountId; }
+    public void setAccountId(String accountId) { this.accountId = accountId; }
+}
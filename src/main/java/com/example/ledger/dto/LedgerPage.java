@@ -0,0 +1,21 @@
+package com.example.ledger.dto;
+
+import com.example.ledger.model.Transaction;
+
+import java.util.List;
+
+/**
+ * One page of transactions plus the opaque cursor of the next page (null on the last page).
+ */
+public class LedgerPage {
+    private final List<Transaction> items;
+    private final String nextCursor;
+
+    public LedgerPage(List<Transaction> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Transaction> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+}
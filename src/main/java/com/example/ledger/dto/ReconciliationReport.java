@@ -0,0 +1,95 @@
+package com.example.ledger.dto;
+
+import com.example.ledger.model.AccountType;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Outcome of an end-of-day reconciliation: accounts whose stored balance differs
+ * from the sum of their history, and a trial balance per currency and AccountType.
+ * complete is false when the time budget ran out before every account was checked;
+ * the totals then cover only the checked accounts.
+ */
+public class ReconciliationReport {
+
+    /** An account whose stored running balance is not the sum of its history */
+    public static class Mismatch {
+        private final String accountId;
+        private final BigDecimal storedBalance;
+        private final BigDecimal computedBalance;
+
+        public Mismatch(String accountId, BigDecimal storedBalance, BigDecimal computedBalance) {
+            this.accountId = accountId;
+            this.storedBalance = storedBalance;
+            this.computedBalance = computedBalance;
+        }
+
+        public String getAccountId() { return accountId; }
+        public BigDecimal getStoredBalance() { return storedBalance; }
+        public BigDecimal getComputedBalance() { return computedBalance; }
+    }
+
+    /** Totals of every transaction in one currency and AccountType */
+    public static class TrialBalanceLine {
+        private final String currency;
+        private final AccountType accountType;
+        private final long accounts;
+        private final long transactions;
+        private final BigDecimal deposits;
+        private final BigDecimal withdrawals;
+
+        public TrialBalanceLine(String currency, AccountType accountType, long accounts, long transactions,
+                                BigDecimal deposits, BigDecimal withdrawals) {
+            this.currency = currency;
+            this.accountType = accountType;
+            this.accounts = accounts;
+            this.transactions = transactions;
+            this.deposits = deposits;
+            this.withdrawals = withdrawals;
+        }
+
+        public String getCurrency() { return currency; }
+        public AccountType getAccountType() { return accountType; }
+        public long getAccounts() { return accounts; }
+        public long getTransactions() { return transactions; }
+        public BigDecimal getDeposits() { return deposits; }
+        public BigDecimal getWithdrawals() { return withdrawals; }
+
+        /** Deposits minus withdrawals */
+        public BigDecimal getNet() { return deposits.subtract(withdrawals); }
+    }
+
+    private final boolean complete;
+    private final long accountsChecked;
+    private final long accountsSkipped;
+    private final long transactionsChecked;
+    private final long elapsedMillis;
+    private final long mismatchCount;
+    private final List<Mismatch> mismatches;
+    private final List<TrialBalanceLine> trialBalance;
+
+    public ReconciliationReport(boolean complete, long accountsChecked, long accountsSkipped,
+                                long transactionsChecked, long elapsedMillis, long mismatchCount,
+                                List<Mismatch> mismatches, List<TrialBalanceLine> trialBalance) {
+        this.complete = complete;
+        this.accountsChecked = accountsChecked;
+        this.accountsSkipped = accountsSkipped;
+        this.transactionsChecked = transactionsChecked;
+        this.elapsedMillis = elapsedMillis;
+        this.mismatchCount = mismatchCount;
+        this.mismatches = mismatches;
+        this.trialBalance = trialBalance;
+    }
+
+    public boolean isComplete() { return complete; }
+    public long getAccountsChecked() { return accountsChecked; }
+    public long getAccountsSkipped() { return accountsSkipped; }
+    public long getTransactionsChecked() { return transactionsChecked; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    /** All mismatches found; {@link #getMismatches} lists at most the first reported ones */
+    public long getMismatchCount() { return mismatchCount; }
+    public List<Mismatch> getMismatches() { return mismatches; }
+    /** Ordered by currency, then AccountType */
+    public List<TrialBalanceLine> getTrialBalance() { return trialBalance; }
+}
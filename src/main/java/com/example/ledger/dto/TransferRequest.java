@@ -0,0 +1,44 @@
+package com.example.ledger.dto;
+
+import com.example.ledger.model.AccountType;
+
+import java.math.BigDecimal;
+
+public class TransferRequest {
+    private String fromAccountId;
+    private AccountType fromAccountType;
+    private String toAccountId;
+    private AccountType toAccountType;
+    private BigDecimal amount;
+    private String currency;
+    private String referenceId;    // optional idempotency key, shared by both legs
+    private String timestamp;      // optional
+    private String transactionCode;
+
+    public String getFromAccountId() { return fromAccountId; }
+    public void setFromAccountId(String fromAccountId) { this.fromAccountId = fromAccountId; }
+
+    public AccountType getFromAccountType() { return fromAccountType; }
+    public void setFromAccountType(AccountType fromAccountType) { this.fromAccountType = fromAccountType; }
+
+    public String getToAccountId() { return toAccountId; }
+    public void setToAccountId(String toAccountId) { this.toAccountId = toAccountId; }
+
+    public AccountType getToAccountType() { return toAccountType; }
+    public void setToAccountType(AccountType toAccountType) { this.toAccountType = toAccountType; }
+
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
+
+    public String getReferenceId() { return referenceId; }
+    public void setReferenceId(String referenceId) { this.referenceId = referenceId; }
+
+    public String getTimestamp() { return timestamp; }
+    public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
+
+    public String getTransactionCode() { return transactionCode; }
+    public void setTransactionCode(String transactionCode) { this.transactionCode = transactionCode; }
+}
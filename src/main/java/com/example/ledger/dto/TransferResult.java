@@ -0,0 +1,21 @@
+package com.example.ledger.dto;
+
+import com.example.ledger.model.Transaction;
+
+/**
+ * Both legs of a transfer: the WITHDRAWAL from the source account and the DEPOSIT
+ * to the destination, committed together. A replayed referenceId returns the
+ * original legs.
+ */
+public class TransferResult {
+    private final Transaction debit;
+    private final Transaction credit;
+
+    public TransferResult(Transaction debit, Transaction credit) {
+        this.debit = debit;
+        this.credit = credit;
+    }
+
+    public Transaction getDebit() { return debit; }
+    public Transaction getCredit() { return credit; }
+}
@@ -0,0 +1,11 @@
+package com.example.ledger.exception;
+
+/**
+ * A cluster node was asked for an account its ring does not assign to it, so it
+ * does not hold the account's history (typically while a ring change is in progress).
+ */
+public class AccountNotHeldException extends RuntimeException {
+    public AccountNotHeldException(String message) {
+        super(message);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.ledger.exception;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -10,6 +11,11 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    /** Header naming the error kind, so clients (e.g. the cluster router) can tell 400s apart */
+    public static final String ERROR_HEADER = "X-Ledger-Error";
+    public static final String INSUFFICIENT_FUNDS = "insufficient-funds";
+    public static final String ACCOUNT_NOT_HELD = "account-not-held";
+
     /**
      * Handle illegal arguments (bad requests)
      */
@@ -23,7 +29,15 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(InsufficientBalanceException.class)
     public ResponseEntity<String> handleInsufficientBalance(InsufficientBalanceException ex) {
-        return ResponseEntity.badRequest().body(ex.getMessage());
+        return ResponseEntity.badRequest().header(ERROR_HEADER, INSUFFICIENT_FUNDS).body(ex.getMessage());
+    }
+
+    /**
+     * Handle requests for accounts this cluster node does not hold
+     */
+    @ExceptionHandler(AccountNotHeldException.class)
+    public ResponseEntity<String> handleAccountNotHeld(AccountNotHeldException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).header(ERROR_HEADER, ACCOUNT_NOT_HELD).body(ex.getMessage());
     }
 
     /**
@@ -0,0 +1,6 @@
+package com.example.ledger.model;
+
+public enum AggregatePeriod {
+    DAY,     // one UTC calendar day
+    MONTH    // one UTC calendar month
+}
@@ -43,4 +43,9 @@ public class Transaction {
     public OffsetDateTime getTimestamp() { return timestamp; }
     public String getReferenceId() { return referenceId; }
     public String getTransactionCode() { return transactionCode; }
+
+    /** Amount as it affects the balance: positive for deposits, negative for withdrawals */
+    public BigDecimal signedAmount() {
+        return type == TransactionType.DEPOSIT ? amount : amount.negate();
+    }
 }
@@ -0,0 +1,92 @@
+package com.example.ledger.service;
+
+import com.example.ledger.dto.AggregateBucket;
+import com.example.ledger.model.AggregatePeriod;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Per-account transaction totals in UTC day and month buckets, updated on every
+ * commit so statements read one entry per bucket instead of scanning history.
+ *
+ * A transaction lands in the buckets of its own timestamp, so backdated inserts
+ * update the past buckets they belong to. Buckets are immutable values in a skip
+ * list keyed by bucket number (epoch day, or months since year 0); the account
+ * lock serializes their replacement and readers see each bucket whole without
+ * locking.
+ */
+final class AccountAggregates {
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private record Totals(long count, BigDecimal deposits, BigDecimal withdrawals,
+                          BigDecimal minAmount, BigDecimal maxAmount) {
+
+        static Totals of(Transaction tx) {
+            BigDecimal amount = tx.getAmount();
+            boolean deposit = tx.getType() == TransactionType.DEPOSIT;
+            return new Totals(1, deposit ? amount : BigDecimal.ZERO, deposit ? BigDecimal.ZERO : amount, amount, amount);
+        }
+
+        Totals plus(Transaction tx) {
+            BigDecimal amount = tx.getAmount();
+            boolean deposit = tx.getType() == TransactionType.DEPOSIT;
+            return new Totals(count + 1,
+                    deposit ? deposits.add(amount) : deposits,
+                    deposit ? withdrawals : withdrawals.add(amount),
+                    minAmount.min(amount),
+                    maxAmount.max(amount));
+        }
+    }
+
+    private static final class Buckets {
+        final ConcurrentSkipListMap<Long, Totals> days = new ConcurrentSkipListMap<>();
+        final ConcurrentSkipListMap<Long, Totals> months = new ConcurrentSkipListMap<>();
+    }
+
+    private final ConcurrentHashMap<String, Buckets> byAccount = new ConcurrentHashMap<>();
+
+    /** Add a committed transaction to its account's day and month buckets */
+    void add(Transaction tx) {
+        Buckets buckets = byAccount.computeIfAbsent(tx.getAccountId(), k -> new Buckets());
+        long day = Math.floorDiv(tx.getTimestamp().toEpochSecond(), SECONDS_PER_DAY);
+        buckets.days.compute(day, (k, totals) -> totals == null ? Totals.of(tx) : totals.plus(tx));
+        buckets.months.compute(monthOf(LocalDate.ofEpochDay(day)),
+                (k, totals) -> totals == null ? Totals.of(tx) : totals.plus(tx));
+    }
+
+    /** Non-empty buckets of an account from the one containing from to the one containing to, oldest first */
+    List<AggregateBucket> read(String accountId, AggregatePeriod period, LocalDate from, LocalDate to) {
+        Buckets buckets = byAccount.get(accountId);
+        if (buckets == null) return List.of();
+
+        boolean daily = period == AggregatePeriod.DAY;
+        ConcurrentSkipListMap<Long, Totals> source = daily ? buckets.days : buckets.months;
+        long first = daily ? from.toEpochDay() : monthOf(from);
+        long last = daily ? to.toEpochDay() : monthOf(to);
+
+        List<AggregateBucket> result = new ArrayList<>();
+        for (Map.Entry<Long, Totals> entry : source.subMap(first, true, last, true).entrySet()) {
+            long key = entry.getKey();
+            LocalDate start = daily
+                    ? LocalDate.ofEpochDay(key)
+                    : LocalDate.of((int) Math.floorDiv(key, 12), (int) Math.floorMod(key, 12) + 1, 1);
+            Totals totals = entry.getValue();
+            result.add(new AggregateBucket(start, totals.count(), totals.deposits(), totals.withdrawals(),
+                    totals.minAmount(), totals.maxAmount()));
+        }
+        return result;
+    }
+
+    private static long monthOf(LocalDate date) {
+        return date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+}
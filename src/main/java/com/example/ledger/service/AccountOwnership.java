@@ -0,0 +1,65 @@
+package com.example.ledger.service;
+
+import com.example.ledger.exception.AccountNotHeldException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * The accounts a ledger node holds: those assigned to it by the ring its data is
+ * laid out under ({@code ledger.cluster.nodes}, with this node's own entry in
+ * {@code ledger.cluster.node}).
+ *
+ * The router places accounts by its own ring. While a ring change is in
+ * progress the two differ, and an account the router now sends to a node that
+ * never held it would read as empty there: zero balance, an overdraft check
+ * against no history, and no idempotency references to catch retries. The node
+ * therefore refuses such accounts with an AccountNotHeldException (409), and
+ * leaves accounts it still stores but no longer holds out of its ledger-wide
+ * reads. A node missing from its own ring holds nothing, which is how a joining
+ * node starts; a node without {@code ledger.cluster.node} holds every account.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.cluster.role", havingValue = "node", matchIfMissing = true)
+public class AccountOwnership {
+
+    /** Holds every account: a standalone node, or one whose ring is not configured */
+    public static final AccountOwnership ALL = new AccountOwnership(null, null);
+
+    // null when every account is held
+    private final HashRing ring;
+    private final String node;
+
+    @Autowired
+    public AccountOwnership(@Value("${ledger.cluster.nodes:}") List<String> nodes,
+                            @Value("${ledger.cluster.node:}") String node,
+                            @Value("${ledger.cluster.virtual-nodes:128}") int virtualNodes) {
+        this(node == null || node.isBlank() ? null : HashRing.of(nodes, virtualNodes),
+                node == null ? null : node.trim());
+    }
+
+    private AccountOwnership(HashRing ring, String node) {
+        this.ring = ring;
+        this.node = node;
+    }
+
+    /** The accounts ring assigns to node */
+    public static AccountOwnership of(HashRing ring, String node) {
+        return new AccountOwnership(ring, node);
+    }
+
+    public boolean holds(String accountId) {
+        return ring == null || ring.ownerOf(accountId).equals(node);
+    }
+
+    /** Throw AccountNotHeldException unless this node holds the account */
+    void checkHeld(String accountId) {
+        if (!holds(accountId)) {
+            throw new AccountNotHeldException("account " + accountId + " is not held by ledger node " + node
+                    + "; its ring assigns it to " + ring.ownerOf(accountId));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.ledger.service;
+
+import com.example.ledger.model.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feed of committed transactions for downstream consumers, in commit order, each
+ * with an offset consumers resume from.
+ *
+ * The last {@code capacity} events are kept in a ring that publishers overwrite
+ * without ever waiting: publishing claims an offset with one atomic increment and
+ * stores the event in its slot by compare-and-set, unless a publisher a lap ahead
+ * has already stored a newer one there. Consumers pull from the ring at their own pace,
+ * so a slow consumer only falls behind; one that falls more than a ring's length
+ * behind finds its offset overwritten and is told so instead of receiving a gap.
+ * Offsets start at 0 when the application starts, so each run of the feed has
+ * its own epoch (its start time) that consumers present with a resume offset.
+ *
+ * Records {@code ledger.feed.subscribers} (consumers currently attached) and
+ * {@code ledger.feed.overruns} (consumers dropped for falling a ring behind).
+ */
+@Component
+public class ChangeFeed {
+
+    static final int DEFAULT_CAPACITY = 65_536;
+
+    /** One committed transaction and its feed offset */
+    public record Event(long offset, Transaction transaction) {}
+
+    private final AtomicReferenceArray<Event> ring;
+    private final int mask;
+    private final AtomicLong nextOffset = new AtomicLong();
+    private final long epoch = System.currentTimeMillis();
+    // consumers parked in awaitAfter, woken by publish
+    private final Set<Thread> waiting = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter overruns;
+
+    /** Without a registry (an empty composite), meters are no-ops */
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY, new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public ChangeFeed(@Value("${ledger.feed.buffer-size:65536}") int capacity, MeterRegistry meterRegistry) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("feed buffer size must be a power of two");
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+
+        Gauge.builder("ledger.feed.subscribers", subscribers, AtomicInteger::get)
+                .description("Change feed consumers currently attached")
+                .register(meterRegistry);
+        this.overruns = Counter.builder("ledger.feed.overruns")
+                .description("Change feed consumers dropped for falling a full buffer behind")
+                .register(meterRegistry);
+    }
+
+    /** Append a committed transaction; never blocks on consumers */
+    void publish(Transaction tx) {
+        store(claim(), tx);
+    }
+
+    long claim() {
+        return nextOffset.getAndIncrement();
+    }
+
+    /**
+     * Store the event of a claimed offset. A publisher delayed by a full lap must not
+     * replace the newer event in its slot, or readers of that offset would wait for
+     * it forever; its own event is then already overrun.
+     */
+    void store(long offset, Transaction tx) {
+        int slot = (int) (offset & mask);
+        Event event = new Event(offset, tx);
+        for (Event current = ring.get(slot); current == null || current.offset() < offset; current = ring.get(slot)) {
+            if (ring.compareAndSet(slot, current, event)) break;
+        }
+        if (!waiting.isEmpty()) {
+            for (Thread consumer : waiting) LockSupport.unpark(consumer);
+        }
+    }
+
+    /** Identifies this run of the feed; offsets from a run with another epoch mean nothing here */
+    public long epoch() {
+        return epoch;
+    }
+
+    /** Offset the next published transaction will get */
+    public long nextOffset() {
+        return nextOffset.get();
+    }
+
+    /** Oldest offset still retained */
+    public long oldestOffset() {
+        return Math.max(0, nextOffset.get() - ring.length());
+    }
+
+    /**
+     * Copy up to max published events starting at offset into events, stopping at the
+     * first offset not published yet, and return how many were copied. An offset that
+     * has already been overwritten is an IllegalArgumentException.
+     */
+    public int read(long offset, List<Event> events, int max) {
+        if (offset < 0) throw new IllegalArgumentException("offset must be >= 0");
+        int copied = 0;
+        for (long at = offset; copied < max; at++) {
+            Event event = ring.get((int) (at & mask));
+            // an older event in the slot means this offset's publisher has not stored it yet
+            if (event == null || event.offset() < at) break;
+            if (event.offset() > at) {
+                overruns.increment();
+                throw new IllegalArgumentException("offset " + at + " is no longer retained; oldest is " + oldestOffset());
+            }
+            events.add(event);
+            copied++;
+        }
+        return copied;
+    }
+
+    /** Wait up to timeout for an event at or after offset to be published; true if one is available */
+    public boolean awaitAfter(long offset, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Thread self = Thread.currentThread();
+        waiting.add(self);
+        try {
+            while (!isPublished(offset)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || self.isInterrupted()) return false;
+                LockSupport.parkNanos(this, remaining);
+            }
+            return true;
+        } finally {
+            waiting.remove(self);
+        }
+    }
+
+    /** Track an attached consumer for the subscriber gauge; call {@link #detached()} when it leaves */
+    public void attached() {
+        subscribers.incrementAndGet();
+    }
+
+    public void detached() {
+        subscribers.decrementAndGet();
+    }
+
+    private boolean isPublished(long offset) {
+        Event event = ring.get((int) (offset & mask));
+        return event != null && event.offset() >= offset;
+    }
+}
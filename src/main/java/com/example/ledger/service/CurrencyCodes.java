@@ -0,0 +1,37 @@
+package com.example.ledger.service;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical upper-case currency codes, one shared String instance per code.
+ *
+ * Every request carries its currency as a freshly parsed String; resolving it
+ * here keeps the upper-casing off the write path and lets every stored
+ * transaction of a currency reference the same instance. Both the spelling a
+ * client sent and the canonical code are cached, so "usd" and "USD" resolve
+ * without allocating. The cache is bounded, so clients sending arbitrary codes
+ * cannot grow it; past the bound, codes are upper-cased per call.
+ */
+final class CurrencyCodes {
+
+    static final int MAX_CACHED_SPELLINGS = 1024;
+
+    private static final ConcurrentHashMap<String, String> CANONICAL = new ConcurrentHashMap<>();
+
+    private CurrencyCodes() {
+    }
+
+    static String canonical(String currency) {
+        String canonical = CANONICAL.get(currency);
+        if (canonical != null) return canonical;
+
+        canonical = currency.toUpperCase(Locale.ROOT);
+        if (CANONICAL.size() < MAX_CACHED_SPELLINGS) {
+            String shared = CANONICAL.putIfAbsent(canonical, canonical);
+            if (shared != null) canonical = shared;
+            CANONICAL.putIfAbsent(currency, canonical);
+        }
+        return canonical;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.ledger.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs independent per-item work in parallel on virtual threads inside a
+ * {@link StructuredTaskScope}, so work that blocks (on locks or disk syncs) never
+ * occupies a shared platform pool such as the common ForkJoinPool.
+ *
+ * {@link #map} splits reads into chunks, one subtask per chunk, so a cheap
+ * per-item read is not drowned by task overhead; the first failure cancels the
+ * remaining subtasks and is rethrown. {@link #forEach} runs writes, which are
+ * never cancelled. Nothing outlives the call.
+ */
+final class FanOut {
+
+    private FanOut() {
+    }
+
+    /** Apply fn to every item, returning results in item order */
+    static <T, R> List<R> map(List<T> items, int chunkSize, Function<T, R> fn) {
+        if (items.size() <= chunkSize) return items.stream().map(fn).toList();
+
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            List<StructuredTaskScope.Subtask<List<R>>> chunks = new ArrayList<>();
+            for (int from = 0; from < items.size(); from += chunkSize) {
+                List<T> chunk = items.subList(from, Math.min(items.size(), from + chunkSize));
+                chunks.add(scope.fork(() -> chunk.stream().map(fn).toList()));
+            }
+            scope.join().throwIfFailed(FanOut::unchecked);
+
+            List<R> results = new ArrayList<>(items.size());
+            for (StructuredTaskScope.Subtask<List<R>> chunk : chunks) results.addAll(chunk.get());
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading in parallel", e);
+        }
+    }
+
+    /**
+     * Run action on every item, one subtask per item. A failure does not cancel the
+     * others: interrupting a write could leave it half done (an interrupt during
+     * file I/O closes the channel). The first failure is rethrown once all finish.
+     */
+    static <T> void forEach(List<T> items, Consumer<T> action) {
+        if (items.size() <= 1) {
+            items.forEach(action);
+            return;
+        }
+
+        try (var scope = new StructuredTaskScope<Void>()) {
+            List<StructuredTaskScope.Subtask<Void>> subtasks = new ArrayList<>(items.size());
+            for (T item : items) {
+                subtasks.add(scope.fork(() -> {
+                    action.accept(item);
+                    return null;
+                }));
+            }
+            scope.join();
+            for (StructuredTaskScope.Subtask<Void> subtask : subtasks) {
+                if (subtask.state() == StructuredTaskScope.Subtask.State.FAILED) throw unchecked(subtask.exception());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing in parallel", e);
+        }
+    }
+
+    private static RuntimeException unchecked(Throwable failure) {
+        if (failure instanceof RuntimeException runtime) return runtime;
+        if (failure instanceof Error error) throw error;
+        return new IllegalStateException(failure);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.ledger.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Consistent-hash ring assigning account ids to ledger nodes.
+ *
+ * Every node is placed on a 64-bit ring at {@code virtualNodes} points and an
+ * account belongs to the node owning the first point at or after the account's
+ * hash (wrapping around). Adding a node therefore reassigns only the accounts
+ * that fall just before its points, about 1/N of them and all to the new node,
+ * and removing one hands only its accounts to the remaining nodes. Rings are
+ * immutable; {@link #withNode} and {@link #withoutNode} build the rebalanced ring.
+ * Rebalancing moves no data: nodes use {@link AccountOwnership} to refuse
+ * accounts the ring their data is laid out under does not assign to them.
+ */
+public final class HashRing {
+
+    private final List<String> nodes;
+    private final int virtualNodes;
+    // points sorted ascending; owners[i] owns the arc ending at points[i]
+    private final long[] points;
+    private final String[] owners;
+
+    private HashRing(List<String> nodes, int virtualNodes) {
+        this.nodes = List.copyOf(nodes);
+        this.virtualNodes = virtualNodes;
+
+        record Point(long hash, String node) {}
+        List<Point> all = new ArrayList<>(nodes.size() * virtualNodes);
+        for (String node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) all.add(new Point(hash(node + "#" + i), node));
+        }
+        all.sort(Comparator.comparingLong(Point::hash).thenComparing(Point::node));
+        this.points = new long[all.size()];
+        this.owners = new String[all.size()];
+        for (int i = 0; i < all.size(); i++) {
+            points[i] = all.get(i).hash();
+            owners[i] = all.get(i).node();
+        }
+    }
+
+    /** A ring over the given distinct nodes (blank entries ignored) */
+    public static HashRing of(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes <= 0) throw new IllegalArgumentException("virtual nodes must be > 0");
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String node : nodes) {
+            if (node != null && !node.isBlank()) distinct.add(node.trim());
+        }
+        if (distinct.isEmpty()) throw new IllegalArgumentException("at least one ledger node is required");
+        return new HashRing(new ArrayList<>(distinct), virtualNodes);
+    }
+
+    /** Node owning the account */
+    public String ownerOf(String accountId) {
+        long hash = hash(accountId);
+        int i = Arrays.binarySearch(points, hash);
+        if (i < 0) i = -i - 1;
+        return owners[i == points.length ? 0 : i];
+    }
+
+    /** The ring after adding a node */
+    public HashRing withNode(String node) {
+        List<String> grown = new ArrayList<>(nodes);
+        grown.add(node);
+        return of(grown, virtualNodes);
+    }
+
+    /** The ring after removing a node */
+    public HashRing withoutNode(String node) {
+        List<String> shrunk = new ArrayList<>(nodes);
+        if (!shrunk.remove(node)) throw new IllegalArgumentException("unknown ledger node " + node);
+        return of(shrunk, virtualNodes);
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /** 64-bit FNV-1a over the UTF-8 bytes, finished with the SplitMix64 mixer to spread similar ids */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
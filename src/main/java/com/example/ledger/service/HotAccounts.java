@@ -0,0 +1,204 @@
+package com.example.ledger.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Detects accounts whose writers queue on the account lock and coalesces their
+ * writes into micro-batches.
+ *
+ * Writers report how long they waited for the account lock; an account with
+ * {@code contendedWrites} waits of at least {@code contendedWait} within one
+ * {@code window} turns hot for {@code coolDown}, and every batch that still
+ * coalesces more than one write extends that. Writes to a hot account are queued
+ * on its lane and one of the queued writers (the combiner) drains up to
+ * {@code maxBatch} of them and commits them together under a single account lock
+ * acquisition, while the others park until their write is completed. Only writes
+ * without an overdraft check are routed here; the caller decides which. Lanes
+ * of accounts that cooled down and saw no recent contention are dropped, both
+ * when the account is next written and by a sweep that contended writers run at
+ * most once per window or cool-down, so accounts that go quiet do not keep theirs.
+ *
+ * Records {@code ledger.hot.accounts} (accounts currently hot) and
+ * {@code ledger.hot.batch.size} (writes committed per coalesced batch).
+ */
+@Component
+public class HotAccounts {
+
+    // a parked writer re-checks its write at least this often in case a wakeup was missed
+    private static final long PARK_NANOS = 100_000;
+
+    /** A queued write; the combiner fills in its outcome and then completes it */
+    abstract static class Write {
+        private final Thread waiter = Thread.currentThread();
+        private volatile boolean done;
+
+        private void complete() {
+            done = true;
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /** Contention state and write queue of one account */
+    private static final class Lane {
+        final ConcurrentLinkedQueue<Write> queue = new ConcurrentLinkedQueue<>();
+        final ReentrantLock combiner = new ReentrantLock();
+        final AtomicInteger contended = new AtomicInteger();
+        volatile long windowStart;
+        volatile long hotUntil;
+
+        Lane(long now) {
+            this.windowStart = now;
+            this.hotUntil = now;
+        }
+
+        boolean hot(long now) {
+            return hotUntil - now > 0;
+        }
+
+        boolean idle(long now, long windowNanos) {
+            return !hot(now) && now - windowStart > windowNanos && queue.isEmpty();
+        }
+    }
+
+    private final boolean enabled;
+    private final long contendedWaitNanos;
+    private final int contendedWrites;
+    private final long windowNanos;
+    private final long coolDownNanos;
+    private final int maxBatch;
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+    private final DistributionSummary batchSize;
+
+    /** Defaults, without a registry (an empty composite), meters are no-ops */
+    public HotAccounts() {
+        this(true, Duration.ofNanos(20_000), 32, Duration.ofMillis(100), Duration.ofSeconds(1), 256,
+                new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public HotAccounts(@Value("${ledger.hot-accounts.enabled:true}") boolean enabled,
+                       @Value("${ledger.hot-accounts.contended-wait:20us}") Duration contendedWait,
+                       @Value("${ledger.hot-accounts.contended-writes:32}") int contendedWrites,
+                       @Value("${ledger.hot-accounts.window:100ms}") Duration window,
+                       @Value("${ledger.hot-accounts.cool-down:1s}") Duration coolDown,
+                       @Value("${ledger.hot-accounts.max-batch:256}") int maxBatch,
+                       MeterRegistry meterRegistry) {
+        if (contendedWrites <= 0) throw new IllegalArgumentException("contended-writes must be > 0");
+        if (maxBatch <= 0) throw new IllegalArgumentException("max-batch must be > 0");
+        this.enabled = enabled;
+        this.contendedWaitNanos = contendedWait.toNanos();
+        this.contendedWrites = contendedWrites;
+        this.windowNanos = window.toNanos();
+        this.coolDownNanos = coolDown.toNanos();
+        this.maxBatch = maxBatch;
+
+        Gauge.builder("ledger.hot.accounts", this, HotAccounts::hotCount)
+                .description("Accounts whose writes are currently coalesced")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("ledger.hot.batch.size")
+                .description("Writes committed per coalesced batch on a hot account")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether writes to the account should be coalesced. Lanes of accounts that
+     * cooled down and saw no recent contention are dropped here.
+     */
+    boolean isHot(String accountId) {
+        if (!enabled) return false;
+        Lane lane = lanes.get(accountId);
+        if (lane == null) return false;
+        long now = System.nanoTime();
+        if (lane.hot(now)) return true;
+        if (lane.idle(now, windowNanos)) lanes.remove(accountId, lane);
+        return false;
+    }
+
+    /** Report how long a writer waited for the account lock */
+    void recordWait(String accountId, long waitNanos) {
+        if (!enabled || waitNanos < contendedWaitNanos) return;
+        long now = System.nanoTime();
+        Lane lane = lanes.computeIfAbsent(accountId, k -> new Lane(now));
+        if (now - lane.windowStart > windowNanos) {
+            // a racing reset loses a few counts at most; the threshold is approximate
+            lane.windowStart = now;
+            lane.contended.set(0);
+        }
+        if (lane.contended.incrementAndGet() >= contendedWrites) lane.hotUntil = now + coolDownNanos;
+        sweepIfDue(now);
+    }
+
+    /** Drop idle lanes, by one writer at a time and at most once per window or cool-down */
+    private void sweepIfDue(long now) {
+        long last = lastSweep.get();
+        if (now - last <= Math.max(windowNanos, coolDownNanos) || !lastSweep.compareAndSet(last, now)) return;
+        lanes.values().removeIf(lane -> lane.idle(now, windowNanos));
+    }
+
+    /**
+     * Queue a write on the account's lane and return once a combiner (possibly this
+     * thread) has passed it to committer, which commits a batch in queue order and
+     * records each write's outcome on it. Every write in the batch is completed
+     * after committer returns, whether or not it threw.
+     */
+    @SuppressWarnings("unchecked")
+    <W extends Write> void submit(String accountId, W write, Consumer<List<W>> committer) {
+        Lane lane = lanes.computeIfAbsent(accountId, k -> new Lane(System.nanoTime()));
+        lane.queue.add(write);
+        Write own = write;
+        while (!own.done) {
+            if (!lane.combiner.tryLock()) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+                continue;
+            }
+            try {
+                List<W> batch = new ArrayList<>(Math.min(maxBatch, 64));
+                Write next;
+                while (batch.size() < maxBatch && (next = lane.queue.poll()) != null) batch.add((W) next);
+                if (batch.isEmpty()) continue;
+                batchSize.record(batch.size());
+                if (batch.size() > 1) lane.hotUntil = System.nanoTime() + coolDownNanos;
+                try {
+                    committer.accept(batch);
+                } finally {
+                    for (Write done : batch) done.complete();
+                }
+            } finally {
+                lane.combiner.unlock();
+                // hand the combiner role to the oldest waiter instead of letting it sleep out its park
+                Write head = lane.queue.peek();
+                if (head != null) LockSupport.unpark(head.waiter);
+            }
+        }
+    }
+
+    /** Lanes currently kept, hot or not */
+    int laneCount() {
+        return lanes.size();
+    }
+
+    private double hotCount() {
+        long now = System.nanoTime();
+        int hot = 0;
+        for (Lane lane : lanes.values()) if (lane.hot(now)) hot++;
+        return hot;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.ledger.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Resume position in the ledger's (timestamp, accountId, sequence) order, passed to
+ * clients as an opaque URL-safe string.
+ */
+record LedgerCursor(Instant timestamp, String accountId, long sequence) {
+
+    String encode() {
+        String raw = timestamp.getEpochSecond() + ":" + timestamp.getNano() + ":" + sequence + ":" + accountId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Decode a client cursor; null or blank means "from the beginning" and returns null */
+    static LedgerCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 4);
+            if (parts.length != 4) throw new IllegalArgumentException("invalid cursor");
+            Instant timestamp = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new LedgerCursor(timestamp, parts[3], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("invalid cursor", e);
+        }
+    }
+}
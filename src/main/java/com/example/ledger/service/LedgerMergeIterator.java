@@ -0,0 +1,115 @@
+package com.example.ledger.service;
+
+import com.example.ledger.model.Transaction;
+import com.example.ledger.storage.HistoryEntry;
+import com.example.ledger.storage.LedgerStorage;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Lazily merges per-account, time-ordered histories into one stream ordered by
+ * (timestamp, accountId, sequence).
+ *
+ * Each account is read from storage in chunks that start at one entry and grow as
+ * the account keeps winning the merge, so a page touches little more than the
+ * rows it returns and nothing is materialized or sorted as a whole.
+ */
+class LedgerMergeIterator implements Iterator<Transaction> {
+
+    private static final int MAX_CHUNK = 512;
+
+    private static final Comparator<AccountSource> ORDER = Comparator
+            .<AccountSource>comparingLong(s -> s.head().transaction().getTimestamp().toEpochSecond())
+            .thenComparingInt(s -> s.head().transaction().getTimestamp().getNano())
+            .thenComparing(s -> s.accountId)
+            .thenComparingLong(s -> s.head().sequence());
+
+    private final LedgerStorage storage;
+    private final PriorityQueue<AccountSource> heap;
+    private LedgerCursor position;
+
+    /** Iterate the given accounts starting strictly after the cursor (null = from the beginning) */
+    LedgerMergeIterator(LedgerStorage storage, Collection<String> accountIds, LedgerCursor after) {
+        this.storage = storage;
+        this.heap = new PriorityQueue<>(Math.max(1, accountIds.size()), ORDER);
+        this.position = after;
+        for (String accountId : accountIds) {
+            AccountSource source = new AccountSource(accountId, after);
+            if (source.fill()) heap.add(source);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heap.isEmpty();
+    }
+
+    @Override
+    public Transaction next() {
+        AccountSource source = heap.poll();
+        if (source == null) throw new NoSuchElementException();
+        HistoryEntry entry = source.advance();
+        if (source.fill()) heap.add(source);
+
+        OffsetDateTime ts = entry.transaction().getTimestamp();
+        position = new LedgerCursor(ts.toInstant(), source.accountId, entry.sequence());
+        return entry.transaction();
+    }
+
+    /** Position of the last returned transaction, usable to resume after it */
+    LedgerCursor position() {
+        return position;
+    }
+
+    private final class AccountSource {
+        private final String accountId;
+        private Instant afterTime;
+        private long afterSequence;
+        private List<HistoryEntry> buffer = List.of();
+        private int index;
+        private int chunk = 1;
+        private boolean exhausted;
+
+        AccountSource(String accountId, LedgerCursor after) {
+            this.accountId = accountId;
+            if (after == null) {
+                this.afterSequence = -1;
+                return;
+            }
+            // Accounts ordered before the cursor's account have consumed its timestamp
+            // entirely, accounts after it not at all
+            this.afterTime = after.timestamp();
+            int c = accountId.compareTo(after.accountId());
+            this.afterSequence = c < 0 ? Long.MAX_VALUE : c == 0 ? after.sequence() : -1;
+        }
+
+        HistoryEntry head() {
+            return buffer.get(index);
+        }
+
+        HistoryEntry advance() {
+            HistoryEntry entry = buffer.get(index++);
+            afterTime = entry.transaction().getTimestamp().toInstant();
+            afterSequence = entry.sequence();
+            return entry;
+        }
+
+        /** Make sure head() is available; false when the account has no more entries */
+        boolean fill() {
+            if (index < buffer.size()) return true;
+            if (exhausted) return false;
+            buffer = storage.getTransactionsAfter(accountId, afterTime, afterSequence, chunk);
+            index = 0;
+            if (buffer.size() < chunk) exhausted = true;
+            chunk = Math.min(chunk * 8, MAX_CHUNK);
+            return !buffer.isEmpty();
+        }
+    }
+}
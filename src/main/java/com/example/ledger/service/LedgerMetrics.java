@@ -0,0 +1,102 @@
+package com.example.ledger.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters recorded by LedgerServiceImpl.
+ *
+ * <ul>
+ *   <li>{@code ledger.transaction.record} - latency of a single write, tagged by outcome</li>
+ *   <li>{@code ledger.transaction.batch} - latency of a whole batch request</li>
+ *   <li>{@code ledger.transfer} - latency of a two-account transfer, tagged by outcome</li>
+ *   <li>{@code ledger.transactions} - rows by outcome, single and batch writes alike</li>
+ *   <li>{@code ledger.idempotency.lookups} - hit/miss of requests that carry a referenceId</li>
+ *   <li>{@code ledger.balance.read} - balance reads, tagged current or as_of</li>
+ *   <li>{@code ledger.transaction.search} - latency of one page of an indexed transaction query</li>
+ * </ul>
+ *
+ * All meters are registered up front so the hot path only records.
+ */
+class LedgerMetrics {
+
+    enum Outcome { COMMITTED, DUPLICATE, INSUFFICIENT_FUNDS, REJECTED }
+
+    private final Map<Outcome, Timer> recordTimers = new EnumMap<>(Outcome.class);
+    private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+    private final Map<Outcome, Timer> transferTimers = new EnumMap<>(Outcome.class);
+    private final Timer batchTimer;
+    private final Counter idempotencyHits;
+    private final Counter idempotencyMisses;
+    private final Timer currentBalance;
+    private final Timer balanceAsOf;
+    private final Timer search;
+
+    LedgerMetrics(MeterRegistry registry) {
+        for (Outcome outcome : Outcome.values()) {
+            String tag = outcome.name().toLowerCase(Locale.ROOT);
+            recordTimers.put(outcome, Timer.builder("ledger.transaction.record")
+                    .description("Latency of recording one transaction, including the account lock wait")
+                    .tag("outcome", tag)
+                    .register(registry));
+            outcomes.put(outcome, Counter.builder("ledger.transactions")
+                    .description("Transactions by outcome")
+                    .tag("outcome", tag)
+                    .register(registry));
+            transferTimers.put(outcome, Timer.builder("ledger.transfer")
+                    .description("Latency of a transfer, including the wait for both account locks")
+                    .tag("outcome", tag)
+                    .register(registry));
+        }
+        this.batchTimer = Timer.builder("ledger.transaction.batch")
+                .description("Latency of a batch ingestion request")
+                .register(registry);
+        this.idempotencyHits = Counter.builder("ledger.idempotency.lookups").tag("result", "hit").register(registry);
+        this.idempotencyMisses = Counter.builder("ledger.idempotency.lookups").tag("result", "miss").register(registry);
+        this.currentBalance = Timer.builder("ledger.balance.read").tag("kind", "current").register(registry);
+        this.balanceAsOf = Timer.builder("ledger.balance.read").tag("kind", "as_of").register(registry);
+        this.search = Timer.builder("ledger.transaction.search")
+                .description("Latency of one page of an indexed transaction query")
+                .register(registry);
+    }
+
+    void recordWrite(Outcome outcome, long startNanos) {
+        recordTimers.get(outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        outcomes.get(outcome).increment();
+    }
+
+    void recordTransfer(Outcome outcome, long startNanos) {
+        transferTimers.get(outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** A batch row's outcome; the batch as a whole is timed by {@link #recordBatch} */
+    void countRow(Outcome outcome) {
+        outcomes.get(outcome).increment();
+    }
+
+    void recordBatch(long startNanos) {
+        batchTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void idempotencyLookup(boolean hit) {
+        (hit ? idempotencyHits : idempotencyMisses).increment();
+    }
+
+    Timer currentBalance() {
+        return currentBalance;
+    }
+
+    Timer balanceAsOf() {
+        return balanceAsOf;
+    }
+
+    Timer search() {
+        return search;
+    }
+}
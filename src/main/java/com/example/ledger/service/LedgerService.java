@@ -1,12 +1,21 @@
 package com.example.ledger.service;
 
+import com.example.ledger.dto.AggregateBucket;
+import com.example.ledger.dto.BatchItemResult;
+import com.example.ledger.dto.BatchTransactionItem;
+import com.example.ledger.dto.LedgerPage;
+import com.example.ledger.dto.TransferResult;
 import com.example.ledger.model.AccountType;
+import com.example.ledger.model.AggregatePeriod;
 import com.example.ledger.model.Transaction;
 import com.example.ledger.model.TransactionType;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface LedgerService {
 
@@ -19,11 +28,74 @@ public interface LedgerService {
                                   String transactionCode,
                                   String currency);
 
+    /**
+     * Record many transactions across accounts. Rows are grouped by account and each
+     * group is checked and committed under one account lock; the result list has one
+     * entry per row, in request order.
+     */
+    List<BatchItemResult> recordTransactions(List<BatchTransactionItem> items);
+
+    /**
+     * Move amount between two accounts as a double entry: a WITHDRAWAL on the source
+     * and a DEPOSIT on the destination with the same timestamp and referenceId. Both
+     * accounts' currency checks and the source's SAVINGS overdraft check run, and
+     * both legs are committed, while holding both account locks; either both legs
+     * are recorded or neither is.
+     */
+    TransferResult transfer(String fromAccountId,
+                            AccountType fromAccountType,
+                            String toAccountId,
+                            AccountType toAccountType,
+                            BigDecimal amount,
+                            OffsetDateTime timestamp,
+                            String referenceId,
+                            String transactionCode,
+                            String currency);
+
     BigDecimal getCurrentBalance(String accountId);
 
     BigDecimal getBalanceAt(String accountId, OffsetDateTime at);
 
+    /** Current balances of several accounts, in request order (duplicates collapsed) */
+    Map<String, BigDecimal> getBalances(List<String> accountIds);
+
+    /**
+     * An account's totals per UTC day or month, from the bucket containing from to
+     * the one containing to, oldest first; buckets without transactions are omitted.
+     * Read from aggregates maintained on commit, so the cost follows the number of
+     * buckets, not of rows.
+     */
+    List<AggregateBucket> getAggregates(String accountId, AggregatePeriod period, LocalDate from, LocalDate to);
+
     List<Transaction> getTransactionHistory(String accountId);
 
     List<Transaction> getLedgerRows();
+
+    /** Up to limit ledger rows after the cursor (null = first page), in (timestamp, accountId) order */
+    LedgerPage getLedgerPage(String cursor, int limit);
+
+    /** Up to limit rows of an account's history after the cursor (null = first page) */
+    LedgerPage getTransactionHistoryPage(String accountId, String cursor, int limit);
+
+    /**
+     * Up to limit transactions matching every given filter, after the cursor (null =
+     * first page), in timestamp order. Null filters match everything; codePrefix
+     * matches transactionCodes starting with it, amounts are inclusive bounds and the
+     * time range is [from, to). Served from secondary indexes maintained on commit.
+     */
+    LedgerPage searchTransactions(String accountId,
+                                  String codePrefix,
+                                  TransactionType type,
+                                  BigDecimal minAmount,
+                                  BigDecimal maxAmount,
+                                  OffsetDateTime from,
+                                  OffsetDateTime to,
+                                  String cursor,
+                                  int limit);
+
+    /** Lazily merged ledger rows after the cursor (null = from the beginning) */
+    Stream<Transaction> streamLedger(String cursor);
+
+    /** Lazily read history of an account */
+    Stream<Transaction> streamTransactionHistory(String accountId);
 }
@@ -1,27 +1,148 @@
 package com.example.ledger.service;
 
+import com.example.ledger.dto.AggregateBucket;
+import com.example.ledger.dto.BatchItemResult;
+import com.example.ledger.dto.BatchTransactionItem;
+import com.example.ledger.dto.LedgerPage;
+import com.example.ledger.dto.TransferResult;
+import com.example.ledger.exception.AccountNotHeldException;
 import com.example.ledger.exception.InsufficientBalanceException;
 import com.example.ledger.model.AccountType;
+import com.example.ledger.model.AggregatePeriod;
 import com.example.ledger.model.Transaction;
 import com.example.ledger.model.TransactionType;
+import com.example.ledger.service.LedgerMetrics.Outcome;
+import com.example.ledger.storage.HistoryEntry;
 import com.example.ledger.storage.LedgerStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
-import java.util.Comparator;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
+@ConditionalOnProperty(name = "ledger.cluster.role", havingValue = "node", matchIfMissing = true)
 public class LedgerServiceImpl implements LedgerService {
 
+    static final int MAX_BATCH_SIZE = 10_000;
+    static final int MAX_PAGE_SIZE = 10_000;
+    static final int MAX_BALANCE_ACCOUNTS = 1_000;
+    // accounts read per subtask when fanning out a multi-account balance read
+    static final int BALANCE_CHUNK_SIZE = 64;
+    // history rows read per call while rebuilding the search index and aggregates on startup
+    static final int REBUILD_CHUNK_ROWS = 4_096;
+
+    /** Result of a commit under the account lock: the transaction and whether it was a replay */
+    private record Commit(Transaction transaction, boolean duplicate) {}
+
+    /** Result of a transfer commit under both account locks */
+    private record TransferCommit(TransferResult result, boolean duplicate) {}
+
+    /** A write queued on a hot account; the batch that commits it fills in the outcome */
+    private static final class CoalescedWrite extends HotAccounts.Write {
+        final AccountType accountType;
+        final TransactionType type;
+        final BigDecimal amount;
+        final OffsetDateTime timestamp;
+        final String referenceId;
+        final String transactionCode;
+        final String currency;
+        Commit commit;
+        RuntimeException failure;
+
+        CoalescedWrite(AccountType accountType, TransactionType type, BigDecimal amount, OffsetDateTime timestamp,
+                       String referenceId, String transactionCode, String currency) {
+            this.accountType = accountType;
+            this.type = type;
+            this.amount = amount;
+            this.timestamp = timestamp;
+            this.referenceId = referenceId;
+            this.transactionCode = transactionCode;
+            this.currency = currency;
+        }
+    }
+
     private final LedgerStorage storage;
+    private final LedgerMetrics metrics;
+    // null when ledger.query.index.enabled=false
+    private final TransactionIndex index;
+    private final ChangeFeed feed;
+    private final HotAccounts hotAccounts;
+    private final AccountOwnership ownership;
+    private final AccountAggregates aggregates = new AccountAggregates();
+    // OffsetDateTime.now() resolves (and clones) the default time zone on every call
+    private final Clock clock = Clock.systemDefaultZone();
 
+    /** Without a registry (an empty composite), meters are no-ops */
     public LedgerServiceImpl(LedgerStorage storage) {
+        this(storage, new CompositeMeterRegistry());
+    }
+
+    public LedgerServiceImpl(LedgerStorage storage, MeterRegistry meterRegistry) {
+        this(storage, meterRegistry, true, new ChangeFeed(), new HotAccounts());
+    }
+
+    public LedgerServiceImpl(LedgerStorage storage,
+                             MeterRegistry meterRegistry,
+                             boolean indexEnabled,
+                             ChangeFeed feed,
+                             HotAccounts hotAccounts) {
+        this(storage, meterRegistry, indexEnabled, feed, hotAccounts, AccountOwnership.ALL);
+    }
+
+    @Autowired
+    public LedgerServiceImpl(LedgerStorage storage,
+                             MeterRegistry meterRegistry,
+                             @Value("${ledger.query.index.enabled:true}") boolean indexEnabled,
+                             ChangeFeed feed,
+                             HotAccounts hotAccounts,
+                             AccountOwnership ownership) {
         this.storage = storage;
+        this.metrics = new LedgerMetrics(meterRegistry);
+        this.feed = feed;
+        this.hotAccounts = hotAccounts;
+        this.ownership = ownership;
+        this.index = indexEnabled ? new TransactionIndex(storage, ownership) : null;
+        // Storages that recover state on startup (durable mode) already hold rows; they
+        // are read in chunks so modes that keep rows off the heap do not load them all
+        for (String accountId : storage.getAccountIds()) {
+            Instant afterTime = null;
+            long afterSequence = -1;
+            while (true) {
+                List<HistoryEntry> chunk = storage.getTransactionsAfter(accountId, afterTime, afterSequence, REBUILD_CHUNK_ROWS);
+                for (HistoryEntry entry : chunk) {
+                    if (index != null) index.add(entry);
+                    aggregates.add(entry.transaction());
+                }
+                if (chunk.size() < REBUILD_CHUNK_ROWS) break;
+                HistoryEntry last = chunk.get(chunk.size() - 1);
+                afterTime = last.transaction().getTimestamp().toInstant();
+                afterSequence = last.sequence();
+            }
+        }
     }
 
     @Override
@@ -34,80 +155,498 @@ public class LedgerServiceImpl implements LedgerService {
                                          String transactionCode,
                                          String currency) {
 
+        long start = System.nanoTime();
+        try {
+            validate(accountId, accountType, type, amount, currency);
+            ownership.checkHeld(accountId);
+
+            Commit commit;
+            if (!needsBalanceCheck(accountType, type) && hotAccounts.isHot(accountId)) {
+                // Hot account and no overdraft check: join a micro-batch that takes the
+                // account lock once for all its writes
+                CoalescedWrite write = new CoalescedWrite(accountType, type, amount, timestamp,
+                        referenceId, transactionCode, currency);
+                hotAccounts.submit(accountId, write, batch -> commitCoalesced(accountId, batch));
+                if (write.failure != null) throw write.failure;
+                commit = write.commit;
+            } else {
+                // Currency, idempotency and balance checks plus the append happen as one
+                // step under the account lock, so concurrent writers cannot both pass a check
+                long lockRequested = System.nanoTime();
+                commit = storage.withAccountLock(accountId, () -> {
+                    hotAccounts.recordWait(accountId, System.nanoTime() - lockRequested);
+                    return commit(accountId, accountType, type, amount, timestamp, referenceId, transactionCode, currency);
+                });
+            }
+            metrics.recordWrite(commit.duplicate() ? Outcome.DUPLICATE : Outcome.COMMITTED, start);
+            return commit.transaction();
+        } catch (InsufficientBalanceException e) {
+            metrics.recordWrite(Outcome.INSUFFICIENT_FUNDS, start);
+            throw e;
+        } catch (RuntimeException e) {
+            metrics.recordWrite(Outcome.REJECTED, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<BatchItemResult> recordTransactions(List<BatchTransactionItem> items) {
+        if (items == null || items.isEmpty()) return List.of();
+        if (items.size() > MAX_BATCH_SIZE)
+            throw new IllegalArgumentException("batch size must be <= " + MAX_BATCH_SIZE);
+
+        long start = System.nanoTime();
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        OffsetDateTime[] timestamps = new OffsetDateTime[items.size()];
+
+        // Stateless validation first; valid rows are grouped by account in request order
+        Map<String, List<Integer>> rowsByAccount = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            BatchTransactionItem item = items.get(i);
+            try {
+                if (item == null) throw new IllegalArgumentException("item required");
+                validate(item.getAccountId(), item.getAccountType(), item.getType(), item.getAmount(), item.getCurrency());
+                ownership.checkHeld(item.getAccountId());
+                timestamps[i] = (item.getTimestamp() == null || item.getTimestamp().isBlank())
+                        ? null
+                        : OffsetDateTime.parse(item.getTimestamp());
+                rowsByAccount.computeIfAbsent(item.getAccountId(), k -> new ArrayList<>()).add(i);
+            } catch (IllegalArgumentException | DateTimeException | AccountNotHeldException e) {
+                results[i] = BatchItemResult.rejected(i, e.getMessage());
+                metrics.countRow(Outcome.REJECTED);
+            }
+        }
+
+        // Account groups touch disjoint state, so they are committed in parallel, each on
+        // its own virtual thread: a group holds its account lock and in durable mode waits
+        // on a log sync, which must not tie up the common ForkJoinPool
+        FanOut.forEach(List.copyOf(rowsByAccount.entrySet()), group ->
+                storage.withAccountLock(group.getKey(), () -> {
+                    commitGroup(group.getKey(), group.getValue(), items, timestamps, results);
+                    return null;
+                }));
+
+        metrics.recordBatch(start);
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public TransferResult transfer(String fromAccountId,
+                                   AccountType fromAccountType,
+                                   String toAccountId,
+                                   AccountType toAccountType,
+                                   BigDecimal amount,
+                                   OffsetDateTime timestamp,
+                                   String referenceId,
+                                   String transactionCode,
+                                   String currency) {
+        long start = System.nanoTime();
+        try {
+            validate(fromAccountId, fromAccountType, TransactionType.WITHDRAWAL, amount, currency);
+            validate(toAccountId, toAccountType, TransactionType.DEPOSIT, amount, currency);
+            if (amount.signum() == 0) throw new IllegalArgumentException("transfer amount must be > 0");
+            if (fromAccountId.equals(toAccountId))
+                throw new IllegalArgumentException("cannot transfer to the same account");
+            ownership.checkHeld(fromAccountId);
+            ownership.checkHeld(toAccountId);
+
+            // Storage takes the two account locks in a global order, so transfers over
+            // overlapping accounts cannot deadlock and unrelated ones run in parallel
+            TransferCommit commit = storage.withAccountLocks(fromAccountId, toAccountId, () ->
+                    commitTransfer(fromAccountId, fromAccountType, toAccountId, toAccountType, amount,
+                            timestamp, referenceId, transactionCode, currency));
+            metrics.recordTransfer(commit.duplicate() ? Outcome.DUPLICATE : Outcome.COMMITTED, start);
+            return commit.result();
+        } catch (InsufficientBalanceException e) {
+            metrics.recordTransfer(Outcome.INSUFFICIENT_FUNDS, start);
+            throw e;
+        } catch (RuntimeException e) {
+            metrics.recordTransfer(Outcome.REJECTED, start);
+            throw e;
+        }
+    }
+
+    /** Check and append both legs of a transfer (caller holds both account locks) */
+    private TransferCommit commitTransfer(String fromAccountId,
+                                          AccountType fromAccountType,
+                                          String toAccountId,
+                                          AccountType toAccountType,
+                                          BigDecimal amount,
+                                          OffsetDateTime timestamp,
+                                          String referenceId,
+                                          String transactionCode,
+                                          String currency) {
+        // Check both accounts before either takes the currency, so a rejected transfer assigns none
+        boolean fromHasCurrency = hasCurrency(fromAccountId, currency);
+        boolean toHasCurrency = hasCurrency(toAccountId, currency);
+        if (!fromHasCurrency) storage.setCurrency(fromAccountId, CurrencyCodes.canonical(currency));
+        if (!toHasCurrency) storage.setCurrency(toAccountId, CurrencyCodes.canonical(currency));
+
+        // Both legs carry the referenceId, so a replay finds both; finding only one
+        // means the reference belongs to some other transaction
+        if (referenceId != null && !referenceId.isBlank()) {
+            Optional<Transaction> debit = storage.findByReference(fromAccountId, referenceId);
+            Optional<Transaction> credit = storage.findByReference(toAccountId, referenceId);
+            metrics.idempotencyLookup(debit.isPresent() || credit.isPresent());
+            if (debit.isPresent() && credit.isPresent()) {
+                return new TransferCommit(new TransferResult(debit.get(), credit.get()), true);
+            }
+            if (debit.isPresent() || credit.isPresent()) {
+                throw new IllegalArgumentException("referenceId " + referenceId + " is already used by another transaction");
+            }
+        }
+
+        OffsetDateTime ts = (timestamp == null) ? OffsetDateTime.now(clock) : timestamp;
+        Transaction debit = newTransaction(fromAccountId, fromAccountType, TransactionType.WITHDRAWAL, amount, ts,
+                referenceId, transactionCode, currency, storage.getBalance(fromAccountId));
+        Transaction credit = newTransaction(toAccountId, toAccountType, TransactionType.DEPOSIT, amount, ts,
+                referenceId, transactionCode, currency, storage.getBalance(toAccountId));
+        storage.appendTransfer(debit, credit);
+        committed(debit);
+        committed(credit);
+
+        return new TransferCommit(new TransferResult(debit, credit), false);
+    }
+
+    private static void validate(String accountId, AccountType accountType, TransactionType type,
+                                 BigDecimal amount, String currency) {
         if (accountId == null || accountId.isBlank()) throw new IllegalArgumentException("accountId required");
         if (accountType == null) throw new IllegalArgumentException("accountType required");
         if (type == null) throw new IllegalArgumentException("transaction type required");
         if (amount == null || amount.compareTo(BigDecimal.ZERO) < 0)
             throw new IllegalArgumentException("amount must be >= 0");
         if (currency == null || currency.isBlank()) throw new IllegalArgumentException("currency required");
+    }
 
-        // Enforce per-account currency consistency
-        String existingCurrency = storage.getCurrency(accountId);
-        if (existingCurrency == null) {
-            storage.setCurrency(accountId, currency);
-        } else if (!existingCurrency.equalsIgnoreCase(currency)) {
-            throw new IllegalArgumentException(String.format(
-                    "Currency mismatch for account %s: expected '%s', got '%s'",
-                    accountId, existingCurrency, currency
-            ));
+    private Commit commit(String accountId,
+                          AccountType accountType,
+                          TransactionType type,
+                          BigDecimal amount,
+                          OffsetDateTime timestamp,
+                          String referenceId,
+                          String transactionCode,
+                          String currency) {
+        checkCurrency(accountId, currency);
+
+        // Idempotency check: a replayed referenceId returns the original transaction.
+        // The reference is only indexed once its transaction is appended, so a request
+        // rejected below can be retried.
+        if (referenceId != null && !referenceId.isBlank()) {
+            Optional<Transaction> existing = storage.findByReference(accountId, referenceId);
+            metrics.idempotencyLookup(existing.isPresent());
+            if (existing.isPresent()) {
+                return new Commit(existing.get(), true);
+            }
         }
 
-        // Idempotency check
-        if (!storage.checkAndAddIdempotency(accountId, referenceId)) {
-            return storage.findByReference(accountId, referenceId)
-                    .orElseThrow(() -> new IllegalStateException("Idempotent reference recorded but tx missing"));
+        Transaction tx = newTransaction(accountId, accountType, type, amount, timestamp,
+                referenceId, transactionCode, currency, storage.getBalance(accountId));
+
+        // Append transaction
+        storage.appendTransaction(accountId, tx);
+        committed(tx);
+
+        return new Commit(tx, false);
+    }
+
+    /**
+     * Check and build one account's batch rows against a running balance, then
+     * append the accepted ones together. Caller holds the account lock.
+     */
+    private void commitGroup(String accountId, List<Integer> rows, List<BatchTransactionItem> items,
+                             OffsetDateTime[] timestamps, BatchItemResult[] results) {
+        BigDecimal balance = storage.getBalance(accountId);
+        Map<String, Transaction> batchReferences = new HashMap<>();
+        List<Transaction> accepted = new ArrayList<>(rows.size());
+        List<Integer> acceptedRows = new ArrayList<>(rows.size());
+
+        for (int row : rows) {
+            BatchTransactionItem item = items.get(row);
+            try {
+                checkCurrency(accountId, item.getCurrency());
+
+                String referenceId = item.getReferenceId();
+                if (referenceId != null && !referenceId.isBlank()) {
+                    Transaction original = batchReferences.get(referenceId);
+                    if (original == null) original = storage.findByReference(accountId, referenceId).orElse(null);
+                    metrics.idempotencyLookup(original != null);
+                    if (original != null) {
+                        results[row] = BatchItemResult.duplicate(row, original);
+                        metrics.countRow(Outcome.DUPLICATE);
+                        continue;
+                    }
+                }
+
+                Transaction tx = newTransaction(accountId, item.getAccountType(), item.getType(), item.getAmount(),
+                        timestamps[row], referenceId, item.getTransactionCode(), item.getCurrency(), balance);
+                // The group is one append, so a row the storage cannot hold is rejected here rather than failing it
+                storage.checkStorable(tx);
+                balance = balance.add(tx.signedAmount());
+                accepted.add(tx);
+                acceptedRows.add(row);
+                if (referenceId != null && !referenceId.isBlank()) batchReferences.put(referenceId, tx);
+            } catch (IllegalArgumentException | InsufficientBalanceException e) {
+                results[row] = BatchItemResult.rejected(row, e.getMessage());
+                metrics.countRow(e instanceof InsufficientBalanceException ? Outcome.INSUFFICIENT_FUNDS : Outcome.REJECTED);
+            }
+        }
+
+        try {
+            storage.appendTransactions(accountId, accepted);
+        } catch (RuntimeException e) {
+            for (int row : acceptedRows) {
+                results[row] = BatchItemResult.rejected(row, "commit failed: " + e.getMessage());
+                metrics.countRow(Outcome.REJECTED);
+            }
+            return;
         }
+        for (Transaction tx : accepted) committed(tx);
+        for (int i = 0; i < accepted.size(); i++) {
+            results[acceptedRows.get(i)] = BatchItemResult.committed(acceptedRows.get(i), accepted.get(i));
+            metrics.countRow(Outcome.COMMITTED);
+        }
+    }
 
-        OffsetDateTime ts = (timestamp == null) ? OffsetDateTime.now() : timestamp;
+    /**
+     * Commit a coalesced batch of a hot account's writes under one account lock
+     * acquisition and one append, recording each write's outcome on it. None of
+     * them has a balance check, so the balance is not read.
+     */
+    private void commitCoalesced(String accountId, List<CoalescedWrite> batch) {
+        try {
+            storage.withAccountLock(accountId, () -> {
+                Map<String, Transaction> batchReferences = new HashMap<>();
+                List<Transaction> accepted = new ArrayList<>(batch.size());
+                List<CoalescedWrite> acceptedWrites = new ArrayList<>(batch.size());
 
-        // Compute current balance for SAVINGS withdrawal rules
-        BigDecimal currentBalance = getCurrentBalance(accountId);
-        if (accountType == AccountType.SAVINGS &&
-                type == TransactionType.WITHDRAWAL &&
-                currentBalance.compareTo(amount) < 0) {
-            throw new InsufficientBalanceException("Insufficient funds for withdrawal");
+                for (CoalescedWrite write : batch) {
+                    try {
+                        checkCurrency(accountId, write.currency);
+
+                        String referenceId = write.referenceId;
+                        if (referenceId != null && !referenceId.isBlank()) {
+                            Transaction original = batchReferences.get(referenceId);
+                            if (original == null) original = storage.findByReference(accountId, referenceId).orElse(null);
+                            metrics.idempotencyLookup(original != null);
+                            if (original != null) {
+                                write.commit = new Commit(original, true);
+                                continue;
+                            }
+                        }
+
+                        Transaction tx = newTransaction(accountId, write.accountType, write.type, write.amount,
+                                write.timestamp, referenceId, write.transactionCode, write.currency, null);
+                        storage.checkStorable(tx);
+                        accepted.add(tx);
+                        acceptedWrites.add(write);
+                        if (referenceId != null && !referenceId.isBlank()) batchReferences.put(referenceId, tx);
+                    } catch (IllegalArgumentException e) {
+                        write.failure = e;
+                    }
+                }
+
+                try {
+                    storage.appendTransactions(accountId, accepted);
+                } catch (RuntimeException e) {
+                    for (CoalescedWrite write : acceptedWrites) write.failure = e;
+                    return null;
+                }
+                for (int i = 0; i < accepted.size(); i++) {
+                    committed(accepted.get(i));
+                    acceptedWrites.get(i).commit = new Commit(accepted.get(i), false);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            for (CoalescedWrite write : batch) {
+                if (write.commit == null && write.failure == null) write.failure = e;
+            }
         }
+    }
 
-        Transaction tx = new Transaction(UUID.randomUUID().toString(),
-                accountId, accountType, type, amount, currency.toUpperCase(Locale.ROOT),
-                ts, referenceId, transactionCode);
+    /**
+     * Index, aggregate and publish an appended transaction. Runs under its account
+     * lock, so each account's transactions reach the change feed in commit order.
+     */
+    private void committed(Transaction tx) {
+        if (index != null) index.add(tx);
+        aggregates.add(tx);
+        feed.publish(tx);
+    }
 
-        // Append transaction
-        storage.appendTransaction(accountId, tx);
+    /** Enforce per-account currency consistency (caller holds the account lock) */
+    private void checkCurrency(String accountId, String currency) {
+        if (!hasCurrency(accountId, currency)) storage.setCurrency(accountId, CurrencyCodes.canonical(currency));
+    }
 
-        return tx;
+    /** Whether the account already has this currency; throws if it has another (caller holds the account lock) */
+    private boolean hasCurrency(String accountId, String currency) {
+        String existingCurrency = storage.getCurrency(accountId);
+        if (existingCurrency == null) return false;
+        if (!existingCurrency.equalsIgnoreCase(currency)) {
+            throw new IllegalArgumentException("Currency mismatch for account " + accountId
+                    + ": expected '" + existingCurrency + "', got '" + currency + "'");
+        }
+        return true;
+    }
+
+    /** Whether a write is subject to the SAVINGS withdrawal rule */
+    private static boolean needsBalanceCheck(AccountType accountType, TransactionType type) {
+        return accountType == AccountType.SAVINGS && type == TransactionType.WITHDRAWAL;
+    }
+
+    /**
+     * Apply the SAVINGS withdrawal rule against a balance and build the transaction;
+     * currentBalance may be null for writes without the rule.
+     */
+    private Transaction newTransaction(String accountId,
+                                       AccountType accountType,
+                                       TransactionType type,
+                                       BigDecimal amount,
+                                       OffsetDateTime timestamp,
+                                       String referenceId,
+                                       String transactionCode,
+                                       String currency,
+                                       BigDecimal currentBalance) {
+        // Every storage mode keeps microseconds, so truncate here and the response matches later reads
+        OffsetDateTime ts = ((timestamp == null) ? OffsetDateTime.now(clock) : timestamp).truncatedTo(ChronoUnit.MICROS);
+
+        if (needsBalanceCheck(accountType, type) && currentBalance.compareTo(amount) < 0) {
+            throw new InsufficientBalanceException("Insufficient funds for withdrawal");
+        }
+
+        return new Transaction(TransactionIds.next(),
+                accountId, accountType, type, amount, CurrencyCodes.canonical(currency),
+                ts, referenceId, transactionCode);
     }
 
     @Override
     public BigDecimal getCurrentBalance(String accountId) {
-        return getBalanceAt(accountId, OffsetDateTime.MAX);
+        ownership.checkHeld(accountId);
+        return metrics.currentBalance().record(() -> storage.getBalance(accountId));
     }
 
     @Override
     public BigDecimal getBalanceAt(String accountId, OffsetDateTime at) {
-        List<Transaction> transactions = storage.getTransactionsForAccount(accountId);
-        return transactions.stream()
-                .filter(t -> !t.getTimestamp().isAfter(at))
-                .map(this::signedAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        ownership.checkHeld(accountId);
+        return metrics.balanceAsOf().record(() -> storage.getBalanceAt(accountId, at));
+    }
+
+    @Override
+    public Map<String, BigDecimal> getBalances(List<String> accountIds) {
+        if (accountIds == null || accountIds.isEmpty()) return Map.of();
+        List<String> distinct = accountIds.stream().distinct().toList();
+        if (distinct.size() > MAX_BALANCE_ACCOUNTS)
+            throw new IllegalArgumentException("at most " + MAX_BALANCE_ACCOUNTS + " accounts per request");
+        for (String accountId : distinct) {
+            if (accountId == null || accountId.isBlank()) throw new IllegalArgumentException("accountId required");
+            ownership.checkHeld(accountId);
+        }
+
+        List<BigDecimal> balances = FanOut.map(distinct, BALANCE_CHUNK_SIZE, this::getCurrentBalance);
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int i = 0; i < distinct.size(); i++) result.put(distinct.get(i), balances.get(i));
+        return result;
+    }
+
+    @Override
+    public List<AggregateBucket> getAggregates(String accountId, AggregatePeriod period, LocalDate from, LocalDate to) {
+        if (accountId == null || accountId.isBlank()) throw new IllegalArgumentException("accountId required");
+        if (period == null) throw new IllegalArgumentException("period required");
+        if (from == null || to == null) throw new IllegalArgumentException("from and to required");
+        if (from.isAfter(to)) throw new IllegalArgumentException("from must not be after to");
+        ownership.checkHeld(accountId);
+        return aggregates.read(accountId, period, from, to);
     }
 
     @Override
     public List<Transaction> getTransactionHistory(String accountId) {
-        List<Transaction> transactions = storage.getTransactionsForAccount(accountId);
-        return transactions.stream()
-                .sorted(Comparator.comparing(Transaction::getTimestamp))
-                .collect(Collectors.toList());
+        ownership.checkHeld(accountId);
+        // Storage keeps each account's history in timestamp order
+        return storage.getTransactionsForAccount(accountId);
     }
 
     @Override
     public List<Transaction> getLedgerRows() {
-        List<Transaction> allTxs = storage.getAllTransactions();
-        allTxs.sort(Comparator.comparing(Transaction::getTimestamp));
-        return allTxs;
+        // Per-account histories are already time-ordered, so merge instead of sorting
+        return streamLedger(null).collect(Collectors.toList());
+    }
+
+    @Override
+    public LedgerPage getLedgerPage(String cursor, int limit) {
+        checkPageLimit(limit);
+        return page(new LedgerMergeIterator(storage, heldAccountIds(), LedgerCursor.decode(cursor)), limit);
+    }
+
+    @Override
+    public LedgerPage getTransactionHistoryPage(String accountId, String cursor, int limit) {
+        checkPageLimit(limit);
+        LedgerCursor after = LedgerCursor.decode(cursor);
+        if (after != null && !after.accountId().equals(accountId))
+            throw new IllegalArgumentException("cursor belongs to a different account");
+        ownership.checkHeld(accountId);
+        return page(new LedgerMergeIterator(storage, List.of(accountId), after), limit);
+    }
+
+    @Override
+    public LedgerPage searchTransactions(String accountId,
+                                         String codePrefix,
+                                         TransactionType type,
+                                         BigDecimal minAmount,
+                                         BigDecimal maxAmount,
+                                         OffsetDateTime from,
+                                         OffsetDateTime to,
+                                         String cursor,
+                                         int limit) {
+        if (index == null)
+            throw new IllegalArgumentException("transaction search is disabled (ledger.query.index.enabled=false)");
+        checkPageLimit(limit);
+        if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0)
+            throw new IllegalArgumentException("minAmount must be <= maxAmount");
+        if (from != null && to != null && from.isAfter(to))
+            throw new IllegalArgumentException("from must not be after to");
+        if (accountId != null && !accountId.isBlank()) ownership.checkHeld(accountId);
+
+        TransactionIndex.Query query = new TransactionIndex.Query(blankToNull(accountId), blankToNull(codePrefix),
+                type, minAmount, maxAmount, from, to);
+        return metrics.search().record(() -> index.find(query, cursor, limit));
+    }
+
+    @Override
+    public Stream<Transaction> streamLedger(String cursor) {
+        return stream(new LedgerMergeIterator(storage, heldAccountIds(), LedgerCursor.decode(cursor)));
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactionHistory(String accountId) {
+        ownership.checkHeld(accountId);
+        return stream(new LedgerMergeIterator(storage, List.of(accountId), null));
+    }
+
+    /** Accounts in storage this node holds; ledger-wide reads skip the ones a ring change moved away */
+    private Collection<String> heldAccountIds() {
+        if (ownership == AccountOwnership.ALL) return storage.getAccountIds();
+        return storage.getAccountIds().stream().filter(ownership::holds).toList();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static void checkPageLimit(int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+
+    private static LedgerPage page(LedgerMergeIterator rows, int limit) {
+        List<Transaction> items = new ArrayList<>(Math.min(limit, 1024));
+        while (items.size() < limit && rows.hasNext()) items.add(rows.next());
+        String nextCursor = rows.hasNext() ? rows.position().encode() : null;
+        return new LedgerPage(items, nextCursor);
     }
 
-    private BigDecimal signedAmount(Transaction t) {
-        return t.getType() == TransactionType.DEPOSIT ? t.getAmount() : t.getAmount().negate();
+    private static Stream<Transaction> stream(Iterator<Transaction> rows) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 }
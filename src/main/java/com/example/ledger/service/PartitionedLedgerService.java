@@ -0,0 +1,374 @@
+package com.example.ledger.service;
+
+import com.example.ledger.dto.AggregateBucket;
+import com.example.ledger.dto.BatchItemResult;
+import com.example.ledger.dto.BatchTransactionItem;
+import com.example.ledger.dto.LedgerPage;
+import com.example.ledger.dto.TransferResult;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.AggregatePeriod;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * LedgerService of a cluster router (ledger.cluster.role=router): accounts are
+ * spread over several ledger nodes by a {@link HashRing} and every call is sent
+ * to the nodes that own the accounts it touches.
+ *
+ * Single-account calls go to the owning node. Batches are split by owner and
+ * the parts committed on their nodes in parallel; a node that fails rejects its
+ * rows and leaves the others committed. Multi-account balances are read from
+ * each owner in parallel. Ledger reads and searches without an account are
+ * scattered to every node and the nodes' time-ordered results merged: a page
+ * asks every node for {@code limit} rows after the same cursor and keeps the
+ * first {@code limit} of the merge, ending on a whole sort key so the next
+ * cursor (after every row with that key) is valid on every node. Transfers
+ * need both accounts on one node, since their legs commit under both account
+ * locks; others are rejected. While the router's ring differs from the one a
+ * node's data is laid out under, the node refuses accounts it does not hold and
+ * the refusal (AccountNotHeldException) is passed on to the caller.
+ */
+@Service
+@ConditionalOnProperty(name = "ledger.cluster.role", havingValue = "router")
+public class PartitionedLedgerService implements LedgerService {
+
+    /** Ledger order across nodes: (timestamp, accountId); one account's rows all come from one node */
+    private static final Comparator<Transaction> LEDGER_ORDER = Comparator
+            .<Transaction>comparingLong(t -> t.getTimestamp().toEpochSecond())
+            .thenComparingInt(t -> t.getTimestamp().getNano())
+            .thenComparing(Transaction::getAccountId);
+
+    /** Search order across nodes: timestamp only */
+    private static final Comparator<Transaction> SEARCH_ORDER = Comparator
+            .<Transaction>comparingLong(t -> t.getTimestamp().toEpochSecond())
+            .thenComparingInt(t -> t.getTimestamp().getNano());
+
+    private final HashRing ring;
+    private final Map<String, LedgerService> partitionsByNode;
+    // ring node order, for scatter-gather
+    private final List<LedgerService> partitions;
+
+    @Autowired
+    public PartitionedLedgerService(@Value("${ledger.cluster.nodes}") List<String> nodes,
+                                    @Value("${ledger.cluster.virtual-nodes:128}") int virtualNodes,
+                                    @Value("${ledger.cluster.request-timeout:10s}") Duration requestTimeout,
+                                    ObjectMapper objectMapper) {
+        this(HashRing.of(nodes, virtualNodes), requestTimeout, objectMapper);
+    }
+
+    private PartitionedLedgerService(HashRing ring, Duration requestTimeout, ObjectMapper objectMapper) {
+        this(ring, remotes(ring.nodes(), requestTimeout, objectMapper));
+    }
+
+    /** Route over the given services, one per ring node (e.g. in-process services in tests) */
+    public PartitionedLedgerService(HashRing ring, Map<String, ? extends LedgerService> partitions) {
+        this.ring = ring;
+        this.partitionsByNode = new LinkedHashMap<>();
+        for (String node : ring.nodes()) {
+            LedgerService partition = partitions.get(node);
+            if (partition == null) throw new IllegalArgumentException("no partition for ledger node " + node);
+            partitionsByNode.put(node, partition);
+        }
+        this.partitions = List.copyOf(partitionsByNode.values());
+    }
+
+    private static Map<String, LedgerService> remotes(List<String> nodes, Duration requestTimeout,
+                                                      ObjectMapper objectMapper) {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(requestTimeout)
+                .build();
+        Map<String, LedgerService> remotes = new LinkedHashMap<>();
+        for (String node : nodes) remotes.put(node, new RemoteLedgerService(node, client, objectMapper, requestTimeout));
+        return remotes;
+    }
+
+    @Override
+    public Transaction recordTransaction(String accountId, AccountType accountType, TransactionType type,
+                                         BigDecimal amount, OffsetDateTime timestamp, String referenceId,
+                                         String transactionCode, String currency) {
+        return partitionOf(accountId).recordTransaction(accountId, accountType, type, amount, timestamp,
+                referenceId, transactionCode, currency);
+    }
+
+    @Override
+    public List<BatchItemResult> recordTransactions(List<BatchTransactionItem> items) {
+        if (items == null || items.isEmpty()) return List.of();
+        if (items.size() > LedgerServiceImpl.MAX_BATCH_SIZE)
+            throw new IllegalArgumentException("batch size must be <= " + LedgerServiceImpl.MAX_BATCH_SIZE);
+
+        // Rows that cannot be routed are rejected here; the rest are grouped by owning node
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        Map<String, List<Integer>> rowsByNode = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            BatchTransactionItem item = items.get(i);
+            if (item == null) {
+                results[i] = BatchItemResult.rejected(i, "item required");
+            } else if (item.getAccountId() == null || item.getAccountId().isBlank()) {
+                results[i] = BatchItemResult.rejected(i, "accountId required");
+            } else {
+                rowsByNode.computeIfAbsent(ring.ownerOf(item.getAccountId()), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<Map.Entry<String, List<Integer>>> groups = new ArrayList<>(rowsByNode.entrySet());
+        List<List<BatchItemResult>> committed = FanOut.map(groups, 1,
+                group -> commitOn(partitionsByNode.get(group.getKey()), group.getValue(), items));
+        for (List<BatchItemResult> part : committed) {
+            for (BatchItemResult result : part) results[result.getIndex()] = result;
+        }
+        return List.of(results);
+    }
+
+    /** Commit one node's rows, reporting each result at the row's index in the whole batch */
+    private static List<BatchItemResult> commitOn(LedgerService partition, List<Integer> rows,
+                                                  List<BatchTransactionItem> items) {
+        List<BatchItemResult> results = new ArrayList<>(rows.size());
+        try {
+            List<BatchItemResult> partial = partition.recordTransactions(rows.stream().map(items::get).toList());
+            for (BatchItemResult result : partial) {
+                int index = rows.get(result.getIndex());
+                results.add(switch (result.getStatus()) {
+                    case COMMITTED -> BatchItemResult.committed(index, result.getTransaction());
+                    case DUPLICATE -> BatchItemResult.duplicate(index, result.getTransaction());
+                    case REJECTED -> BatchItemResult.rejected(index, result.getError());
+                });
+            }
+        } catch (RuntimeException e) {
+            results.clear();
+            for (int index : rows) results.add(BatchItemResult.rejected(index, "commit failed: " + e.getMessage()));
+        }
+        return results;
+    }
+
+    @Override
+    public TransferResult transfer(String fromAccountId, AccountType fromAccountType, String toAccountId,
+                                   AccountType toAccountType, BigDecimal amount, OffsetDateTime timestamp,
+                                   String referenceId, String transactionCode, String currency) {
+        LedgerService partition = partitionOf(fromAccountId);
+        if (partition != partitionOf(toAccountId))
+            throw new IllegalArgumentException("transfers between accounts on different partitions are not supported");
+        return partition.transfer(fromAccountId, fromAccountType, toAccountId, toAccountType, amount, timestamp,
+                referenceId, transactionCode, currency);
+    }
+
+    @Override
+    public BigDecimal getCurrentBalance(String accountId) {
+        return partitionOf(accountId).getCurrentBalance(accountId);
+    }
+
+    @Override
+    public BigDecimal getBalanceAt(String accountId, OffsetDateTime at) {
+        return partitionOf(accountId).getBalanceAt(accountId, at);
+    }
+
+    @Override
+    public Map<String, BigDecimal> getBalances(List<String> accountIds) {
+        if (accountIds == null || accountIds.isEmpty()) return Map.of();
+        List<String> distinct = accountIds.stream().distinct().toList();
+        if (distinct.size() > LedgerServiceImpl.MAX_BALANCE_ACCOUNTS)
+            throw new IllegalArgumentException("at most " + LedgerServiceImpl.MAX_BALANCE_ACCOUNTS + " accounts per request");
+        Map<String, List<String>> accountsByNode = new LinkedHashMap<>();
+        for (String accountId : distinct) {
+            if (accountId == null || accountId.isBlank()) throw new IllegalArgumentException("accountId required");
+            accountsByNode.computeIfAbsent(ring.ownerOf(accountId), k -> new ArrayList<>()).add(accountId);
+        }
+
+        List<Map.Entry<String, List<String>>> groups = new ArrayList<>(accountsByNode.entrySet());
+        Map<String, BigDecimal> read = new LinkedHashMap<>();
+        for (Map<String, BigDecimal> part : FanOut.map(groups, 1,
+                group -> partitionsByNode.get(group.getKey()).getBalances(group.getValue()))) {
+            read.putAll(part);
+        }
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (String accountId : distinct) result.put(accountId, read.get(accountId));
+        return result;
+    }
+
+    @Override
+    public List<AggregateBucket> getAggregates(String accountId, AggregatePeriod period, LocalDate from, LocalDate to) {
+        return partitionOf(accountId).getAggregates(accountId, period, from, to);
+    }
+
+    @Override
+    public List<Transaction> getTransactionHistory(String accountId) {
+        return partitionOf(accountId).getTransactionHistory(accountId);
+    }
+
+    @Override
+    public List<Transaction> getLedgerRows() {
+        List<List<Transaction>> rows = FanOut.map(partitions, 1, LedgerService::getLedgerRows);
+        List<Iterator<Transaction>> sources = rows.stream().map(List::iterator).collect(Collectors.toList());
+        List<Transaction> merged = new ArrayList<>(rows.stream().mapToInt(List::size).sum());
+        new SortedMerge(sources, LEDGER_ORDER).forEachRemaining(merged::add);
+        return merged;
+    }
+
+    @Override
+    public LedgerPage getLedgerPage(String cursor, int limit) {
+        checkPageLimit(limit);
+        // The router's cursors are ledger cursors after a whole (timestamp, accountId) key
+        LedgerCursor.decode(cursor);
+        return scatterPage(partition -> partition.getLedgerPage(cursor, limit), LEDGER_ORDER, limit,
+                last -> new LedgerCursor(last.getTimestamp().toInstant(), last.getAccountId(), Long.MAX_VALUE).encode());
+    }
+
+    @Override
+    public LedgerPage getTransactionHistoryPage(String accountId, String cursor, int limit) {
+        return partitionOf(accountId).getTransactionHistoryPage(accountId, cursor, limit);
+    }
+
+    @Override
+    public LedgerPage searchTransactions(String accountId, String codePrefix, TransactionType type,
+                                         BigDecimal minAmount, BigDecimal maxAmount, OffsetDateTime from,
+                                         OffsetDateTime to, String cursor, int limit) {
+        if (accountId != null && !accountId.isBlank()) {
+            return partitionOf(accountId).searchTransactions(accountId, codePrefix, type, minAmount, maxAmount,
+                    from, to, cursor, limit);
+        }
+        checkPageLimit(limit);
+        // The router's cursors are index keys after every row at one timestamp
+        TransactionIndex.Key.decode(cursor);
+        return scatterPage(partition -> partition.searchTransactions(null, codePrefix, type, minAmount, maxAmount,
+                        from, to, cursor, limit), SEARCH_ORDER, limit,
+                last -> new TransactionIndex.Key(last.getTimestamp().toEpochSecond(), last.getTimestamp().getNano(),
+                        Long.MAX_VALUE).encode());
+    }
+
+    @Override
+    public Stream<Transaction> streamLedger(String cursor) {
+        LedgerCursor.decode(cursor);
+        List<Stream<Transaction>> streams = new ArrayList<>(partitions.size());
+        try {
+            for (LedgerService partition : partitions) streams.add(partition.streamLedger(cursor));
+        } catch (RuntimeException e) {
+            closeAll(streams);
+            throw e;
+        }
+        List<Iterator<Transaction>> sources = streams.stream().map(Stream::iterator).collect(Collectors.toList());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new SortedMerge(sources, LEDGER_ORDER),
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> closeAll(streams));
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactionHistory(String accountId) {
+        return partitionOf(accountId).streamTransactionHistory(accountId);
+    }
+
+    /** The node owning the account */
+    private LedgerService partitionOf(String accountId) {
+        if (accountId == null || accountId.isBlank()) throw new IllegalArgumentException("accountId required");
+        return partitionsByNode.get(ring.ownerOf(accountId));
+    }
+
+    private static void checkPageLimit(int limit) {
+        if (limit <= 0 || limit > LedgerServiceImpl.MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("limit must be between 1 and " + LedgerServiceImpl.MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Read one page from every node and keep the first limit rows of their merge.
+     * The page must end on a complete sort key: if rows with the last key may be
+     * missing (the merge holds another one, or a node's page ends on that key and
+     * has more), the rows with that key are left for the next page.
+     */
+    private LedgerPage scatterPage(Function<LedgerService, LedgerPage> read, Comparator<Transaction> order,
+                                   int limit, Function<Transaction, String> cursorAfter) {
+        List<LedgerPage> pages = FanOut.map(partitions, 1, read);
+        List<Iterator<Transaction>> sources = pages.stream().map(p -> p.getItems().iterator()).collect(Collectors.toList());
+        SortedMerge merged = new SortedMerge(sources, order);
+        List<Transaction> items = new ArrayList<>(Math.min(limit, 1024));
+        while (items.size() < limit && merged.hasNext()) items.add(merged.next());
+
+        boolean nodeHasMore = pages.stream().anyMatch(p -> p.getNextCursor() != null);
+        if (!merged.hasNext() && !nodeHasMore) return new LedgerPage(items, null);
+
+        Transaction last = items.get(items.size() - 1);
+        boolean lastKeyIncomplete = (merged.hasNext() && order.compare(merged.peek(), last) == 0)
+                || pages.stream().anyMatch(p -> p.getNextCursor() != null && !p.getItems().isEmpty()
+                && order.compare(p.getItems().get(p.getItems().size() - 1), last) == 0);
+        if (lastKeyIncomplete) {
+            while (!items.isEmpty() && order.compare(items.get(items.size() - 1), last) == 0) items.remove(items.size() - 1);
+            if (items.isEmpty())
+                throw new IllegalArgumentException("more than " + limit + " rows share one position; use a larger limit");
+        }
+        return new LedgerPage(items, cursorAfter.apply(items.get(items.size() - 1)));
+    }
+
+    private static void closeAll(List<Stream<Transaction>> streams) {
+        RuntimeException failure = null;
+        for (Stream<Transaction> stream : streams) {
+            try {
+                stream.close();
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /** Lazy k-way merge of sorted sources; equal rows keep source order */
+    private static final class SortedMerge implements Iterator<Transaction> {
+
+        private record Head(Transaction row, int source) {}
+
+        private final List<Iterator<Transaction>> sources;
+        private final PriorityQueue<Head> heap;
+
+        SortedMerge(List<Iterator<Transaction>> sources, Comparator<Transaction> order) {
+            this.sources = sources;
+            this.heap = new PriorityQueue<>(Math.max(1, sources.size()),
+                    Comparator.comparing(Head::row, order).thenComparingInt(Head::source));
+            for (int i = 0; i < sources.size(); i++) {
+                if (sources.get(i).hasNext()) heap.add(new Head(sources.get(i).next(), i));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        Transaction peek() {
+            Head head = heap.peek();
+            if (head == null) throw new NoSuchElementException();
+            return head.row();
+        }
+
+        @Override
+        public Transaction next() {
+            Head head = heap.poll();
+            if (head == null) throw new NoSuchElementException();
+            Iterator<Transaction> source = sources.get(head.source());
+            if (source.hasNext()) heap.add(new Head(source.next(), head.source()));
+            return head.row();
+        }
+    }
+}
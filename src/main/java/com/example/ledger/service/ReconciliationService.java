@@ -0,0 +1,264 @@
+package com.example.ledger.service;
+
+import com.example.ledger.dto.ReconciliationReport;
+import com.example.ledger.dto.ReconciliationReport.Mismatch;
+import com.example.ledger.dto.ReconciliationReport.TrialBalanceLine;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.storage.HistoryEntry;
+import com.example.ledger.storage.LedgerStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-of-day reconciliation: checks that every account's stored balance equals the
+ * sum of its history and totals all transactions into a trial balance per
+ * currency and AccountType.
+ *
+ * Accounts are split recursively across a fork-join pool of {@code parallelism}
+ * workers; each account's history is read in chunks of {@link #CHUNK_ROWS}
+ * entries, so no full history (let alone the whole ledger) is materialized.
+ * Accounts are read without blocking their writers, so a write landing between
+ * reading the balance and the history looks like a mismatch; such accounts are
+ * read again under the account lock and only a difference that persists is
+ * reported. Workers stop taking accounts once the time budget is spent, and the
+ * report then says how many were skipped.
+ *
+ * Records {@code ledger.reconciliation} (duration of a run) and
+ * {@code ledger.reconciliation.mismatches} (mismatched accounts found).
+ */
+@Service
+@ConditionalOnProperty(name = "ledger.cluster.role", havingValue = "node", matchIfMissing = true)
+public class ReconciliationService {
+
+    static final int CHUNK_ROWS = 4_096;
+    // accounts per fork-join leaf task
+    static final int LEAF_ACCOUNTS = 32;
+    static final int MAX_REPORTED_MISMATCHES = 1_000;
+
+    private record LineKey(String currency, AccountType accountType) {}
+
+    /** Running totals of one trial balance line */
+    private static final class Line {
+        long accounts;
+        long transactions;
+        BigDecimal deposits = BigDecimal.ZERO;
+        BigDecimal withdrawals = BigDecimal.ZERO;
+
+        void add(Transaction tx) {
+            transactions++;
+            if (tx.getType() == TransactionType.DEPOSIT) deposits = deposits.add(tx.getAmount());
+            else withdrawals = withdrawals.add(tx.getAmount());
+        }
+
+        void merge(Line other) {
+            accounts += other.accounts;
+            transactions += other.transactions;
+            deposits = deposits.add(other.deposits);
+            withdrawals = withdrawals.add(other.withdrawals);
+        }
+    }
+
+    /** One pass over an account: its stored balance, the sum of its history and its lines */
+    private record AccountWalk(BigDecimal stored, BigDecimal computed, long transactions, Map<LineKey, Line> lines) {
+
+        boolean balanced() {
+            return stored.compareTo(computed) == 0;
+        }
+    }
+
+    /** Results of a range of accounts, merged up the fork-join tree */
+    private static final class Totals {
+        long accountsChecked;
+        long accountsSkipped;
+        long transactions;
+        long mismatchCount;
+        final List<Mismatch> mismatches = new ArrayList<>();
+        final Map<LineKey, Line> lines = new HashMap<>();
+
+        void add(AccountWalk walk) {
+            accountsChecked++;
+            transactions += walk.transactions();
+            walk.lines().forEach((key, line) -> {
+                line.accounts = 1;
+                lines.merge(key, line, (a, b) -> {
+                    a.merge(b);
+                    return a;
+                });
+            });
+        }
+
+        void mismatch(Mismatch mismatch) {
+            mismatchCount++;
+            if (mismatches.size() < MAX_REPORTED_MISMATCHES) mismatches.add(mismatch);
+        }
+
+        Totals merge(Totals other) {
+            accountsChecked += other.accountsChecked;
+            accountsSkipped += other.accountsSkipped;
+            transactions += other.transactions;
+            mismatchCount += other.mismatchCount;
+            for (Mismatch mismatch : other.mismatches) {
+                if (mismatches.size() < MAX_REPORTED_MISMATCHES) mismatches.add(mismatch);
+            }
+            other.lines.forEach((key, line) -> lines.merge(key, line, (a, b) -> {
+                a.merge(b);
+                return a;
+            }));
+            return this;
+        }
+    }
+
+    private final LedgerStorage storage;
+    private final Duration timeBudget;
+    private final int parallelism;
+    private final Timer runs;
+    private final Counter mismatchCounter;
+
+    /** Without a registry (an empty composite), meters are no-ops */
+    public ReconciliationService(LedgerStorage storage, Duration timeBudget) {
+        this(storage, timeBudget, 0, new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public ReconciliationService(LedgerStorage storage,
+                                 @Value("${ledger.reconciliation.time-budget:10m}") Duration timeBudget,
+                                 @Value("${ledger.reconciliation.parallelism:0}") int parallelism,
+                                 MeterRegistry meterRegistry) {
+        if (timeBudget.isNegative()) throw new IllegalArgumentException("time budget must be >= 0");
+        if (parallelism < 0) throw new IllegalArgumentException("parallelism must be >= 0");
+        this.storage = storage;
+        this.timeBudget = timeBudget;
+        this.parallelism = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        this.runs = Timer.builder("ledger.reconciliation")
+                .description("Duration of an end-of-day reconciliation run")
+                .register(meterRegistry);
+        this.mismatchCounter = Counter.builder("ledger.reconciliation.mismatches")
+                .description("Accounts whose stored balance differs from the sum of their history")
+                .register(meterRegistry);
+    }
+
+    /** Reconcile every account within the configured time budget */
+    public ReconciliationReport reconcile() {
+        long start = System.nanoTime();
+        long deadline = start + timeBudget.toNanos();
+        String[] accountIds = storage.getAccountIds().toArray(String[]::new);
+
+        Totals totals;
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            totals = pool.invoke(new AccountRange(accountIds, 0, accountIds.length, deadline));
+        }
+        long elapsed = System.nanoTime() - start;
+        runs.record(elapsed, TimeUnit.NANOSECONDS);
+        mismatchCounter.increment(totals.mismatchCount);
+
+        totals.mismatches.sort(Comparator.comparing(Mismatch::getAccountId));
+        List<TrialBalanceLine> trialBalance = totals.lines.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.comparing(LineKey::currency)
+                        .thenComparing(LineKey::accountType)))
+                .map(e -> new TrialBalanceLine(e.getKey().currency(), e.getKey().accountType(), e.getValue().accounts,
+                        e.getValue().transactions, e.getValue().deposits, e.getValue().withdrawals))
+                .toList();
+        return new ReconciliationReport(totals.accountsSkipped == 0, totals.accountsChecked, totals.accountsSkipped,
+                totals.transactions, TimeUnit.NANOSECONDS.toMillis(elapsed), totals.mismatchCount,
+                List.copyOf(totals.mismatches), trialBalance);
+    }
+
+    /** Reconciles accountIds[from, to), splitting in halves down to {@link #LEAF_ACCOUNTS} */
+    private final class AccountRange extends RecursiveTask<Totals> {
+        private final String[] accountIds;
+        private final int from;
+        private final int to;
+        private final long deadline;
+
+        AccountRange(String[] accountIds, int from, int to, long deadline) {
+            this.accountIds = accountIds;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > LEAF_ACCOUNTS) {
+                int mid = (from + to) >>> 1;
+                AccountRange left = new AccountRange(accountIds, from, mid, deadline);
+                left.fork();
+                Totals right = new AccountRange(accountIds, mid, to, deadline).compute();
+                return left.join().merge(right);
+            }
+            Totals totals = new Totals();
+            for (int i = from; i < to; i++) {
+                if (System.nanoTime() - deadline > 0) {
+                    totals.accountsSkipped += to - i;
+                    break;
+                }
+                check(accountIds[i], totals);
+            }
+            return totals;
+        }
+    }
+
+    private void check(String accountId, Totals totals) {
+        AccountWalk walk = walk(accountId);
+        if (!walk.balanced()) {
+            // A concurrent write may have landed between the two reads; re-read with writers held off
+            walk = storage.withAccountLock(accountId, () -> walk(accountId));
+            if (!walk.balanced()) totals.mismatch(new Mismatch(accountId, walk.stored(), walk.computed()));
+        }
+        totals.add(walk);
+    }
+
+    private AccountWalk walk(String accountId) {
+        BigDecimal stored = storage.getBalance(accountId);
+        BigDecimal computed = BigDecimal.ZERO;
+        Map<LineKey, Line> lines = new HashMap<>(4);
+        long transactions = 0;
+
+        // An account's rows almost always share one line, so the last one is reused without hashing
+        String lastCurrency = null;
+        AccountType lastType = null;
+        Line line = null;
+
+        Instant afterTime = null;
+        long afterSequence = -1;
+        while (true) {
+            List<HistoryEntry> chunk = storage.getTransactionsAfter(accountId, afterTime, afterSequence, CHUNK_ROWS);
+            for (HistoryEntry entry : chunk) {
+                Transaction tx = entry.transaction();
+                computed = computed.add(tx.signedAmount());
+                if (line == null || !tx.getCurrency().equals(lastCurrency) || tx.getAccountType() != lastType) {
+                    lastCurrency = tx.getCurrency();
+                    lastType = tx.getAccountType();
+                    line = lines.computeIfAbsent(new LineKey(lastCurrency, lastType), k -> new Line());
+                }
+                line.add(tx);
+            }
+            transactions += chunk.size();
+            if (chunk.size() < CHUNK_ROWS) break;
+            HistoryEntry last = chunk.get(chunk.size() - 1);
+            afterTime = last.transaction().getTimestamp().toInstant();
+            afterSequence = last.sequence();
+        }
+        return new AccountWalk(stored, computed, transactions, lines);
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.ledger.service;
+
+import com.example.ledger.dto.AggregateBucket;
+import com.example.ledger.dto.BatchItemResult;
+import com.example.ledger.dto.BatchTransactionItem;
+import com.example.ledger.dto.LedgerPage;
+import com.example.ledger.dto.TransactionRequest;
+import com.example.ledger.dto.TransferRequest;
+import com.example.ledger.dto.TransferResult;
+import com.example.ledger.exception.AccountNotHeldException;
+import com.example.ledger.exception.GlobalExceptionHandler;
+import com.example.ledger.exception.InsufficientBalanceException;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.AggregatePeriod;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * LedgerService of another ledger node, called through its public HTTP API.
+ *
+ * Responses are read as JSON trees and mapped by hand, since the DTOs are
+ * immutable; amounts are read as BigDecimal so no precision is lost. A 400 from
+ * the node is rethrown as the exception the node raised (InsufficientBalanceException
+ * when the node marks it so, IllegalArgumentException otherwise), as is a 409 for
+ * an account the node does not hold (AccountNotHeldException), so callers see
+ * the same errors as from a local service; any other failure is an
+ * IllegalStateException naming the node.
+ */
+final class RemoteLedgerService implements LedgerService {
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final ObjectReader reader;
+    private final Duration timeout;
+
+    RemoteLedgerService(String baseUrl, HttpClient client, ObjectMapper mapper, Duration timeout) {
+        // base URL of the node, e.g. http://host:8080 (the /api prefix is added here)
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.client = client;
+        this.mapper = mapper;
+        this.reader = mapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Transaction recordTransaction(String accountId, AccountType accountType, TransactionType type,
+                                         BigDecimal amount, OffsetDateTime timestamp, String referenceId,
+                                         String transactionCode, String currency) {
+        TransactionRequest request = new TransactionRequest();
+        request.setAccountType(accountType);
+        request.setType(type);
+        request.setAmount(amount);
+        request.setTimestamp(timestamp == null ? null : timestamp.toString());
+        request.setReferenceId(referenceId);
+        request.setTransactionCode(transactionCode);
+        request.setCurrency(currency);
+        return transaction(post("/accounts/" + segment(accountId) + "/transactions", request));
+    }
+
+    @Override
+    public List<BatchItemResult> recordTransactions(List<BatchTransactionItem> items) {
+        JsonNode results = post("/transactions/batch", items);
+        List<BatchItemResult> out = new ArrayList<>(results.size());
+        for (JsonNode result : results) {
+            int index = result.path("index").asInt();
+            out.add(switch (BatchItemResult.Status.valueOf(result.path("status").asText())) {
+                case COMMITTED -> BatchItemResult.committed(index, transaction(result.path("transaction")));
+                case DUPLICATE -> BatchItemResult.duplicate(index, transaction(result.path("transaction")));
+                case REJECTED -> BatchItemResult.rejected(index, text(result.path("error")));
+            });
+        }
+        return out;
+    }
+
+    @Override
+    public TransferResult transfer(String fromAccountId, AccountType fromAccountType, String toAccountId,
+                                   AccountType toAccountType, BigDecimal amount, OffsetDateTime timestamp,
+                                   String referenceId, String transactionCode, String currency) {
+        TransferRequest request = new TransferRequest();
+        request.setFromAccountId(fromAccountId);
+        request.setFromAccountType(fromAccountType);
+        request.setToAccountId(toAccountId);
+        request.setToAccountType(toAccountType);
+        request.setAmount(amount);
+        request.setTimestamp(timestamp == null ? null : timestamp.toString());
+        request.setReferenceId(referenceId);
+        request.setTransactionCode(transactionCode);
+        request.setCurrency(currency);
+        JsonNode result = post("/transfers", request);
+        return new TransferResult(transaction(result.path("debit")), transaction(result.path("credit")));
+    }
+
+    @Override
+    public BigDecimal getCurrentBalance(String accountId) {
+        return get("/accounts/" + segment(accountId) + "/balance").body().path("balance").decimalValue();
+    }
+
+    @Override
+    public BigDecimal getBalanceAt(String accountId, OffsetDateTime at) {
+        return get("/accounts/" + segment(accountId) + "/balanceAt" + query("at", String.valueOf(at)))
+                .body().path("balance").decimalValue();
+    }
+
+    @Override
+    public Map<String, BigDecimal> getBalances(List<String> accountIds) {
+        if (accountIds == null || accountIds.isEmpty()) return Map.of();
+        // One parameter per id, so ids containing commas are not split
+        StringJoiner params = new StringJoiner("&", "?", "");
+        for (String accountId : accountIds) params.add("accountIds=" + URLEncoder.encode(accountId, StandardCharsets.UTF_8));
+        JsonNode balances = get("/balances" + params).body();
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        balances.fields().forEachRemaining(e -> result.put(e.getKey(), e.getValue().decimalValue()));
+        return result;
+    }
+
+    @Override
+    public List<AggregateBucket> getAggregates(String accountId, AggregatePeriod period, LocalDate from, LocalDate to) {
+        JsonNode buckets = get("/accounts/" + segment(accountId) + "/aggregates"
+                + query("period", String.valueOf(period), "from", String.valueOf(from), "to", String.valueOf(to))).body();
+        List<AggregateBucket> out = new ArrayList<>(buckets.size());
+        for (JsonNode bucket : buckets) {
+            out.add(new AggregateBucket(LocalDate.parse(bucket.path("start").asText()), bucket.path("count").asLong(),
+                    bucket.path("deposits").decimalValue(), bucket.path("withdrawals").decimalValue(),
+                    bucket.path("minAmount").decimalValue(), bucket.path("maxAmount").decimalValue()));
+        }
+        return out;
+    }
+
+    @Override
+    public List<Transaction> getTransactionHistory(String accountId) {
+        return transactions(get("/accounts/" + segment(accountId) + "/transactions").body());
+    }
+
+    @Override
+    public List<Transaction> getLedgerRows() {
+        return transactions(get("/ledger").body());
+    }
+
+    @Override
+    public LedgerPage getLedgerPage(String cursor, int limit) {
+        return page(get("/ledger" + query("cursor", cursor, "limit", String.valueOf(limit))));
+    }
+
+    @Override
+    public LedgerPage getTransactionHistoryPage(String accountId, String cursor, int limit) {
+        return page(get("/accounts/" + segment(accountId) + "/transactions"
+                + query("cursor", cursor, "limit", String.valueOf(limit))));
+    }
+
+    @Override
+    public LedgerPage searchTransactions(String accountId, String codePrefix, TransactionType type,
+                                         BigDecimal minAmount, BigDecimal maxAmount, OffsetDateTime from,
+                                         OffsetDateTime to, String cursor, int limit) {
+        return page(get("/transactions/search" + query(
+                "accountId", accountId,
+                "codePrefix", codePrefix,
+                "type", type == null ? null : type.name(),
+                "minAmount", minAmount == null ? null : minAmount.toPlainString(),
+                "maxAmount", maxAmount == null ? null : maxAmount.toPlainString(),
+                "from", from == null ? null : from.toString(),
+                "to", to == null ? null : to.toString(),
+                "cursor", cursor,
+                "limit", String.valueOf(limit))));
+    }
+
+    @Override
+    public Stream<Transaction> streamLedger(String cursor) {
+        return stream("/ledger/stream" + query("cursor", cursor));
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactionHistory(String accountId) {
+        return stream("/accounts/" + segment(accountId) + "/transactions/stream");
+    }
+
+    /** A JSON result, with its X-Next-Cursor header for pages */
+    private record Reply(JsonNode body, String nextCursor) {}
+
+    private JsonNode post(String path, Object body) {
+        byte[] json;
+        try {
+            json = mapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("cannot encode request: " + e.getOriginalMessage(), e);
+        }
+        return send(request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json))
+                .build()).body();
+    }
+
+    private Reply get(String path) {
+        return send(request(path).GET().build());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api" + path))
+                .timeout(timeout)
+                .header("Accept", "application/json");
+    }
+
+    private Reply send(HttpRequest request) {
+        HttpResponse<byte[]> response = exchange(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw failure(response.statusCode(), response.headers().firstValue(GlobalExceptionHandler.ERROR_HEADER)
+                    .orElse(null), new String(response.body(), StandardCharsets.UTF_8));
+        }
+        try {
+            return new Reply(reader.readTree(response.body()),
+                    response.headers().firstValue("X-Next-Cursor").orElse(null));
+        } catch (IOException e) {
+            throw new IllegalStateException("ledger node " + baseUrl + " sent an unreadable response", e);
+        }
+    }
+
+    private Stream<Transaction> stream(String path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api" + path))
+                .header("Accept", "application/x-ndjson")
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = exchange(request, HttpResponse.BodyHandlers.ofInputStream());
+        InputStream body = response.body();
+        try {
+            if (response.statusCode() != 200) {
+                try (body) {
+                    throw failure(response.statusCode(), response.headers()
+                            .firstValue(GlobalExceptionHandler.ERROR_HEADER).orElse(null),
+                            new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+            MappingIterator<JsonNode> rows = reader.forType(JsonNode.class).readValues(body);
+            Iterator<Transaction> transactions = new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return rows.hasNext();
+                }
+
+                @Override
+                public Transaction next() {
+                    return transaction(rows.next());
+                }
+            };
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(transactions,
+                            Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(() -> {
+                        try {
+                            rows.close();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (IOException e) {
+            throw new IllegalStateException("ledger node " + baseUrl + " unavailable", e);
+        }
+    }
+
+    private <T> HttpResponse<T> exchange(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        try {
+            return client.send(request, handler);
+        } catch (IOException e) {
+            throw new IllegalStateException("ledger node " + baseUrl + " unavailable", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling ledger node " + baseUrl, e);
+        }
+    }
+
+    private RuntimeException failure(int status, String errorKind, String message) {
+        if (status == 400) {
+            if (GlobalExceptionHandler.INSUFFICIENT_FUNDS.equals(errorKind)) return new InsufficientBalanceException(message);
+            return new IllegalArgumentException(message);
+        }
+        if (status == 409 && GlobalExceptionHandler.ACCOUNT_NOT_HELD.equals(errorKind)) {
+            return new AccountNotHeldException(message);
+        }
+        return new IllegalStateException("ledger node " + baseUrl + " returned " + status + ": " + message);
+    }
+
+    private static LedgerPage page(Reply reply) {
+        return new LedgerPage(transactions(reply.body()), reply.nextCursor());
+    }
+
+    private static List<Transaction> transactions(JsonNode rows) {
+        List<Transaction> out = new ArrayList<>(rows.size());
+        for (JsonNode row : rows) out.add(transaction(row));
+        return out;
+    }
+
+    private static Transaction transaction(JsonNode row) {
+        return new Transaction(
+                text(row.path("id")),
+                text(row.path("accountId")),
+                AccountType.valueOf(row.path("accountType").asText()),
+                TransactionType.valueOf(row.path("type").asText()),
+                row.path("amount").decimalValue(),
+                text(row.path("currency")),
+                OffsetDateTime.parse(row.path("timestamp").asText()),
+                text(row.path("referenceId")),
+                text(row.path("transactionCode")));
+    }
+
+    private static String text(JsonNode node) {
+        return node.isNull() || node.isMissingNode() ? null : node.asText();
+    }
+
+    /** A URL path segment: form encoding, with spaces as %20 rather than + */
+    private static String segment(String value) {
+        if (value == null || value.isBlank()) throw new IllegalArgumentException("accountId required");
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /** Query string of the name/value pairs whose value is not null */
+    private static String query(String... pairs) {
+        StringJoiner params = new StringJoiner("&", "?", "").setEmptyValue("");
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (pairs[i + 1] != null) params.add(pairs[i] + "=" + URLEncoder.encode(pairs[i + 1], StandardCharsets.UTF_8));
+        }
+        return params.toString();
+    }
+}
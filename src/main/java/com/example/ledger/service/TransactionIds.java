@@ -0,0 +1,31 @@
+package com.example.ledger.service;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Time-ordered transaction ids in the UUID version 7 layout (RFC 9562): a 48-bit
+ * Unix millisecond timestamp followed by 74 random bits.
+ *
+ * {@link UUID#randomUUID()} draws its bits from a shared SecureRandom, which
+ * writers contend on under load; here the random bits come from the calling
+ * thread's {@link ThreadLocalRandom}, so generating an id takes no lock and
+ * allocates only the id string. Ids are unique, not secret. They keep the
+ * canonical UUID string form, so storages that pack UUID ids into two longs
+ * still do, and they sort by creation time to the millisecond.
+ */
+final class TransactionIds {
+
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_RFC = 0x8000_0000_0000_0000L;
+
+    private TransactionIds() {
+    }
+
+    static String next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (System.currentTimeMillis() << 16) | VERSION_7 | (random.nextLong() & 0x0FFFL);
+        long leastSigBits = VARIANT_RFC | (random.nextLong() >>> 2);
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+}
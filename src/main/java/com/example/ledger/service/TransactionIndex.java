@@ -0,0 +1,287 @@
+package com.example.ledger.service;
+
+import com.example.ledger.dto.LedgerPage;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.storage.HistoryEntry;
+import com.example.ledger.storage.LedgerStorage;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Secondary indexes over committed transactions, maintained on every commit so
+ * filtered queries never scan the whole ledger.
+ *
+ * Every index is a set of posting lists, each a skip list of transactions in
+ * (timestamp, index sequence) order: one for the whole ledger, one per account,
+ * per transactionCode (kept sorted, so a code prefix is a key range), per
+ * TransactionType and per power of ten of the amount. A query is driven by the
+ * smallest posting lists its filters select, cut to the time range, merged in
+ * timestamp order; the remaining filters are checked row by row. Pages resume
+ * after an opaque cursor holding the last row's position, which is valid for
+ * the life of the process (the index is rebuilt from storage on startup).
+ *
+ * Posting lists hold the position of a row in its account's history (the
+ * account and its arrival sequence there), not the Transaction, and candidate
+ * rows are read back from storage. The index therefore keeps nothing resident
+ * that the columnar, mapped and tiered modes moved off the heap, at the cost of
+ * one positioned history read per candidate row.
+ */
+final class TransactionIndex {
+
+    // amount buckets by floor(log10(amount)): bucket 0 holds zero and anything below 0.01
+    private static final int MIN_EXPONENT = -2;
+    private static final int MAGNITUDE_BUCKETS = 22;
+
+    /** Position of a row in every posting list */
+    record Key(long epochSecond, int nano, long sequence) implements Comparable<Key> {
+
+        private static final Comparator<Key> ORDER = Comparator.comparingLong(Key::epochSecond)
+                .thenComparingInt(Key::nano)
+                .thenComparingLong(Key::sequence);
+
+        /** The first position at or after a point in time */
+        static Key at(OffsetDateTime time) {
+            return new Key(time.toEpochSecond(), time.getNano(), Long.MIN_VALUE);
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+
+        String encode() {
+            String raw = epochSecond + ":" + nano + ":" + sequence;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /** Decode a client cursor; null or blank means "from the beginning" and returns null */
+        static Key decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+                if (parts.length != 3) throw new IllegalArgumentException("invalid cursor");
+                return new Key(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("invalid cursor", e);
+            }
+        }
+    }
+
+    /** Filters of a query; null fields do not filter */
+    record Query(String accountId, String codePrefix, TransactionType type,
+                 BigDecimal minAmount, BigDecimal maxAmount, OffsetDateTime from, OffsetDateTime to) {
+
+        boolean matches(Transaction tx) {
+            return (accountId == null || accountId.equals(tx.getAccountId()))
+                    && (codePrefix == null || (tx.getTransactionCode() != null && tx.getTransactionCode().startsWith(codePrefix)))
+                    && (type == null || type == tx.getType())
+                    && (minAmount == null || tx.getAmount().compareTo(minAmount) >= 0)
+                    && (maxAmount == null || tx.getAmount().compareTo(maxAmount) <= 0);
+        }
+    }
+
+    /** One posting list; the size is tracked separately because skip lists count by walking */
+    private static final class Postings {
+        final ConcurrentSkipListMap<Key, Row> rows = new ConcurrentSkipListMap<>();
+        final LongAdder size = new LongAdder();
+
+        void add(Key key, Row row) {
+            rows.put(key, row);
+            size.increment();
+        }
+    }
+
+    /** An indexed account: one copy of its id, its posting list and the arrival sequence of its next row */
+    private static final class Account {
+        final String id;
+        // whether this node holds the account; searches without an account skip the others
+        final boolean held;
+        final Postings postings = new Postings();
+        // only advanced under the account's lock
+        long nextSequence;
+
+        Account(String id, boolean held) {
+            this.id = id;
+            this.held = held;
+        }
+    }
+
+    /** Where a row lives: its account and its arrival sequence in that account's history */
+    private record Row(Account account, long sequence) {}
+
+    private final LedgerStorage storage;
+    private final AccountOwnership ownership;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Postings all = new Postings();
+    private final ConcurrentHashMap<String, Account> byAccount = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Postings> byCode = new ConcurrentSkipListMap<>();
+    private final Map<TransactionType, Postings> byType = new EnumMap<>(TransactionType.class);
+    private final Postings[] byMagnitude = new Postings[MAGNITUDE_BUCKETS];
+
+    TransactionIndex(LedgerStorage storage, AccountOwnership ownership) {
+        this.storage = storage;
+        this.ownership = ownership;
+        for (TransactionType type : TransactionType.values()) byType.put(type, new Postings());
+        for (int i = 0; i < MAGNITUDE_BUCKETS; i++) byMagnitude[i] = new Postings();
+    }
+
+    /**
+     * Index a transaction just appended to storage (caller holds its account lock).
+     * Storages number an account's appends 0, 1, 2, ... in arrival order, so its
+     * sequence is the count of rows indexed for the account before it.
+     */
+    void add(Transaction tx) {
+        Account account = byAccount.computeIfAbsent(tx.getAccountId(), this::account);
+        add(account, tx, account.nextSequence);
+    }
+
+    /** Index a stored row read back from storage with its arrival sequence (startup rebuild) */
+    void add(HistoryEntry entry) {
+        Transaction tx = entry.transaction();
+        add(byAccount.computeIfAbsent(tx.getAccountId(), this::account), tx, entry.sequence());
+    }
+
+    private Account account(String accountId) {
+        return new Account(accountId, ownership.holds(accountId));
+    }
+
+    private void add(Account account, Transaction tx, long historySequence) {
+        // A rebuild reads in timestamp order, where backdated rows carry later sequences
+        account.nextSequence = Math.max(account.nextSequence, historySequence + 1);
+        OffsetDateTime ts = tx.getTimestamp();
+        Key key = new Key(ts.toEpochSecond(), ts.getNano(), sequence.incrementAndGet());
+        Row row = new Row(account, historySequence);
+        all.add(key, row);
+        account.postings.add(key, row);
+        byType.get(tx.getType()).add(key, row);
+        byMagnitude[magnitude(tx.getAmount())].add(key, row);
+        if (tx.getTransactionCode() != null) {
+            byCode.computeIfAbsent(tx.getTransactionCode(), k -> new Postings()).add(key, row);
+        }
+    }
+
+    void addAll(Collection<Transaction> txs) {
+        for (Transaction tx : txs) add(tx);
+    }
+
+    /** Up to limit rows matching query after the cursor (null = first page), in timestamp order */
+    LedgerPage find(Query query, String cursor, int limit) {
+        // Resume strictly after the cursor, or from the start of the time range
+        Key after = Key.decode(cursor);
+        Key from = query.from() == null ? null : Key.at(query.from());
+        boolean resume = after != null && (from == null || after.compareTo(from) >= 0);
+        Key to = query.to() == null ? null : Key.at(query.to());
+
+        List<Iterator<Map.Entry<Key, Row>>> sources = new ArrayList<>();
+        for (Postings postings : drivingPostings(query)) {
+            NavigableMap<Key, Row> range = postings.rows;
+            if (resume) range = range.tailMap(after, false);
+            else if (from != null) range = range.tailMap(from, true);
+            if (to != null) range = range.headMap(to, false);
+            sources.add(range.entrySet().iterator());
+        }
+
+        Iterator<Map.Entry<Key, Row>> rows = merge(sources);
+        List<Transaction> items = new ArrayList<>(Math.min(limit, 1024));
+        Key last = null;
+        while (rows.hasNext()) {
+            Map.Entry<Key, Row> row = rows.next();
+            if (!row.getValue().account().held) continue;
+            Transaction tx = read(row.getKey(), row.getValue());
+            if (tx == null || !query.matches(tx)) continue;
+            if (items.size() == limit) return new LedgerPage(items, last.encode());
+            items.add(tx);
+            last = row.getKey();
+        }
+        return new LedgerPage(items, null);
+    }
+
+    /** The stored transaction at a row's position, or null if its account no longer holds it there */
+    private Transaction read(Key key, Row row) {
+        List<HistoryEntry> entries = storage.getTransactionsAfter(row.account().id,
+                Instant.ofEpochSecond(key.epochSecond(), key.nano()), row.sequence() - 1, 1);
+        if (entries.isEmpty() || entries.get(0).sequence() != row.sequence()) return null;
+        return entries.get(0).transaction();
+    }
+
+    /** The posting lists selected by the query's most selective indexed filter */
+    private List<Postings> drivingPostings(Query query) {
+        List<List<Postings>> options = new ArrayList<>();
+        if (query.accountId() != null) {
+            Account account = byAccount.get(query.accountId());
+            options.add(account == null ? List.of() : List.of(account.postings));
+        }
+        if (query.codePrefix() != null) {
+            options.add(new ArrayList<>(byCode.subMap(query.codePrefix(), true,
+                    query.codePrefix() + Character.MAX_VALUE, false).values()));
+        }
+        if (query.type() != null) options.add(List.of(byType.get(query.type())));
+        if (query.minAmount() != null || query.maxAmount() != null) {
+            int from = query.minAmount() == null ? 0 : magnitude(query.minAmount());
+            int to = query.maxAmount() == null ? MAGNITUDE_BUCKETS - 1 : magnitude(query.maxAmount());
+            options.add(List.of(byMagnitude).subList(from, Math.max(from, to) + 1));
+        }
+        if (options.isEmpty()) return List.of(all);
+
+        List<Postings> best = null;
+        long bestSize = Long.MAX_VALUE;
+        for (List<Postings> option : options) {
+            long size = 0;
+            for (Postings postings : option) size += postings.size.sum();
+            if (size < bestSize) {
+                best = option;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    private static int magnitude(BigDecimal amount) {
+        if (amount.signum() <= 0) return 0;
+        int exponent = amount.precision() - amount.scale() - 1;
+        return Math.max(0, Math.min(MAGNITUDE_BUCKETS - 1, exponent - MIN_EXPONENT + 1));
+    }
+
+    /** Merge posting list ranges, each in key order, into one key-ordered sequence */
+    private static Iterator<Map.Entry<Key, Row>> merge(List<Iterator<Map.Entry<Key, Row>>> sources) {
+        if (sources.size() == 1) return sources.get(0);
+
+        record Head(Map.Entry<Key, Row> row, Iterator<Map.Entry<Key, Row>> rest) {}
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                Comparator.comparing((Head head) -> head.row().getKey()));
+        for (Iterator<Map.Entry<Key, Row>> source : sources) {
+            if (source.hasNext()) heads.add(new Head(source.next(), source));
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<Key, Row> next() {
+                Head head = heads.remove();
+                if (head.rest().hasNext()) heads.add(new Head(head.rest().next(), head.rest()));
+                return head.row();
+            }
+        };
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Time-ordered transaction history of a single account.
+ *
+ * Entries are kept in a sorted array (by timestamp, ties in arrival order) and a
+ * cumulative balance checkpoint is stored every {@code checkpointInterval} entries,
+ * so a balance at a point in time is a binary search plus a partial sum over at
+ * most one interval. Backdated transactions are inserted in place and the
+ * checkpoints after the insertion point are adjusted.
+ *
+ * A plain instance is not thread-safe and suits a history confined to one thread
+ * (a sharded-mode shard). {@link #shared()} returns one that guards every call
+ * with a read-write lock, for storages whose histories many threads read.
+ */
+class AccountHistory {
+
+    static final int DEFAULT_CHECKPOINT_INTERVAL = 256;
+
+    private final int checkpointInterval;
+
+    private Transaction[] entries = new Transaction[16];
+    // arrival number of each entry; (timestamp, sequence) is a stable position for cursors
+    private long[] sequences = new long[16];
+    private int size;
+    private long nextSequence;
+
+    // checkpoints[k] = sum of signed amounts of entries[0 .. (k + 1) * checkpointInterval)
+    private BigDecimal[] checkpoints = new BigDecimal[4];
+    private int checkpointCount;
+
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    AccountHistory() {
+        this(DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    AccountHistory(int checkpointInterval) {
+        if (checkpointInterval <= 0) throw new IllegalArgumentException("checkpointInterval must be > 0");
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /** A history safe to share between threads: reads take a read lock, inserts the write lock */
+    static AccountHistory shared() {
+        return new Shared();
+    }
+
+    /** Build a shared history from entries already in timestamp order, in one pass */
+    static AccountHistory ofSorted(Transaction[] sorted) {
+        AccountHistory history = shared();
+        history.entries = Arrays.copyOf(sorted, Math.max(16, sorted.length));
+        history.sequences = new long[history.entries.length];
+        for (int i = 0; i < sorted.length; i++) history.sequences[i] = i;
+        history.size = sorted.length;
+        history.nextSequence = sorted.length;
+        history.checkpoints = new BigDecimal[Math.max(4, sorted.length / history.checkpointInterval)];
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = 0; i < sorted.length; i++) {
+            sum = sum.add(sorted[i].signedAmount());
+            if ((i + 1) % history.checkpointInterval == 0) history.checkpoints[history.checkpointCount++] = sum;
+        }
+        history.balance = sum;
+        return history;
+    }
+
+    /** Insert a transaction at its time position and update balance and checkpoints */
+    void add(Transaction tx) {
+        insert(tx);
+    }
+
+    /** Insert several transactions (in a shared history, under one acquisition of the write lock) */
+    void addAll(List<Transaction> txs) {
+        for (Transaction tx : txs) insert(tx);
+    }
+
+    private void insert(Transaction tx) {
+        int pos = upperBound(tx.getTimestamp());
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+            sequences = Arrays.copyOf(sequences, size * 2);
+        }
+        if (pos < size) {
+            System.arraycopy(entries, pos, entries, pos + 1, size - pos);
+            System.arraycopy(sequences, pos, sequences, pos + 1, size - pos);
+        }
+        entries[pos] = tx;
+        sequences[pos] = nextSequence++;
+        size++;
+
+        BigDecimal signed = tx.signedAmount();
+        if (pos < size - 1) {
+            // Backdated: every checkpoint whose range now includes tx has also lost
+            // the entry that was shifted across its boundary
+            for (int k = pos / checkpointInterval; k < checkpointCount; k++) {
+                int boundary = (k + 1) * checkpointInterval;
+                checkpoints[k] = checkpoints[k].add(signed).subtract(entries[boundary].signedAmount());
+            }
+        }
+        balance = balance.add(signed);
+
+        if (size % checkpointInterval == 0) {
+            if (checkpointCount == checkpoints.length) checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+            checkpoints[checkpointCount++] = balance;
+        }
+    }
+
+    BigDecimal balance() {
+        return balance;
+    }
+
+    /** Sum of all transactions with timestamp <= at */
+    BigDecimal balanceAt(OffsetDateTime at) {
+        int end = upperBound(at);
+        if (end == size) return balance;
+
+        int k = end / checkpointInterval;
+        BigDecimal sum = k == 0 ? BigDecimal.ZERO : checkpoints[k - 1];
+        for (int i = k * checkpointInterval; i < end; i++) {
+            sum = sum.add(entries[i].signedAmount());
+        }
+        return sum;
+    }
+
+    /** Copy of the history, ordered by timestamp */
+    List<Transaction> toList() {
+        return List.of(Arrays.copyOf(entries, size));
+    }
+
+    /**
+     * Up to limit entries positioned after (afterTime, afterSequence), in order.
+     * A null afterTime reads from the start; afterSequence -1 includes every entry
+     * at afterTime and Long.MAX_VALUE excludes them all.
+     */
+    List<HistoryEntry> readAfter(Instant afterTime, long afterSequence, int limit) {
+        int from = afterTime == null ? 0 : positionAfter(afterTime, afterSequence);
+        int to = (int) Math.min(size, (long) from + limit);
+        List<HistoryEntry> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) result.add(new HistoryEntry(entries[i], sequences[i]));
+        return result;
+    }
+
+    /** Copy of the history as an array, ordered by timestamp */
+    Transaction[] toArray() {
+        return Arrays.copyOf(entries, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Index of the first entry whose (timestamp, sequence) is after the given position */
+    private int positionAfter(Instant time, long sequence) {
+        long second = time.getEpochSecond();
+        int nano = time.getNano();
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            OffsetDateTime ts = entries[mid].getTimestamp();
+            int c = Long.compare(ts.toEpochSecond(), second);
+            if (c == 0) c = Integer.compare(ts.getNano(), nano);
+            if (c == 0) c = Long.compare(sequences[mid], sequence);
+            if (c > 0) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /** Index of the first entry strictly after the given time */
+    private int upperBound(OffsetDateTime at) {
+        // Fast path for in-order appends and current-balance style queries
+        if (size == 0 || !entries[size - 1].getTimestamp().isAfter(at)) return size;
+
+        int lo = 0, hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (entries[mid].getTimestamp().isAfter(at)) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /**
+     * Guards every call with a read-write lock, so readers see each insert together
+     * with its balance and checkpoint updates. Locks are taken inline rather than
+     * through a lambda so the write path does not allocate.
+     */
+    private static final class Shared extends AccountHistory {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        @Override
+        void add(Transaction tx) {
+            lock.writeLock().lock();
+            try {
+                super.add(tx);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        void addAll(List<Transaction> txs) {
+            lock.writeLock().lock();
+            try {
+                super.addAll(txs);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        BigDecimal balance() {
+            lock.readLock().lock();
+            try {
+                return super.balance();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        BigDecimal balanceAt(OffsetDateTime at) {
+            lock.readLock().lock();
+            try {
+                return super.balanceAt(at);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        List<Transaction> toList() {
+            lock.readLock().lock();
+            try {
+                return super.toList();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        List<HistoryEntry> readAfter(Instant afterTime, long afterSequence, int limit) {
+            lock.readLock().lock();
+            try {
+                return super.readAfter(afterTime, afterSequence, limit);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        Transaction[] toArray() {
+            lock.readLock().lock();
+            try {
+                return super.toArray();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        int size() {
+            lock.readLock().lock();
+            try {
+                return super.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+
+/**
+ * Point-in-time state of one account as stored in a snapshot.
+ *
+ * @param lastSequence       log sequence of the newest transaction included
+ * @param history            transactions in timestamp order
+ * @param referenceIds       retained idempotency references, oldest first
+ * @param referencePositions index into history of each reference's transaction
+ * @param referenceCommitTimes wall-clock commit time (epoch millis) of each reference
+ */
+record AccountSnapshot(String accountId,
+                       String currency,
+                       long lastSequence,
+                       Transaction[] history,
+                       String[] referenceIds,
+                       int[] referencePositions,
+                       long[] referenceCommitTimes) {
+}
@@ -0,0 +1,44 @@
+package com.example.ledger.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns small int codes to repeated values (currencies, transaction codes) so
+ * columnar storage keeps one int per row instead of a reference to its own copy
+ * of the value. Codes are never reused or removed; null is encoded as -1.
+ *
+ * A code is only handed to readers through a row written after {@link #encode}
+ * returned, so {@link #decode} needs no lock of its own.
+ */
+class CodeDictionary<T> {
+
+    private final ConcurrentHashMap<T, Integer> codes = new ConcurrentHashMap<>();
+    private volatile Object[] values = new Object[16];
+    private int size;
+
+    int encode(T value) {
+        if (value == null) return -1;
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) return code;
+            Object[] current = values;
+            if (size == current.length) current = Arrays.copyOf(current, size * 2);
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    T decode(int code) {
+        return code < 0 ? null : (T) values[code];
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
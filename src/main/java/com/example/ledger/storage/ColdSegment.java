@@ -0,0 +1,129 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable, compressed run of consecutive history entries of one account.
+ *
+ * Rows are encoded with {@link TransactionCodec}, each followed by its arrival
+ * sequence, and the whole run is deflated. The summary (row count, first and last
+ * timestamp, last sequence and the sum of signed amounts) is kept uncompressed,
+ * so balance and position lookups decide whether they need the rows at all
+ * without inflating them. Changing a segment means building a new one.
+ */
+final class ColdSegment {
+
+    /** Decoded rows of a segment, in (timestamp, sequence) order */
+    record Rows(Transaction[] entries, long[] sequences) {}
+
+    private final byte[] compressed;
+    private final int encodedLength;
+    private final int count;
+    private final OffsetDateTime first;
+    private final OffsetDateTime last;
+    private final long lastSequence;
+    private final BigDecimal sum;
+
+    private ColdSegment(byte[] compressed, int encodedLength, int count, OffsetDateTime first,
+                        OffsetDateTime last, long lastSequence, BigDecimal sum) {
+        this.compressed = compressed;
+        this.encodedLength = encodedLength;
+        this.count = count;
+        this.first = first;
+        this.last = last;
+        this.lastSequence = lastSequence;
+        this.sum = sum;
+    }
+
+    /** Compress entries[from, to), which are in (timestamp, sequence) order */
+    static ColdSegment of(Transaction[] entries, long[] sequences, int from, int to) {
+        if (to <= from) throw new IllegalArgumentException("segment must not be empty");
+        int bound = 0;
+        for (int i = from; i < to; i++) bound += TransactionCodec.maxEncodedSize(entries[i]) + Long.BYTES;
+        ByteBuffer encoded = ByteBuffer.allocate(bound);
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = from; i < to; i++) {
+            TransactionCodec.encode(entries[i], encoded);
+            encoded.putLong(sequences[i]);
+            sum = sum.add(entries[i].signedAmount());
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(encoded.array(), 0, encoded.position());
+            deflater.finish();
+            byte[] out = new byte[Math.max(64, encoded.position() / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == out.length) out = Arrays.copyOf(out, out.length * 2);
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return new ColdSegment(Arrays.copyOf(out, length), encoded.position(), to - from,
+                    entries[from].getTimestamp(), entries[to - 1].getTimestamp(), sequences[to - 1], sum);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** Inflate and decode the rows */
+    Rows hydrate() {
+        byte[] encoded = new byte[encodedLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < encodedLength) {
+                int n = inflater.inflate(encoded, length, encodedLength - length);
+                if (n == 0 && (inflater.finished() || inflater.needsInput()))
+                    throw new IllegalStateException("cold segment is truncated");
+                length += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("cold segment is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(encoded);
+        Transaction[] entries = new Transaction[count];
+        long[] sequences = new long[count];
+        for (int i = 0; i < count; i++) {
+            entries[i] = TransactionCodec.decode(in);
+            sequences[i] = in.getLong();
+        }
+        return new Rows(entries, sequences);
+    }
+
+    int count() {
+        return count;
+    }
+
+    OffsetDateTime first() {
+        return first;
+    }
+
+    OffsetDateTime last() {
+        return last;
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    /** Sum of the signed amounts of every row */
+    BigDecimal sum() {
+        return sum;
+    }
+
+    int compressedBytes() {
+        return compressed.length;
+    }
+}
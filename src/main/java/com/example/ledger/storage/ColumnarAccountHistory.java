@@ -0,0 +1,337 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Time-ordered history of a single account stored column by column in primitive
+ * arrays; {@link Transaction} objects are only created when rows are read.
+ *
+ * Per row: timestamp as epoch microseconds plus its offset, amount as an unscaled
+ * long with its scale, account/transaction type packed in a byte, currency and
+ * transaction code as {@link CodeDictionary} codes, and the id as the two halves
+ * of its UUID. Ids that are not canonical UUIDs, and referenceIds, are kept as
+ * strings. Ordering, arrival sequences and balance checkpoints work as in
+ * {@link AccountHistory}.
+ *
+ * Timestamps are kept to microsecond precision; amounts must have an unscaled
+ * value that fits in a long.
+ */
+class ColumnarAccountHistory {
+
+    private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+    private final String accountId;
+    private final CodeDictionary<String> currencies;
+    private final CodeDictionary<String> transactionCodes;
+    private final int checkpointInterval;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] micros = new long[16];
+    private int[] offsetSeconds = new int[16];
+    private long[] unscaledAmounts = new long[16];
+    private byte[] scales = new byte[16];
+    // accountType ordinal << 1 | transactionType ordinal
+    private byte[] kinds = new byte[16];
+    private int[] currencyCodes = new int[16];
+    private int[] codeCodes = new int[16];
+    private long[] idHigh = new long[16];
+    private long[] idLow = new long[16];
+    // allocated once the first id that is not a canonical UUID arrives
+    private String[] otherIds;
+    private String[] referenceIds = new String[16];
+    private long[] sequences = new long[16];
+    private int size;
+    private long nextSequence;
+
+    // checkpoints[k] = sum of signed amounts of rows [0 .. (k + 1) * checkpointInterval)
+    private BigDecimal[] checkpoints = new BigDecimal[4];
+    private int checkpointCount;
+
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    ColumnarAccountHistory(String accountId, CodeDictionary<String> currencies,
+                           CodeDictionary<String> transactionCodes) {
+        this(accountId, currencies, transactionCodes, AccountHistory.DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    ColumnarAccountHistory(String accountId, CodeDictionary<String> currencies,
+                           CodeDictionary<String> transactionCodes, int checkpointInterval) {
+        if (checkpointInterval <= 0) throw new IllegalArgumentException("checkpointInterval must be > 0");
+        this.accountId = accountId;
+        this.currencies = currencies;
+        this.transactionCodes = transactionCodes;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /** Epoch microseconds of a timestamp, rounded down */
+    static long toMicros(OffsetDateTime ts) {
+        return Math.addExact(Math.multiplyExact(ts.toEpochSecond(), 1_000_000L), ts.getNano() / 1_000);
+    }
+
+    static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    /** Reject transactions whose amount or timestamp the columns cannot hold */
+    static void checkStorable(Transaction tx) {
+        try {
+            toMicros(tx.getTimestamp());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("timestamp out of range: " + tx.getTimestamp());
+        }
+        unscaledOf(tx.getAmount());
+    }
+
+    /** Insert a transaction at its time position and return its arrival sequence */
+    long add(Transaction tx) {
+        int scale = scaleOf(tx.getAmount());
+        long unscaled = unscaledOf(tx.getAmount());
+        long ts = toMicros(tx.getTimestamp());
+
+        lock.writeLock().lock();
+        try {
+            int pos = upperBound(ts);
+            if (size == micros.length) grow(size * 2);
+            if (pos < size) shiftRight(pos);
+
+            micros[pos] = ts;
+            offsetSeconds[pos] = tx.getTimestamp().getOffset().getTotalSeconds();
+            unscaledAmounts[pos] = unscaled;
+            scales[pos] = (byte) scale;
+            kinds[pos] = (byte) (tx.getAccountType().ordinal() << 1 | tx.getType().ordinal());
+            currencyCodes[pos] = currencies.encode(tx.getCurrency());
+            codeCodes[pos] = transactionCodes.encode(tx.getTransactionCode());
+            setId(pos, tx.getId());
+            referenceIds[pos] = tx.getReferenceId();
+            long sequence = nextSequence++;
+            sequences[pos] = sequence;
+            size++;
+
+            BigDecimal signed = tx.signedAmount();
+            if (pos < size - 1) {
+                // Backdated: every checkpoint whose range now includes tx has also lost
+                // the row that was shifted across its boundary
+                for (int k = pos / checkpointInterval; k < checkpointCount; k++) {
+                    int boundary = (k + 1) * checkpointInterval;
+                    checkpoints[k] = checkpoints[k].add(signed).subtract(signedAmount(boundary));
+                }
+            }
+            balance = balance.add(signed);
+
+            if (size % checkpointInterval == 0) {
+                if (checkpointCount == checkpoints.length) checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+                checkpoints[checkpointCount++] = balance;
+            }
+            return sequence;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    BigDecimal balance() {
+        lock.readLock().lock();
+        try {
+            return balance;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Sum of all transactions with timestamp <= at */
+    BigDecimal balanceAt(OffsetDateTime at) {
+        lock.readLock().lock();
+        try {
+            int end = upperBound(toMicros(at));
+            if (end == size) return balance;
+
+            int k = end / checkpointInterval;
+            BigDecimal sum = k == 0 ? BigDecimal.ZERO : checkpoints[k - 1];
+            for (int i = k * checkpointInterval; i < end; i++) {
+                sum = sum.add(signedAmount(i));
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Materialized history, ordered by timestamp */
+    List<Transaction> toList() {
+        lock.readLock().lock();
+        try {
+            Transaction[] rows = new Transaction[size];
+            for (int i = 0; i < size; i++) rows[i] = row(i);
+            return List.of(rows);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** See {@link AccountHistory#readAfter} */
+    List<HistoryEntry> readAfter(Instant afterTime, long afterSequence, int limit) {
+        lock.readLock().lock();
+        try {
+            int from = afterTime == null ? 0 : positionAfter(toMicros(afterTime), afterSequence);
+            int to = (int) Math.min(size, (long) from + limit);
+            List<HistoryEntry> result = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) result.add(new HistoryEntry(row(i), sequences[i]));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The row with the given timestamp and arrival sequence, or null */
+    Transaction find(long timestampMicros, long sequence) {
+        lock.readLock().lock();
+        try {
+            int i = positionAfter(timestampMicros, sequence - 1);
+            return i < size && micros[i] == timestampMicros && sequences[i] == sequence ? row(i) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Build the Transaction for row i (caller holds the lock) */
+    private Transaction row(int i) {
+        OffsetDateTime timestamp = OffsetDateTime.ofInstant(
+                Instant.ofEpochSecond(Math.floorDiv(micros[i], 1_000_000L), Math.floorMod(micros[i], 1_000_000L) * 1_000L),
+                ZoneOffset.ofTotalSeconds(offsetSeconds[i]));
+        return new Transaction(idOf(i), accountId,
+                ACCOUNT_TYPES[kinds[i] >> 1], TRANSACTION_TYPES[kinds[i] & 1],
+                BigDecimal.valueOf(unscaledAmounts[i], scales[i]),
+                currencies.decode(currencyCodes[i]), timestamp,
+                referenceIds[i], transactionCodes.decode(codeCodes[i]));
+    }
+
+    private BigDecimal signedAmount(int i) {
+        BigDecimal amount = BigDecimal.valueOf(unscaledAmounts[i], scales[i]);
+        return TRANSACTION_TYPES[kinds[i] & 1] == TransactionType.DEPOSIT ? amount : amount.negate();
+    }
+
+    private void setId(int pos, String id) {
+        UUID uuid = canonicalUuid(id);
+        if (uuid != null) {
+            idHigh[pos] = uuid.getMostSignificantBits();
+            idLow[pos] = uuid.getLeastSignificantBits();
+            if (otherIds != null) otherIds[pos] = null;
+        } else {
+            if (otherIds == null) otherIds = new String[micros.length];
+            otherIds[pos] = id;
+        }
+    }
+
+    private String idOf(int i) {
+        if (otherIds != null && otherIds[i] != null) return otherIds[i];
+        return new UUID(idHigh[i], idLow[i]).toString();
+    }
+
+    /** The UUID an id is the canonical string form of, or null */
+    static UUID canonicalUuid(String id) {
+        if (id == null || id.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Smallest scale that represents the amount exactly, if it fits the byte column */
+    static int scaleOf(BigDecimal amount) {
+        int scale = amount.scale();
+        if (scale < Byte.MIN_VALUE || scale > Byte.MAX_VALUE) scale = amount.stripTrailingZeros().scale();
+        if (scale < Byte.MIN_VALUE || scale > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("amount scale out of range: " + amount);
+        return scale;
+    }
+
+    static long unscaledOf(BigDecimal amount) {
+        try {
+            return amount.setScale(scaleOf(amount)).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("amount out of range: " + amount);
+        }
+    }
+
+    private void grow(int capacity) {
+        micros = Arrays.copyOf(micros, capacity);
+        offsetSeconds = Arrays.copyOf(offsetSeconds, capacity);
+        unscaledAmounts = Arrays.copyOf(unscaledAmounts, capacity);
+        scales = Arrays.copyOf(scales, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        currencyCodes = Arrays.copyOf(currencyCodes, capacity);
+        codeCodes = Arrays.copyOf(codeCodes, capacity);
+        idHigh = Arrays.copyOf(idHigh, capacity);
+        idLow = Arrays.copyOf(idLow, capacity);
+        if (otherIds != null) otherIds = Arrays.copyOf(otherIds, capacity);
+        referenceIds = Arrays.copyOf(referenceIds, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+    }
+
+    /** Open a gap at pos for a backdated row */
+    private void shiftRight(int pos) {
+        int n = size - pos;
+        System.arraycopy(micros, pos, micros, pos + 1, n);
+        System.arraycopy(offsetSeconds, pos, offsetSeconds, pos + 1, n);
+        System.arraycopy(unscaledAmounts, pos, unscaledAmounts, pos + 1, n);
+        System.arraycopy(scales, pos, scales, pos + 1, n);
+        System.arraycopy(kinds, pos, kinds, pos + 1, n);
+        System.arraycopy(currencyCodes, pos, currencyCodes, pos + 1, n);
+        System.arraycopy(codeCodes, pos, codeCodes, pos + 1, n);
+        System.arraycopy(idHigh, pos, idHigh, pos + 1, n);
+        System.arraycopy(idLow, pos, idLow, pos + 1, n);
+        if (otherIds != null) System.arraycopy(otherIds, pos, otherIds, pos + 1, n);
+        System.arraycopy(referenceIds, pos, referenceIds, pos + 1, n);
+        System.arraycopy(sequences, pos, sequences, pos + 1, n);
+    }
+
+    /** Index of the first row whose (timestamp, sequence) is after the given position (caller holds the lock) */
+    private int positionAfter(long timestampMicros, long sequence) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = Long.compare(micros[mid], timestampMicros);
+            if (c == 0) c = Long.compare(sequences[mid], sequence);
+            if (c > 0) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /** Index of the first row strictly after the given time (caller holds the lock) */
+    private int upperBound(long timestampMicros) {
+        // Fast path for in-order appends and current-balance style queries
+        if (size == 0 || micros[size - 1] <= timestampMicros) return size;
+
+        int lo = 0, hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (micros[mid] > timestampMicros) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory LedgerStorage that keeps histories in primitive columns
+ * (ledger.storage.mode=columnar).
+ *
+ * Behaves like {@link InMemoryLedgerStorage} but each row costs tens of bytes
+ * instead of a graph of Transaction, BigDecimal, OffsetDateTime and String
+ * objects; see {@link ColumnarAccountHistory} for the layout. Reads build
+ * Transaction objects on the fly. Currencies and transaction codes share one
+ * dictionary across accounts, and the idempotency index refers to rows by
+ * (timestamp, sequence) rather than holding on to Transaction objects.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.storage.mode", havingValue = "columnar")
+public class ColumnarLedgerStorage implements LedgerStorage {
+
+    /** Where an indexed reference's row sits in its account's history */
+    private record RowKey(long timestampMicros, long sequence) {}
+
+    private final ConcurrentHashMap<String, ColumnarAccountHistory> historiesByAccount = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, IdempotencyIndex<RowKey>> idempotencyMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> accountCurrencyMap = new ConcurrentHashMap<>();
+    private final CodeDictionary<String> currencies = new CodeDictionary<>();
+    private final CodeDictionary<String> transactionCodes = new CodeDictionary<>();
+    private final StripedLocks accountLocks = new StripedLocks(Runtime.getRuntime().availableProcessors() * 64);
+
+    private final int idempotencyMaxEntries;
+    private final Duration idempotencyRetention;
+
+    private final Timer lockWait;
+    private final DistributionSummary historySize;
+
+    public ColumnarLedgerStorage() {
+        this(InMemoryLedgerStorage.DEFAULT_IDEMPOTENCY_MAX_ENTRIES, InMemoryLedgerStorage.DEFAULT_IDEMPOTENCY_RETENTION,
+                new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public ColumnarLedgerStorage(
+            @Value("${ledger.idempotency.max-entries-per-account:100000}") int idempotencyMaxEntries,
+            @Value("${ledger.idempotency.retention:24h}") Duration idempotencyRetention,
+            MeterRegistry meterRegistry) {
+        if (idempotencyMaxEntries <= 0) throw new IllegalArgumentException("idempotency max entries must be > 0");
+        this.idempotencyMaxEntries = idempotencyMaxEntries;
+        this.idempotencyRetention = idempotencyRetention;
+
+        this.lockWait = StorageMeters.lockWait(meterRegistry);
+        this.historySize = StorageMeters.historySize(meterRegistry);
+        StorageMeters.accounts(meterRegistry, historiesByAccount, Map::size);
+    }
+
+    @Override
+    public <T> T withAccountLock(String accountId, Supplier<T> work) {
+        return accountLocks.with(accountId, lockWait, work);
+    }
+
+    @Override
+    public <T> T withAccountLocks(String firstAccountId, String secondAccountId, Supplier<T> work) {
+        return accountLocks.withBoth(firstAccountId, secondAccountId, lockWait, work);
+    }
+
+    @Override
+    public void checkStorable(Transaction tx) {
+        ColumnarAccountHistory.checkStorable(tx);
+    }
+
+    @Override
+    public void appendTransaction(String accountId, Transaction tx) {
+        ColumnarAccountHistory.checkStorable(tx);
+        ColumnarAccountHistory history = historiesByAccount.computeIfAbsent(accountId,
+                k -> new ColumnarAccountHistory(k, currencies, transactionCodes));
+        long sequence = history.add(tx);
+        historySize.record(history.size());
+
+        String referenceId = tx.getReferenceId();
+        if (referenceId != null && !referenceId.isBlank()) {
+            idempotencyMap
+                    .computeIfAbsent(accountId, k -> IdempotencyIndex.shared(idempotencyMaxEntries, idempotencyRetention))
+                    .put(referenceId, new RowKey(ColumnarAccountHistory.toMicros(tx.getTimestamp()), sequence));
+        }
+    }
+
+    @Override
+    public void appendTransactions(String accountId, List<Transaction> txs) {
+        // Check every row first so a batch group is stored entirely or not at all
+        for (Transaction tx : txs) ColumnarAccountHistory.checkStorable(tx);
+        for (Transaction tx : txs) appendTransaction(accountId, tx);
+    }
+
+    @Override
+    public void appendTransfer(Transaction debit, Transaction credit) {
+        ColumnarAccountHistory.checkStorable(debit);
+        ColumnarAccountHistory.checkStorable(credit);
+        appendTransaction(debit.getAccountId(), debit);
+        appendTransaction(credit.getAccountId(), credit);
+    }
+
+    @Override
+    public BigDecimal getBalance(String accountId) {
+        ColumnarAccountHistory history = historiesByAccount.get(accountId);
+        return history == null ? BigDecimal.ZERO : history.balance();
+    }
+
+    @Override
+    public BigDecimal getBalanceAt(String accountId, OffsetDateTime at) {
+        ColumnarAccountHistory history = historiesByAccount.get(accountId);
+        return history == null ? BigDecimal.ZERO : history.balanceAt(at);
+    }
+
+    @Override
+    public Optional<Transaction> findByReference(String accountId, String referenceId) {
+        if (referenceId == null || referenceId.isBlank()) return Optional.empty();
+        IdempotencyIndex<RowKey> index = idempotencyMap.get(accountId);
+        if (index == null) return Optional.empty();
+        RowKey key = index.get(referenceId);
+        if (key == null) return Optional.empty();
+        return Optional.ofNullable(historiesByAccount.get(accountId).find(key.timestampMicros(), key.sequence()));
+    }
+
+    @Override
+    public List<Transaction> getTransactionsForAccount(String accountId) {
+        ColumnarAccountHistory history = historiesByAccount.get(accountId);
+        if (history == null) return List.of();
+        return history.toList();
+    }
+
+    @Override
+    public List<HistoryEntry> getTransactionsAfter(String accountId, Instant afterTime, long afterSequence, int limit) {
+        ColumnarAccountHistory history = historiesByAccount.get(accountId);
+        if (history == null) return List.of();
+        return history.readAfter(afterTime, afterSequence, limit);
+    }
+
+    @Override
+    public Collection<String> getAccountIds() {
+        return historiesByAccount.keySet();
+    }
+
+    @Override
+    public List<Transaction> getAllTransactions() {
+        return historiesByAccount.values().stream()
+                .flatMap(history -> history.toList().stream())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String getCurrency(String accountId) {
+        return accountCurrencyMap.get(accountId);
+    }
+
+    @Override
+    public void setCurrency(String accountId, String currency) {
+        accountCurrencyMap.putIfAbsent(accountId, currency.toUpperCase());
+    }
+
+    @Override
+    public boolean accountExists(String accountId) {
+        return historiesByAccount.containsKey(accountId);
+    }
+}
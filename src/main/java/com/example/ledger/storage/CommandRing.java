@@ -0,0 +1,120 @@
+package com.example.ledger.storage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer, single-consumer queue of commands over a preallocated
+ * ring of slots, without locks.
+ *
+ * Producers claim a position by CAS on the tail counter, write the command into
+ * the slot and publish it by advancing the slot's sequence; the consumer reads
+ * slots in order and hands each one back by moving its sequence a lap ahead.
+ * A full ring makes producers back off until the consumer catches up, or until
+ * the consumer closes the ring on its way out. An idle consumer spins briefly and
+ * then parks until a producer wakes it.
+ */
+final class CommandRing {
+
+    private static final int SPINS_BEFORE_PARK = 1_000;
+    // Upper bound on a park, so a missed wake-up costs at most this much latency
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Runnable[] commands;
+    // sequences[i] == position + 1: slot holds the command at position; == position: slot free for it
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // consumer only
+
+    private volatile Thread parkedConsumer;
+    private volatile boolean closed;
+
+    CommandRing(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity) - 1) << 1;
+        this.commands = new Runnable[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+        this.mask = capacity - 1;
+    }
+
+    int capacity() {
+        return commands.length;
+    }
+
+    /**
+     * Enqueue a command, backing off while the ring is full. Returns false if the
+     * ring was found full after it was closed; a command enqueued into a closed ring
+     * is only run if the consumer drains it.
+     */
+    boolean offer(Runnable command) {
+        int spins = 0;
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long available = sequences.get(slot) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    commands[slot] = command;
+                    sequences.set(slot, position + 1);
+                    Thread consumer = parkedConsumer;
+                    if (consumer != null) LockSupport.unpark(consumer);
+                    return true;
+                }
+            } else if (available < 0) {
+                // Full: the consumer has not yet freed the slot from the previous lap
+                if (closed) return false;
+                if (++spins < SPINS_BEFORE_PARK) Thread.onSpinWait();
+                else LockSupport.parkNanos(MAX_PARK_NANOS / 100);
+            }
+        }
+    }
+
+    /** Next command, or null if the ring is empty (consumer only) */
+    Runnable poll() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) return null;
+        Runnable command = commands[slot];
+        commands[slot] = null;
+        sequences.set(slot, head + commands.length);
+        head++;
+        return command;
+    }
+
+    /** Next command, waiting up to about a millisecond for one; null if none arrived (consumer only) */
+    Runnable take() {
+        for (int i = 0; i < SPINS_BEFORE_PARK; i++) {
+            Runnable command = poll();
+            if (command != null) return command;
+            Thread.onSpinWait();
+        }
+        parkedConsumer = Thread.currentThread();
+        try {
+            // Re-check after announcing the park: a producer that published before
+            // seeing parkedConsumer is caught here, one that published after unparks us
+            Runnable command = poll();
+            if (command != null) return command;
+            LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            return poll();
+        } finally {
+            parkedConsumer = null;
+        }
+    }
+
+    /** Called by the consumer once it stops taking commands, so producers stop waiting for space */
+    void close() {
+        closed = true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /** Wake a parked consumer, e.g. so it notices shutdown */
+    void wakeConsumer() {
+        Thread consumer = parkedConsumer;
+        if (consumer != null) LockSupport.unpark(consumer);
+    }
+}
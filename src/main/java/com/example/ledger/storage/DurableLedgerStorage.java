@@ -0,0 +1,340 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Persistent LedgerStorage (ledger.storage.mode=durable).
+ *
+ * Every committed transaction is written to a {@link WriteAheadLog} and synced
+ * before it becomes visible in the in-memory indexes, which are rebuilt from the
+ * log on startup. Syncs are group-committed, so concurrent writers on different
+ * accounts share disk flushes.
+ *
+ * A background task writes a {@link SnapshotStore} snapshot of every account.
+ * Recovery loads the newest snapshot and replays only the log tail after it; each
+ * account records the log sequence it already includes, so records taken into
+ * the snapshot while it was being written are not applied twice. Log segments
+ * older than the previous snapshot are deleted, so a newest snapshot that is torn
+ * or corrupt falls back to the previous one and a longer replay.
+ *
+ * The log is the only other copy of each history, so a snapshot holds every
+ * account's full history and writing one costs I/O proportional to the whole
+ * ledger. The task therefore runs every {@code snapshotInterval} but only writes
+ * once the records logged since the last snapshot reach {@code tailRatio} times
+ * the rows that snapshot held (and at least {@code minTailRecords}). Snapshot
+ * I/O then stays within 1/tailRatio times the log I/O, however large the
+ * ledger, and the tail replayed at startup stays a bounded share of it.
+ *
+ * Log syncs are timed as {@code ledger.wal.sync}; with group commit this is
+ * mostly the wait for a flush already in progress.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.storage.mode", havingValue = "durable")
+public class DurableLedgerStorage implements LedgerStorage, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DurableLedgerStorage.class);
+
+    private final InMemoryLedgerStorage memory;
+    private final WriteAheadLog log;
+    private final SnapshotStore snapshots;
+    private final ConcurrentHashMap<String, Long> lastSequenceByAccount = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService snapshotScheduler;
+    private final Timer walSync;
+    private final double tailRatio;
+    private final long minTailRecords;
+    // log sequence and row count of the newest snapshot, written or loaded
+    private volatile long snapshotSequence;
+    private volatile long snapshotRows;
+
+    @Autowired
+    public DurableLedgerStorage(
+            @Value("${ledger.storage.wal.directory:./data/wal}") Path directory,
+            @Value("${ledger.storage.wal.segment-bytes:67108864}") long segmentBytes,
+            @Value("${ledger.storage.snapshot.directory:./data/snapshots}") Path snapshotDirectory,
+            @Value("${ledger.storage.snapshot.interval:1m}") Duration snapshotInterval,
+            @Value("${ledger.storage.snapshot.tail-ratio:0.5}") double tailRatio,
+            @Value("${ledger.storage.snapshot.min-tail-records:100000}") long minTailRecords,
+            @Value("${ledger.idempotency.max-entries-per-account:100000}") int idempotencyMaxEntries,
+            @Value("${ledger.idempotency.retention:24h}") Duration idempotencyRetention,
+            MeterRegistry meterRegistry) {
+        this(new InMemoryLedgerStorage(idempotencyMaxEntries, idempotencyRetention, meterRegistry),
+                new WriteAheadLog(directory, segmentBytes),
+                new SnapshotStore(snapshotDirectory), snapshotInterval, tailRatio, minTailRecords);
+    }
+
+    DurableLedgerStorage(InMemoryLedgerStorage memory, WriteAheadLog log) {
+        this(memory, log, null, Duration.ZERO);
+    }
+
+    /** snapshots may be null to disable snapshotting; a zero interval disables the background task */
+    DurableLedgerStorage(InMemoryLedgerStorage memory, WriteAheadLog log,
+                         SnapshotStore snapshots, Duration snapshotInterval) {
+        this(memory, log, snapshots, snapshotInterval, 0, 1);
+    }
+
+    DurableLedgerStorage(InMemoryLedgerStorage memory, WriteAheadLog log, SnapshotStore snapshots,
+                         Duration snapshotInterval, double tailRatio, long minTailRecords) {
+        if (tailRatio < 0) throw new IllegalArgumentException("snapshot tail ratio must be >= 0");
+        if (minTailRecords < 1) throw new IllegalArgumentException("snapshot min tail records must be >= 1");
+        this.memory = memory;
+        this.log = log;
+        this.snapshots = snapshots;
+        this.tailRatio = tailRatio;
+        this.minTailRecords = minTailRecords;
+        this.walSync = Timer.builder("ledger.wal.sync")
+                .description("Time to make an appended record durable")
+                .register(memory.meterRegistry());
+        recover();
+
+        if (snapshots != null && snapshotInterval.toMillis() > 0) {
+            this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ledger-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = snapshotInterval.toMillis();
+            snapshotScheduler.scheduleWithFixedDelay(this::snapshotIfDue, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.snapshotScheduler = null;
+        }
+    }
+
+    /**
+     * Write a snapshot of every account and drop log segments no longer needed.
+     * Writers are paused only while the cut sequence is read; accounts are then
+     * copied one at a time under their own locks.
+     */
+    public synchronized Path snapshot() {
+        if (snapshots == null) throw new IllegalStateException("snapshots are not enabled");
+
+        // With every account lock held no append is in flight, so everything up to
+        // this sequence is already applied to memory
+        long replayFrom = memory.withAllAccountsLocked(log::lastSequence);
+
+        Iterator<String> accountIds = memory.getAccountIds().iterator();
+        long[] rows = new long[1];
+        Iterator<AccountSnapshot> accounts = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return accountIds.hasNext();
+            }
+
+            @Override
+            public AccountSnapshot next() {
+                String accountId = accountIds.next();
+                AccountSnapshot account = memory.withAccountLock(accountId, () ->
+                        memory.exportAccount(accountId, lastSequenceByAccount.getOrDefault(accountId, 0L)));
+                rows[0] += account.history().length;
+                return account;
+            }
+        };
+        Path written = snapshots.write(replayFrom, accounts);
+        snapshotSequence = replayFrom;
+        snapshotRows = rows[0];
+
+        // Keep the previous snapshot (and the log after it) as a fallback
+        List<Path> all = snapshots.snapshots();
+        if (all.size() >= 2) {
+            Path previous = all.get(all.size() - 2);
+            log.deleteSegmentsUpTo(SnapshotStore.replayFromOf(previous));
+            for (Path old : all.subList(0, all.size() - 2)) {
+                try {
+                    Files.deleteIfExists(old);
+                } catch (IOException e) {
+                    LOG.warn("Could not delete old snapshot {}", old, e);
+                }
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public <T> T withAccountLock(String accountId, Supplier<T> work) {
+        return memory.withAccountLock(accountId, work);
+    }
+
+    @Override
+    public <T> T withAccountLocks(String firstAccountId, String secondAccountId, Supplier<T> work) {
+        return memory.withAccountLocks(firstAccountId, secondAccountId, work);
+    }
+
+    @Override
+    public void checkStorable(Transaction tx) {
+        TransactionCodec.checkEncodable(tx);
+    }
+
+    @Override
+    public void appendTransaction(String accountId, Transaction tx) {
+        // Durable before visible: readers never see a transaction a crash could lose
+        long committedAt = System.currentTimeMillis();
+        long sequence = log.append(tx, committedAt);
+        sync(sequence);
+        memory.appendTransaction(accountId, tx, committedAt);
+        lastSequenceByAccount.put(accountId, sequence);
+    }
+
+    @Override
+    public void appendTransactions(String accountId, List<Transaction> txs) {
+        if (txs.isEmpty()) return;
+        // One log group and one sync: a failure partway leaves none of the rows to be recovered
+        long committedAt = System.currentTimeMillis();
+        long last = log.appendGroup(txs, committedAt);
+        sync(last);
+        memory.appendTransactions(accountId, txs, committedAt);
+        lastSequenceByAccount.put(accountId, last);
+    }
+
+    @Override
+    public void appendTransfer(Transaction debit, Transaction credit) {
+        // One log group: recovery applies both legs or, if the crash tore the group, neither
+        long committedAt = System.currentTimeMillis();
+        long last = log.appendGroup(List.of(debit, credit), committedAt);
+        sync(last);
+        memory.appendTransaction(debit.getAccountId(), debit, committedAt);
+        lastSequenceByAccount.put(debit.getAccountId(), last - 1);
+        memory.appendTransaction(credit.getAccountId(), credit, committedAt);
+        lastSequenceByAccount.put(credit.getAccountId(), last);
+    }
+
+    private void sync(long sequence) {
+        long start = System.nanoTime();
+        log.sync(sequence);
+        walSync.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public BigDecimal getBalance(String accountId) {
+        return memory.getBalance(accountId);
+    }
+
+    @Override
+    public BigDecimal getBalanceAt(String accountId, OffsetDateTime at) {
+        return memory.getBalanceAt(accountId, at);
+    }
+
+    @Override
+    public Optional<Transaction> findByReference(String accountId, String referenceId) {
+        return memory.findByReference(accountId, referenceId);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsForAccount(String accountId) {
+        return memory.getTransactionsForAccount(accountId);
+    }
+
+    @Override
+    public List<HistoryEntry> getTransactionsAfter(String accountId, Instant afterTime, long afterSequence, int limit) {
+        return memory.getTransactionsAfter(accountId, afterTime, afterSequence, limit);
+    }
+
+    @Override
+    public Collection<String> getAccountIds() {
+        return memory.getAccountIds();
+    }
+
+    @Override
+    public List<Transaction> getAllTransactions() {
+        return memory.getAllTransactions();
+    }
+
+    @Override
+    public String getCurrency(String accountId) {
+        return memory.getCurrency(accountId);
+    }
+
+    @Override
+    public void setCurrency(String accountId, String currency) {
+        // Not logged: an account's currency is re-derived from its first transaction on replay
+        memory.setCurrency(accountId, currency);
+    }
+
+    @Override
+    public boolean accountExists(String accountId) {
+        return memory.accountExists(accountId);
+    }
+
+    @Override
+    public void close() {
+        if (snapshotScheduler != null) snapshotScheduler.shutdownNow();
+        synchronized (this) {
+            log.close();
+        }
+    }
+
+    private void recover() {
+        long replayFrom = 0;
+        if (snapshots != null) {
+            AtomicLong rows = new AtomicLong();
+            Optional<SnapshotStore.Loaded> loaded = snapshots.loadLatest(account -> {
+                rows.addAndGet(account.history().length);
+                memory.restoreAccount(account);
+                lastSequenceByAccount.put(account.accountId(), account.lastSequence());
+            }, () -> {
+                rows.set(0);
+                memory.clear();
+                lastSequenceByAccount.clear();
+            });
+            if (loaded.isEmpty() && log.firstSequence() > 1) {
+                // Segments before the first record are only deleted once a snapshot covers them
+                throw new IllegalStateException("No usable snapshot, and the write-ahead log no longer has records before "
+                        + log.firstSequence());
+            }
+            if (loaded.isPresent()) {
+                replayFrom = loaded.get().replayFrom();
+                snapshotSequence = replayFrom;
+                snapshotRows = rows.get();
+                if (log.lastSequence() < replayFrom) {
+                    throw new IllegalStateException("Write-ahead log ends at " + log.lastSequence()
+                            + " but snapshot " + loaded.get().file() + " covers up to " + replayFrom);
+                }
+            }
+        }
+
+        log.replay(replayFrom, (sequence, committedAt, tx) -> {
+            // Skip records the snapshot already captured for this account
+            if (sequence <= lastSequenceByAccount.getOrDefault(tx.getAccountId(), 0L)) return;
+            memory.setCurrency(tx.getAccountId(), tx.getCurrency());
+            // Recovered references keep the retention window of their original commit
+            memory.appendTransaction(tx.getAccountId(), tx, committedAt);
+            lastSequenceByAccount.put(tx.getAccountId(), sequence);
+        });
+    }
+
+    /** Snapshot once the log tail since the last snapshot is large enough to be worth rewriting the ledger */
+    void snapshotIfDue() {
+        long tail = log.lastSequence() - snapshotSequence;
+        if (tail < Math.max(minTailRecords, (long) (snapshotRows * tailRatio))) return;
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            // keep the schedule alive; the next run retries
+            LOG.error("Ledger snapshot failed", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+
+/**
+ * A transaction together with its arrival sequence within the account. Entries
+ * are ordered by (timestamp, sequence), which stays stable when backdated
+ * transactions are inserted, so it can be used as a resume position. Every
+ * storage numbers an account's appends 0, 1, 2, ... in arrival order, which is
+ * what lets the search index locate a row by (account, sequence).
+ */
+public record HistoryEntry(Transaction transaction, long sequence) {
+}
@@ -0,0 +1,123 @@
+package com.example.ledger.storage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * referenceId -> transaction index of one account, so a replayed request costs a
+ * hash lookup instead of a history scan. The value is the transaction itself or,
+ * for storages that do not keep Transaction objects, a key to find it by.
+ *
+ * Entries are kept in insertion order and dropped once they are older than the
+ * retention window or when the account holds more than {@code maxEntries}
+ * references. A retry arriving after its reference was evicted is treated as a
+ * new request.
+ *
+ * Ages are measured from the wall-clock commit time, which durable storage
+ * writes to its log and snapshots, so a restart does not restart the retention
+ * window of recovered references.
+ *
+ * A plain instance is not thread-safe and suits an index confined to one thread
+ * (a sharded-mode shard); {@link #shared} returns a synchronized one.
+ */
+class IdempotencyIndex<V> {
+
+    private record Entry<V>(V value, long committedAtMillis) {}
+
+    /** A retained reference and the wall-clock time its transaction was committed */
+    record Reference<V>(String referenceId, V value, long committedAtMillis) {}
+
+    private final int maxEntries;
+    private final long retentionMillis;
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>();
+
+    IdempotencyIndex(int maxEntries, Duration retention) {
+        this.maxEntries = maxEntries;
+        this.retentionMillis = retention.toMillis();
+    }
+
+    /** An index safe to share between threads: every call holds its monitor */
+    static <V> IdempotencyIndex<V> shared(int maxEntries, Duration retention) {
+        return new Shared<>(maxEntries, retention);
+    }
+
+    void put(String referenceId, V value) {
+        put(referenceId, value, System.currentTimeMillis());
+    }
+
+    /** Add a reference committed at the given time, e.g. one recovered from a log */
+    void put(String referenceId, V value, long committedAtMillis) {
+        long now = System.currentTimeMillis();
+        expire(now);
+        if (now - committedAtMillis > retentionMillis) return;
+        entries.putIfAbsent(referenceId, new Entry<>(value, committedAtMillis));
+        if (entries.size() > maxEntries) {
+            Iterator<String> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    V get(String referenceId) {
+        Entry<V> entry = entries.get(referenceId);
+        if (entry == null) return null;
+        if (System.currentTimeMillis() - entry.committedAtMillis() > retentionMillis) {
+            entries.remove(referenceId);
+            return null;
+        }
+        return entry.value();
+    }
+
+    /** Retained entries in insertion order */
+    List<Reference<V>> entries() {
+        expire(System.currentTimeMillis());
+        List<Reference<V>> result = new ArrayList<>(entries.size());
+        entries.forEach((referenceId, entry) ->
+                result.add(new Reference<>(referenceId, entry.value(), entry.committedAtMillis())));
+        return result;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /** Drop entries older than the retention window; they sit at the head in insertion order */
+    private void expire(long now) {
+        Iterator<Map.Entry<String, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().getValue().committedAtMillis() <= retentionMillis) break;
+            it.remove();
+        }
+    }
+
+    private static final class Shared<V> extends IdempotencyIndex<V> {
+
+        Shared(int maxEntries, Duration retention) {
+            super(maxEntries, retention);
+        }
+
+        @Override
+        synchronized void put(String referenceId, V value, long committedAtMillis) {
+            super.put(referenceId, value, committedAtMillis);
+        }
+
+        @Override
+        synchronized V get(String referenceId) {
+            return super.get(referenceId);
+        }
+
+        @Override
+        synchronized List<Reference<V>> entries() {
+            return super.entries();
+        }
+
+        @Override
+        synchronized int size() {
+            return super.size();
+        }
+    }
+}
@@ -1,69 +1,242 @@
 package com.example.ledger.storage;
 
 import com.example.ledger.model.Transaction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * In-memory implementation of LedgerStorage
+ * In-memory implementation of LedgerStorage (ledger.storage.mode=memory, the default)
+ *
+ * Records {@code ledger.lock.wait} (time spent waiting for a contended account
+ * lock), {@code ledger.account.history.size} (an account's history length,
+ * sampled on every append so busy accounts dominate the upper percentiles) and
+ * the {@code ledger.accounts} gauge.
  */
 @Component
+@ConditionalOnProperty(name = "ledger.storage.mode", havingValue = "memory", matchIfMissing = true)
 public class InMemoryLedgerStorage implements LedgerStorage {
 
-    private final ConcurrentHashMap<String, ConcurrentLinkedQueue<Transaction>> transactionsByAccount;
-    private final ConcurrentHashMap<String, Set<String>> idempotencyMap;
+    static final int DEFAULT_IDEMPOTENCY_MAX_ENTRIES = 100_000;
+    static final Duration DEFAULT_IDEMPOTENCY_RETENTION = Duration.ofHours(24);
+
+    private final ConcurrentHashMap<String, AccountHistory> transactionsByAccount;
+    private final ConcurrentHashMap<String, IdempotencyIndex<Transaction>> idempotencyMap;
     private final ConcurrentHashMap<String, String> accountCurrencyMap;
+    private final StripedLocks accountLocks;
+
+    private final int idempotencyMaxEntries;
+    private final Duration idempotencyRetention;
+
+    private final MeterRegistry meterRegistry;
+    private final Timer lockWait;
+    private final DistributionSummary historySize;
 
     public InMemoryLedgerStorage() {
+        this(DEFAULT_IDEMPOTENCY_MAX_ENTRIES, DEFAULT_IDEMPOTENCY_RETENTION);
+    }
+
+    /** Without a registry (an empty composite), meters are no-ops */
+    public InMemoryLedgerStorage(int idempotencyMaxEntries, Duration idempotencyRetention) {
+        this(idempotencyMaxEntries, idempotencyRetention, new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public InMemoryLedgerStorage(
+            @Value("${ledger.idempotency.max-entries-per-account:100000}") int idempotencyMaxEntries,
+            @Value("${ledger.idempotency.retention:24h}") Duration idempotencyRetention,
+            MeterRegistry meterRegistry) {
+        if (idempotencyMaxEntries <= 0) throw new IllegalArgumentException("idempotency max entries must be > 0");
         this.transactionsByAccount = new ConcurrentHashMap<>();
         this.idempotencyMap = new ConcurrentHashMap<>();
         this.accountCurrencyMap = new ConcurrentHashMap<>();
+        this.accountLocks = new StripedLocks(Runtime.getRuntime().availableProcessors() * 64);
+        this.idempotencyMaxEntries = idempotencyMaxEntries;
+        this.idempotencyRetention = idempotencyRetention;
+
+        this.meterRegistry = meterRegistry;
+        this.lockWait = StorageMeters.lockWait(meterRegistry);
+        this.historySize = StorageMeters.historySize(meterRegistry);
+        StorageMeters.accounts(meterRegistry, transactionsByAccount, Map::size);
+    }
+
+    /** Registry this storage reports to, shared with storages that wrap it */
+    MeterRegistry meterRegistry() {
+        return meterRegistry;
+    }
+
+    @Override
+    public <T> T withAccountLock(String accountId, Supplier<T> work) {
+        return accountLocks.with(accountId, lockWait, work);
+    }
+
+    @Override
+    public <T> T withAccountLocks(String firstAccountId, String secondAccountId, Supplier<T> work) {
+        return accountLocks.withBoth(firstAccountId, secondAccountId, lockWait, work);
+    }
+
+    /** Run work while every account lock is held; used to take a consistent cut of all writers */
+    <T> T withAllAccountsLocked(Supplier<T> work) {
+        accountLocks.lockAll();
+        try {
+            return work.get();
+        } finally {
+            accountLocks.unlockAll();
+        }
     }
 
     @Override
     public void appendTransaction(String accountId, Transaction tx) {
-        transactionsByAccount
-                .computeIfAbsent(accountId, k -> new ConcurrentLinkedQueue<>())
-                .add(tx);
+        appendTransaction(accountId, tx, System.currentTimeMillis());
+    }
+
+    /** Append a transaction whose idempotency reference ages from the given wall-clock commit time */
+    void appendTransaction(String accountId, Transaction tx, long committedAtMillis) {
+        // AccountHistory applies the insert and the balance update under one write lock
+        AccountHistory history = transactionsByAccount.computeIfAbsent(accountId, k -> AccountHistory.shared());
+        history.add(tx);
+        historySize.record(history.size());
+
+        String referenceId = tx.getReferenceId();
+        if (referenceId != null && !referenceId.isBlank()) {
+            idempotencyMap
+                    .computeIfAbsent(accountId, k -> IdempotencyIndex.shared(idempotencyMaxEntries, idempotencyRetention))
+                    .put(referenceId, tx, committedAtMillis);
+        }
     }
 
     @Override
-    public boolean checkAndAddIdempotency(String accountId, String referenceId) {
-        if (referenceId == null || referenceId.isBlank()) return true;
+    public void appendTransactions(String accountId, List<Transaction> txs) {
+        appendTransactions(accountId, txs, System.currentTimeMillis());
+    }
 
-        idempotencyMap.putIfAbsent(accountId, ConcurrentHashMap.newKeySet());
-        return idempotencyMap.get(accountId).add(referenceId);
+    void appendTransactions(String accountId, List<Transaction> txs, long committedAtMillis) {
+        if (txs.isEmpty()) return;
+        // One history write lock for the whole group
+        AccountHistory history = transactionsByAccount.computeIfAbsent(accountId, k -> AccountHistory.shared());
+        history.addAll(txs);
+        historySize.record(history.size());
+
+        for (Transaction tx : txs) {
+            String referenceId = tx.getReferenceId();
+            if (referenceId != null && !referenceId.isBlank()) {
+                idempotencyMap
+                        .computeIfAbsent(accountId, k -> IdempotencyIndex.shared(idempotencyMaxEntries, idempotencyRetention))
+                        .put(referenceId, tx, committedAtMillis);
+            }
+        }
+    }
+
+    @Override
+    public BigDecimal getBalance(String accountId) {
+        AccountHistory history = transactionsByAccount.get(accountId);
+        return history == null ? BigDecimal.ZERO : history.balance();
+    }
+
+    @Override
+    public BigDecimal getBalanceAt(String accountId, OffsetDateTime at) {
+        AccountHistory history = transactionsByAccount.get(accountId);
+        return history == null ? BigDecimal.ZERO : history.balanceAt(at);
     }
 
     @Override
     public Optional<Transaction> findByReference(String accountId, String referenceId) {
-        ConcurrentLinkedQueue<Transaction> queue = transactionsByAccount.get(accountId);
-        if (queue == null) return Optional.empty();
-        return queue.stream()
-                .filter(tx -> referenceId.equals(tx.getReferenceId()))
-                .findFirst();
+        if (referenceId == null || referenceId.isBlank()) return Optional.empty();
+        IdempotencyIndex<Transaction> index = idempotencyMap.get(accountId);
+        if (index == null) return Optional.empty();
+        return Optional.ofNullable(index.get(referenceId));
     }
 
     @Override
     public List<Transaction> getTransactionsForAccount(String accountId) {
-        ConcurrentLinkedQueue<Transaction> queue = transactionsByAccount.get(accountId);
-        if (queue == null) return List.of();
-        return queue.stream().collect(Collectors.toList());
+        AccountHistory history = transactionsByAccount.get(accountId);
+        if (history == null) return List.of();
+        return history.toList();
+    }
+
+    @Override
+    public List<HistoryEntry> getTransactionsAfter(String accountId, Instant afterTime, long afterSequence, int limit) {
+        AccountHistory history = transactionsByAccount.get(accountId);
+        if (history == null) return List.of();
+        return history.readAfter(afterTime, afterSequence, limit);
+    }
+
+    @Override
+    public Collection<String> getAccountIds() {
+        return transactionsByAccount.keySet();
     }
 
     @Override
     public List<Transaction> getAllTransactions() {
         return transactionsByAccount.values().stream()
-                .flatMap(ConcurrentLinkedQueue::stream)
+                .flatMap(history -> history.toList().stream())
                 .collect(Collectors.toList());
     }
 
+    /** Copy one account's state; the caller holds the account lock so it is consistent */
+    AccountSnapshot exportAccount(String accountId, long lastSequence) {
+        AccountHistory history = transactionsByAccount.get(accountId);
+        Transaction[] entries = history == null ? new Transaction[0] : history.toArray();
+
+        IdempotencyIndex<Transaction> index = idempotencyMap.get(accountId);
+        List<IdempotencyIndex.Reference<Transaction>> references = index == null ? List.of() : index.entries();
+        IdentityHashMap<Transaction, Integer> positions = new IdentityHashMap<>(entries.length);
+        if (!references.isEmpty()) {
+            for (int i = 0; i < entries.length; i++) positions.put(entries[i], i);
+        }
+        String[] referenceIds = new String[references.size()];
+        int[] referencePositions = new int[references.size()];
+        long[] referenceCommitTimes = new long[references.size()];
+        for (int i = 0; i < references.size(); i++) {
+            referenceIds[i] = references.get(i).referenceId();
+            referencePositions[i] = positions.get(references.get(i).value());
+            referenceCommitTimes[i] = references.get(i).committedAtMillis();
+        }
+
+        return new AccountSnapshot(accountId, accountCurrencyMap.get(accountId), lastSequence,
+                entries, referenceIds, referencePositions, referenceCommitTimes);
+    }
+
+    /** Load an account from a snapshot, replacing any state it had */
+    void restoreAccount(AccountSnapshot snapshot) {
+        String accountId = snapshot.accountId();
+        if (snapshot.currency() != null) accountCurrencyMap.put(accountId, snapshot.currency());
+        transactionsByAccount.put(accountId, AccountHistory.ofSorted(snapshot.history()));
+        if (snapshot.referenceIds().length > 0) {
+            IdempotencyIndex<Transaction> index = IdempotencyIndex.shared(idempotencyMaxEntries, idempotencyRetention);
+            for (int i = 0; i < snapshot.referenceIds().length; i++) {
+                index.put(snapshot.referenceIds()[i], snapshot.history()[snapshot.referencePositions()[i]],
+                        snapshot.referenceCommitTimes()[i]);
+            }
+            idempotencyMap.put(accountId, index);
+        }
+    }
+
+    /** Drop every account; recovery uses this to discard a snapshot that failed partway through loading */
+    void clear() {
+        transactionsByAccount.clear();
+        idempotencyMap.clear();
+        accountCurrencyMap.clear();
+    }
+
     @Override
     public String getCurrency(String accountId) {
         return accountCurrencyMap.get(accountId);
@@ -2,23 +2,84 @@ package com.example.ledger.storage;
 
 import com.example.ledger.model.Transaction;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 public interface LedgerStorage {
 
-    /** Append transaction for an account */
+    /**
+     * Run work while holding the write lock of an account. Checks and appends done
+     * inside are atomic with respect to other writers of the same account, while
+     * writers of other accounts proceed in parallel.
+     */
+    <T> T withAccountLock(String accountId, Supplier<T> work);
+
+    /**
+     * Run work while holding the write locks of two accounts. Implementations take
+     * the locks in one global order, so concurrent callers locking overlapping
+     * pairs cannot deadlock. The default nests {@link #withAccountLock} in account id
+     * order, which is only correct when every account has its own lock.
+     */
+    default <T> T withAccountLocks(String firstAccountId, String secondAccountId, Supplier<T> work) {
+        if (firstAccountId.compareTo(secondAccountId) > 0) {
+            return withAccountLocks(secondAccountId, firstAccountId, work);
+        }
+        return withAccountLock(firstAccountId, () -> withAccountLock(secondAccountId, work));
+    }
+
+    /** Append transaction for an account, updating its running balance and reference index in the same step */
     void appendTransaction(String accountId, Transaction tx);
 
-    /** Check and add idempotency reference. Returns true if new, false if already exists */
-    boolean checkAndAddIdempotency(String accountId, String referenceId);
+    /**
+     * Throw IllegalArgumentException if tx holds a value this storage cannot store.
+     * Appends check this themselves; callers that append several rows at once check
+     * each first, so one such row is rejected alone instead of failing the others.
+     */
+    default void checkStorable(Transaction tx) {
+    }
+
+    /** Append several transactions of one account in order; implementations may batch the work */
+    default void appendTransactions(String accountId, List<Transaction> txs) {
+        for (Transaction tx : txs) appendTransaction(accountId, tx);
+    }
+
+    /**
+     * Append both legs of a transfer, each to its own account; the caller holds both
+     * account locks. Either both legs are stored (and, if persistent, recovered) or
+     * neither is.
+     */
+    default void appendTransfer(Transaction debit, Transaction credit) {
+        appendTransaction(debit.getAccountId(), debit);
+        appendTransaction(credit.getAccountId(), credit);
+    }
 
-    /** Get transaction by referenceId */
+    /** Get the running balance for an account (ZERO if it has no transactions) */
+    BigDecimal getBalance(String accountId);
+
+    /** Get the balance of an account including all transactions with timestamp <= at */
+    BigDecimal getBalanceAt(String accountId, OffsetDateTime at);
+
+    /** Get a retained transaction by referenceId (appended transactions are indexed by their referenceId) */
     Optional<Transaction> findByReference(String accountId, String referenceId);
 
-    /** Get all transactions for an account */
+    /** Get all transactions for an account, ordered by timestamp */
     List<Transaction> getTransactionsForAccount(String accountId);
 
+    /**
+     * Get up to limit history entries of an account positioned after (afterTime,
+     * afterSequence) in (timestamp, sequence) order. A null afterTime starts at the
+     * beginning; afterSequence -1 includes every entry at afterTime.
+     */
+    List<HistoryEntry> getTransactionsAfter(String accountId, Instant afterTime, long afterSequence, int limit);
+
+    /** Ids of all accounts that have transactions */
+    Collection<String> getAccountIds();
+
     /** Get all transactions across all accounts */
     List<Transaction> getAllTransactions();
 
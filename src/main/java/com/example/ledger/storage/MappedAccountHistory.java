@@ -0,0 +1,210 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Time-ordered history of a single account whose rows live in a
+ * {@link MappedRowStore}. On the heap it keeps only the row addresses in
+ * (timestamp, sequence) order, the balance and the balance checkpoints;
+ * ordering and checkpoints work as in {@link AccountHistory}.
+ *
+ * The address array is copy-on-write for backdated inserts and only ever
+ * written past the current size for in-order appends, so {@link #view()} can
+ * hand out a list over the array as it stands without copying it.
+ */
+class MappedAccountHistory {
+
+    private final String accountId;
+    private final MappedRowStore store;
+    private final int checkpointInterval;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] rows = new long[16];
+    private int size;
+    private long nextSequence;
+
+    // checkpoints[k] = sum of signed amounts of rows [0 .. (k + 1) * checkpointInterval)
+    private BigDecimal[] checkpoints = new BigDecimal[4];
+    private int checkpointCount;
+
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    MappedAccountHistory(String accountId, MappedRowStore store) {
+        this(accountId, store, AccountHistory.DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    MappedAccountHistory(String accountId, MappedRowStore store, int checkpointInterval) {
+        if (checkpointInterval <= 0) throw new IllegalArgumentException("checkpointInterval must be > 0");
+        this.accountId = accountId;
+        this.store = store;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /** Write a transaction to the store, insert it at its time position and return its row address */
+    long add(Transaction tx) {
+        long micros = ColumnarAccountHistory.toMicros(tx.getTimestamp());
+        lock.writeLock().lock();
+        try {
+            long address = store.writeRow(tx, nextSequence++);
+            int pos = upperBound(micros);
+            if (pos == size) {
+                if (size == rows.length) rows = Arrays.copyOf(rows, size * 2);
+            } else {
+                // Copy instead of shifting in place: views handed out earlier keep the old array
+                long[] shifted = new long[size == rows.length ? size * 2 : rows.length];
+                System.arraycopy(rows, 0, shifted, 0, pos);
+                System.arraycopy(rows, pos, shifted, pos + 1, size - pos);
+                rows = shifted;
+            }
+            rows[pos] = address;
+            size++;
+
+            BigDecimal signed = tx.signedAmount();
+            if (pos < size - 1) {
+                // Backdated: every checkpoint whose range now includes tx has also lost
+                // the row that was shifted across its boundary
+                for (int k = pos / checkpointInterval; k < checkpointCount; k++) {
+                    int boundary = (k + 1) * checkpointInterval;
+                    checkpoints[k] = checkpoints[k].add(signed).subtract(store.signedAmount(rows[boundary]));
+                }
+            }
+            balance = balance.add(signed);
+
+            if (size % checkpointInterval == 0) {
+                if (checkpointCount == checkpoints.length) checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+                checkpoints[checkpointCount++] = balance;
+            }
+            return address;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    BigDecimal balance() {
+        lock.readLock().lock();
+        try {
+            return balance;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Sum of all transactions with timestamp <= at, summing mapped rows after the nearest checkpoint */
+    BigDecimal balanceAt(OffsetDateTime at) {
+        lock.readLock().lock();
+        try {
+            int end = upperBound(ColumnarAccountHistory.toMicros(at));
+            if (end == size) return balance;
+
+            int k = end / checkpointInterval;
+            BigDecimal sum = k == 0 ? BigDecimal.ZERO : checkpoints[k - 1];
+            for (int i = k * checkpointInterval; i < end; i++) {
+                sum = sum.add(store.signedAmount(rows[i]));
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The history as it stands, ordered by timestamp. Rows are read from mapped
+     * memory as the list is accessed; later appends are not visible through it.
+     */
+    List<Transaction> view() {
+        lock.readLock().lock();
+        try {
+            return new RowList(rows, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** See {@link AccountHistory#readAfter} */
+    List<HistoryEntry> readAfter(Instant afterTime, long afterSequence, int limit) {
+        lock.readLock().lock();
+        try {
+            int from = afterTime == null ? 0 : positionAfter(ColumnarAccountHistory.toMicros(afterTime), afterSequence);
+            int to = (int) Math.min(size, (long) from + limit);
+            List<HistoryEntry> result = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                result.add(new HistoryEntry(store.readRow(rows[i], accountId), store.sequence(rows[i])));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Transaction read(long address) {
+        return store.readRow(address, accountId);
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Index of the first row whose (timestamp, sequence) is after the given position (caller holds the lock) */
+    private int positionAfter(long timestampMicros, long sequence) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = Long.compare(store.micros(rows[mid]), timestampMicros);
+            if (c == 0) c = Long.compare(store.sequence(rows[mid]), sequence);
+            if (c > 0) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /** Index of the first row strictly after the given time (caller holds the lock) */
+    private int upperBound(long timestampMicros) {
+        // Fast path for in-order appends and current-balance style queries
+        if (size == 0 || store.micros(rows[size - 1]) <= timestampMicros) return size;
+
+        int lo = 0, hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (store.micros(rows[mid]) > timestampMicros) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    private final class RowList extends AbstractList<Transaction> implements RandomAccess {
+
+        private final long[] addresses;
+        private final int size;
+
+        RowList(long[] addresses, int size) {
+            this.addresses = addresses;
+            this.size = size;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return store.readRow(addresses[index], accountId);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
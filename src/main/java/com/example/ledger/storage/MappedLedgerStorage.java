@@ -0,0 +1,193 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * LedgerStorage whose transaction rows live off-heap in memory-mapped segment
+ * files (ledger.storage.mode=mapped), so history size is bounded by disk and
+ * page cache rather than by the JVM heap.
+ *
+ * The heap holds only per-account row address indexes, balances and balance
+ * checkpoints, the idempotency index (referenceId -> row address), currencies and
+ * the code dictionaries. {@link #getTransactionsForAccount} returns a list backed
+ * by mapped memory and {@link #getBalanceAt} sums mapped rows directly. Like
+ * memory mode, the data does not survive a restart; see {@link MappedRowStore}.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.storage.mode", havingValue = "mapped")
+public class MappedLedgerStorage implements LedgerStorage, AutoCloseable {
+
+    private final MappedRowStore store;
+    private final ConcurrentHashMap<String, MappedAccountHistory> historiesByAccount = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, IdempotencyIndex<Long>> idempotencyMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> accountCurrencyMap = new ConcurrentHashMap<>();
+    private final StripedLocks accountLocks = new StripedLocks(Runtime.getRuntime().availableProcessors() * 64);
+
+    private final int idempotencyMaxEntries;
+    private final Duration idempotencyRetention;
+
+    private final Timer lockWait;
+    private final DistributionSummary historySize;
+
+    /** Without a registry (an empty composite), meters are no-ops */
+    MappedLedgerStorage(Path directory, long segmentBytes) {
+        this(directory, segmentBytes, InMemoryLedgerStorage.DEFAULT_IDEMPOTENCY_MAX_ENTRIES,
+                InMemoryLedgerStorage.DEFAULT_IDEMPOTENCY_RETENTION, new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public MappedLedgerStorage(
+            @Value("${ledger.storage.mapped.directory:./data/mapped}") Path directory,
+            @Value("${ledger.storage.mapped.segment-bytes:268435456}") long segmentBytes,
+            @Value("${ledger.idempotency.max-entries-per-account:100000}") int idempotencyMaxEntries,
+            @Value("${ledger.idempotency.retention:24h}") Duration idempotencyRetention,
+            MeterRegistry meterRegistry) {
+        if (idempotencyMaxEntries <= 0) throw new IllegalArgumentException("idempotency max entries must be > 0");
+        this.store = new MappedRowStore(directory, segmentBytes);
+        this.idempotencyMaxEntries = idempotencyMaxEntries;
+        this.idempotencyRetention = idempotencyRetention;
+
+        this.lockWait = StorageMeters.lockWait(meterRegistry);
+        this.historySize = StorageMeters.historySize(meterRegistry);
+        StorageMeters.accounts(meterRegistry, historiesByAccount, Map::size);
+        Gauge.builder("ledger.mapped.bytes", store, MappedRowStore::mappedBytes)
+                .description("Size of the mapped row segments")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> T withAccountLock(String accountId, Supplier<T> work) {
+        return accountLocks.with(accountId, lockWait, work);
+    }
+
+    @Override
+    public <T> T withAccountLocks(String firstAccountId, String secondAccountId, Supplier<T> work) {
+        return accountLocks.withBoth(firstAccountId, secondAccountId, lockWait, work);
+    }
+
+    @Override
+    public void checkStorable(Transaction tx) {
+        ColumnarAccountHistory.checkStorable(tx);
+    }
+
+    @Override
+    public void appendTransaction(String accountId, Transaction tx) {
+        ColumnarAccountHistory.checkStorable(tx);
+        MappedAccountHistory history = historiesByAccount.computeIfAbsent(accountId,
+                k -> new MappedAccountHistory(k, store));
+        long address = history.add(tx);
+        historySize.record(history.size());
+
+        String referenceId = tx.getReferenceId();
+        if (referenceId != null && !referenceId.isBlank()) {
+            idempotencyMap
+                    .computeIfAbsent(accountId, k -> IdempotencyIndex.shared(idempotencyMaxEntries, idempotencyRetention))
+                    .put(referenceId, address);
+        }
+    }
+
+    @Override
+    public void appendTransactions(String accountId, List<Transaction> txs) {
+        // Check every row first so a batch group is stored entirely or not at all
+        for (Transaction tx : txs) ColumnarAccountHistory.checkStorable(tx);
+        for (Transaction tx : txs) appendTransaction(accountId, tx);
+    }
+
+    @Override
+    public void appendTransfer(Transaction debit, Transaction credit) {
+        ColumnarAccountHistory.checkStorable(debit);
+        ColumnarAccountHistory.checkStorable(credit);
+        appendTransaction(debit.getAccountId(), debit);
+        appendTransaction(credit.getAccountId(), credit);
+    }
+
+    @Override
+    public BigDecimal getBalance(String accountId) {
+        MappedAccountHistory history = historiesByAccount.get(accountId);
+        return history == null ? BigDecimal.ZERO : history.balance();
+    }
+
+    @Override
+    public BigDecimal getBalanceAt(String accountId, OffsetDateTime at) {
+        MappedAccountHistory history = historiesByAccount.get(accountId);
+        return history == null ? BigDecimal.ZERO : history.balanceAt(at);
+    }
+
+    @Override
+    public Optional<Transaction> findByReference(String accountId, String referenceId) {
+        if (referenceId == null || referenceId.isBlank()) return Optional.empty();
+        IdempotencyIndex<Long> index = idempotencyMap.get(accountId);
+        if (index == null) return Optional.empty();
+        Long address = index.get(referenceId);
+        if (address == null) return Optional.empty();
+        return Optional.of(historiesByAccount.get(accountId).read(address));
+    }
+
+    @Override
+    public List<Transaction> getTransactionsForAccount(String accountId) {
+        MappedAccountHistory history = historiesByAccount.get(accountId);
+        if (history == null) return List.of();
+        return history.view();
+    }
+
+    @Override
+    public List<HistoryEntry> getTransactionsAfter(String accountId, Instant afterTime, long afterSequence, int limit) {
+        MappedAccountHistory history = historiesByAccount.get(accountId);
+        if (history == null) return List.of();
+        return history.readAfter(afterTime, afterSequence, limit);
+    }
+
+    @Override
+    public Collection<String> getAccountIds() {
+        return historiesByAccount.keySet();
+    }
+
+    @Override
+    public List<Transaction> getAllTransactions() {
+        return historiesByAccount.values().stream()
+                .flatMap(history -> history.view().stream())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String getCurrency(String accountId) {
+        return accountCurrencyMap.get(accountId);
+    }
+
+    @Override
+    public void setCurrency(String accountId, String currency) {
+        accountCurrencyMap.putIfAbsent(accountId, currency.toUpperCase());
+    }
+
+    @Override
+    public boolean accountExists(String accountId) {
+        return historiesByAccount.containsKey(accountId);
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+}
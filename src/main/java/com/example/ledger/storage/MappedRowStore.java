@@ -0,0 +1,229 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Transaction rows kept outside the heap in memory-mapped segment files.
+ *
+ * Segments are fixed-size files {@code <n>.seg} mapped through one shared
+ * {@link Arena}; space is handed out by a bump pointer and a row or string never
+ * straddles two segments. A row is addressed by a global byte address
+ * ({@code segment * segmentBytes + offset}). Rows are written once and never
+ * change, so readers need no lock beyond the one that published the address.
+ *
+ * Row layout (72 bytes, 8-byte aligned):
+ * <pre>
+ *  0 long  timestamp, epoch micros      8 long unscaled amount
+ * 16 int   offset seconds              20 byte scale  21 byte kind (accountType << 1 | type)
+ * 24 int   currency code               28 int transaction code (-1 = null)
+ * 32 long  UUID high bits              40 long UUID low bits
+ * 48 long  address of id string (-1 when the id is a canonical UUID)
+ * 56 long  address of referenceId string (-1 = null)
+ * 64 long  arrival sequence within the account
+ * </pre>
+ * Strings are {@code [int byteLength][UTF-8 bytes]}, padded to 8 bytes.
+ *
+ * The files are scratch space, not a durable copy: they are deleted on open and close.
+ */
+class MappedRowStore implements AutoCloseable {
+
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final int ROW_BYTES = 72;
+
+    private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+    private static final long MICROS = 0, AMOUNT = 8, OFFSET = 16, SCALE = 20, KIND = 21,
+            CURRENCY = 24, CODE = 28, ID_HIGH = 32, ID_LOW = 40, ID_STRING = 48, REFERENCE = 56, SEQUENCE = 64;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final Arena arena = Arena.ofShared();
+    private final CodeDictionary<String> currencies = new CodeDictionary<>();
+    private final CodeDictionary<String> transactionCodes = new CodeDictionary<>();
+
+    private volatile MemorySegment[] segments = new MemorySegment[0];
+    // next free global address; guarded by this
+    private long next;
+
+    MappedRowStore(Path directory, long segmentBytes) {
+        if (segmentBytes < ROW_BYTES || segmentBytes % 8 != 0)
+            throw new IllegalArgumentException("segment size must be a multiple of 8 and at least " + ROW_BYTES);
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+            deleteSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prepare mapped segment directory " + directory, e);
+        }
+    }
+
+    /** Write a row and return its address; the caller publishes it under its account's lock */
+    long writeRow(Transaction tx, long sequence) {
+        String id = tx.getId();
+        UUID uuid = ColumnarAccountHistory.canonicalUuid(id);
+        long idString = uuid == null ? writeString(id) : -1;
+        long reference = tx.getReferenceId() == null ? -1 : writeString(tx.getReferenceId());
+
+        long address = allocate(ROW_BYTES);
+        MemorySegment segment = segmentOf(address);
+        long base = offsetOf(address);
+        OffsetDateTime ts = tx.getTimestamp();
+        segment.set(ValueLayout.JAVA_LONG, base + MICROS, ColumnarAccountHistory.toMicros(ts));
+        segment.set(ValueLayout.JAVA_LONG, base + AMOUNT, ColumnarAccountHistory.unscaledOf(tx.getAmount()));
+        segment.set(ValueLayout.JAVA_INT, base + OFFSET, ts.getOffset().getTotalSeconds());
+        segment.set(ValueLayout.JAVA_BYTE, base + SCALE, (byte) ColumnarAccountHistory.scaleOf(tx.getAmount()));
+        segment.set(ValueLayout.JAVA_BYTE, base + KIND,
+                (byte) (tx.getAccountType().ordinal() << 1 | tx.getType().ordinal()));
+        segment.set(ValueLayout.JAVA_INT, base + CURRENCY, currencies.encode(tx.getCurrency()));
+        segment.set(ValueLayout.JAVA_INT, base + CODE, transactionCodes.encode(tx.getTransactionCode()));
+        segment.set(ValueLayout.JAVA_LONG, base + ID_HIGH, uuid == null ? 0 : uuid.getMostSignificantBits());
+        segment.set(ValueLayout.JAVA_LONG, base + ID_LOW, uuid == null ? 0 : uuid.getLeastSignificantBits());
+        segment.set(ValueLayout.JAVA_LONG, base + ID_STRING, idString);
+        segment.set(ValueLayout.JAVA_LONG, base + REFERENCE, reference);
+        segment.set(ValueLayout.JAVA_LONG, base + SEQUENCE, sequence);
+        return address;
+    }
+
+    /** Build the Transaction stored at address */
+    Transaction readRow(long address, String accountId) {
+        MemorySegment segment = segmentOf(address);
+        long base = offsetOf(address);
+        long micros = segment.get(ValueLayout.JAVA_LONG, base + MICROS);
+        OffsetDateTime timestamp = OffsetDateTime.ofInstant(
+                Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L),
+                ZoneOffset.ofTotalSeconds(segment.get(ValueLayout.JAVA_INT, base + OFFSET)));
+        byte kind = segment.get(ValueLayout.JAVA_BYTE, base + KIND);
+        long idString = segment.get(ValueLayout.JAVA_LONG, base + ID_STRING);
+        String id = idString >= 0
+                ? readString(idString)
+                : new UUID(segment.get(ValueLayout.JAVA_LONG, base + ID_HIGH),
+                           segment.get(ValueLayout.JAVA_LONG, base + ID_LOW)).toString();
+        long reference = segment.get(ValueLayout.JAVA_LONG, base + REFERENCE);
+        return new Transaction(id, accountId, ACCOUNT_TYPES[kind >> 1], TRANSACTION_TYPES[kind & 1],
+                amountOf(segment, base), currencies.decode(segment.get(ValueLayout.JAVA_INT, base + CURRENCY)),
+                timestamp, reference >= 0 ? readString(reference) : null,
+                transactionCodes.decode(segment.get(ValueLayout.JAVA_INT, base + CODE)));
+    }
+
+    long micros(long address) {
+        return segmentOf(address).get(ValueLayout.JAVA_LONG, offsetOf(address) + MICROS);
+    }
+
+    long sequence(long address) {
+        return segmentOf(address).get(ValueLayout.JAVA_LONG, offsetOf(address) + SEQUENCE);
+    }
+
+    BigDecimal signedAmount(long address) {
+        MemorySegment segment = segmentOf(address);
+        long base = offsetOf(address);
+        BigDecimal amount = amountOf(segment, base);
+        byte kind = segment.get(ValueLayout.JAVA_BYTE, base + KIND);
+        return TRANSACTION_TYPES[kind & 1] == TransactionType.DEPOSIT ? amount : amount.negate();
+    }
+
+    /** Bytes of mapped segment files (virtual size; pages are only backed once touched) */
+    long mappedBytes() {
+        return (long) segments.length * segmentBytes;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            segments = new MemorySegment[0];
+        }
+        arena.close();
+        try {
+            deleteSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete mapped segments in " + directory, e);
+        }
+    }
+
+    private static BigDecimal amountOf(MemorySegment segment, long base) {
+        return BigDecimal.valueOf(segment.get(ValueLayout.JAVA_LONG, base + AMOUNT),
+                segment.get(ValueLayout.JAVA_BYTE, base + SCALE));
+    }
+
+    private long writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long address = allocate(4 + bytes.length);
+        MemorySegment segment = segmentOf(address);
+        long base = offsetOf(address);
+        segment.set(ValueLayout.JAVA_INT, base, bytes.length);
+        MemorySegment.copy(bytes, 0, segment, ValueLayout.JAVA_BYTE, base + 4, bytes.length);
+        return address;
+    }
+
+    private String readString(long address) {
+        MemorySegment segment = segmentOf(address);
+        long base = offsetOf(address);
+        byte[] bytes = new byte[segment.get(ValueLayout.JAVA_INT, base)];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, base + 4, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Reserve bytes (rounded up to 8) within one segment, mapping a new segment when needed */
+    private synchronized long allocate(int bytes) {
+        long size = (bytes + 7L) & ~7L;
+        if (size > segmentBytes) throw new IllegalArgumentException("value too large for a mapped segment");
+        long used = next % segmentBytes;
+        if (used + size > segmentBytes) next += segmentBytes - used;
+        int index = (int) (next / segmentBytes);
+        if (index == segments.length) mapSegment(index);
+        long address = next;
+        next += size;
+        return address;
+    }
+
+    /** Caller holds this */
+    private void mapSegment(int index) {
+        Path file = directory.resolve(String.format("%06d%s", index, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+            MemorySegment mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes, arena);
+            MemorySegment[] grown = Arrays.copyOf(segments, index + 1);
+            grown[index] = mapped;
+            segments = grown;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map segment " + file, e);
+        }
+    }
+
+    private MemorySegment segmentOf(long address) {
+        return segments[(int) (address / segmentBytes)];
+    }
+
+    private long offsetOf(long address) {
+        return address % segmentBytes;
+    }
+
+    private void deleteSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
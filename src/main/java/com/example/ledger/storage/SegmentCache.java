@@ -0,0 +1,83 @@
+package com.example.ledger.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Least-recently-used cache of hydrated {@link ColdSegment} rows, shared by all
+ * accounts of a tiered storage and bounded by the total number of rows it holds.
+ *
+ * Hydration runs outside the cache lock, so a miss never blocks readers of other
+ * segments; two threads missing on the same segment may both inflate it and the
+ * second result simply replaces the first. A segment invalidated while it was
+ * being hydrated is never cached: it has been replaced and nothing reads it again.
+ */
+final class SegmentCache {
+
+    private final long maxRows;
+    // access order: iteration starts at the least recently used segment
+    private final LinkedHashMap<ColdSegment, ColdSegment.Rows> cached = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedRows;
+    // replaced segments; weak, so each is forgotten once the last reader drops it
+    private final Set<ColdSegment> invalidated = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private final Counter hits;
+    private final Counter misses;
+
+    SegmentCache(long maxRows, MeterRegistry meterRegistry) {
+        if (maxRows < 0) throw new IllegalArgumentException("cache rows must be >= 0");
+        this.maxRows = maxRows;
+        this.hits = Counter.builder("ledger.tiered.cache.lookups").tag("result", "hit")
+                .description("Cold segment reads served from hydrated rows")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ledger.tiered.cache.lookups").tag("result", "miss")
+                .description("Cold segment reads served from hydrated rows")
+                .register(meterRegistry);
+        Gauge.builder("ledger.tiered.cache.rows", this, SegmentCache::rows)
+                .description("Rows of cold segments currently hydrated")
+                .register(meterRegistry);
+    }
+
+    /** The segment's rows, hydrating and caching them on a miss */
+    ColdSegment.Rows rows(ColdSegment segment) {
+        synchronized (this) {
+            ColdSegment.Rows rows = cached.get(segment);
+            if (rows != null) {
+                hits.increment();
+                return rows;
+            }
+        }
+        misses.increment();
+        ColdSegment.Rows rows = segment.hydrate();
+        if (segment.count() > maxRows) return rows;
+        synchronized (this) {
+            if (invalidated.contains(segment)) return rows;
+            ColdSegment.Rows previous = cached.put(segment, rows);
+            if (previous == null) cachedRows += segment.count();
+            Iterator<Map.Entry<ColdSegment, ColdSegment.Rows>> eldest = cached.entrySet().iterator();
+            while (cachedRows > maxRows) {
+                cachedRows -= eldest.next().getKey().count();
+                eldest.remove();
+            }
+        }
+        return rows;
+    }
+
+    /** Drop a segment that has been replaced */
+    synchronized void invalidate(ColdSegment segment) {
+        invalidated.add(segment);
+        if (cached.remove(segment) != null) cachedRows -= segment.count();
+    }
+
+    synchronized long rows() {
+        return cachedRows;
+    }
+}
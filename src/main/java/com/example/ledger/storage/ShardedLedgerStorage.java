@@ -0,0 +1,397 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory LedgerStorage in which accounts are hash-partitioned across single
+ * writer shard threads (ledger.storage.mode=sharded).
+ *
+ * Each shard owns its accounts' histories, reference indexes and currencies in
+ * plain maps that only its own thread touches. The histories and indexes are the
+ * unsynchronized variants, so shard data is read and written without any lock or
+ * CAS; the only synchronization is the command hand-off itself. Callers submit commands through
+ * the shard's lock-free {@link CommandRing} and wait on a future for the result,
+ * so {@link #withAccountLock} runs the service's check-then-append on the shard
+ * thread and writers never contend on the data, while a hot account's state stays
+ * in one core's cache. Calls made from inside a command on the owning shard run
+ * directly; reads from other threads are commands too, so they see a consistent
+ * state. Work on two accounts of different shards pauses both shard threads, in
+ * shard order, and runs on the caller. Like memory mode, the data does not
+ * survive a restart.
+ *
+ * On close each shard thread runs what was submitted before it stopped; a
+ * command that races the stop is either run by the thread's final drain or
+ * failed by its submitter, whichever claims it first, so no caller waits on a
+ * shard that is gone.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.storage.mode", havingValue = "sharded")
+public class ShardedLedgerStorage implements LedgerStorage, AutoCloseable {
+
+    /** Shards whose state the current thread may touch directly: its own, or a paused pair */
+    private static final ThreadLocal<List<Shard>> OWNED_SHARDS = new ThreadLocal<>();
+
+    /** One partition: its state is only read and written by its own thread */
+    private final class Shard implements Runnable {
+        final HashMap<String, AccountHistory> histories = new HashMap<>();
+        final HashMap<String, IdempotencyIndex<Transaction>> references = new HashMap<>();
+        final HashMap<String, String> currencies = new HashMap<>();
+        final CommandRing ring;
+        final Thread thread;
+        final int index;
+        volatile int accounts;
+
+        Shard(int index, int ringSize) {
+            this.index = index;
+            this.ring = new CommandRing(ringSize);
+            this.thread = Thread.ofPlatform().name("ledger-shard-" + index).daemon().unstarted(this);
+        }
+
+        @Override
+        public void run() {
+            OWNED_SHARDS.set(List.of(this));
+            while (true) {
+                Runnable command = ring.take();
+                if (command != null) command.run();
+                else if (!running) break; // stop only once everything submitted has run
+            }
+            ring.close();
+            // A submit that passed the running check may have offered after the last take;
+            // its submitter fails it unless this drain claims it first
+            for (Runnable command = ring.poll(); command != null; command = ring.poll()) command.run();
+        }
+    }
+
+    private final Shard[] shards;
+    private volatile boolean running = true;
+
+    private final int idempotencyMaxEntries;
+    private final Duration idempotencyRetention;
+
+    private final Timer queueWait;
+    private final DistributionSummary historySize;
+
+    /** Without a registry (an empty composite), meters are no-ops */
+    public ShardedLedgerStorage(int shardCount, int ringSize) {
+        this(shardCount, ringSize, InMemoryLedgerStorage.DEFAULT_IDEMPOTENCY_MAX_ENTRIES,
+                InMemoryLedgerStorage.DEFAULT_IDEMPOTENCY_RETENTION, new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public ShardedLedgerStorage(
+            @Value("${ledger.storage.sharded.shards:0}") int shardCount,
+            @Value("${ledger.storage.sharded.ring-size:1024}") int ringSize,
+            @Value("${ledger.idempotency.max-entries-per-account:100000}") int idempotencyMaxEntries,
+            @Value("${ledger.idempotency.retention:24h}") Duration idempotencyRetention,
+            MeterRegistry meterRegistry) {
+        if (shardCount < 0) throw new IllegalArgumentException("shard count must be >= 0");
+        if (ringSize <= 0) throw new IllegalArgumentException("ring size must be > 0");
+        if (idempotencyMaxEntries <= 0) throw new IllegalArgumentException("idempotency max entries must be > 0");
+        this.idempotencyMaxEntries = idempotencyMaxEntries;
+        this.idempotencyRetention = idempotencyRetention;
+
+        this.queueWait = Timer.builder("ledger.shard.queue.wait")
+                .description("Time a command waited in a shard's ring before its shard thread ran it")
+                .register(meterRegistry);
+        this.historySize = StorageMeters.historySize(meterRegistry);
+
+        // 0 means one shard per available processor
+        int n = shardCount == 0 ? Runtime.getRuntime().availableProcessors() : shardCount;
+        this.shards = new Shard[n];
+        for (int i = 0; i < n; i++) shards[i] = new Shard(i, ringSize);
+        for (Shard shard : shards) shard.thread.start();
+
+        StorageMeters.accounts(meterRegistry, this, ShardedLedgerStorage::accountCount);
+    }
+
+    @Override
+    public <T> T withAccountLock(String accountId, Supplier<T> work) {
+        // The owning shard runs one command at a time, which is the account lock
+        return onShard(shardOf(accountId), shard -> work.get());
+    }
+
+    /**
+     * Accounts of one shard run as a single command. Otherwise both shards are paused
+     * (lower index first, so overlapping pairs cannot deadlock) and the work runs on
+     * the calling thread while it owns them.
+     */
+    @Override
+    public <T> T withAccountLocks(String firstAccountId, String secondAccountId, Supplier<T> work) {
+        Shard a = shardOf(firstAccountId);
+        Shard b = shardOf(secondAccountId);
+        if (a == b) return onShard(a, shard -> work.get());
+        checkNotOnAnotherShard(OWNED_SHARDS.get());
+
+        Shard lower = a.index < b.index ? a : b;
+        Shard upper = a.index < b.index ? b : a;
+        CountDownLatch resume = new CountDownLatch(1);
+        try {
+            pause(lower, resume);
+            pause(upper, resume);
+            OWNED_SHARDS.set(List.of(lower, upper));
+            try {
+                return work.get();
+            } finally {
+                OWNED_SHARDS.remove();
+            }
+        } finally {
+            resume.countDown();
+        }
+    }
+
+    /**
+     * Park the shard's thread inside a command until resume opens; returns once it is
+     * parked, or throws if the command failed because the shard has stopped.
+     */
+    private void pause(Shard shard, CountDownLatch resume) {
+        // Completing paused and opening resume hand the shard's state to the caller and back
+        CompletableFuture<Void> paused = new CompletableFuture<>();
+        CompletableFuture<Object> command = submit(shard, s -> {
+            paused.complete(null);
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    resume.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            return null;
+        });
+        await(CompletableFuture.anyOf(paused, command));
+    }
+
+    @Override
+    public void appendTransaction(String accountId, Transaction tx) {
+        onShard(shardOf(accountId), shard -> {
+            append(shard, accountId, tx);
+            return null;
+        });
+    }
+
+    @Override
+    public void appendTransactions(String accountId, List<Transaction> txs) {
+        onShard(shardOf(accountId), shard -> {
+            for (Transaction tx : txs) append(shard, accountId, tx);
+            return null;
+        });
+    }
+
+    /** Runs on the shard thread */
+    private void append(Shard shard, String accountId, Transaction tx) {
+        AccountHistory history = shard.histories.get(accountId);
+        if (history == null) {
+            history = new AccountHistory();
+            shard.histories.put(accountId, history);
+            shard.accounts = shard.histories.size();
+        }
+        history.add(tx);
+        historySize.record(history.size());
+
+        String referenceId = tx.getReferenceId();
+        if (referenceId != null && !referenceId.isBlank()) {
+            shard.references
+                    .computeIfAbsent(accountId, k -> new IdempotencyIndex<>(idempotencyMaxEntries, idempotencyRetention))
+                    .put(referenceId, tx);
+        }
+    }
+
+    @Override
+    public BigDecimal getBalance(String accountId) {
+        return onShard(shardOf(accountId), shard -> {
+            AccountHistory history = shard.histories.get(accountId);
+            return history == null ? BigDecimal.ZERO : history.balance();
+        });
+    }
+
+    @Override
+    public BigDecimal getBalanceAt(String accountId, OffsetDateTime at) {
+        return onShard(shardOf(accountId), shard -> {
+            AccountHistory history = shard.histories.get(accountId);
+            return history == null ? BigDecimal.ZERO : history.balanceAt(at);
+        });
+    }
+
+    @Override
+    public Optional<Transaction> findByReference(String accountId, String referenceId) {
+        if (referenceId == null || referenceId.isBlank()) return Optional.empty();
+        return onShard(shardOf(accountId), shard -> {
+            IdempotencyIndex<Transaction> index = shard.references.get(accountId);
+            return index == null ? Optional.empty() : Optional.ofNullable(index.get(referenceId));
+        });
+    }
+
+    @Override
+    public List<Transaction> getTransactionsForAccount(String accountId) {
+        return onShard(shardOf(accountId), shard -> {
+            AccountHistory history = shard.histories.get(accountId);
+            return history == null ? List.of() : history.toList();
+        });
+    }
+
+    @Override
+    public List<HistoryEntry> getTransactionsAfter(String accountId, Instant afterTime, long afterSequence, int limit) {
+        return onShard(shardOf(accountId), shard -> {
+            AccountHistory history = shard.histories.get(accountId);
+            return history == null ? List.of() : history.readAfter(afterTime, afterSequence, limit);
+        });
+    }
+
+    @Override
+    public Collection<String> getAccountIds() {
+        List<String> ids = new ArrayList<>();
+        for (List<String> shardIds : onEveryShard(shard -> List.copyOf(shard.histories.keySet()))) ids.addAll(shardIds);
+        return ids;
+    }
+
+    @Override
+    public List<Transaction> getAllTransactions() {
+        List<Transaction> all = new ArrayList<>();
+        for (List<Transaction> rows : onEveryShard(shard -> {
+            List<Transaction> shardRows = new ArrayList<>();
+            for (AccountHistory history : shard.histories.values()) shardRows.addAll(history.toList());
+            return shardRows;
+        })) {
+            all.addAll(rows);
+        }
+        return all;
+    }
+
+    @Override
+    public String getCurrency(String accountId) {
+        return onShard(shardOf(accountId), shard -> shard.currencies.get(accountId));
+    }
+
+    @Override
+    public void setCurrency(String accountId, String currency) {
+        onShard(shardOf(accountId), shard -> shard.currencies.putIfAbsent(accountId, currency.toUpperCase()));
+    }
+
+    @Override
+    public boolean accountExists(String accountId) {
+        return onShard(shardOf(accountId), shard -> shard.histories.containsKey(accountId));
+    }
+
+    /** Stop the shard threads once they have run every submitted command */
+    @Override
+    public void close() {
+        running = false;
+        for (Shard shard : shards) shard.ring.wakeConsumer();
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    int shardCount() {
+        return shards.length;
+    }
+
+    private int accountCount() {
+        int total = 0;
+        for (Shard shard : shards) total += shard.accounts;
+        return total;
+    }
+
+    private Shard shardOf(String accountId) {
+        int h = accountId.hashCode();
+        return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+    }
+
+    /** Run op on the shard's thread and wait for its result; runs inline when already there */
+    private <T> T onShard(Shard shard, Function<Shard, T> op) {
+        List<Shard> owned = OWNED_SHARDS.get();
+        if (owned != null && owned.contains(shard)) return op.apply(shard);
+        checkNotOnAnotherShard(owned);
+        return await(submit(shard, op));
+    }
+
+    /** Run op on every shard in parallel; results in shard order */
+    private <T> List<T> onEveryShard(Function<Shard, T> op) {
+        checkNotOnAnotherShard(OWNED_SHARDS.get());
+        List<CompletableFuture<T>> pending = new ArrayList<>(shards.length);
+        for (Shard shard : shards) pending.add(submit(shard, op));
+        List<T> results = new ArrayList<>(shards.length);
+        for (CompletableFuture<T> result : pending) results.add(await(result));
+        return results;
+    }
+
+    private <T> CompletableFuture<T> submit(Shard shard, Function<Shard, T> op) {
+        if (!running) throw closed();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Either the shard thread runs the command or, once it has stopped, the submitter fails it
+        AtomicBoolean claimed = new AtomicBoolean();
+        long submitted = System.nanoTime();
+        boolean offered = shard.ring.offer(() -> {
+            if (!claimed.compareAndSet(false, true)) return;
+            queueWait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+            try {
+                result.complete(op.apply(shard));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        if ((!offered || shard.ring.isClosed()) && claimed.compareAndSet(false, true)) {
+            result.completeExceptionally(closed());
+        }
+        return result;
+    }
+
+    private static IllegalStateException closed() {
+        return new IllegalStateException("sharded storage is closed");
+    }
+
+    /**
+     * A thread that owns shards (a shard thread, or a caller holding a paused pair)
+     * waiting on another shard could deadlock against one going the other way, so
+     * it may only touch the accounts of the shards it owns.
+     */
+    private static void checkNotOnAnotherShard(List<Shard> owned) {
+        if (owned != null)
+            throw new IllegalStateException("a shard command cannot access accounts of another shard");
+    }
+
+    /** Wait for a command's result, rethrowing its failure unwrapped */
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            // join() is not interruptible: once submitted, the command runs and its outcome is reported
+            return result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads and writes ledger snapshots.
+ *
+ * A snapshot file {@code snapshot-<replayFrom>.snap} holds a header
+ * {@code [int magic][int version][long replayFrom]} followed by one block per
+ * account, {@code [int length][int crc32c][payload]}, and an end marker
+ * {@code [int -1]}. Files are written to a temporary name, synced and then
+ * renamed into place. A snapshot that is incomplete or fails to load is renamed
+ * to {@code .corrupt}, so it no longer counts as one, and loading falls back to
+ * the next older snapshot.
+ *
+ * Blocks are independent, so loading decodes them on all cores while a single
+ * thread streams the file; replaying a log, by contrast, is inherently sequential.
+ */
+class SnapshotStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotStore.class);
+
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+    static final String SNAPSHOT_SUFFIX = ".snap";
+    static final String CORRUPT_SUFFIX = ".corrupt";
+
+    private static final int MAGIC = 0x4C534E50; // "LSNP"
+    private static final int VERSION = 1;
+    private static final int END_OF_BLOCKS = -1;
+
+    /** A loaded snapshot: replay the log after replayFrom, skipping what each account already has */
+    record Loaded(long replayFrom, Path file) {}
+
+    private final Path directory;
+
+    SnapshotStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create snapshot directory " + directory, e);
+        }
+    }
+
+    /**
+     * Write a snapshot covering the log up to replayFrom. Accounts are supplied one
+     * at a time so only one account's state is copied at once.
+     */
+    Path write(long replayFrom, Iterator<AccountSnapshot> accounts) {
+        Path target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, replayFrom, SNAPSHOT_SUFFIX));
+        Path tmp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(16).putInt(MAGIC).putInt(VERSION).putLong(replayFrom).flip();
+            writeFully(channel, header);
+
+            ByteBuffer block = ByteBuffer.allocate(64 * 1024);
+            CRC32C crc = new CRC32C();
+            while (accounts.hasNext()) {
+                AccountSnapshot account = accounts.next();
+                int capacity = 8 + maxEncodedSize(account);
+                if (block.capacity() < capacity) block = ByteBuffer.allocate(capacity);
+
+                block.clear().position(8);
+                encode(account, block);
+                int length = block.position() - 8;
+                crc.reset();
+                crc.update(block.array(), 8, length);
+                block.putInt(0, length).putInt(4, (int) crc.getValue()).flip();
+                writeFully(channel, block);
+            }
+            writeFully(channel, ByteBuffer.allocate(4).putInt(END_OF_BLOCKS).flip());
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write snapshot " + target, e);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to publish snapshot " + target, e);
+        }
+        return target;
+    }
+
+    /**
+     * Load the newest usable snapshot, passing each account to restore (called
+     * concurrently from several threads). When a snapshot fails partway, discard
+     * is called to drop what was restored from it before trying the next older
+     * one. Empty if there is no usable snapshot.
+     */
+    Optional<Loaded> loadLatest(Consumer<AccountSnapshot> restore, Runnable discard) {
+        List<Path> files = snapshots();
+        for (int i = files.size() - 1; i >= 0; i--) {
+            Path file = files.get(i);
+            if (!isComplete(file)) {
+                LOG.warn("Snapshot {} is incomplete, falling back to an older one", file);
+                quarantine(file);
+                continue;
+            }
+            try {
+                return Optional.of(new Loaded(load(file, restore), file));
+            } catch (RuntimeException e) {
+                LOG.warn("Could not load snapshot {}, falling back to an older one", file, e);
+                discard.run();
+                quarantine(file);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Snapshot files in ascending replayFrom order */
+    List<Path> snapshots() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list snapshots in " + directory, e);
+        }
+    }
+
+    /** Rename a bad snapshot out of the way so it is neither loaded nor kept as the fallback */
+    private static void quarantine(Path file) {
+        try {
+            Files.move(file, file.resolveSibling(file.getFileName() + CORRUPT_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOG.warn("Could not set aside snapshot {}", file, e);
+        }
+    }
+
+    static long replayFromOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private long load(Path file, Consumer<AccountSnapshot> restore) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService decoders = Executors.newFixedThreadPool(threads);
+        // bound the raw blocks waiting to be decoded so loading does not double the heap
+        Semaphore inFlight = new Semaphore(threads * 4);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 20))) {
+            readHeader(in, file);
+            long replayFrom = in.readLong();
+            while (failure.get() == null) {
+                int length = in.readInt();
+                if (length == END_OF_BLOCKS) break;
+                int checksum = in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                inFlight.acquire();
+                decoders.execute(() -> {
+                    try {
+                        CRC32C crc = new CRC32C();
+                        crc.update(payload);
+                        if ((int) crc.getValue() != checksum) {
+                            throw new IllegalStateException("Corrupt snapshot block in " + file);
+                        }
+                        restore.accept(decode(ByteBuffer.wrap(payload)));
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            decoders.shutdown();
+            if (!decoders.awaitTermination(1, TimeUnit.HOURS)) {
+                throw new IllegalStateException("Timed out loading snapshot " + file);
+            }
+            if (failure.get() != null) {
+                throw new IllegalStateException("Failed to load snapshot " + file, failure.get());
+            }
+            return replayFrom;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load snapshot " + file, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading snapshot " + file, e);
+        } finally {
+            decoders.shutdownNow();
+        }
+    }
+
+    /** Walk block headers without decoding to check the end marker is present */
+    private static boolean isComplete(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(16);
+            if (!readAt(channel, header, 0) || header.getInt(0) != MAGIC) return false;
+
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+            long position = 16;
+            while (position + 4 <= size) {
+                if (!readAt(channel, lengthBuffer.clear(), position)) return false;
+                int length = lengthBuffer.getInt(0);
+                if (length == END_OF_BLOCKS) return true;
+                if (length < 0) return false;
+                position += 8L + length;
+            }
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean readAt(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) return false;
+        }
+        return true;
+    }
+
+    private static void readHeader(DataInputStream in, Path file) throws IOException {
+        if (in.readInt() != MAGIC) throw new IllegalStateException("Not a snapshot file: " + file);
+        int version = in.readInt();
+        if (version != VERSION) throw new IllegalStateException("Unsupported snapshot version " + version);
+    }
+
+    private static int maxEncodedSize(AccountSnapshot account) {
+        int size = 64 + TransactionCodec.maxStringSize(account.accountId())
+                + TransactionCodec.maxStringSize(account.currency());
+        for (Transaction tx : account.history()) size += TransactionCodec.maxEncodedSize(tx);
+        for (String referenceId : account.referenceIds()) size += TransactionCodec.maxStringSize(referenceId) + 12;
+        return size;
+    }
+
+    private static void encode(AccountSnapshot account, ByteBuffer out) {
+        TransactionCodec.putString(out, account.accountId());
+        TransactionCodec.putString(out, account.currency());
+        out.putLong(account.lastSequence());
+        out.putInt(account.history().length);
+        for (Transaction tx : account.history()) TransactionCodec.encode(tx, out);
+        out.putInt(account.referenceIds().length);
+        for (int i = 0; i < account.referenceIds().length; i++) {
+            TransactionCodec.putString(out, account.referenceIds()[i]);
+            out.putInt(account.referencePositions()[i]);
+            out.putLong(account.referenceCommitTimes()[i]);
+        }
+    }
+
+    private static AccountSnapshot decode(ByteBuffer in) {
+        String accountId = TransactionCodec.getString(in);
+        String currency = TransactionCodec.getString(in);
+        long lastSequence = in.getLong();
+        Transaction[] history = new Transaction[in.getInt()];
+        for (int i = 0; i < history.length; i++) history[i] = TransactionCodec.decode(in);
+        String[] referenceIds = new String[in.getInt()];
+        int[] referencePositions = new int[referenceIds.length];
+        long[] referenceCommitTimes = new long[referenceIds.length];
+        for (int i = 0; i < referenceIds.length; i++) {
+            referenceIds[i] = TransactionCodec.getString(in);
+            referencePositions[i] = in.getInt();
+            referenceCommitTimes[i] = in.getLong();
+        }
+        return new AccountSnapshot(accountId, currency, lastSequence, history, referenceIds, referencePositions,
+                referenceCommitTimes);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.ledger.storage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The meters every storage mode records, registered in one place so each mode
+ * reports them under the same names and descriptions.
+ */
+final class StorageMeters {
+
+    private StorageMeters() {
+    }
+
+    /** {@code ledger.lock.wait}: time spent waiting for a contended account lock */
+    static Timer lockWait(MeterRegistry registry) {
+        return Timer.builder("ledger.lock.wait")
+                .description("Time spent waiting for a contended account lock")
+                .register(registry);
+    }
+
+    /** {@code ledger.account.history.size}: an account's history length, sampled on append */
+    static DistributionSummary historySize(MeterRegistry registry) {
+        return DistributionSummary.builder("ledger.account.history.size")
+                .description("Transactions in an account's history, sampled on append")
+                .baseUnit("transactions")
+                .register(registry);
+    }
+
+    /** {@code ledger.accounts}: accounts with at least one transaction */
+    static <T> void accounts(MeterRegistry registry, T source, ToDoubleFunction<T> count) {
+        Gauge.builder("ledger.accounts", source, count)
+                .description("Accounts with at least one transaction")
+                .register(registry);
+    }
+}
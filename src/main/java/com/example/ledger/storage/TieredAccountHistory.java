@@ -0,0 +1,310 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Time-ordered history of one account split into a cold tier of compressed
+ * {@link ColdSegment}s and a hot tier of resident entries after them.
+ *
+ * New transactions land in the hot tier. Whenever its oldest {@code segmentRows}
+ * rows are all older than the hot window, they are compacted into a new cold
+ * segment, so the resident rows follow the recent working set rather than
+ * all-time volume. Cumulative segment sums make a balance at a time before the
+ * hot tier one binary search plus a partial sum over at most one segment. Backdated transactions that fall inside the cold tier
+ * replace the segment they belong to.
+ */
+final class TieredAccountHistory {
+
+    private final int segmentRows;
+    private final Duration hotWindow;
+    private final SegmentCache cache;
+    private final LongAdder coldRows;
+    private final LongAdder coldBytes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ColdSegment[] segments = new ColdSegment[4];
+    // coldSums[k] = sum of signed amounts of segments[0 .. k]
+    private BigDecimal[] coldSums = new BigDecimal[4];
+    private int segmentCount;
+    private int coldSize;
+
+    private Transaction[] entries = new Transaction[16];
+    private long[] sequences = new long[16];
+    private int size;
+    private long nextSequence;
+
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    TieredAccountHistory(int segmentRows, Duration hotWindow, SegmentCache cache, LongAdder coldRows,
+                         LongAdder coldBytes) {
+        this.segmentRows = segmentRows;
+        this.hotWindow = hotWindow;
+        this.cache = cache;
+        this.coldRows = coldRows;
+        this.coldBytes = coldBytes;
+    }
+
+    /** Insert a transaction at its time position, then compact the hot tier if it is due */
+    void add(Transaction tx) {
+        lock.writeLock().lock();
+        try {
+            insert(tx);
+            compactIfDue();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Insert several transactions under one acquisition of the write lock */
+    void addAll(List<Transaction> txs) {
+        lock.writeLock().lock();
+        try {
+            for (Transaction tx : txs) insert(tx);
+            compactIfDue();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Caller holds the write lock */
+    private void insert(Transaction tx) {
+        OffsetDateTime ts = tx.getTimestamp();
+        if (segmentCount > 0 && segments[segmentCount - 1].last().isAfter(ts)) {
+            insertCold(tx);
+        } else {
+            int pos = upperBound(entries, size, ts);
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+                sequences = Arrays.copyOf(sequences, size * 2);
+            }
+            if (pos < size) {
+                System.arraycopy(entries, pos, entries, pos + 1, size - pos);
+                System.arraycopy(sequences, pos, sequences, pos + 1, size - pos);
+            }
+            entries[pos] = tx;
+            sequences[pos] = nextSequence++;
+            size++;
+        }
+        balance = balance.add(tx.signedAmount());
+    }
+
+    /** Rebuild the cold segment a backdated transaction belongs to (caller holds the write lock) */
+    private void insertCold(Transaction tx) {
+        int k = firstSegmentEndingAfter(tx.getTimestamp());
+        ColdSegment old = segments[k];
+        ColdSegment.Rows rows = cache.rows(old);
+        int count = old.count();
+        int pos = upperBound(rows.entries(), count, tx.getTimestamp());
+
+        Transaction[] merged = new Transaction[count + 1];
+        long[] mergedSequences = new long[count + 1];
+        System.arraycopy(rows.entries(), 0, merged, 0, pos);
+        System.arraycopy(rows.sequences(), 0, mergedSequences, 0, pos);
+        merged[pos] = tx;
+        mergedSequences[pos] = nextSequence++;
+        System.arraycopy(rows.entries(), pos, merged, pos + 1, count - pos);
+        System.arraycopy(rows.sequences(), pos, mergedSequences, pos + 1, count - pos);
+
+        ColdSegment replacement = ColdSegment.of(merged, mergedSequences, 0, count + 1);
+        segments[k] = replacement;
+        cache.invalidate(old);
+        coldRows.increment();
+        coldBytes.add(replacement.compressedBytes() - old.compressedBytes());
+        coldSize++;
+        BigDecimal signed = tx.signedAmount();
+        for (int i = k; i < segmentCount; i++) coldSums[i] = coldSums[i].add(signed);
+    }
+
+    /** Compact rows that aged out of the hot window since the last write, for accounts no longer written */
+    void compact() {
+        lock.writeLock().lock();
+        try {
+            compactIfDue();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Move the oldest hot rows into cold segments while they are due (caller holds the write lock) */
+    private void compactIfDue() {
+        Instant cutoff = Instant.now().minus(hotWindow);
+        while (size >= segmentRows && entries[segmentRows - 1].getTimestamp().toInstant().isBefore(cutoff)) {
+            ColdSegment segment = ColdSegment.of(entries, sequences, 0, segmentRows);
+            if (segmentCount == segments.length) {
+                segments = Arrays.copyOf(segments, segmentCount * 2);
+                coldSums = Arrays.copyOf(coldSums, segmentCount * 2);
+            }
+            segments[segmentCount] = segment;
+            coldSums[segmentCount] = segmentCount == 0 ? segment.sum() : coldSums[segmentCount - 1].add(segment.sum());
+            segmentCount++;
+            coldSize += segmentRows;
+            coldRows.add(segmentRows);
+            coldBytes.add(segment.compressedBytes());
+
+            size -= segmentRows;
+            System.arraycopy(entries, segmentRows, entries, 0, size);
+            System.arraycopy(sequences, segmentRows, sequences, 0, size);
+            Arrays.fill(entries, size, size + segmentRows, null);
+        }
+    }
+
+    BigDecimal balance() {
+        lock.readLock().lock();
+        try {
+            return balance;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Sum of all transactions with timestamp <= at */
+    BigDecimal balanceAt(OffsetDateTime at) {
+        lock.readLock().lock();
+        try {
+            int k = firstSegmentEndingAfter(at);
+            if (k < segmentCount) {
+                // Segments before k are summarized; hot rows all come after segment k
+                BigDecimal sum = k == 0 ? BigDecimal.ZERO : coldSums[k - 1];
+                if (segments[k].first().isAfter(at)) return sum;
+                ColdSegment.Rows rows = cache.rows(segments[k]);
+                for (Transaction tx : rows.entries()) {
+                    if (tx.getTimestamp().isAfter(at)) break;
+                    sum = sum.add(tx.signedAmount());
+                }
+                return sum;
+            }
+
+            // Every cold row counts; sum the shorter side of the hot tier
+            int end = upperBound(entries, size, at);
+            if (end == size) return balance;
+            if (end < size - end) {
+                BigDecimal sum = segmentCount == 0 ? BigDecimal.ZERO : coldSums[segmentCount - 1];
+                for (int i = 0; i < end; i++) sum = sum.add(entries[i].signedAmount());
+                return sum;
+            }
+            BigDecimal sum = balance;
+            for (int i = end; i < size; i++) sum = sum.subtract(entries[i].signedAmount());
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Copy of the history, ordered by timestamp; cold segments are read through the cache */
+    List<Transaction> toList() {
+        lock.readLock().lock();
+        try {
+            Transaction[] all = new Transaction[coldSize + size];
+            int at = 0;
+            for (int k = 0; k < segmentCount; k++) {
+                Transaction[] rows = cache.rows(segments[k]).entries();
+                System.arraycopy(rows, 0, all, at, rows.length);
+                at += rows.length;
+            }
+            System.arraycopy(entries, 0, all, at, size);
+            return List.of(all);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to limit entries positioned after (afterTime, afterSequence), in order.
+     * A null afterTime reads from the start; afterSequence -1 includes every entry
+     * at afterTime and Long.MAX_VALUE excludes them all. Only the cold segments the
+     * page overlaps are hydrated.
+     */
+    List<HistoryEntry> readAfter(Instant afterTime, long afterSequence, int limit) {
+        lock.readLock().lock();
+        try {
+            List<HistoryEntry> result = new ArrayList<>(Math.min(limit, 1024));
+            int k = 0;
+            if (afterTime != null) {
+                // skip segments that end at or before the position
+                int lo = 0, hi = segmentCount;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (compare(segments[mid].last(), segments[mid].lastSequence(), afterTime, afterSequence) > 0) hi = mid;
+                    else lo = mid + 1;
+                }
+                k = lo;
+            }
+            for (; k < segmentCount && result.size() < limit; k++) {
+                ColdSegment.Rows rows = cache.rows(segments[k]);
+                copyAfter(rows.entries(), rows.sequences(), rows.entries().length, afterTime, afterSequence, limit, result);
+            }
+            if (result.size() < limit) copyAfter(entries, sequences, size, afterTime, afterSequence, limit, result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return coldSize + size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void copyAfter(Transaction[] rows, long[] rowSequences, int count, Instant afterTime,
+                                  long afterSequence, int limit, List<HistoryEntry> result) {
+        int from = afterTime == null ? 0 : positionAfter(rows, rowSequences, count, afterTime, afterSequence);
+        for (int i = from; i < count && result.size() < limit; i++) result.add(new HistoryEntry(rows[i], rowSequences[i]));
+    }
+
+    /** Index of the first segment whose last row is after the given time, or segmentCount (caller holds the lock) */
+    private int firstSegmentEndingAfter(OffsetDateTime at) {
+        int lo = 0, hi = segmentCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (segments[mid].last().isAfter(at)) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /** Index of the first row whose (timestamp, sequence) is after the given position */
+    private static int positionAfter(Transaction[] rows, long[] rowSequences, int count, Instant time, long sequence) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(rows[mid].getTimestamp(), rowSequences[mid], time, sequence) > 0) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    private static int compare(OffsetDateTime ts, long rowSequence, Instant time, long sequence) {
+        int c = Long.compare(ts.toEpochSecond(), time.getEpochSecond());
+        if (c == 0) c = Integer.compare(ts.getNano(), time.getNano());
+        if (c == 0) c = Long.compare(rowSequence, sequence);
+        return c;
+    }
+
+    /** Index of the first row strictly after the given time */
+    private static int upperBound(Transaction[] rows, int count, OffsetDateTime at) {
+        // Fast path for in-order appends and current-balance style queries
+        if (count == 0 || !rows[count - 1].getTimestamp().isAfter(at)) return count;
+
+        int lo = 0, hi = count - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (rows[mid].getTimestamp().isAfter(at)) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+}
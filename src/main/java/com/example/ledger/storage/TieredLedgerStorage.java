@@ -0,0 +1,266 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory LedgerStorage that keeps only recent history resident
+ * (ledger.storage.mode=tiered).
+ *
+ * Each account's history is a {@link TieredAccountHistory}: rows older than
+ * {@code hotWindow} are compacted, {@code segmentRows} at a time, into compressed
+ * immutable segments with balance summaries, and history reads hydrate segments
+ * through one {@link SegmentCache} bounded by {@code cacheRows}. Writes compact
+ * their own account; a background task compacts every account each
+ * {@code compactionInterval}, so accounts that stop being written still have
+ * their rows compacted as they age out of the window. Referenced transactions
+ * stay resident while the idempotency index retains them. Like memory mode, the
+ * data does not survive a restart.
+ *
+ * Besides the memory mode meters, records {@code ledger.tiered.cold.rows} and
+ * {@code ledger.tiered.cold.bytes} (rows in cold segments and their compressed
+ * size) and the {@link SegmentCache} meters.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.storage.mode", havingValue = "tiered")
+public class TieredLedgerStorage implements LedgerStorage, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TieredLedgerStorage.class);
+
+    static final int DEFAULT_SEGMENT_ROWS = 256;
+    static final Duration DEFAULT_HOT_WINDOW = Duration.ofDays(30);
+    static final long DEFAULT_CACHE_ROWS = 262_144;
+
+    private final ConcurrentHashMap<String, TieredAccountHistory> historiesByAccount = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, IdempotencyIndex<Transaction>> idempotencyMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> accountCurrencyMap = new ConcurrentHashMap<>();
+    private final StripedLocks accountLocks = new StripedLocks(Runtime.getRuntime().availableProcessors() * 64);
+
+    private final int segmentRows;
+    private final Duration hotWindow;
+    private final SegmentCache cache;
+    private final LongAdder coldRows = new LongAdder();
+    private final LongAdder coldBytes = new LongAdder();
+
+    private final int idempotencyMaxEntries;
+    private final Duration idempotencyRetention;
+
+    private final Timer lockWait;
+    private final DistributionSummary historySize;
+    // null when the compaction interval is zero
+    private final ScheduledExecutorService compactionScheduler;
+
+    /** Without a registry (an empty composite), meters are no-ops; without background compaction */
+    TieredLedgerStorage(int segmentRows, Duration hotWindow, long cacheRows) {
+        this(segmentRows, hotWindow, cacheRows, Duration.ZERO, InMemoryLedgerStorage.DEFAULT_IDEMPOTENCY_MAX_ENTRIES,
+                InMemoryLedgerStorage.DEFAULT_IDEMPOTENCY_RETENTION, new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public TieredLedgerStorage(
+            @Value("${ledger.storage.tiered.segment-rows:256}") int segmentRows,
+            @Value("${ledger.storage.tiered.hot-window:30d}") Duration hotWindow,
+            @Value("${ledger.storage.tiered.cache-rows:262144}") long cacheRows,
+            @Value("${ledger.storage.tiered.compaction-interval:1h}") Duration compactionInterval,
+            @Value("${ledger.idempotency.max-entries-per-account:100000}") int idempotencyMaxEntries,
+            @Value("${ledger.idempotency.retention:24h}") Duration idempotencyRetention,
+            MeterRegistry meterRegistry) {
+        if (segmentRows <= 0) throw new IllegalArgumentException("segment rows must be > 0");
+        if (hotWindow.isNegative()) throw new IllegalArgumentException("hot window must be >= 0");
+        if (idempotencyMaxEntries <= 0) throw new IllegalArgumentException("idempotency max entries must be > 0");
+        this.segmentRows = segmentRows;
+        this.hotWindow = hotWindow;
+        this.cache = new SegmentCache(cacheRows, meterRegistry);
+        this.idempotencyMaxEntries = idempotencyMaxEntries;
+        this.idempotencyRetention = idempotencyRetention;
+
+        this.lockWait = StorageMeters.lockWait(meterRegistry);
+        this.historySize = StorageMeters.historySize(meterRegistry);
+        StorageMeters.accounts(meterRegistry, historiesByAccount, Map::size);
+        Gauge.builder("ledger.tiered.cold.rows", coldRows, LongAdder::sum)
+                .description("Transactions compacted into cold segments")
+                .register(meterRegistry);
+        Gauge.builder("ledger.tiered.cold.bytes", coldBytes, LongAdder::sum)
+                .description("Compressed size of the cold segments")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        if (compactionInterval.toMillis() > 0) {
+            this.compactionScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ledger-compaction");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = compactionInterval.toMillis();
+            compactionScheduler.scheduleWithFixedDelay(this::compactAll, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.compactionScheduler = null;
+        }
+    }
+
+    @Override
+    public <T> T withAccountLock(String accountId, Supplier<T> work) {
+        return accountLocks.with(accountId, lockWait, work);
+    }
+
+    @Override
+    public <T> T withAccountLocks(String firstAccountId, String secondAccountId, Supplier<T> work) {
+        return accountLocks.withBoth(firstAccountId, secondAccountId, lockWait, work);
+    }
+
+    @Override
+    public void checkStorable(Transaction tx) {
+        TransactionCodec.checkEncodable(tx);
+    }
+
+    @Override
+    public void appendTransaction(String accountId, Transaction tx) {
+        // Rows must be encodable before they are stored, since compaction encodes them later
+        TransactionCodec.checkEncodable(tx);
+        TieredAccountHistory history = historyOf(accountId);
+        history.add(tx);
+        historySize.record(history.size());
+        indexReference(accountId, tx);
+    }
+
+    @Override
+    public void appendTransactions(String accountId, List<Transaction> txs) {
+        if (txs.isEmpty()) return;
+        for (Transaction tx : txs) TransactionCodec.checkEncodable(tx);
+        TieredAccountHistory history = historyOf(accountId);
+        history.addAll(txs);
+        historySize.record(history.size());
+        for (Transaction tx : txs) indexReference(accountId, tx);
+    }
+
+    @Override
+    public void appendTransfer(Transaction debit, Transaction credit) {
+        TransactionCodec.checkEncodable(debit);
+        TransactionCodec.checkEncodable(credit);
+        appendTransaction(debit.getAccountId(), debit);
+        appendTransaction(credit.getAccountId(), credit);
+    }
+
+    private TieredAccountHistory historyOf(String accountId) {
+        return historiesByAccount.computeIfAbsent(accountId,
+                k -> new TieredAccountHistory(segmentRows, hotWindow, cache, coldRows, coldBytes));
+    }
+
+    private void indexReference(String accountId, Transaction tx) {
+        String referenceId = tx.getReferenceId();
+        if (referenceId != null && !referenceId.isBlank()) {
+            idempotencyMap
+                    .computeIfAbsent(accountId, k -> IdempotencyIndex.shared(idempotencyMaxEntries, idempotencyRetention))
+                    .put(referenceId, tx);
+        }
+    }
+
+    @Override
+    public BigDecimal getBalance(String accountId) {
+        TieredAccountHistory history = historiesByAccount.get(accountId);
+        return history == null ? BigDecimal.ZERO : history.balance();
+    }
+
+    @Override
+    public BigDecimal getBalanceAt(String accountId, OffsetDateTime at) {
+        TieredAccountHistory history = historiesByAccount.get(accountId);
+        return history == null ? BigDecimal.ZERO : history.balanceAt(at);
+    }
+
+    @Override
+    public Optional<Transaction> findByReference(String accountId, String referenceId) {
+        if (referenceId == null || referenceId.isBlank()) return Optional.empty();
+        IdempotencyIndex<Transaction> index = idempotencyMap.get(accountId);
+        if (index == null) return Optional.empty();
+        return Optional.ofNullable(index.get(referenceId));
+    }
+
+    @Override
+    public List<Transaction> getTransactionsForAccount(String accountId) {
+        TieredAccountHistory history = historiesByAccount.get(accountId);
+        if (history == null) return List.of();
+        return history.toList();
+    }
+
+    @Override
+    public List<HistoryEntry> getTransactionsAfter(String accountId, Instant afterTime, long afterSequence, int limit) {
+        TieredAccountHistory history = historiesByAccount.get(accountId);
+        if (history == null) return List.of();
+        return history.readAfter(afterTime, afterSequence, limit);
+    }
+
+    @Override
+    public Collection<String> getAccountIds() {
+        return historiesByAccount.keySet();
+    }
+
+    @Override
+    public List<Transaction> getAllTransactions() {
+        return historiesByAccount.values().stream()
+                .flatMap(history -> history.toList().stream())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String getCurrency(String accountId) {
+        return accountCurrencyMap.get(accountId);
+    }
+
+    @Override
+    public void setCurrency(String accountId, String currency) {
+        accountCurrencyMap.putIfAbsent(accountId, currency.toUpperCase());
+    }
+
+    @Override
+    public boolean accountExists(String accountId) {
+        return historiesByAccount.containsKey(accountId);
+    }
+
+    /** Compact every account whose oldest hot rows aged out of the hot window */
+    void compactAll() {
+        for (Map.Entry<String, TieredAccountHistory> entry : historiesByAccount.entrySet()) {
+            try {
+                entry.getValue().compact();
+            } catch (RuntimeException e) {
+                // keep the schedule alive and the other accounts compacting; the next run retries
+                LOG.error("Compaction of account {} failed", entry.getKey(), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (compactionScheduler != null) compactionScheduler.shutdownNow();
+    }
+
+    /** Rows currently in cold segments */
+    long coldRows() {
+        return coldRows.sum();
+    }
+}
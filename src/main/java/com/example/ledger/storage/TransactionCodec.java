@@ -0,0 +1,119 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary encoding of a {@link Transaction}, shared by the write-ahead log
+ * and snapshots.
+ *
+ * Layout: id, accountId, accountType (byte), type (byte), amount (scale int +
+ * unscaled two's-complement bytes), currency, timestamp (epoch second long, nano
+ * int, offset seconds int), referenceId, transactionCode. Strings are an int byte
+ * length (-1 for null) followed by UTF-8 bytes.
+ */
+final class TransactionCodec {
+
+    private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+    private TransactionCodec() {
+    }
+
+    /** Upper bound of the encoded size, used to size buffers before encoding */
+    static int maxEncodedSize(Transaction tx) {
+        return 64
+                + maxStringSize(tx.getId())
+                + maxStringSize(tx.getAccountId())
+                + tx.getAmount().unscaledValue().bitLength() / 8 + 1
+                + maxStringSize(tx.getCurrency())
+                + maxStringSize(tx.getReferenceId())
+                + maxStringSize(tx.getTransactionCode());
+    }
+
+    /** Reject transactions whose amount does not fit the encoding, before anything is stored */
+    static void checkEncodable(Transaction tx) {
+        if (tx.getAmount().unscaledValue().bitLength() / 8 + 1 > 0xFF)
+            throw new IllegalArgumentException("amount too large to encode");
+    }
+
+    static void encode(Transaction tx, ByteBuffer out) {
+        putString(out, tx.getId());
+        putString(out, tx.getAccountId());
+        out.put((byte) tx.getAccountType().ordinal());
+        out.put((byte) tx.getType().ordinal());
+
+        BigDecimal amount = tx.getAmount();
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        if (unscaled.length > 0xFF) throw new IllegalArgumentException("amount too large to encode");
+        out.putInt(amount.scale());
+        out.put((byte) unscaled.length);
+        out.put(unscaled);
+
+        putString(out, tx.getCurrency());
+
+        OffsetDateTime ts = tx.getTimestamp();
+        out.putLong(ts.toEpochSecond());
+        out.putInt(ts.getNano());
+        out.putInt(ts.getOffset().getTotalSeconds());
+
+        putString(out, tx.getReferenceId());
+        putString(out, tx.getTransactionCode());
+    }
+
+    static Transaction decode(ByteBuffer in) {
+        String id = getString(in);
+        String accountId = getString(in);
+        AccountType accountType = ACCOUNT_TYPES[in.get()];
+        TransactionType type = TRANSACTION_TYPES[in.get()];
+
+        int scale = in.getInt();
+        byte[] unscaled = new byte[in.get() & 0xFF];
+        in.get(unscaled);
+        BigDecimal amount = new BigDecimal(new BigInteger(unscaled), scale);
+
+        String currency = getString(in);
+
+        long epochSecond = in.getLong();
+        int nano = in.getInt();
+        ZoneOffset offset = ZoneOffset.ofTotalSeconds(in.getInt());
+        OffsetDateTime timestamp = OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), offset);
+
+        String referenceId = getString(in);
+        String transactionCode = getString(in);
+
+        return new Transaction(id, accountId, accountType, type, amount, currency,
+                timestamp, referenceId, transactionCode);
+    }
+
+    static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length);
+        out.put(bytes);
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int maxStringSize(String value) {
+        return value == null ? 4 : 4 + value.length() * 3;
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, segmented binary log of committed transactions.
+ *
+ * Each record is framed as {@code [int payloadLength][int crc32c][long sequence][payload]}
+ * where the payload is the wall-clock commit time in epoch milliseconds followed
+ * by a {@link TransactionCodec} encoding. The top bit of the length
+ * marks a record that is continued by the next one: records written together by
+ * {@link #appendGroup} are replayed all or none. Segment files are named
+ * after the sequence of their first record and a new one is started once the
+ * active segment exceeds {@code segmentBytes}.
+ *
+ * Writers call {@link #append} (ordered write, no fsync) and then {@link #sync}.
+ * Sync is a group commit: one caller forces the file for every record written so
+ * far while the others wait on the sync lock and usually find their record
+ * already durable, so concurrent writers share a single disk flush.
+ *
+ * The locks are ReentrantLocks rather than monitors so that virtual threads
+ * blocked on a flush unmount from their carrier instead of pinning it.
+ */
+class WriteAheadLog implements AutoCloseable {
+
+    static final String SEGMENT_SUFFIX = ".wal";
+    private static final int HEADER_BYTES = 4 + 4 + 8;
+    private static final int COMMIT_TIME_BYTES = 8;
+    // Set on the length of every record of a group except the last
+    private static final int CONTINUED = 0x8000_0000;
+
+    /** Receives replayed records in log order */
+    interface RecordConsumer {
+        void accept(long sequence, long committedAtMillis, Transaction tx);
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private FileChannel active;
+    private long activeSize;
+    private long lastSequence;
+    private ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+    private final AtomicLong durableSequence = new AtomicLong();
+
+    /**
+     * Open (or create) the log in a directory. A torn record at the end of the last
+     * segment, left by a crash mid-write, is truncated away.
+     */
+    WriteAheadLog(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments();
+            if (segments.isEmpty()) {
+                openSegment(1);
+            } else {
+                Path last = segments.get(segments.size() - 1);
+                long[] state = scan(last, null, Long.MIN_VALUE, true);
+                long end = state[0];
+                long lastInSegment = state[1];
+                this.active = FileChannel.open(last, StandardOpenOption.WRITE);
+                if (active.size() > end) {
+                    active.truncate(end);
+                    active.force(true);
+                }
+                active.position(end);
+                this.activeSize = end;
+                this.lastSequence = lastInSegment >= 0 ? lastInSegment : firstSequenceOf(last) - 1;
+            }
+            durableSequence.set(lastSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open write-ahead log in " + directory, e);
+        }
+    }
+
+    /** Write a record (not yet durable) committed at the given wall-clock time and return its sequence */
+    long append(Transaction tx, long committedAtMillis) {
+        writeLock.lock();
+        try {
+            if (activeSize >= segmentBytes) roll();
+
+            buffer.clear();
+            long sequence = encodeRecord(tx, committedAtMillis, lastSequence + 1, false);
+            buffer.flip();
+            while (buffer.hasRemaining()) activeSize += active.write(buffer);
+            lastSequence = sequence;
+            return sequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to write-ahead log", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write records that must be recovered together (not yet durable) with one write
+     * and return the sequence of the last one. Every record but the last carries
+     * the continuation flag, so replay drops a group torn by a crash as a whole.
+     */
+    long appendGroup(List<Transaction> txs, long committedAtMillis) {
+        if (txs.isEmpty()) throw new IllegalArgumentException("empty record group");
+        writeLock.lock();
+        try {
+            // Roll before, never within, a group so it sits in one segment
+            if (activeSize >= segmentBytes) roll();
+
+            buffer.clear();
+            long sequence = lastSequence;
+            for (int i = 0; i < txs.size(); i++) {
+                sequence = encodeRecord(txs.get(i), committedAtMillis, sequence + 1, i < txs.size() - 1);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) activeSize += active.write(buffer);
+            lastSequence = sequence;
+            return sequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to write-ahead log", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Frame one record at the buffer's position, growing the buffer if needed (caller holds writeLock) */
+    private long encodeRecord(Transaction tx, long committedAtMillis, long sequence, boolean continued) {
+        int start = buffer.position();
+        int capacity = start + HEADER_BYTES + COMMIT_TIME_BYTES + TransactionCodec.maxEncodedSize(tx);
+        if (buffer.capacity() < capacity) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+
+        buffer.position(start + HEADER_BYTES);
+        buffer.putLong(committedAtMillis);
+        TransactionCodec.encode(tx, buffer);
+        int payloadLength = buffer.position() - start - HEADER_BYTES;
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), start + HEADER_BYTES, payloadLength);
+        buffer.putInt(start, continued ? payloadLength | CONTINUED : payloadLength);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putLong(start + 8, sequence);
+        return sequence;
+    }
+
+    /** Block until every record up to and including sequence is on disk */
+    void sync(long sequence) {
+        if (durableSequence.get() >= sequence) return;
+        syncLock.lock();
+        try {
+            // Another writer's flush may have covered us while we waited
+            if (durableSequence.get() >= sequence) return;
+
+            FileChannel channel;
+            long target;
+            writeLock.lock();
+            try {
+                channel = active;
+                target = lastSequence;
+            } finally {
+                writeLock.unlock();
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException rolled) {
+                // roll() forced and closed this segment, which already covers target
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to sync write-ahead log", e);
+            }
+            durableSequence.accumulateAndGet(target, Math::max);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    long lastSequence() {
+        writeLock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Sequence of the oldest record still in the log (segments before a snapshot may be deleted) */
+    long firstSequence() {
+        try {
+            return firstSequenceOf(segments().get(0));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list write-ahead log segments", e);
+        }
+    }
+
+    /** Replay every record with sequence > afterSequence in log order */
+    void replay(long afterSequence, RecordConsumer consumer) {
+        try {
+            List<Path> segments = segments();
+            for (int i = 0; i < segments.size(); i++) {
+                // Skip whole segments that end before the requested position
+                if (i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= afterSequence + 1) continue;
+                scan(segments.get(i), consumer, afterSequence, i == segments.size() - 1);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay write-ahead log", e);
+        }
+    }
+
+    /** Delete segments whose records all have sequence <= upToSequence */
+    void deleteSegmentsUpTo(long upToSequence) {
+        try {
+            List<Path> segments = segments();
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                if (firstSequenceOf(segments.get(i + 1)) - 1 > upToSequence) break;
+                Files.deleteIfExists(segments.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete write-ahead log segments", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            active.force(true);
+            active.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close write-ahead log", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Caller holds writeLock */
+    private void roll() throws IOException {
+        active.force(false);
+        durableSequence.accumulateAndGet(lastSequence, Math::max);
+        active.close();
+        openSegment(lastSequence + 1);
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+        this.active = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.activeSize = 0;
+        // make the new file's directory entry durable
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {
+            // not supported on every platform
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files
+                    .filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Read a segment, passing records after afterSequence to the consumer (if any).
+     * Returns {validEndOffset, lastSequence or -1}. An invalid record ends the scan
+     * when it is in the last segment (torn write); anywhere else it is corruption.
+     * Records of a group are passed on once its last record has been read; a group
+     * cut short by the end of the segment is treated like a torn record.
+     */
+    private static long[] scan(Path segment, RecordConsumer consumer, long afterSequence, boolean last)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long lastSeq = -1;
+            int validEnd = 0;
+            List<Long> groupSequences = new ArrayList<>();
+            List<Long> groupCommitTimes = new ArrayList<>();
+            List<Transaction> group = new ArrayList<>();
+            CRC32C crc = new CRC32C();
+            while (data.remaining() >= HEADER_BYTES) {
+                int start = data.position();
+                int header = data.getInt();
+                int checksum = data.getInt();
+                long sequence = data.getLong();
+                boolean continued = (header & CONTINUED) != 0;
+                int length = header & ~CONTINUED;
+                if (length > data.remaining()) {
+                    data.position(start);
+                    break;
+                }
+                ByteBuffer payload = data.slice(data.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    data.position(start);
+                    break;
+                }
+                if (consumer != null && sequence > afterSequence) {
+                    groupSequences.add(sequence);
+                    groupCommitTimes.add(payload.getLong());
+                    group.add(TransactionCodec.decode(payload));
+                }
+                data.position(data.position() + length);
+                if (!continued) {
+                    for (int i = 0; i < group.size(); i++) {
+                        consumer.accept(groupSequences.get(i), groupCommitTimes.get(i), group.get(i));
+                    }
+                    groupSequences.clear();
+                    groupCommitTimes.clear();
+                    group.clear();
+                    validEnd = data.position();
+                    lastSeq = sequence;
+                }
+            }
+            if (validEnd < data.limit() && !last) {
+                throw new IllegalStateException("Corrupt write-ahead log segment " + segment
+                        + " at offset " + validEnd);
+            }
+            return new long[]{validEnd, lastSeq};
+        }
+    }
+}
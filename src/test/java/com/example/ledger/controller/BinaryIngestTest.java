@@ -0,0 +1,144 @@
+package com.example.ledger.controller;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.service.LedgerService;
+import com.example.ledger.service.LedgerServiceImpl;
+import com.example.ledger.storage.InMemoryLedgerStorage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the binary ingest endpoint: records round-trip through the wire
+ * format, share recordTransaction's validation and idempotency, and a body
+ * whose framing is broken or that has too many records is rejected as a whole,
+ * before any of its records is committed.
+ */
+class BinaryIngestTest {
+
+    private LedgerService service;
+    private LedgerController controller;
+
+    @BeforeEach
+    void setUp() {
+        service = new LedgerServiceImpl(new InMemoryLedgerStorage());
+        controller = new LedgerController(service, new ObjectMapper());
+    }
+
+    @Test
+    void recordsAreDecodedIntoServiceCalls() {
+        OffsetDateTime at = OffsetDateTime.parse("2025-06-01T09:30:00.123456+02:00");
+        ByteBuffer body = ByteBuffer.allocate(1024);
+        TransactionWireFormat.encode(body, "B1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("120.50"), at, "ref-1", "POS-ü", "EUR");
+        TransactionWireFormat.encode(body, "B1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("120.50"), null, "ref-1", null, "EUR");
+        TransactionWireFormat.encode(body, "B1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                new BigDecimal("500"), null, null, null, "EUR");
+        TransactionWireFormat.encode(body, "B1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                BigDecimal.ONE, null, null, null, "USD");
+
+        List<Object[]> results = results(controller.createTransactionsBinary(bytes(body)).getBody());
+        assertEquals(4, results.size());
+
+        var stored = service.getTransactionHistory("B1");
+        assertEquals(1, stored.size());
+        assertEquals(at, stored.get(0).getTimestamp());
+        assertEquals(new BigDecimal("120.50"), stored.get(0).getAmount());
+        assertEquals("POS-ü", stored.get(0).getTransactionCode());
+
+        // Replay answers with the original id, like the JSON endpoint
+        assertEquals(TransactionWireFormat.OK, results.get(0)[0]);
+        assertEquals(stored.get(0).getId(), results.get(0)[1]);
+        assertEquals(TransactionWireFormat.OK, results.get(1)[0]);
+        assertEquals(stored.get(0).getId(), results.get(1)[1]);
+        assertEquals(TransactionWireFormat.INSUFFICIENT_FUNDS, results.get(2)[0]);
+        assertEquals(TransactionWireFormat.REJECTED, results.get(3)[0]);
+        assertTrue(((String) results.get(3)[1]).contains("Currency mismatch"));
+    }
+
+    @Test
+    void unknownEnumOrdinalRejectsOnlyThatRecord() {
+        ByteBuffer body = ByteBuffer.allocate(256);
+        TransactionWireFormat.encode(body, "B2", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                BigDecimal.TEN, null, null, null, "USD");
+        body.put(20, (byte) 99);
+        TransactionWireFormat.encode(body, "B2", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                BigDecimal.TEN, null, null, null, "USD");
+
+        List<Object[]> results = results(controller.createTransactionsBinary(bytes(body)).getBody());
+        assertEquals(TransactionWireFormat.REJECTED, results.get(0)[0]);
+        assertEquals(TransactionWireFormat.OK, results.get(1)[0]);
+        assertEquals(0, BigDecimal.TEN.compareTo(service.getCurrentBalance("B2")));
+    }
+
+    @Test
+    void bodyWithTruncatedLastFrameCommitsNothing() {
+        ByteBuffer body = ByteBuffer.allocate(1024);
+        for (int i = 0; i < 3; i++) {
+            TransactionWireFormat.encode(body, "B4", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                    BigDecimal.TEN, null, "ref-" + i, null, "USD");
+        }
+        byte[] full = bytes(body);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.createTransactionsBinary(Arrays.copyOf(full, full.length - 2)));
+        assertTrue(service.getTransactionHistory("B4").isEmpty());
+    }
+
+    @Test
+    void bodyOneRecordOverTheLimitCommitsNothing() {
+        int records = LedgerController.MAX_BINARY_RECORDS + 1;
+        ByteBuffer body = ByteBuffer.allocate(records * 64);
+        for (int i = 0; i < records; i++) {
+            TransactionWireFormat.encode(body, "B5", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                    BigDecimal.ONE, null, null, null, "USD");
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> controller.createTransactionsBinary(bytes(body)));
+        assertTrue(service.getTransactionHistory("B5").isEmpty());
+    }
+
+    @Test
+    void truncatedBodyIsRejected() {
+        ByteBuffer body = ByteBuffer.allocate(256);
+        TransactionWireFormat.encode(body, "B3", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                BigDecimal.TEN, null, "ref-long", null, "USD");
+        byte[] full = bytes(body);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.createTransactionsBinary(Arrays.copyOf(full, full.length - 3)));
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.createTransactionsBinary(Arrays.copyOf(full, 10)));
+        assertThrows(IllegalArgumentException.class, () -> TransactionWireFormat.encode(ByteBuffer.allocate(256),
+                "B3", AccountType.SAVINGS, TransactionType.DEPOSIT, new BigDecimal("1e-200"), null, null, null, "USD"));
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /** {status, text} per response entry */
+    private static List<Object[]> results(byte[] response) {
+        ByteBuffer in = ByteBuffer.wrap(response);
+        List<Object[]> results = new ArrayList<>();
+        while (in.hasRemaining()) {
+            byte status = in.get();
+            byte[] text = new byte[in.getShort() & 0xFFFF];
+            in.get(text);
+            results.add(new Object[]{status, new String(text, StandardCharsets.UTF_8)});
+        }
+        return results;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.ledger.controller;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.service.ChangeFeed;
+import com.example.ledger.service.HotAccounts;
+import com.example.ledger.service.LedgerService;
+import com.example.ledger.service.LedgerServiceImpl;
+import com.example.ledger.storage.InMemoryLedgerStorage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for where a change feed stream starts: a Last-Event-ID of this run
+ * resumes after it, while ids from an earlier run and offsets not published yet
+ * are rejected instead of silently skipping new commits.
+ */
+class ChangeFeedControllerTest {
+
+    @Test
+    void resumePositionsMustBelongToThisRunOfTheFeed() {
+        ChangeFeed feed = new ChangeFeed();
+        LedgerService service = new LedgerServiceImpl(new InMemoryLedgerStorage(), new CompositeMeterRegistry(),
+                true, feed, new HotAccounts());
+        ChangeFeedController controller = new ChangeFeedController(feed, new ObjectMapper());
+        for (int i = 1; i <= 3; i++) {
+            service.recordTransaction("E1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal(i), null, null, null, "USD");
+        }
+
+        assertEquals(3, controller.startOffset(null, null));
+        assertEquals(2, controller.startOffset(null, feed.epoch() + "-1"));
+        assertEquals(3, controller.startOffset(null, feed.epoch() + "-2"));
+        assertEquals(0, controller.startOffset(0L, null));
+        assertEquals(3, controller.startOffset(3L, null));
+
+        // Offsets restart at 0, so an id of an earlier run says nothing about this one
+        assertThrows(IllegalArgumentException.class, () -> controller.startOffset(null, (feed.epoch() - 1) + "-1"));
+        assertThrows(IllegalArgumentException.class, () -> controller.startOffset(null, "1"));
+        assertThrows(IllegalArgumentException.class, () -> controller.startOffset(null, feed.epoch() + "-x"));
+        // Ahead of the feed
+        assertThrows(IllegalArgumentException.class, () -> controller.startOffset(null, feed.epoch() + "-3"));
+        assertThrows(IllegalArgumentException.class, () -> controller.startOffset(4L, null));
+        assertThrows(IllegalArgumentException.class, () -> controller.startOffset(-1L, null));
+    }
+}
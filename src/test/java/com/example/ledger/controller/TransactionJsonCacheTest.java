@@ -0,0 +1,130 @@
+package com.example.ledger.controller;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the Transaction JSON cache: output identical to the plain bean
+ * serializer on misses, hits and after eviction, and the byte budget holds.
+ */
+class TransactionJsonCacheTest {
+
+    private static final OffsetDateTime BASE = OffsetDateTime.parse("2025-06-01T09:30:00.123456+02:00");
+
+    private static ObjectMapper mapper() {
+        return new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static List<Transaction> transactions(int count) {
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(new Transaction("tx-" + i, "ACC-" + (i % 7), AccountType.SAVINGS,
+                    i % 3 == 0 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT,
+                    new BigDecimal("12.50").add(BigDecimal.valueOf(i)), "EUR", BASE.plusSeconds(i),
+                    i % 2 == 0 ? null : "ref-é-" + i, "CODE \"" + i + "\""));
+        }
+        return transactions;
+    }
+
+    @Test
+    void cachedOutputMatchesTheBeanSerializer() throws Exception {
+        ObjectMapper plain = mapper();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransactionJsonCache cache = new TransactionJsonCache(1 << 20, registry);
+        ObjectMapper cached = mapper().registerModule(cache);
+        List<Transaction> transactions = transactions(100);
+        String expected = plain.writeValueAsString(transactions);
+
+        // First write misses, second is served from the cache
+        assertEquals(expected, new String(cached.writeValueAsBytes(transactions), StandardCharsets.UTF_8));
+        assertEquals(expected, new String(cached.writeValueAsBytes(transactions), StandardCharsets.UTF_8));
+        // Character-based generators decode the cached bytes
+        assertEquals(expected, cached.writeValueAsString(transactions));
+        // Nested inside other objects, as in ledger pages and batch results
+        Map<String, Object> page = Map.of("transactions", transactions.subList(0, 3));
+        assertEquals(plain.writeValueAsString(page), cached.writeValueAsString(page));
+
+        assertEquals(100.0, registry.get("ledger.json.cache.lookups").tag("result", "miss").counter().count());
+        // Two more list writes and the page
+        assertEquals(203.0, registry.get("ledger.json.cache.lookups").tag("result", "hit").counter().count());
+        assertTrue(cache.bytes() > 0);
+    }
+
+    @Test
+    void prettyPrintedOutputBypassesTheCache() throws Exception {
+        ObjectMapper plain = mapper().enable(SerializationFeature.INDENT_OUTPUT);
+        ObjectMapper cached = mapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .registerModule(new TransactionJsonCache(1 << 20));
+        List<Transaction> transactions = transactions(5);
+
+        assertEquals(plain.writeValueAsString(transactions), cached.writeValueAsString(transactions));
+        assertEquals(plain.writeValueAsString(transactions), cached.writeValueAsString(transactions));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesWithinTheBudget() throws Exception {
+        ObjectMapper plain = mapper();
+        // Room for a handful of entries per stripe
+        long maxBytes = TransactionJsonCache.STRIPES * 4L * (TransactionJsonCache.ENTRY_OVERHEAD + 300);
+        TransactionJsonCache cache = new TransactionJsonCache(maxBytes);
+        ObjectMapper cached = mapper().registerModule(cache);
+        List<Transaction> transactions = transactions(2_000);
+
+        for (int round = 0; round < 3; round++) {
+            for (Transaction tx : transactions) {
+                assertEquals(plain.writeValueAsString(tx), cached.writeValueAsString(tx));
+            }
+            assertTrue(cache.bytes() > 0);
+            assertTrue(cache.bytes() <= maxBytes, "cache holds " + cache.bytes() + " bytes");
+        }
+    }
+
+    @Test
+    void quotedFormsEscapeTheJsonAsAStringValue() throws Exception {
+        byte[] json = mapper().writeValueAsBytes(transactions(2).get(1));
+        TransactionJsonCache.CachedJson cached = new TransactionJsonCache.CachedJson(json);
+        SerializedString expected = new SerializedString(new String(json, StandardCharsets.UTF_8));
+
+        assertArrayEquals(expected.asQuotedChars(), cached.asQuotedChars());
+        assertArrayEquals(expected.asQuotedUTF8(), cached.asQuotedUTF8());
+        byte[] bytes = new byte[expected.asQuotedUTF8().length + 1];
+        assertEquals(bytes.length - 1, cached.appendQuotedUTF8(bytes, 1));
+        assertEquals(-1, cached.appendQuotedUTF8(bytes, 2));
+        char[] chars = new char[expected.asQuotedChars().length];
+        assertEquals(chars.length, cached.appendQuoted(chars, 0));
+        assertArrayEquals(expected.asQuotedChars(), chars);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(expected.asQuotedUTF8().length, cached.writeQuotedUTF8(out));
+        assertArrayEquals(expected.asQuotedUTF8(), out.toByteArray());
+        assertEquals(-1, cached.putQuotedUTF8(ByteBuffer.allocate(4)));
+    }
+
+    @Test
+    void zeroBudgetDisablesTheCache() throws Exception {
+        TransactionJsonCache cache = new TransactionJsonCache(0);
+        ObjectMapper cached = mapper().registerModule(cache);
+        List<Transaction> transactions = transactions(10);
+
+        assertEquals(mapper().writeValueAsString(transactions), cached.writeValueAsString(transactions));
+        assertEquals(0, cache.bytes());
+        assertThrows(IllegalArgumentException.class, () -> new TransactionJsonCache(-1));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.ledger.service;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.storage.InMemoryLedgerStorage;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the change feed: commits are published in order with consecutive
+ * offsets, consumers resume from any retained offset, writers never wait for a
+ * consumer that fell behind, concurrent publishers never hide a newer event
+ * behind an older one, and a waiting consumer wakes on the next commit.
+ */
+class ChangeFeedTest {
+
+    private static LedgerService serviceWith(ChangeFeed feed) {
+        return new LedgerServiceImpl(new InMemoryLedgerStorage(), new CompositeMeterRegistry(), true, feed, new HotAccounts());
+    }
+
+    private static void deposit(LedgerService service, String accountId, int n) {
+        service.recordTransaction(accountId, AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal(n), null, null, "FEED-" + n, "USD");
+    }
+
+    @Test
+    void commitsArePublishedInOrderAndConsumersResumeFromAnOffset() {
+        ChangeFeed feed = new ChangeFeed();
+        LedgerService service = serviceWith(feed);
+        for (int i = 1; i <= 5; i++) deposit(service, "F" + (i % 2), i);
+        service.transfer("F0", AccountType.SAVINGS, "F1", AccountType.SAVINGS, BigDecimal.ONE,
+                null, null, null, "USD");
+
+        List<ChangeFeed.Event> events = new ArrayList<>();
+        assertEquals(7, feed.read(0, events, 100));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, events.get(i).offset());
+            assertEquals("FEED-" + (i + 1), events.get(i).transaction().getTransactionCode());
+        }
+        assertEquals(TransactionType.WITHDRAWAL, events.get(5).transaction().getType());
+        assertEquals(TransactionType.DEPOSIT, events.get(6).transaction().getType());
+
+        List<ChangeFeed.Event> resumed = new ArrayList<>();
+        assertEquals(2, feed.read(3, resumed, 2));
+        assertEquals(3, resumed.get(0).offset());
+        assertEquals(0, feed.read(7, new ArrayList<>(), 100));
+        assertEquals(7, feed.nextOffset());
+    }
+
+    @Test
+    void consumerThatFallsBehindIsOverrunInsteadOfBlockingWriters() {
+        ChangeFeed feed = new ChangeFeed(8, new CompositeMeterRegistry());
+        LedgerService service = serviceWith(feed);
+        for (int i = 0; i < 20; i++) deposit(service, "S1", i);
+
+        assertEquals(12, feed.oldestOffset());
+        assertThrows(IllegalArgumentException.class, () -> feed.read(0, new ArrayList<>(), 100));
+        List<ChangeFeed.Event> retained = new ArrayList<>();
+        assertEquals(8, feed.read(12, retained, 100));
+        assertEquals(19, retained.get(7).offset());
+        assertThrows(IllegalArgumentException.class, () -> new ChangeFeed(100, new CompositeMeterRegistry()));
+    }
+
+    @Test
+    void publisherDelayedByALapDoesNotHideTheNewerEvent() {
+        ChangeFeed feed = new ChangeFeed(4, new CompositeMeterRegistry());
+        long late = feed.claim();
+        for (int i = 0; i < 4; i++) feed.publish(null);
+        feed.store(late, null);
+
+        List<ChangeFeed.Event> events = new ArrayList<>();
+        assertEquals(4, feed.read(1, events, 10));
+        assertEquals(4, events.get(3).offset());
+        assertThrows(IllegalArgumentException.class, () -> feed.read(0, new ArrayList<>(), 10));
+    }
+
+    @Test
+    void concurrentPublishersNeverReplaceANewerEventWithAnOlderOne() throws Exception {
+        // With a 2-slot ring and many publishers, a publisher regularly stores its event
+        // after another has already claimed the offset a lap ahead in the same slot
+        for (int round = 0; round < 20; round++) {
+            ChangeFeed feed = new ChangeFeed(2, new CompositeMeterRegistry());
+            List<CompletableFuture<Void>> publishers = new ArrayList<>();
+            for (int p = 0; p < 8; p++) {
+                publishers.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 5_000; i++) feed.publish(null);
+                }));
+            }
+            for (CompletableFuture<Void> publisher : publishers) publisher.get(10, TimeUnit.SECONDS);
+
+            // Every slot ends with the newest offset mapped to it, so the tail is readable
+            List<ChangeFeed.Event> tail = new ArrayList<>();
+            assertEquals(2, feed.read(feed.oldestOffset(), tail, 10));
+            assertEquals(feed.nextOffset() - 1, tail.get(1).offset());
+        }
+    }
+
+    @Test
+    void waitingConsumerWakesOnTheNextCommit() throws Exception {
+        ChangeFeed feed = new ChangeFeed();
+        LedgerService service = serviceWith(feed);
+        assertFalse(feed.awaitAfter(0, Duration.ofMillis(20)));
+
+        CompletableFuture<Boolean> woken = CompletableFuture.supplyAsync(() -> feed.awaitAfter(0, Duration.ofMinutes(1)));
+        Thread.sleep(50);
+        deposit(service, "W1", 1);
+        assertTrue(woken.get(10, TimeUnit.SECONDS));
+    }
+}
@@ -1,17 +1,34 @@
 package com.example.ledger.service;
 
+import com.example.ledger.dto.AggregateBucket;
+import com.example.ledger.dto.BatchItemResult;
+import com.example.ledger.dto.BatchTransactionItem;
+import com.example.ledger.dto.LedgerPage;
+import com.example.ledger.dto.TransferResult;
 import com.example.ledger.exception.InsufficientBalanceException;
 import com.example.ledger.model.AccountType;
+import com.example.ledger.model.AggregatePeriod;
 import com.example.ledger.model.TransactionType;
 import com.example.ledger.model.Transaction;
+import com.example.ledger.storage.ColumnarLedgerStorage;
 import com.example.ledger.storage.InMemoryLedgerStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -66,6 +83,54 @@ class LedgerServiceTest {
         assertEquals(1, hist.size());
     }
 
+    @Test
+    void runningBalanceTracksDepositsAndWithdrawals() {
+        service.recordTransaction("R1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("100.00"), null, null, null, "USD");
+        service.recordTransaction("R1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                new BigDecimal("30.50"), null, null, null, "USD");
+        service.recordTransaction("R1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("5.25"), null, null, null, "USD");
+
+        assertEquals(0, new BigDecimal("74.75").compareTo(service.getCurrentBalance("R1")));
+        assertEquals(0, BigDecimal.ZERO.compareTo(service.getCurrentBalance("UNKNOWN")));
+    }
+
+    @Test
+    void rejectedRequestCanBeRetriedWithSameReference() {
+        service.recordTransaction("I1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("10.00"), null, null, null, "USD");
+
+        assertThrows(InsufficientBalanceException.class, () ->
+                service.recordTransaction("I1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                        new BigDecimal("50.00"), null, "wd-1", null, "USD"));
+
+        service.recordTransaction("I1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("100.00"), null, null, null, "USD");
+        Transaction retried = service.recordTransaction("I1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                new BigDecimal("50.00"), null, "wd-1", null, "USD");
+
+        assertEquals("wd-1", retried.getReferenceId());
+        assertEquals(0, new BigDecimal("60.00").compareTo(service.getCurrentBalance("I1")));
+    }
+
+    @Test
+    void idempotencyIndexEvictsOldestReferencesBeyondLimit() {
+        LedgerService bounded = new LedgerServiceImpl(new InMemoryLedgerStorage(2, Duration.ofHours(1)));
+        Transaction first = bounded.recordTransaction("I2", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("1.00"), null, "ref-1", null, "USD");
+        bounded.recordTransaction("I2", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("1.00"), null, "ref-2", null, "USD");
+        bounded.recordTransaction("I2", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("1.00"), null, "ref-3", null, "USD");
+
+        // ref-1 has been evicted, so it is accepted again as a new request
+        Transaction replay = bounded.recordTransaction("I2", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("1.00"), null, "ref-1", null, "USD");
+        assertNotEquals(first.getId(), replay.getId());
+        assertEquals(4, bounded.getTransactionHistory("I2").size());
+    }
+
     @Test
     void ledgerReceivesAppends() {
         service.recordTransaction("B1", AccountType.SAVINGS, TransactionType.DEPOSIT,
@@ -99,6 +164,27 @@ class LedgerServiceTest {
         assertEquals("INR", service.getTransactionHistory("D2").get(0).getCurrency());
     }
 
+    @Test
+    void idsAreTimeOrderedUuidsAndCurrenciesShareOneInstance() {
+        Transaction first = service.recordTransaction("U1", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                BigDecimal.ONE, null, null, null, new String("usd".toCharArray()));
+        Transaction second = service.recordTransaction("U2", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                BigDecimal.ONE, null, null, null, new String("USD".toCharArray()));
+
+        UUID id = UUID.fromString(first.getId());
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(id.toString(), first.getId());
+        long millis = id.getMostSignificantBits() >>> 16;
+        assertTrue(Math.abs(System.currentTimeMillis() - millis) < 60_000, "id timestamp is not the current time");
+
+        assertEquals("USD", first.getCurrency());
+        assertSame(first.getCurrency(), second.getCurrency());
+
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) assertTrue(ids.add(TransactionIds.next()));
+    }
+
     @Test
     void accountLevelLockingAllowsParallelDifferentAccounts() throws InterruptedException, ExecutionException {
         ExecutorService exec = Executors.newFixedThreadPool(4);
@@ -154,8 +240,368 @@ class LedgerServiceTest {
         assertEquals(0, expected.compareTo(actual), "Expected balance " + expected + " but got " + actual);
     }
 
+    @Test
+    void concurrentSavingsWithdrawalsCannotOverdraw() throws InterruptedException {
+        service.recordTransaction("W1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("100.00"), null, null, null, "USD");
+
+        int threads = 16;
+        ExecutorService exec = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger accepted = new AtomicInteger();
+
+        for (int i = 0; i < threads; i++) {
+            exec.submit(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < 5; j++) {
+                        try {
+                            service.recordTransaction("W1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                                    new BigDecimal("10.00"), null, null, null, "USD");
+                            accepted.incrementAndGet();
+                        } catch (InsufficientBalanceException ignored) {
+                            // expected once the balance is exhausted
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        done.await();
+        exec.shutdown();
+
+        assertEquals(10, accepted.get());
+        assertEquals(0, BigDecimal.ZERO.compareTo(service.getCurrentBalance("W1")));
+    }
+
+    @Test
+    void hotAccountCoalescesDepositsAndStillChecksSavingsWithdrawals() throws InterruptedException {
+        // Any wait counts as contended, so the first write turns the account hot
+        MeterRegistry registry = new SimpleMeterRegistry();
+        HotAccounts hot = new HotAccounts(true, Duration.ZERO, 1, Duration.ofSeconds(10), Duration.ofMinutes(1),
+                8, registry);
+        LedgerService hotService = new LedgerServiceImpl(new InMemoryLedgerStorage(), registry, true,
+                new ChangeFeed(), hot);
+        hotService.recordTransaction("H1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("50.00"), null, null, null, "USD");
+        assertTrue(hot.isHot("H1"));
+
+        int threads = 16;
+        ExecutorService exec = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger withdrawn = new AtomicInteger();
+        Set<String> depositIds = ConcurrentHashMap.newKeySet();
+
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            exec.submit(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < 50; j++) {
+                        // Every reference is sent by two threads; only one deposit each may land
+                        Transaction tx = hotService.recordTransaction("H1", AccountType.SAVINGS,
+                                TransactionType.DEPOSIT, BigDecimal.ONE, null,
+                                "HOT-" + (thread / 2) + "-" + j, null, "USD");
+                        depositIds.add(tx.getId());
+                        try {
+                            hotService.recordTransaction("H1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                                    new BigDecimal("3.00"), null, null, null, "USD");
+                            withdrawn.incrementAndGet();
+                        } catch (InsufficientBalanceException ignored) {
+                            // expected whenever deposits have not kept up
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        exec.shutdown();
+
+        assertEquals(threads / 2 * 50, depositIds.size());
+        BigDecimal expected = new BigDecimal("50.00").add(BigDecimal.valueOf(depositIds.size()))
+                .subtract(BigDecimal.valueOf(3L * withdrawn.get()));
+        assertEquals(0, expected.compareTo(hotService.getCurrentBalance("H1")));
+        assertTrue(hotService.getCurrentBalance("H1").signum() >= 0);
+        assertEquals(1 + depositIds.size() + withdrawn.get(), hotService.getTransactionHistory("H1").size());
+        assertTrue(registry.get("ledger.hot.batch.size").summary().count() > 0);
+        assertThrows(IllegalArgumentException.class, () -> hotService.recordTransaction("H1",
+                AccountType.SAVINGS, TransactionType.DEPOSIT, BigDecimal.ONE, null, null, null, "EUR"));
+    }
+
+    @Test
+    void lanesOfAccountsThatGoQuietAreSweptWithoutFurtherWrites() throws InterruptedException {
+        // Contended waits that never reach the threshold, on accounts never written again
+        HotAccounts hot = new HotAccounts(true, Duration.ZERO, 1_000, Duration.ofMillis(50), Duration.ofMillis(50),
+                8, new SimpleMeterRegistry());
+        for (int i = 0; i < 100; i++) hot.recordWait("Q" + i, 1);
+        assertEquals(100, hot.laneCount());
+
+        Thread.sleep(120);
+        hot.recordWait("OTHER", 1);
+        assertEquals(1, hot.laneCount());
+    }
+
+    // ---------------- PAGINATION TESTS ----------------
+
+    @Test
+    void ledgerPagesFollowTimestampOrderAcrossAccounts() {
+        OffsetDateTime base = OffsetDateTime.parse("2025-10-01T10:00:00Z");
+        for (int i = 0; i < 30; i++) {
+            String account = "P" + (i % 3);
+            // every third row is backdated to interleave with earlier rows
+            OffsetDateTime ts = i % 3 == 2 ? base.plusMinutes(i - 20) : base.plusMinutes(i / 2);
+            service.recordTransaction(account, AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                    new BigDecimal("1.00"), ts, null, "ROW-" + i, "USD");
+        }
+
+        List<Transaction> all = service.getLedgerRows();
+        List<Transaction> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            LedgerPage page = service.getLedgerPage(cursor, 7);
+            paged.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(30, all.size());
+        assertEquals(5, pages);
+        assertEquals(all.stream().map(Transaction::getId).toList(), paged.stream().map(Transaction::getId).toList());
+        for (int i = 1; i < all.size(); i++) {
+            assertFalse(all.get(i).getTimestamp().isBefore(all.get(i - 1).getTimestamp()));
+        }
+        assertEquals(30, service.streamLedger(null).count());
+    }
+
+    @Test
+    void accountHistoryPagesResumeAfterSameTimestampRows() {
+        OffsetDateTime ts = OffsetDateTime.parse("2025-10-01T10:00:00Z");
+        for (int i = 0; i < 5; i++) {
+            service.recordTransaction("PH", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("1.00"), ts, null, "SAME-" + i, "USD");
+        }
+
+        LedgerPage first = service.getTransactionHistoryPage("PH", null, 2);
+        LedgerPage second = service.getTransactionHistoryPage("PH", first.getNextCursor(), 2);
+        LedgerPage third = service.getTransactionHistoryPage("PH", second.getNextCursor(), 2);
+
+        assertEquals(List.of("SAME-0", "SAME-1"), first.getItems().stream().map(Transaction::getTransactionCode).toList());
+        assertEquals(List.of("SAME-2", "SAME-3"), second.getItems().stream().map(Transaction::getTransactionCode).toList());
+        assertEquals(List.of("SAME-4"), third.getItems().stream().map(Transaction::getTransactionCode).toList());
+        assertNull(third.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> service.getTransactionHistoryPage("OTHER", first.getNextCursor(), 2));
+        assertThrows(IllegalArgumentException.class, () -> service.getLedgerPage("not-a-cursor", 2));
+    }
+
+    // ---------------- BATCH TESTS ----------------
+
+    @Test
+    void batchCommitsPerAccountGroupsAndReportsEachRow() {
+        service.recordTransaction("BT2", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("5.00"), null, "existing", null, "EUR");
+
+        List<BatchItemResult> results = service.recordTransactions(List.of(
+                item("BT1", AccountType.SAVINGS, TransactionType.DEPOSIT, "100.00", "USD", "r1"),
+                item("BT2", AccountType.SAVINGS, TransactionType.WITHDRAWAL, "50.00", "EUR", null),
+                item("BT1", AccountType.SAVINGS, TransactionType.WITHDRAWAL, "60.00", "USD", null),
+                item("BT1", AccountType.SAVINGS, TransactionType.WITHDRAWAL, "60.00", "USD", null),
+                item("BT1", AccountType.SAVINGS, TransactionType.DEPOSIT, "100.00", "USD", "r1"),
+                item("BT2", AccountType.SAVINGS, TransactionType.DEPOSIT, "1.00", "GBP", null),
+                item("BT2", AccountType.SAVINGS, TransactionType.DEPOSIT, "5.00", "EUR", "existing"),
+                item(null, AccountType.SAVINGS, TransactionType.DEPOSIT, "1.00", "USD", null)));
+
+        assertEquals(8, results.size());
+        assertEquals(BatchItemResult.Status.COMMITTED, results.get(0).getStatus());
+        assertEquals(BatchItemResult.Status.REJECTED, results.get(1).getStatus());   // insufficient funds
+        assertEquals(BatchItemResult.Status.COMMITTED, results.get(2).getStatus());
+        assertEquals(BatchItemResult.Status.REJECTED, results.get(3).getStatus());   // balance now 40
+        assertEquals(BatchItemResult.Status.DUPLICATE, results.get(4).getStatus());  // same ref earlier in batch
+        assertEquals(results.get(0).getTransaction().getId(), results.get(4).getTransaction().getId());
+        assertEquals(BatchItemResult.Status.REJECTED, results.get(5).getStatus());   // currency mismatch
+        assertEquals(BatchItemResult.Status.DUPLICATE, results.get(6).getStatus());  // ref from a previous request
+        assertEquals(BatchItemResult.Status.REJECTED, results.get(7).getStatus());   // missing accountId
+        for (int i = 0; i < results.size(); i++) assertEquals(i, results.get(i).getIndex());
+
+        assertEquals(0, new BigDecimal("40.00").compareTo(service.getCurrentBalance("BT1")));
+        assertEquals(0, new BigDecimal("5.00").compareTo(service.getCurrentBalance("BT2")));
+        assertEquals(2, service.getTransactionHistory("BT1").size());
+    }
+
+    @Test
+    void rowsTheStorageCannotHoldAreRejectedWithoutFailingTheirBatch() throws Exception {
+        // Columnar storage cannot hold an amount whose unscaled value exceeds a long
+        String huge = "123456789012345678901234.5";
+        MeterRegistry registry = new SimpleMeterRegistry();
+        HotAccounts hot = new HotAccounts(true, Duration.ZERO, 1, Duration.ofSeconds(10), Duration.ofMinutes(1),
+                8, registry);
+        LedgerService columnar = new LedgerServiceImpl(new ColumnarLedgerStorage(), registry, true,
+                new ChangeFeed(), hot);
+
+        List<BatchItemResult> results = columnar.recordTransactions(List.of(
+                item("CB1", AccountType.CREDIT_CARD, TransactionType.DEPOSIT, "1.00", "USD", null),
+                item("CB1", AccountType.CREDIT_CARD, TransactionType.DEPOSIT, huge, "USD", null),
+                item("CB1", AccountType.CREDIT_CARD, TransactionType.DEPOSIT, "2.00", "USD", null)));
+        assertEquals(BatchItemResult.Status.COMMITTED, results.get(0).getStatus());
+        assertEquals(BatchItemResult.Status.REJECTED, results.get(1).getStatus());
+        assertEquals(BatchItemResult.Status.COMMITTED, results.get(2).getStatus());
+        assertEquals(0, new BigDecimal("3.00").compareTo(columnar.getCurrentBalance("CB1")));
+
+        // Coalesced writes of a hot account: only the unstorable ones fail
+        columnar.recordTransaction("CH1", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                BigDecimal.ONE, null, null, null, "USD");
+        assertTrue(hot.isHot("CH1"));
+        AtomicInteger rejected = new AtomicInteger();
+        try (ExecutorService writers = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> done = new ArrayList<>();
+            for (int w = 0; w < 8; w++) {
+                int writer = w;
+                done.add(writers.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        boolean bad = (writer + i) % 10 == 0;
+                        try {
+                            columnar.recordTransaction("CH1", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                                    new BigDecimal(bad ? huge : "1"), null, null, null, "USD");
+                            assertFalse(bad);
+                        } catch (IllegalArgumentException e) {
+                            assertTrue(bad);
+                            rejected.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> f : done) f.get();
+        }
+        assertEquals(40, rejected.get());
+        assertEquals(1 + 400 - 40, columnar.getTransactionHistory("CH1").size());
+        assertTrue(registry.get("ledger.hot.batch.size").summary().count() > 0);
+    }
+
+    @Test
+    void batchGroupsCommitOnVirtualThreadsOutsideTheCommonPool() {
+        Set<Boolean> virtual = ConcurrentHashMap.newKeySet();
+        LedgerService observed = new LedgerServiceImpl(new InMemoryLedgerStorage() {
+            @Override
+            public void appendTransactions(String accountId, List<Transaction> txs) {
+                virtual.add(Thread.currentThread().isVirtual());
+                super.appendTransactions(accountId, txs);
+            }
+        });
+
+        List<BatchTransactionItem> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            items.add(item("VT" + i, AccountType.SAVINGS, TransactionType.DEPOSIT, "1.00", "USD", null));
+        }
+        List<BatchItemResult> results = observed.recordTransactions(items);
+
+        assertTrue(results.stream().allMatch(r -> r.getStatus() == BatchItemResult.Status.COMMITTED));
+        assertEquals(Set.of(true), virtual);
+    }
+
+    private static BatchTransactionItem item(String accountId, AccountType accountType, TransactionType type,
+                                             String amount, String currency, String referenceId) {
+        BatchTransactionItem item = new BatchTransactionItem();
+        item.setAccountId(accountId);
+        item.setAccountType(accountType);
+        item.setType(type);
+        item.setAmount(new BigDecimal(amount));
+        item.setCurrency(currency);
+        item.setReferenceId(referenceId);
+        return item;
+    }
+
     // ---------------- CREDIT CARD TESTS ----------------
 
+    @Test
+    void transferDebitsAndCreditsBothAccountsOrNeither() {
+        service.recordTransaction("T-SAV", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("100.00"), null, null, null, "EUR");
+        service.recordTransaction("T-GBP", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                BigDecimal.ONE, null, null, null, "GBP");
+
+        TransferResult transfer = service.transfer("T-SAV", AccountType.SAVINGS, "T-CC", AccountType.CREDIT_CARD,
+                new BigDecimal("30.00"), null, "tr-1", "XFER", "eur");
+        assertEquals(TransactionType.WITHDRAWAL, transfer.getDebit().getType());
+        assertEquals(TransactionType.DEPOSIT, transfer.getCredit().getType());
+        assertEquals(transfer.getDebit().getTimestamp(), transfer.getCredit().getTimestamp());
+        assertEquals(0, new BigDecimal("70.00").compareTo(service.getCurrentBalance("T-SAV")));
+        assertEquals(0, new BigDecimal("30.00").compareTo(service.getCurrentBalance("T-CC")));
+
+        // Replay returns the original legs
+        TransferResult replay = service.transfer("T-SAV", AccountType.SAVINGS, "T-CC", AccountType.CREDIT_CARD,
+                new BigDecimal("30.00"), null, "tr-1", "XFER", "EUR");
+        assertEquals(transfer.getDebit().getId(), replay.getDebit().getId());
+        assertEquals(transfer.getCredit().getId(), replay.getCredit().getId());
+
+        // Overdraft on the source, a destination in another currency or the same account: nothing moves
+        assertThrows(InsufficientBalanceException.class, () -> service.transfer("T-SAV", AccountType.SAVINGS,
+                "T-CC", AccountType.CREDIT_CARD, new BigDecimal("70.01"), null, null, null, "EUR"));
+        assertThrows(IllegalArgumentException.class, () -> service.transfer("T-SAV", AccountType.SAVINGS,
+                "T-GBP", AccountType.SAVINGS, BigDecimal.TEN, null, null, null, "EUR"));
+        assertThrows(IllegalArgumentException.class, () -> service.transfer("T-SAV", AccountType.SAVINGS,
+                "T-SAV", AccountType.SAVINGS, BigDecimal.TEN, null, null, null, "EUR"));
+        assertEquals(0, new BigDecimal("70.00").compareTo(service.getCurrentBalance("T-SAV")));
+        assertEquals(0, BigDecimal.ONE.compareTo(service.getCurrentBalance("T-GBP")));
+        assertEquals(2, service.getTransactionHistory("T-SAV").size());
+
+        // A new source account does not take the currency of a transfer its destination rejects
+        assertThrows(IllegalArgumentException.class, () -> service.transfer("T-NEW", AccountType.CREDIT_CARD,
+                "T-GBP", AccountType.SAVINGS, BigDecimal.TEN, null, null, null, "EUR"));
+        service.recordTransaction("T-NEW", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                BigDecimal.ONE, null, null, null, "USD");
+    }
+
+    @Test
+    void opposingConcurrentTransfersNeitherDeadlockNorLoseMoney() {
+        int accounts = 6;
+        for (int a = 0; a < accounts; a++) {
+            service.recordTransaction("R" + a, AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("100.00"), null, null, null, "USD");
+        }
+
+        // Every thread moves money around the ring in its own direction, so pairs overlap both ways
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+                List<Future<?>> done = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    int step = t % 2 == 0 ? 1 : accounts - 1;
+                    int offset = t;
+                    done.add(pool.submit(() -> {
+                        for (int i = 0; i < 2_000; i++) {
+                            int from = (offset + i) % accounts;
+                            try {
+                                service.transfer("R" + from, AccountType.SAVINGS, "R" + (from + step) % accounts,
+                                        AccountType.SAVINGS, new BigDecimal("7.00"), null, null, null, "USD");
+                            } catch (InsufficientBalanceException ignored) {
+                                // the source ran dry; keep going
+                            }
+                        }
+                    }));
+                }
+                for (Future<?> f : done) f.get();
+            }
+        });
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (int a = 0; a < accounts; a++) {
+            BigDecimal balance = service.getCurrentBalance("R" + a);
+            assertTrue(balance.signum() >= 0, "R" + a + " was overdrawn");
+            total = total.add(balance);
+        }
+        assertEquals(0, new BigDecimal("600.00").compareTo(total));
+    }
+
     @Test
     void creditCardWithdrawalIncreasesDebt() {
         service.recordTransaction("CC1", AccountType.CREDIT_CARD, TransactionType.WITHDRAWAL,
@@ -191,4 +637,181 @@ class LedgerServiceTest {
                 service.recordTransaction("CC3", AccountType.CREDIT_CARD, TransactionType.WITHDRAWAL,
                         new BigDecimal("50.00"), null, null, "SPEND-INR", "INR"));
     }
+
+    @Test
+    void metricsCountOutcomesAndIdempotencyHits() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        LedgerService metered = new LedgerServiceImpl(
+                new InMemoryLedgerStorage(100, Duration.ofHours(1), registry), registry);
+
+        metered.recordTransaction("M1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("10.00"), null, "ref-m", null, "USD");
+        metered.recordTransaction("M1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("10.00"), null, "ref-m", null, "USD");
+        assertThrows(InsufficientBalanceException.class, () ->
+                metered.recordTransaction("M1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                        new BigDecimal("99.00"), null, null, null, "USD"));
+        metered.getCurrentBalance("M1");
+
+        assertEquals(1.0, registry.get("ledger.transactions").tag("outcome", "committed").counter().count());
+        assertEquals(1.0, registry.get("ledger.transactions").tag("outcome", "duplicate").counter().count());
+        assertEquals(1.0, registry.get("ledger.transactions").tag("outcome", "insufficient_funds").counter().count());
+        assertEquals(1.0, registry.get("ledger.idempotency.lookups").tag("result", "hit").counter().count());
+        assertEquals(1.0, registry.get("ledger.idempotency.lookups").tag("result", "miss").counter().count());
+        assertEquals(1, registry.get("ledger.transaction.record").tag("outcome", "committed").timer().count());
+        assertEquals(1, registry.get("ledger.balance.read").tag("kind", "current").timer().count());
+        assertEquals(1, registry.get("ledger.account.history.size").summary().count());
+    }
+
+    @Test
+    void searchCombinesIndexedFiltersAndPagesInTimestampOrder() {
+        OffsetDateTime monday = OffsetDateTime.parse("2025-10-06T09:00:00Z");
+        for (int day = 0; day < 10; day++) {
+            OffsetDateTime ts = monday.plusDays(day);
+            service.recordTransaction("Q1", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                    new BigDecimal("20000.00"), ts, null, "ATM-DEP-" + day, "USD");
+            service.recordTransaction("Q1", AccountType.CREDIT_CARD, TransactionType.WITHDRAWAL,
+                    new BigDecimal(day % 2 == 0 ? "15000.00" : "50.00"), ts.plusHours(1), null, "POS-" + day, "USD");
+            service.recordTransaction("Q2", AccountType.CREDIT_CARD, TransactionType.WITHDRAWAL,
+                    new BigDecimal("12000.00"), ts.plusHours(2), null, "ATM-WD-" + day, "USD");
+        }
+
+        // "all ATM-DEP-* transactions this week", two per page
+        List<Transaction> deposits = new ArrayList<>();
+        String cursor = null;
+        do {
+            LedgerPage page = service.searchTransactions(null, "ATM-DEP-", null, null, null,
+                    monday, monday.plusDays(7), cursor, 2);
+            deposits.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(7, deposits.size());
+        for (int i = 0; i < deposits.size(); i++) {
+            assertEquals("ATM-DEP-" + i, deposits.get(i).getTransactionCode());
+        }
+
+        // "all withdrawals over 10k for account Q1"
+        LedgerPage large = service.searchTransactions("Q1", null, TransactionType.WITHDRAWAL,
+                new BigDecimal("10000"), null, null, null, null, 100);
+        assertEquals(5, large.getItems().size());
+        assertNull(large.getNextCursor());
+        for (Transaction tx : large.getItems()) {
+            assertEquals("Q1", tx.getAccountId());
+            assertEquals(TransactionType.WITHDRAWAL, tx.getType());
+            assertEquals(0, new BigDecimal("15000.00").compareTo(tx.getAmount()));
+        }
+
+        assertEquals(5, service.searchTransactions(null, null, null, new BigDecimal("40"), new BigDecimal("60"),
+                null, null, null, 100).getItems().size());
+        assertEquals(30, service.searchTransactions(null, null, null, null, null,
+                null, null, null, 100).getItems().size());
+        assertTrue(service.searchTransactions("NOBODY", null, null, null, null,
+                null, null, null, 100).getItems().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> service.searchTransactions(null, null, null,
+                BigDecimal.TEN, BigDecimal.ONE, null, null, null, 100));
+    }
+
+    @Test
+    void searchReadsRowsBackFromColumnarStorageAndAfterARebuild() {
+        ColumnarLedgerStorage storage = new ColumnarLedgerStorage();
+        LedgerService columnar = new LedgerServiceImpl(storage);
+        OffsetDateTime base = OffsetDateTime.parse("2025-10-06T09:00:00.123456789Z");
+        for (int i = 0; i < 20; i++) {
+            // every fourth row is backdated, so arrival sequences differ from timestamp order
+            OffsetDateTime ts = i % 4 == 3 ? base.minusDays(i) : base.plusMinutes(i);
+            columnar.recordTransaction(i % 2 == 0 ? "C1" : "C2", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    BigDecimal.valueOf(100 + i), ts, null, "DEP-" + i, "EUR");
+        }
+        // rows at one timestamp keep their arrival order
+        columnar.recordTransaction("C1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("500"), base, null, "DEP-SAME", "EUR");
+
+        LedgerPage live = columnar.searchTransactions(null, "DEP-", null, null, null, null, null, null, 100);
+        assertEquals(21, live.getItems().size());
+        assertEquals("DEP-0", live.getItems().get(5).getTransactionCode());
+        assertEquals("DEP-SAME", live.getItems().get(6).getTransactionCode());
+        assertEquals(List.of("DEP-2", "DEP-4", "DEP-6"), columnar.searchTransactions("C1", null, null,
+                        new BigDecimal("102"), new BigDecimal("106"), null, null, null, 100)
+                .getItems().stream().map(Transaction::getTransactionCode).toList());
+
+        // a service started over storage that already holds rows rebuilds the same index
+        LedgerService rebuilt = new LedgerServiceImpl(storage);
+        assertEquals(codes(live.getItems()), codes(rebuilt.searchTransactions(null, "DEP-", null, null, null,
+                null, null, null, 100).getItems()));
+        rebuilt.recordTransaction("C2", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("7"), base.minusDays(100), null, "DEP-LATE", "EUR");
+        assertEquals("DEP-LATE", rebuilt.searchTransactions("C2", null, null, null, null,
+                null, null, null, 1).getItems().get(0).getTransactionCode());
+    }
+
+    private static List<String> codes(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getTransactionCode).toList();
+    }
+
+    @Test
+    void aggregatesTotalDaysAndMonthsIncludingBackdatedRows() {
+        OffsetDateTime oct6 = OffsetDateTime.parse("2025-10-06T10:00:00Z");
+        service.recordTransaction("G1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("100.00"), oct6, null, null, "USD");
+        service.recordTransaction("G1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                new BigDecimal("30.00"), oct6.plusHours(2), null, null, "USD");
+        service.recordTransaction("G1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("5.00"), oct6.plusDays(1), null, null, "USD");
+        service.recordTransaction("G1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("50.00"), OffsetDateTime.parse("2025-11-02T08:00:00Z"), null, null, "USD");
+        // Backdated into the first day; 23:30 at -02:00 is 01:30 UTC on Oct 7
+        service.recordTransaction("G1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("1.00"), oct6.minusHours(1), null, null, "USD");
+        service.recordTransaction("G1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                new BigDecimal("2.00"), OffsetDateTime.parse("2025-10-06T23:30:00-02:00"), null, null, "USD");
+
+        List<AggregateBucket> days = service.getAggregates("G1", AggregatePeriod.DAY,
+                LocalDate.parse("2025-10-01"), LocalDate.parse("2025-10-31"));
+        assertEquals(2, days.size());
+        AggregateBucket first = days.get(0);
+        assertEquals(LocalDate.parse("2025-10-06"), first.getStart());
+        assertEquals(3, first.getCount());
+        assertEquals(0, new BigDecimal("101.00").compareTo(first.getDeposits()));
+        assertEquals(0, new BigDecimal("30.00").compareTo(first.getWithdrawals()));
+        assertEquals(0, new BigDecimal("1.00").compareTo(first.getMinAmount()));
+        assertEquals(0, new BigDecimal("100.00").compareTo(first.getMaxAmount()));
+        assertEquals(2, days.get(1).getCount());
+        assertEquals(0, new BigDecimal("3.00").compareTo(days.get(1).getNet()));
+
+        List<AggregateBucket> months = service.getAggregates("G1", AggregatePeriod.MONTH,
+                LocalDate.parse("2025-10-15"), LocalDate.parse("2025-12-01"));
+        assertEquals(2, months.size());
+        assertEquals(LocalDate.parse("2025-10-01"), months.get(0).getStart());
+        assertEquals(5, months.get(0).getCount());
+        assertEquals(0, new BigDecimal("74.00").compareTo(months.get(0).getNet()));
+        assertEquals(LocalDate.parse("2025-11-01"), months.get(1).getStart());
+        assertEquals(1, months.get(1).getCount());
+
+        assertTrue(service.getAggregates("NOBODY", AggregatePeriod.DAY,
+                LocalDate.parse("2025-10-01"), LocalDate.parse("2025-10-31")).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> service.getAggregates("G1", AggregatePeriod.DAY,
+                LocalDate.parse("2025-10-31"), LocalDate.parse("2025-10-01")));
+    }
+
+    @Test
+    void balancesForManyAccountsAreReadInParallelInRequestOrder() {
+        List<String> accounts = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String id = "MB" + i;
+            accounts.add(id);
+            service.recordTransaction(id, AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                    BigDecimal.valueOf(i), null, null, null, "USD");
+        }
+        accounts.add("MB-UNKNOWN");
+        accounts.add("MB7");
+
+        Map<String, BigDecimal> balances = service.getBalances(accounts);
+
+        assertEquals(accounts.subList(0, 301), new ArrayList<>(balances.keySet()));
+        for (int i = 0; i < 300; i++) {
+            assertEquals(0, BigDecimal.valueOf(i).compareTo(balances.get("MB" + i)));
+        }
+        assertEquals(0, BigDecimal.ZERO.compareTo(balances.get("MB-UNKNOWN")));
+        assertThrows(IllegalArgumentException.class, () -> service.getBalances(List.of("MB1", " ")));
+    }
 }
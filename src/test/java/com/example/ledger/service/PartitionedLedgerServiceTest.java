@@ -0,0 +1,284 @@
+package com.example.ledger.service;
+
+import com.example.ledger.dto.BatchItemResult;
+import com.example.ledger.dto.BatchTransactionItem;
+import com.example.ledger.dto.LedgerPage;
+import com.example.ledger.dto.TransferResult;
+import com.example.ledger.exception.AccountNotHeldException;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.storage.InMemoryLedgerStorage;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for account-hash partitioning: the ring spreads accounts evenly and moves
+ * few of them when a node joins, and a router over in-process nodes returns what
+ * a single node holding every account would (balances, merged ledger rows and
+ * pages, searches and batches).
+ */
+class PartitionedLedgerServiceTest {
+
+    private static final OffsetDateTime BASE = OffsetDateTime.parse("2025-03-01T00:00:00Z");
+    private static final List<String> NODES = List.of("node-a", "node-b", "node-c");
+
+    private HashRing ring;
+    private LedgerService router;
+    private LedgerService single;
+
+    @BeforeEach
+    void setUp() {
+        ring = HashRing.of(NODES, 128);
+        Map<String, LedgerService> partitions = new HashMap<>();
+        for (String node : NODES) partitions.put(node, new LedgerServiceImpl(new InMemoryLedgerStorage()));
+        router = new PartitionedLedgerService(ring, partitions);
+        single = new LedgerServiceImpl(new InMemoryLedgerStorage());
+    }
+
+    private static String key(Transaction t) {
+        return t.getAccountId() + "@" + t.getTimestamp().toInstant() + "@" + t.getType() + "@" + t.getAmount();
+    }
+
+    private void seed() {
+        for (int i = 0; i < 300; i++) {
+            String account = "ACC-" + (i % 17);
+            TransactionType type = i % 3 == 0 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT;
+            for (LedgerService service : List.of(router, single)) {
+                service.recordTransaction(account, AccountType.CREDIT_CARD, type, BigDecimal.valueOf(i),
+                        BASE.plusSeconds(i % 23), "ref-" + i, i % 2 == 0 ? "ATM-" + (i % 5) : "POS", "USD");
+            }
+        }
+    }
+
+    @Test
+    void ringSpreadsAccountsEvenlyAndAJoiningNodeTakesOnlyItsShare() {
+        Map<String, Integer> owned = new HashMap<>();
+        Map<String, String> before = new HashMap<>();
+        for (int i = 0; i < 30_000; i++) {
+            String owner = ring.ownerOf("ACC-" + i);
+            owned.merge(owner, 1, Integer::sum);
+            before.put("ACC-" + i, owner);
+        }
+        for (String node : NODES) {
+            int share = owned.getOrDefault(node, 0);
+            assertTrue(share > 7_500 && share < 12_500, node + " owns " + share);
+        }
+
+        HashRing grown = ring.withNode("node-d");
+        int moved = 0;
+        for (Map.Entry<String, String> account : before.entrySet()) {
+            String owner = grown.ownerOf(account.getKey());
+            if (!owner.equals(account.getValue())) {
+                assertEquals("node-d", owner, "accounts only move to the new node");
+                moved++;
+            }
+        }
+        assertTrue(moved > 5_000 && moved < 10_000, "moved " + moved);
+
+        // Removing the node again restores the original assignment
+        HashRing shrunk = grown.withoutNode("node-d");
+        before.forEach((account, owner) -> assertEquals(owner, shrunk.ownerOf(account)));
+    }
+
+    @Test
+    void routedReadsMatchASingleNodeAcrossPartitions() {
+        seed();
+
+        List<String> expected = single.getLedgerRows().stream().map(PartitionedLedgerServiceTest::key).toList();
+        List<Transaction> rows = router.getLedgerRows();
+        assertEquals(expected, rows.stream().map(PartitionedLedgerServiceTest::key).toList());
+
+        List<String> paged = new ArrayList<>();
+        LedgerPage page = router.getLedgerPage(null, 7);
+        while (true) {
+            assertTrue(page.getItems().size() <= 7);
+            page.getItems().forEach(t -> paged.add(key(t)));
+            if (page.getNextCursor() == null) break;
+            page = router.getLedgerPage(page.getNextCursor(), 7);
+        }
+        assertEquals(expected, paged);
+
+        List<String> streamed;
+        try (var stream = router.streamLedger(null)) {
+            streamed = stream.map(PartitionedLedgerServiceTest::key).toList();
+        }
+        assertEquals(expected, streamed);
+
+        List<String> accounts = IntStream.range(0, 17).mapToObj(i -> "ACC-" + (16 - i)).toList();
+        Map<String, BigDecimal> balances = router.getBalances(accounts);
+        assertEquals(accounts, new ArrayList<>(balances.keySet()));
+        for (String account : accounts) {
+            assertEquals(0, single.getCurrentBalance(account).compareTo(balances.get(account)), account);
+            assertEquals(0, single.getBalanceAt(account, BASE.plusSeconds(11))
+                    .compareTo(router.getBalanceAt(account, BASE.plusSeconds(11))), account);
+        }
+    }
+
+    @Test
+    void searchesWithoutAnAccountAreMergedByTimestampAcrossPartitions() {
+        seed();
+
+        List<String> expected = single.searchTransactions(null, "ATM-", TransactionType.DEPOSIT, null, null,
+                        BASE.plusSeconds(3), BASE.plusSeconds(20), null, 10_000).getItems().stream()
+                .map(PartitionedLedgerServiceTest::key).sorted().toList();
+
+        List<Transaction> paged = new ArrayList<>();
+        LedgerPage page = router.searchTransactions(null, "ATM-", TransactionType.DEPOSIT, null, null,
+                BASE.plusSeconds(3), BASE.plusSeconds(20), null, 8);
+        while (true) {
+            paged.addAll(page.getItems());
+            if (page.getNextCursor() == null) break;
+            page = router.searchTransactions(null, "ATM-", TransactionType.DEPOSIT, null, null,
+                    BASE.plusSeconds(3), BASE.plusSeconds(20), page.getNextCursor(), 8);
+        }
+        assertEquals(expected, paged.stream().map(PartitionedLedgerServiceTest::key).sorted().toList());
+        for (int i = 1; i < paged.size(); i++) {
+            assertFalse(paged.get(i).getTimestamp().isBefore(paged.get(i - 1).getTimestamp()), "timestamp order");
+        }
+    }
+
+    @Test
+    void batchesAreSplitByOwnerAndTransfersStayWithinOnePartition() {
+        List<BatchTransactionItem> items = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            BatchTransactionItem item = new BatchTransactionItem();
+            // row 39 replays row 0 on the same account
+            item.setAccountId(i == 5 ? " " : i == 39 ? "B-0" : "B-" + (i % 9));
+            item.setAccountType(AccountType.SAVINGS);
+            item.setType(i == 7 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT);
+            item.setAmount(i == 7 ? new BigDecimal("1000000") : BigDecimal.TEN);
+            item.setCurrency("EUR");
+            item.setReferenceId(i == 39 ? "ref-0" : "ref-" + i);
+            items.add(item);
+        }
+        List<BatchItemResult> results = router.recordTransactions(items);
+        assertEquals(40, results.size());
+        for (int i = 0; i < 40; i++) {
+            BatchItemResult result = results.get(i);
+            assertEquals(i, result.getIndex());
+            BatchItemResult.Status expected = i == 5 || i == 7 ? BatchItemResult.Status.REJECTED
+                    : i == 39 ? BatchItemResult.Status.DUPLICATE : BatchItemResult.Status.COMMITTED;
+            assertEquals(expected, result.getStatus(), "row " + i);
+            if (result.getTransaction() != null) assertEquals(items.get(i).getAccountId(), result.getTransaction().getAccountId());
+        }
+        assertEquals("accountId required", results.get(5).getError());
+
+        // Find one pair of accounts on the same node and one pair on different nodes
+        Map<String, String> firstByOwner = new LinkedHashMap<>();
+        String sameFrom = null, sameTo = null;
+        for (int i = 0; sameTo == null; i++) {
+            String account = "T-" + i;
+            String previous = firstByOwner.putIfAbsent(ring.ownerOf(account), account);
+            if (previous != null) {
+                sameFrom = previous;
+                sameTo = account;
+            }
+        }
+        List<String> apart = new ArrayList<>(firstByOwner.values());
+        router.recordTransaction(sameFrom, AccountType.SAVINGS, TransactionType.DEPOSIT, new BigDecimal("50"),
+                null, null, null, "EUR");
+
+        TransferResult transfer = router.transfer(sameFrom, AccountType.SAVINGS, sameTo, AccountType.SAVINGS,
+                new BigDecimal("20"), null, "tr-1", null, "EUR");
+        assertEquals(sameFrom, transfer.getDebit().getAccountId());
+        assertEquals(0, new BigDecimal("30").compareTo(router.getCurrentBalance(sameFrom)));
+        assertEquals(0, new BigDecimal("20").compareTo(router.getCurrentBalance(sameTo)));
+
+        if (apart.size() > 1) {
+            String from = apart.get(0), to = apart.get(1);
+            assertThrows(IllegalArgumentException.class, () -> router.transfer(from, AccountType.CREDIT_CARD, to,
+                    AccountType.CREDIT_CARD, BigDecimal.ONE, null, null, null, "EUR"));
+        }
+        // B-1 holds rows 1, 10, 19, 28 and 37
+        assertEquals(5, router.getTransactionHistory("B-1").size());
+    }
+
+    @Test
+    void nodesRefuseAccountsTheirRingDoesNotAssignThemWhileTheRingChanges() {
+        // Data laid out over two nodes; node-d joins with their ring, under which it holds nothing
+        HashRing before = HashRing.of(List.of("node-a", "node-b"), 128);
+        HashRing after = before.withNode("node-d");
+        Map<String, InMemoryLedgerStorage> storages = new LinkedHashMap<>();
+        Map<String, LedgerService> nodes = new HashMap<>();
+        for (String node : after.nodes()) {
+            storages.put(node, new InMemoryLedgerStorage());
+            nodes.put(node, node(storages.get(node), AccountOwnership.of(before, node)));
+        }
+        LedgerService oldRouter = new PartitionedLedgerService(before, nodes);
+        List<String> moved = new ArrayList<>();
+        String stayed = null;
+        for (int i = 0; i < 40; i++) {
+            String account = "M-" + i;
+            oldRouter.recordTransaction(account, AccountType.SAVINGS, TransactionType.DEPOSIT, BigDecimal.TEN,
+                    null, "ref-" + i, null, "USD");
+            if (!after.ownerOf(account).equals(before.ownerOf(account))) moved.add(account);
+            else if (stayed == null) stayed = account;
+        }
+        assertFalse(moved.isEmpty());
+        String away = moved.get(0);
+
+        // The router moves to the grown ring; the accounts node-d gained are refused, not served empty
+        LedgerService router = new PartitionedLedgerService(after, nodes);
+        assertThrows(AccountNotHeldException.class, () -> router.getCurrentBalance(away));
+        assertThrows(AccountNotHeldException.class, () -> router.recordTransaction(away, AccountType.SAVINGS,
+                TransactionType.WITHDRAWAL, BigDecimal.ONE, null, "ref-retry", null, "USD"));
+        assertThrows(AccountNotHeldException.class, () -> router.getTransactionHistory(away));
+        assertEquals(0, BigDecimal.TEN.compareTo(router.getCurrentBalance(stayed)));
+
+        List<BatchItemResult> results = router.recordTransactions(List.of(
+                batchItem(away, "ref-batch-1"), batchItem(stayed, "ref-batch-2")));
+        assertEquals(BatchItemResult.Status.REJECTED, results.get(0).getStatus());
+        assertEquals(BatchItemResult.Status.COMMITTED, results.get(1).getStatus());
+        assertEquals(41, router.getLedgerRows().size());
+
+        // Moving the history and restarting every node with the grown ring completes the change:
+        // the old owners no longer serve or list the moved accounts, and node-d serves them
+        for (String account : moved) {
+            String from = before.ownerOf(account);
+            for (Transaction tx : storages.get(from).getTransactionsForAccount(account)) {
+                storages.get("node-d").setCurrency(account, tx.getCurrency());
+                storages.get("node-d").appendTransaction(account, tx);
+            }
+        }
+        for (String node : after.nodes()) nodes.put(node, node(storages.get(node), AccountOwnership.of(after, node)));
+        LedgerService completed = new PartitionedLedgerService(after, nodes);
+        assertEquals(41, completed.getLedgerRows().size());
+        assertEquals(0, BigDecimal.TEN.compareTo(completed.getCurrentBalance(away)));
+        assertEquals(1, completed.getLedgerPage(null, 100).getItems().stream()
+                .filter(t -> t.getAccountId().equals(away)).count());
+        // A retry of the moved account's original request is still recognized
+        Transaction original = completed.getTransactionHistory(away).get(0);
+        assertEquals(original.getId(), completed.recordTransaction(away, AccountType.SAVINGS, TransactionType.DEPOSIT,
+                BigDecimal.TEN, null, original.getReferenceId(), null, "USD").getId());
+        assertThrows(AccountNotHeldException.class, () -> nodes.get(before.ownerOf(away)).getCurrentBalance(away));
+    }
+
+    private static LedgerService node(InMemoryLedgerStorage storage, AccountOwnership ownership) {
+        return new LedgerServiceImpl(storage, new CompositeMeterRegistry(), true, new ChangeFeed(), new HotAccounts(),
+                ownership);
+    }
+
+    private static BatchTransactionItem batchItem(String accountId, String referenceId) {
+        BatchTransactionItem item = new BatchTransactionItem();
+        item.setAccountId(accountId);
+        item.setAccountType(AccountType.SAVINGS);
+        item.setType(TransactionType.DEPOSIT);
+        item.setAmount(BigDecimal.ONE);
+        item.setCurrency("USD");
+        item.setReferenceId(referenceId);
+        return item;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.ledger.service;
+
+import com.example.ledger.dto.ReconciliationReport;
+import com.example.ledger.dto.ReconciliationReport.TrialBalanceLine;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.storage.InMemoryLedgerStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for end-of-day reconciliation: trial balance totals per currency and
+ * account type across chunked histories, detection of corrupted balances, and
+ * stopping at the time budget.
+ */
+class ReconciliationServiceTest {
+
+    private static final OffsetDateTime BASE = OffsetDateTime.parse("2025-06-01T00:00:00Z");
+
+    /** Memory storage whose stored balance of one account is off by one */
+    private static final class CorruptedStorage extends InMemoryLedgerStorage {
+        private final String corrupted;
+
+        CorruptedStorage(String corrupted) {
+            this.corrupted = corrupted;
+        }
+
+        @Override
+        public BigDecimal getBalance(String accountId) {
+            BigDecimal balance = super.getBalance(accountId);
+            return accountId.equals(corrupted) ? balance.add(BigDecimal.ONE) : balance;
+        }
+    }
+
+    private static void seed(LedgerService service) {
+        // 200 accounts; the first one holds more rows than one read chunk
+        for (int i = 0; i < ReconciliationService.CHUNK_ROWS + 50; i++) {
+            service.recordTransaction("C-0", AccountType.CREDIT_CARD, i % 4 == 0 ? TransactionType.WITHDRAWAL
+                    : TransactionType.DEPOSIT, new BigDecimal("2.50"), BASE.plusSeconds(i % 100), null, null, "USD");
+        }
+        for (int a = 1; a < 200; a++) {
+            boolean savings = a % 2 == 0;
+            String currency = a % 3 == 0 ? "EUR" : "USD";
+            for (int i = 0; i < 10; i++) {
+                service.recordTransaction("C-" + a, savings ? AccountType.SAVINGS : AccountType.CREDIT_CARD,
+                        i == 9 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT, BigDecimal.TEN,
+                        BASE.plusMinutes(i), null, null, currency);
+            }
+        }
+    }
+
+    @Test
+    void trialBalanceTotalsEveryAccountPerCurrencyAndType() {
+        InMemoryLedgerStorage storage = new InMemoryLedgerStorage();
+        seed(new LedgerServiceImpl(storage));
+
+        ReconciliationReport report = new ReconciliationService(storage, Duration.ofMinutes(1), 4,
+                new SimpleMeterRegistry()).reconcile();
+
+        assertTrue(report.isComplete());
+        assertEquals(200, report.getAccountsChecked());
+        assertEquals(0, report.getAccountsSkipped());
+        assertEquals(ReconciliationService.CHUNK_ROWS + 50 + 199 * 10, report.getTransactionsChecked());
+        assertEquals(0, report.getMismatchCount());
+
+        // Accounts 1..199: even are SAVINGS, multiples of 3 are EUR
+        List<TrialBalanceLine> lines = report.getTrialBalance();
+        assertEquals(List.of("EUR/SAVINGS", "EUR/CREDIT_CARD", "USD/SAVINGS", "USD/CREDIT_CARD"),
+                lines.stream().map(l -> l.getCurrency() + "/" + l.getAccountType()).toList());
+        TrialBalanceLine usdCards = lines.stream()
+                .filter(l -> l.getCurrency().equals("USD") && l.getAccountType() == AccountType.CREDIT_CARD)
+                .findFirst().orElseThrow();
+        // C-0 plus odd accounts that are not multiples of 3 (67 of 1..199)
+        assertEquals(68, usdCards.getAccounts());
+        int c0Withdrawals = (ReconciliationService.CHUNK_ROWS + 50 + 3) / 4;
+        int c0Deposits = ReconciliationService.CHUNK_ROWS + 50 - c0Withdrawals;
+        assertEquals(0, new BigDecimal("2.50").multiply(BigDecimal.valueOf(c0Deposits))
+                .add(BigDecimal.valueOf(67 * 90)).compareTo(usdCards.getDeposits()));
+        assertEquals(0, new BigDecimal("2.50").multiply(BigDecimal.valueOf(c0Withdrawals))
+                .add(BigDecimal.valueOf(67 * 10)).compareTo(usdCards.getWithdrawals()));
+    }
+
+    @Test
+    void reportsAccountsWhoseStoredBalanceDiffersFromTheirHistory() {
+        CorruptedStorage storage = new CorruptedStorage("C-42");
+        seed(new LedgerServiceImpl(storage));
+
+        ReconciliationReport report = new ReconciliationService(storage, Duration.ofMinutes(1)).reconcile();
+
+        assertEquals(1, report.getMismatchCount());
+        ReconciliationReport.Mismatch mismatch = report.getMismatches().get(0);
+        assertEquals("C-42", mismatch.getAccountId());
+        assertEquals(0, new BigDecimal("81").compareTo(mismatch.getStoredBalance()));
+        assertEquals(0, new BigDecimal("80").compareTo(mismatch.getComputedBalance()));
+    }
+
+    @Test
+    void stopsTakingAccountsOnceTheTimeBudgetIsSpent() {
+        InMemoryLedgerStorage storage = new InMemoryLedgerStorage();
+        seed(new LedgerServiceImpl(storage));
+
+        ReconciliationReport report = new ReconciliationService(storage, Duration.ZERO).reconcile();
+
+        assertFalse(report.isComplete());
+        assertEquals(200, report.getAccountsChecked() + report.getAccountsSkipped());
+        assertTrue(report.getAccountsSkipped() > 0);
+    }
+}
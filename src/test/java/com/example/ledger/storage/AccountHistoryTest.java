@@ -0,0 +1,69 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the time-indexed per-account history, including backdated inserts
+ * that land before existing checkpoints.
+ */
+class AccountHistoryTest {
+
+    private static final OffsetDateTime BASE = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+
+    @Test
+    void keepsEntriesInTimestampOrder() {
+        AccountHistory history = new AccountHistory(4);
+        history.add(tx("t3", TransactionType.DEPOSIT, "10", BASE.plusMinutes(3)));
+        history.add(tx("t1", TransactionType.DEPOSIT, "10", BASE.plusMinutes(1)));
+        history.add(tx("t2", TransactionType.DEPOSIT, "10", BASE.plusMinutes(2)));
+        history.add(tx("t2b", TransactionType.DEPOSIT, "10", BASE.plusMinutes(2)));
+
+        List<String> ids = history.toList().stream().map(Transaction::getId).toList();
+        assertEquals(List.of("t1", "t2", "t2b", "t3"), ids);
+    }
+
+    @Test
+    void balanceAtMatchesFullScanWithBackdatedInserts() {
+        AccountHistory history = new AccountHistory(8);
+        List<Transaction> all = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 500; i++) {
+            // roughly one in five transactions is backdated into the existing range
+            int minute = random.nextInt(5) == 0 ? random.nextInt(i + 1) : i;
+            TransactionType type = random.nextBoolean() ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL;
+            Transaction t = tx("t" + i, type, String.valueOf(1 + random.nextInt(100)), BASE.plusMinutes(minute));
+            history.add(t);
+            all.add(t);
+        }
+
+        for (int minute = -1; minute <= 501; minute += 7) {
+            OffsetDateTime at = BASE.plusMinutes(minute);
+            BigDecimal expected = all.stream()
+                    .filter(t -> !t.getTimestamp().isAfter(at))
+                    .map(Transaction::signedAmount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            assertEquals(0, expected.compareTo(history.balanceAt(at)), "balanceAt " + at);
+        }
+
+        BigDecimal total = all.stream().map(Transaction::signedAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, total.compareTo(history.balance()));
+        assertEquals(500, history.size());
+    }
+
+    private static Transaction tx(String id, TransactionType type, String amount, OffsetDateTime ts) {
+        return new Transaction(id, "ACC", AccountType.CREDIT_CARD, type, new BigDecimal(amount),
+                "USD", ts, null, null);
+    }
+}
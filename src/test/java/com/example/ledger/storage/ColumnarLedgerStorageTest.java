@@ -0,0 +1,150 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.exception.InsufficientBalanceException;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.service.LedgerService;
+import com.example.ledger.service.LedgerServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the primitive-column storage: rows read back as the transactions
+ * that were written, balances match a full scan with backdated inserts, writes
+ * return the microsecond timestamps reads see, and values the columns cannot
+ * hold are rejected.
+ */
+class ColumnarLedgerStorageTest {
+
+    private static final OffsetDateTime BASE = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+
+    @Test
+    void rowsReadBackAsWritten() {
+        ColumnarLedgerStorage storage = new ColumnarLedgerStorage();
+        String uuid = UUID.randomUUID().toString();
+        Transaction first = new Transaction(uuid, "C1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("100.50"), "EUR", OffsetDateTime.parse("2025-03-01T10:15:30.123456+05:30"),
+                "ref-1", "ATM-DEP-001");
+        Transaction second = new Transaction("legacy-id-7", "C1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                new BigDecimal("0.25"), "EUR", OffsetDateTime.parse("2025-03-01T11:00:00Z"), null, null);
+        storage.appendTransaction("C1", first);
+        storage.appendTransaction("C1", second);
+
+        List<Transaction> history = storage.getTransactionsForAccount("C1");
+        assertEquals(2, history.size());
+        Transaction read = history.get(0);
+        assertEquals(uuid, read.getId());
+        assertEquals("C1", read.getAccountId());
+        assertEquals(AccountType.SAVINGS, read.getAccountType());
+        assertEquals(TransactionType.DEPOSIT, read.getType());
+        assertEquals(new BigDecimal("100.50"), read.getAmount());
+        assertEquals("EUR", read.getCurrency());
+        assertEquals(first.getTimestamp(), read.getTimestamp());
+        assertEquals("ref-1", read.getReferenceId());
+        assertEquals("ATM-DEP-001", read.getTransactionCode());
+        assertEquals("legacy-id-7", history.get(1).getId());
+        assertNull(history.get(1).getTransactionCode());
+
+        assertEquals(0, new BigDecimal("100.25").compareTo(storage.getBalance("C1")));
+        assertEquals(uuid, storage.findByReference("C1", "ref-1").orElseThrow().getId());
+        assertTrue(storage.findByReference("C1", "ref-2").isEmpty());
+    }
+
+    @Test
+    void balanceAtAndPagingMatchFullScanWithBackdatedInserts() {
+        ColumnarLedgerStorage storage = new ColumnarLedgerStorage();
+        List<Transaction> all = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            int minute = random.nextInt(5) == 0 ? random.nextInt(i + 1) : i;
+            TransactionType type = random.nextBoolean() ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL;
+            Transaction t = new Transaction("t" + i, "B1", AccountType.CREDIT_CARD, type,
+                    BigDecimal.valueOf(1 + random.nextInt(10_000), 2), "USD", BASE.plusMinutes(minute),
+                    i % 3 == 0 ? "ref-" + i : null, "CODE-" + (i % 4));
+            storage.appendTransaction("B1", t);
+            all.add(t);
+        }
+
+        for (int minute = -1; minute <= 1001; minute += 13) {
+            OffsetDateTime at = BASE.plusMinutes(minute);
+            BigDecimal expected = all.stream()
+                    .filter(t -> !t.getTimestamp().isAfter(at))
+                    .map(Transaction::signedAmount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            assertEquals(0, expected.compareTo(storage.getBalanceAt("B1", at)), "balanceAt " + at);
+        }
+
+        // Walking the history in pages visits every row once, in timestamp order
+        List<Transaction> paged = new ArrayList<>();
+        Instant afterTime = null;
+        long afterSequence = -1;
+        List<HistoryEntry> page;
+        while (!(page = storage.getTransactionsAfter("B1", afterTime, afterSequence, 64)).isEmpty()) {
+            for (HistoryEntry entry : page) paged.add(entry.transaction());
+            HistoryEntry last = page.get(page.size() - 1);
+            afterTime = last.transaction().getTimestamp().toInstant();
+            afterSequence = last.sequence();
+        }
+        assertEquals(storage.getTransactionsForAccount("B1").stream().map(Transaction::getId).toList(),
+                paged.stream().map(Transaction::getId).toList());
+        assertEquals(1000, paged.size());
+
+        // References still resolve after backdated inserts moved their rows
+        for (int i = 0; i < 1000; i += 3) {
+            assertEquals("t" + i, storage.findByReference("B1", "ref-" + i).orElseThrow().getId());
+        }
+    }
+
+    @Test
+    void serviceRulesHoldOnColumnarStorage() {
+        LedgerService service = new LedgerServiceImpl(new ColumnarLedgerStorage());
+        Transaction original = service.recordTransaction("S1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("20.00"), null, "ref-s", null, "usd");
+        Transaction replay = service.recordTransaction("S1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("20.00"), null, "ref-s", null, "USD");
+        assertEquals(original.getId(), replay.getId());
+        assertEquals(0, new BigDecimal("20.00").compareTo(service.getCurrentBalance("S1")));
+        assertThrows(InsufficientBalanceException.class, () ->
+                service.recordTransaction("S1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                        new BigDecimal("20.01"), null, null, null, "USD"));
+    }
+
+    @Test
+    void writesReturnTheTimestampLaterReadsSee() {
+        LedgerService service = new LedgerServiceImpl(new ColumnarLedgerStorage());
+        Transaction supplied = service.recordTransaction("N1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("1.00"), OffsetDateTime.parse("2025-03-01T10:15:30.123456789Z"), null, null, "USD");
+        Transaction stamped = service.recordTransaction("N1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                new BigDecimal("1.00"), null, null, null, "USD");
+
+        assertEquals(OffsetDateTime.parse("2025-03-01T10:15:30.123456Z"), supplied.getTimestamp());
+        List<Transaction> history = service.getTransactionHistory("N1");
+        assertEquals(supplied.getTimestamp(), history.get(0).getTimestamp());
+        assertEquals(stamped.getTimestamp(), history.get(1).getTimestamp());
+    }
+
+    @Test
+    void amountsThatDoNotFitALongAreRejected() {
+        ColumnarLedgerStorage storage = new ColumnarLedgerStorage();
+        Transaction huge = new Transaction("h1", "H1", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                new BigDecimal("123456789012345678901234.5"), "USD", BASE, null, null);
+        assertThrows(IllegalArgumentException.class, () -> storage.appendTransaction("H1", huge));
+        assertFalse(storage.accountExists("H1"));
+
+        // A batch group with one bad row stores nothing
+        Transaction ok = new Transaction("ok", "H1", AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                new BigDecimal("1.00"), "USD", BASE, null, null);
+        assertThrows(IllegalArgumentException.class, () -> storage.appendTransactions("H1", List.of(ok, huge)));
+        assertTrue(storage.getTransactionsForAccount("H1").isEmpty());
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.service.LedgerService;
+import com.example.ledger.service.LedgerServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the write-ahead-logged storage: recovery after restart, torn tail
+ * handling (including a transfer torn between its legs and a group that fails
+ * partway), segment rolling, concurrent group-committed writers,
+ * snapshot-plus-tail recovery, falling back from a corrupt snapshot, when
+ * background snapshots are due and the retention of recovered idempotency
+ * references.
+ */
+class DurableLedgerStorageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void stateIsRebuiltFromLogAfterRestart() {
+        Transaction original;
+        try (DurableLedgerStorage storage = open(1 << 20)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            original = service.recordTransaction("A1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("100.00"), OffsetDateTime.parse("2025-10-01T10:00:00+02:00"), "ref-1", "ATM-DEP-001", "usd");
+            service.recordTransaction("A1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                    new BigDecimal("40.25"), null, null, null, "USD");
+            service.recordTransaction("CC1", AccountType.CREDIT_CARD, TransactionType.WITHDRAWAL,
+                    new BigDecimal("9.99"), null, null, null, "INR");
+        }
+
+        try (DurableLedgerStorage storage = open(1 << 20)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            assertEquals(0, new BigDecimal("59.75").compareTo(service.getCurrentBalance("A1")));
+            assertEquals(0, new BigDecimal("-9.99").compareTo(service.getCurrentBalance("CC1")));
+            assertEquals("USD", storage.getCurrency("A1"));
+
+            Transaction restored = service.getTransactionHistory("A1").get(0);
+            assertEquals(original.getId(), restored.getId());
+            assertEquals(original.getTimestamp(), restored.getTimestamp());
+            assertEquals("ATM-DEP-001", restored.getTransactionCode());
+
+            Transaction replay = service.recordTransaction("A1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("100.00"), null, "ref-1", "ATM-DEP-001", "USD");
+            assertEquals(original.getId(), replay.getId());
+        }
+    }
+
+    @Test
+    void tornRecordAtTailIsDiscarded() throws IOException {
+        try (DurableLedgerStorage storage = open(1 << 20)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            for (int i = 0; i < 3; i++) {
+                service.recordTransaction("T1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                        new BigDecimal("1.00"), null, null, null, "USD");
+            }
+        }
+
+        // Simulate a crash part-way through writing a fourth record
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        try (DurableLedgerStorage storage = open(1 << 20)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            assertEquals(2, service.getTransactionHistory("T1").size());
+            service.recordTransaction("T1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("1.00"), null, null, null, "USD");
+        }
+
+        try (DurableLedgerStorage storage = open(1 << 20)) {
+            assertEquals(3, storage.getTransactionsForAccount("T1").size());
+        }
+    }
+
+    @Test
+    void transferTornBetweenItsLegsIsDroppedWhole() throws IOException {
+        try (DurableLedgerStorage storage = open(1 << 20)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            service.recordTransaction("P1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("50.00"), null, null, null, "USD");
+            service.transfer("P1", AccountType.SAVINGS, "P2", AccountType.SAVINGS,
+                    new BigDecimal("20.00"), null, "tr-1", null, "USD");
+        }
+
+        // Simulate a crash after the debit leg reached disk but before the whole credit leg did
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        try (DurableLedgerStorage storage = open(1 << 20)) {
+            assertEquals(0, new BigDecimal("50.00").compareTo(storage.getBalance("P1")));
+            assertEquals(0, BigDecimal.ZERO.compareTo(storage.getBalance("P2")));
+            assertTrue(storage.findByReference("P1", "tr-1").isEmpty());
+
+            // The retry commits both legs and survives the next restart
+            new LedgerServiceImpl(storage).transfer("P1", AccountType.SAVINGS, "P2", AccountType.SAVINGS,
+                    new BigDecimal("20.00"), null, "tr-1", null, "USD");
+        }
+
+        try (DurableLedgerStorage storage = open(1 << 20)) {
+            assertEquals(0, new BigDecimal("30.00").compareTo(storage.getBalance("P1")));
+            assertEquals(0, new BigDecimal("20.00").compareTo(storage.getBalance("P2")));
+        }
+    }
+
+    @Test
+    void groupThatFailsPartwayIsNotRecovered() {
+        try (DurableLedgerStorage storage = open(1 << 20)) {
+            // The second row's amount cannot be encoded, so the group fails after its first row
+            List<Transaction> group = List.of(
+                    row("g-1", new BigDecimal("1.00")),
+                    row("g-2", new BigDecimal("9".repeat(700))),
+                    row("g-3", new BigDecimal("3.00")));
+            assertThrows(IllegalArgumentException.class, () -> storage.appendTransactions("G1", group));
+            assertTrue(storage.getTransactionsForAccount("G1").isEmpty());
+
+            storage.appendTransactions("G1", List.of(row("g-4", new BigDecimal("4.00"))));
+        }
+
+        try (DurableLedgerStorage storage = open(1 << 20)) {
+            assertEquals(List.of("g-4"), storage.getTransactionsForAccount("G1").stream().map(Transaction::getId).toList());
+        }
+    }
+
+    @Test
+    void concurrentWritersAcrossRolledSegmentsAreAllRecovered() throws Exception {
+        int threads = 8;
+        int perThread = 200;
+        try (DurableLedgerStorage storage = open(4096)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            ExecutorService exec = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String account = "G" + t;
+                futures.add(exec.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        service.recordTransaction(account, AccountType.SAVINGS, TransactionType.DEPOSIT,
+                                new BigDecimal("1.00"), null, null, null, "USD");
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+            exec.shutdown();
+            assertTrue(exec.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        assertTrue(segments().size() > 1, "expected the log to roll into several segments");
+        try (DurableLedgerStorage storage = open(4096)) {
+            assertEquals(threads * perThread, storage.getAllTransactions().size());
+            for (int t = 0; t < threads; t++) {
+                assertEquals(0, BigDecimal.valueOf(perThread).compareTo(storage.getBalance("G" + t)));
+            }
+        }
+    }
+
+    @Test
+    void recoversFromSnapshotPlusLogTail() {
+        Transaction beforeSnapshot;
+        try (DurableLedgerStorage storage = openWithSnapshots(4096)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            beforeSnapshot = service.recordTransaction("S1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("50.00"), null, "ref-snap", null, "EUR");
+            for (int i = 0; i < 100; i++) {
+                service.recordTransaction("S2", AccountType.CREDIT_CARD, TransactionType.WITHDRAWAL,
+                        new BigDecimal("1.00"), null, null, null, "USD");
+            }
+            storage.snapshot();
+            service.recordTransaction("S1", AccountType.SAVINGS, TransactionType.WITHDRAWAL,
+                    new BigDecimal("20.00"), null, null, null, "EUR");
+            service.recordTransaction("S3", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("7.00"), null, null, null, "GBP");
+        }
+
+        try (DurableLedgerStorage storage = openWithSnapshots(4096)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            assertEquals(0, new BigDecimal("30.00").compareTo(service.getCurrentBalance("S1")));
+            assertEquals(0, new BigDecimal("-100.00").compareTo(service.getCurrentBalance("S2")));
+            assertEquals(0, new BigDecimal("7.00").compareTo(service.getCurrentBalance("S3")));
+            assertEquals(2, service.getTransactionHistory("S1").size());
+            assertEquals("EUR", storage.getCurrency("S1"));
+
+            Transaction replay = service.recordTransaction("S1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("50.00"), null, "ref-snap", null, "EUR");
+            assertEquals(beforeSnapshot.getId(), replay.getId());
+        }
+    }
+
+    @Test
+    void oldLogSegmentsAreDroppedOnceTwoSnapshotsExist() throws IOException {
+        try (DurableLedgerStorage storage = openWithSnapshots(1024)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < 50; i++) {
+                    service.recordTransaction("D" + (i % 5), AccountType.SAVINGS, TransactionType.DEPOSIT,
+                            new BigDecimal("1.00"), null, null, null, "USD");
+                }
+                storage.snapshot();
+            }
+        }
+        int segmentsAfter = segments().size();
+        assertTrue(segmentsAfter < 10, "expected old segments to be deleted, found " + segmentsAfter);
+
+        try (DurableLedgerStorage storage = openWithSnapshots(1024)) {
+            for (int i = 0; i < 5; i++) {
+                assertEquals(0, new BigDecimal("30.00").compareTo(storage.getBalance("D" + i)));
+            }
+        }
+    }
+
+    @Test
+    void incompleteSnapshotFallsBackToFullReplay() throws IOException {
+        try (DurableLedgerStorage storage = openWithSnapshots(1 << 20)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            service.recordTransaction("F1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("10.00"), null, null, null, "USD");
+            storage.snapshot();
+        }
+        Path snapshot;
+        try (Stream<Path> files = Files.list(dir.resolve("snapshots"))) {
+            snapshot = files.filter(p -> p.toString().endsWith(SnapshotStore.SNAPSHOT_SUFFIX)).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 4);
+        }
+
+        try (DurableLedgerStorage storage = openWithSnapshots(1 << 20)) {
+            assertEquals(0, new BigDecimal("10.00").compareTo(storage.getBalance("F1")));
+        }
+    }
+
+    @Test
+    void corruptNewestSnapshotFallsBackToThePreviousOne() throws IOException {
+        try (DurableLedgerStorage storage = openWithSnapshots(1024)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < 50; i++) {
+                    service.recordTransaction("C" + (i % 5), AccountType.SAVINGS, TransactionType.DEPOSIT,
+                            new BigDecimal("1.00"), null, "ref-" + round + "-" + i, null, "USD");
+                }
+                storage.snapshot();
+            }
+            service.recordTransaction("C0", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("1.00"), null, null, null, "USD");
+        }
+        // The start of the log is gone, so only the older snapshot can stand in for the newest
+        assertTrue(segmentStart(segments().get(0)) > 1);
+
+        // Flip a byte inside the newest snapshot's first block so its checksum fails
+        Path newest = snapshots().get(1);
+        try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, 30);
+            channel.write(b.put(0, (byte) ~b.get(0)).rewind(), 30);
+        }
+
+        try (DurableLedgerStorage storage = openWithSnapshots(1024)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            assertEquals(0, new BigDecimal("21.00").compareTo(storage.getBalance("C0")));
+            for (int i = 1; i < 5; i++) {
+                assertEquals(0, new BigDecimal("20.00").compareTo(storage.getBalance("C" + i)));
+            }
+            assertEquals(21, storage.getTransactionsForAccount("C0").size());
+            assertTrue(storage.findByReference("C1", "ref-1-1").isPresent());
+            // The bad file is set aside and no longer counts as a snapshot
+            assertEquals(List.of(snapshots().get(0)), store().snapshots());
+            assertTrue(Files.exists(newest.resolveSibling(newest.getFileName() + SnapshotStore.CORRUPT_SUFFIX)));
+
+            service.recordTransaction("C0", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("1.00"), null, null, null, "USD");
+            storage.snapshot();
+        }
+        try (DurableLedgerStorage storage = openWithSnapshots(1024)) {
+            assertEquals(0, new BigDecimal("22.00").compareTo(storage.getBalance("C0")));
+        }
+    }
+
+    @Test
+    void backgroundSnapshotsWaitForATailProportionalToTheLastSnapshot() {
+        SnapshotStore store = new SnapshotStore(dir.resolve("snapshots"));
+        try (DurableLedgerStorage storage = new DurableLedgerStorage(new InMemoryLedgerStorage(),
+                new WriteAheadLog(dir, 1 << 20), store, Duration.ZERO, 1.0, 10)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            // {records to write, log sequence of the newest snapshot afterwards}: the first waits
+            // for the minimum tail, each later one for as many records as the previous one held
+            int[][] steps = {{9, 0}, {1, 10}, {9, 10}, {1, 20}, {19, 20}, {1, 40}};
+            for (int[] step : steps) {
+                for (int i = 0; i < step[0]; i++) {
+                    service.recordTransaction("N1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                            BigDecimal.ONE, null, null, null, "USD");
+                }
+                storage.snapshotIfDue();
+                List<Path> written = store.snapshots();
+                assertEquals(step[1], written.isEmpty() ? 0 : SnapshotStore.replayFromOf(written.get(written.size() - 1)));
+            }
+        }
+    }
+
+    @Test
+    void recoveredReferencesKeepTheRetentionOfTheirOriginalCommit() throws InterruptedException {
+        Duration retention = Duration.ofMillis(500);
+        try (DurableLedgerStorage storage = new DurableLedgerStorage(new InMemoryLedgerStorage(100, retention),
+                new WriteAheadLog(dir, 1 << 20), new SnapshotStore(dir.resolve("snapshots")), Duration.ZERO)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            service.recordTransaction("R1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("5.00"), null, "ref-snapshot", null, "USD");
+            storage.snapshot();
+            service.recordTransaction("R1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("5.00"), null, "ref-log", null, "USD");
+        }
+
+        // Restarting within the window keeps both references; after it, neither comes back
+        try (DurableLedgerStorage storage = new DurableLedgerStorage(new InMemoryLedgerStorage(100, retention),
+                new WriteAheadLog(dir, 1 << 20), new SnapshotStore(dir.resolve("snapshots")), Duration.ZERO)) {
+            assertTrue(storage.findByReference("R1", "ref-snapshot").isPresent());
+            assertTrue(storage.findByReference("R1", "ref-log").isPresent());
+        }
+        Thread.sleep(retention.toMillis() + 100);
+        try (DurableLedgerStorage storage = new DurableLedgerStorage(new InMemoryLedgerStorage(100, retention),
+                new WriteAheadLog(dir, 1 << 20), new SnapshotStore(dir.resolve("snapshots")), Duration.ZERO)) {
+            assertTrue(storage.findByReference("R1", "ref-snapshot").isEmpty());
+            assertTrue(storage.findByReference("R1", "ref-log").isEmpty());
+            assertEquals(2, storage.getTransactionsForAccount("R1").size());
+        }
+    }
+
+    private DurableLedgerStorage openWithSnapshots(long segmentBytes) {
+        return new DurableLedgerStorage(new InMemoryLedgerStorage(), new WriteAheadLog(dir, segmentBytes),
+                new SnapshotStore(dir.resolve("snapshots")), Duration.ZERO);
+    }
+
+    private DurableLedgerStorage open(long segmentBytes) {
+        return new DurableLedgerStorage(new InMemoryLedgerStorage(), new WriteAheadLog(dir, segmentBytes));
+    }
+
+    private static Transaction row(String id, BigDecimal amount) {
+        return new Transaction(id, "G1", AccountType.SAVINGS, TransactionType.DEPOSIT, amount, "USD",
+                OffsetDateTime.parse("2025-03-01T00:00:00Z"), null, null);
+    }
+
+    private SnapshotStore store() {
+        return new SnapshotStore(dir.resolve("snapshots"));
+    }
+
+    private List<Path> snapshots() {
+        return store().snapshots();
+    }
+
+    private static long segmentStart(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - WriteAheadLog.SEGMENT_SUFFIX.length()));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(WriteAheadLog.SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.service.LedgerService;
+import com.example.ledger.service.LedgerServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the storage that keeps rows in memory-mapped segments: rows read
+ * back from mapped memory, balances across segment boundaries and backdated
+ * inserts, and history views that stay stable while the account keeps changing.
+ */
+class MappedLedgerStorageTest {
+
+    private static final OffsetDateTime BASE = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rowsReadBackFromMappedMemory() {
+        try (MappedLedgerStorage storage = new MappedLedgerStorage(dir, 1 << 20)) {
+            String uuid = UUID.randomUUID().toString();
+            Transaction tx = new Transaction(uuid, "M1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    new BigDecimal("42.10"), "GBP", OffsetDateTime.parse("2025-02-03T04:05:06.000007-03:00"),
+                    "ref-ü", "CODE-1");
+            storage.appendTransaction("M1", tx);
+            storage.appendTransaction("M1", new Transaction("plain-id", "M1", AccountType.SAVINGS,
+                    TransactionType.WITHDRAWAL, new BigDecimal("2.10"), "GBP", BASE.plusYears(1), null, null));
+
+            Transaction read = storage.getTransactionsForAccount("M1").get(0);
+            assertEquals(uuid, read.getId());
+            assertEquals(new BigDecimal("42.10"), read.getAmount());
+            assertEquals(tx.getTimestamp(), read.getTimestamp());
+            assertEquals("GBP", read.getCurrency());
+            assertEquals("ref-ü", read.getReferenceId());
+            assertEquals("CODE-1", read.getTransactionCode());
+            assertEquals("plain-id", storage.getTransactionsForAccount("M1").get(1).getId());
+            assertEquals(0, new BigDecimal("40.00").compareTo(storage.getBalance("M1")));
+            assertEquals(uuid, storage.findByReference("M1", "ref-ü").orElseThrow().getId());
+        }
+    }
+
+    @Test
+    void balancesMatchFullScanAcrossSegmentsWithBackdatedInserts() throws IOException {
+        try (MappedLedgerStorage storage = new MappedLedgerStorage(dir, 4096)) {
+            List<Transaction> all = new ArrayList<>();
+            Random random = new Random(11);
+            for (int i = 0; i < 2000; i++) {
+                int minute = random.nextInt(5) == 0 ? random.nextInt(i + 1) : i;
+                TransactionType type = random.nextBoolean() ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL;
+                Transaction t = new Transaction("t" + i, "B" + (i % 2), AccountType.CREDIT_CARD, type,
+                        BigDecimal.valueOf(1 + random.nextInt(10_000), 2), "USD", BASE.plusMinutes(minute),
+                        i % 5 == 0 ? "ref-" + i : null, null);
+                storage.appendTransaction(t.getAccountId(), t);
+                all.add(t);
+            }
+            assertTrue(segments().size() > 10, "expected rows to span several segments");
+
+            for (String account : List.of("B0", "B1")) {
+                for (int minute = -1; minute <= 2001; minute += 17) {
+                    OffsetDateTime at = BASE.plusMinutes(minute);
+                    BigDecimal expected = all.stream()
+                            .filter(t -> t.getAccountId().equals(account) && !t.getTimestamp().isAfter(at))
+                            .map(Transaction::signedAmount)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+                    assertEquals(0, expected.compareTo(storage.getBalanceAt(account, at)), account + " at " + at);
+                }
+            }
+
+            List<Transaction> history = storage.getTransactionsForAccount("B0");
+            assertEquals(1000, history.size());
+            for (int i = 1; i < history.size(); i++) {
+                assertFalse(history.get(i).getTimestamp().isBefore(history.get(i - 1).getTimestamp()));
+            }
+            assertEquals("t1995", storage.findByReference("B1", "ref-1995").orElseThrow().getId());
+        }
+        assertTrue(segments().isEmpty(), "segments are scratch space and removed on close");
+    }
+
+    @Test
+    void historyViewIsUnaffectedByLaterInserts() {
+        try (MappedLedgerStorage storage = new MappedLedgerStorage(dir, 1 << 20)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            for (int i = 1; i <= 3; i++) {
+                service.recordTransaction("V1", AccountType.SAVINGS, TransactionType.DEPOSIT, BigDecimal.ONE,
+                        BASE.plusHours(i), null, "D" + i, "USD");
+            }
+            List<Transaction> view = storage.getTransactionsForAccount("V1");
+
+            // A backdated insert and an in-order append after the view was taken
+            service.recordTransaction("V1", AccountType.SAVINGS, TransactionType.DEPOSIT, BigDecimal.ONE,
+                    BASE, null, "EARLY", "USD");
+            service.recordTransaction("V1", AccountType.SAVINGS, TransactionType.DEPOSIT, BigDecimal.ONE,
+                    BASE.plusHours(9), null, "LATE", "USD");
+
+            assertEquals(List.of("D1", "D2", "D3"), view.stream().map(Transaction::getTransactionCode).toList());
+            assertEquals(List.of("EARLY", "D1", "D2", "D3", "LATE"),
+                    storage.getTransactionsForAccount("V1").stream().map(Transaction::getTransactionCode).toList());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(MappedRowStore.SEGMENT_SUFFIX)).toList();
+        }
+    }
+}
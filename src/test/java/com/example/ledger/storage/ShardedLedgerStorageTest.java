@@ -0,0 +1,186 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.exception.InsufficientBalanceException;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.service.LedgerService;
+import com.example.ledger.service.LedgerServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the single-writer sharded storage: concurrent writers through a small
+ * ring keep every account consistent, transfers across shards conserve money,
+ * each account is always served by the same shard thread, calls racing close
+ * return or fail instead of hanging, and failures inside a shard command reach
+ * the caller unchanged.
+ */
+class ShardedLedgerStorageTest {
+
+    @Test
+    void concurrentWritesThroughSmallRingStayConsistent() throws Exception {
+        // A 4-slot ring shared by 16 writers wraps and fills constantly
+        try (ShardedLedgerStorage storage = new ShardedLedgerStorage(3, 4)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            AtomicInteger rejected = new AtomicInteger();
+            try (ExecutorService writers = Executors.newFixedThreadPool(16)) {
+                List<Future<?>> done = new ArrayList<>();
+                for (int w = 0; w < 16; w++) {
+                    int writer = w;
+                    done.add(writers.submit(() -> {
+                        for (int i = 0; i < 500; i++) {
+                            String account = "S" + (i % 8);
+                            TransactionType type = (i + writer) % 3 == 0 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT;
+                            try {
+                                service.recordTransaction(account, AccountType.SAVINGS, type, new BigDecimal("3.00"),
+                                        null, "ref-" + writer + "-" + i, null, "USD");
+                            } catch (InsufficientBalanceException e) {
+                                rejected.incrementAndGet();
+                            }
+                        }
+                    }));
+                }
+                for (Future<?> f : done) f.get();
+            }
+
+            int rows = 0;
+            for (int a = 0; a < 8; a++) {
+                List<Transaction> history = storage.getTransactionsForAccount("S" + a);
+                BigDecimal running = BigDecimal.ZERO;
+                for (Transaction t : history) running = running.add(t.signedAmount());
+                assertEquals(0, running.compareTo(storage.getBalance("S" + a)));
+                assertTrue(running.signum() >= 0, "savings account was overdrawn");
+                rows += history.size();
+            }
+            assertEquals(16 * 500, rows + rejected.get());
+            assertEquals(8, storage.getAccountIds().size());
+            assertEquals(rows, storage.getAllTransactions().size());
+        }
+    }
+
+    @Test
+    void crossShardTransfersConserveMoney() throws Exception {
+        try (ShardedLedgerStorage storage = new ShardedLedgerStorage(4, 8)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            for (int a = 0; a < 10; a++) {
+                service.recordTransaction("T" + a, AccountType.SAVINGS, TransactionType.DEPOSIT,
+                        new BigDecimal("50.00"), null, null, null, "USD");
+            }
+            try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+                List<Future<?>> done = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    int seed = t;
+                    done.add(pool.submit(() -> {
+                        for (int i = 0; i < 500; i++) {
+                            int from = (seed * 7 + i) % 10;
+                            int to = (from + 1 + (seed + i) % 9) % 10;
+                            try {
+                                service.transfer("T" + from, AccountType.SAVINGS, "T" + to, AccountType.SAVINGS,
+                                        new BigDecimal("3.00"), null, null, null, "USD");
+                            } catch (InsufficientBalanceException ignored) {
+                                // the source ran dry; keep going
+                            }
+                        }
+                    }));
+                }
+                for (Future<?> f : done) f.get(30, TimeUnit.SECONDS);
+            }
+
+            BigDecimal total = BigDecimal.ZERO;
+            for (int a = 0; a < 10; a++) total = total.add(storage.getBalance("T" + a));
+            assertEquals(0, new BigDecimal("500.00").compareTo(total));
+        }
+    }
+
+    @Test
+    void accountIsAlwaysServedByItsOwnShardThread() {
+        try (ShardedLedgerStorage storage = new ShardedLedgerStorage(4, 16)) {
+            for (String account : List.of("A", "B", "C", "D", "E")) {
+                Set<String> threads = ConcurrentHashMap.newKeySet();
+                for (int i = 0; i < 20; i++) {
+                    threads.add(storage.withAccountLock(account, () -> Thread.currentThread().getName()));
+                }
+                assertEquals(1, threads.size(), account + " ran on " + threads);
+                assertTrue(threads.iterator().next().startsWith("ledger-shard-"));
+            }
+            assertEquals(4, storage.shardCount());
+        }
+    }
+
+    @Test
+    void callsRacingCloseReturnOrFailInsteadOfHanging() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            ShardedLedgerStorage storage = new ShardedLedgerStorage(2, 4);
+            try (ExecutorService callers = Executors.newFixedThreadPool(16)) {
+                List<Future<?>> done = new ArrayList<>();
+                for (int c = 0; c < 16; c++) {
+                    int caller = c;
+                    done.add(callers.submit(() -> {
+                        for (int i = 0; ; i++) {
+                            try {
+                                if (caller % 2 == 0) {
+                                    storage.appendTransaction("R" + (i % 4), transaction("R" + (i % 4), caller, i));
+                                } else {
+                                    // Pauses two shards when the accounts live on different ones
+                                    storage.withAccountLocks("R" + (i % 4), "R" + ((i + 1) % 4), () -> null);
+                                }
+                            } catch (IllegalStateException e) {
+                                return;
+                            }
+                        }
+                    }));
+                }
+                Thread.sleep(1);
+                storage.close();
+                // A call that slipped past the closed check must not wait on a stopped shard
+                for (Future<?> f : done) f.get(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    @Test
+    void failuresInsideCommandsReachTheCaller() {
+        try (ShardedLedgerStorage storage = new ShardedLedgerStorage(2, 8)) {
+            LedgerService service = new LedgerServiceImpl(storage);
+            assertThrows(InsufficientBalanceException.class, () -> service.recordTransaction("F1", AccountType.SAVINGS,
+                    TransactionType.WITHDRAWAL, BigDecimal.ONE, null, null, null, "USD"));
+
+            // The shard keeps running after a failed command
+            service.recordTransaction("F1", AccountType.SAVINGS, TransactionType.DEPOSIT, BigDecimal.TEN,
+                    null, "dep-1", null, "USD");
+            Transaction replay = service.recordTransaction("F1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    BigDecimal.TEN, null, "dep-1", null, "USD");
+            assertEquals(1, storage.getTransactionsForAccount("F1").size());
+            assertEquals(replay.getId(), storage.findByReference("F1", "dep-1").orElseThrow().getId());
+
+            // Waiting on another shard from inside a command could deadlock, so it is refused
+            String other = "F1";
+            for (int i = 0; storage.withAccountLock("F1", () -> Thread.currentThread().getName())
+                    .equals(storage.withAccountLock(other, () -> Thread.currentThread().getName())); i++) {
+                other = "X" + i;
+            }
+            String elsewhere = other;
+            assertThrows(IllegalStateException.class,
+                    () -> storage.withAccountLock("F1", () -> storage.getBalance(elsewhere)));
+        }
+    }
+
+    private static Transaction transaction(String accountId, int caller, int i) {
+        return new Transaction("t-" + caller + "-" + i, accountId, AccountType.CREDIT_CARD, TransactionType.DEPOSIT,
+                BigDecimal.ONE, "USD", OffsetDateTime.parse("2025-01-01T00:00:00Z").plusSeconds(i), null, null);
+    }
+}
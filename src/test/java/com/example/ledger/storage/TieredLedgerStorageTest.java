@@ -0,0 +1,160 @@
+package com.example.ledger.storage;
+
+import com.example.ledger.dto.LedgerPage;
+import com.example.ledger.model.AccountType;
+import com.example.ledger.model.Transaction;
+import com.example.ledger.model.TransactionType;
+import com.example.ledger.service.LedgerService;
+import com.example.ledger.service.LedgerServiceImpl;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the tiered storage: old rows move into compressed cold segments while
+ * recent ones stay resident, and balances, history and pages read across cold
+ * segments (including backdated inserts into them) match a full scan.
+ */
+class TieredLedgerStorageTest {
+
+    private static final OffsetDateTime BASE = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+
+    @Test
+    void balancesAndHistoryMatchFullScanAcrossColdSegmentsWithBackdatedInserts() {
+        // No hot window: every full segment of old rows is compacted; the cache holds two segments
+        TieredLedgerStorage storage = new TieredLedgerStorage(32, Duration.ZERO, 64);
+        List<Transaction> all = new ArrayList<>();
+        Random random = new Random(17);
+        for (int i = 0; i < 2000; i++) {
+            int minute = random.nextInt(5) == 0 ? random.nextInt(i + 1) : i;
+            TransactionType type = random.nextBoolean() ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL;
+            Transaction t = new Transaction("t" + i, "B" + (i % 2), AccountType.CREDIT_CARD, type,
+                    BigDecimal.valueOf(1 + random.nextInt(10_000), 2), "USD", BASE.plusMinutes(minute),
+                    i % 5 == 0 ? "ref-" + i : null, "CODE-" + (i % 7));
+            storage.appendTransaction(t.getAccountId(), t);
+            all.add(t);
+        }
+        assertTrue(storage.coldRows() > 1800, "expected most rows in cold segments, got " + storage.coldRows());
+
+        for (String account : List.of("B0", "B1")) {
+            for (int minute = -1; minute <= 2001; minute += 13) {
+                OffsetDateTime at = BASE.plusMinutes(minute);
+                BigDecimal expected = all.stream()
+                        .filter(t -> t.getAccountId().equals(account) && !t.getTimestamp().isAfter(at))
+                        .map(Transaction::signedAmount)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+                assertEquals(0, expected.compareTo(storage.getBalanceAt(account, at)), account + " at " + at);
+            }
+
+            // Stable sort by timestamp keeps arrival order for ties, as the storage does
+            List<String> expectedIds = all.stream()
+                    .filter(t -> t.getAccountId().equals(account))
+                    .sorted(Comparator.comparing(t -> t.getTimestamp().toInstant()))
+                    .map(Transaction::getId)
+                    .toList();
+            assertEquals(expectedIds, storage.getTransactionsForAccount(account).stream().map(Transaction::getId).toList());
+
+            List<String> paged = new ArrayList<>();
+            List<HistoryEntry> page = storage.getTransactionsAfter(account, null, -1, 45);
+            while (!page.isEmpty()) {
+                page.forEach(e -> paged.add(e.transaction().getId()));
+                HistoryEntry last = page.get(page.size() - 1);
+                page = storage.getTransactionsAfter(account, last.transaction().getTimestamp().toInstant(),
+                        last.sequence(), 45);
+            }
+            assertEquals(expectedIds, paged);
+        }
+
+        Transaction cold = storage.getTransactionsForAccount("B0").get(0);
+        assertEquals("USD", cold.getCurrency());
+        assertEquals(AccountType.CREDIT_CARD, cold.getAccountType());
+        assertTrue(cold.getTransactionCode().startsWith("CODE-"));
+        assertEquals("t1995", storage.findByReference("B1", "ref-1995").orElseThrow().getId());
+    }
+
+    @Test
+    void recentRowsStayResidentAndOnlyRowsOlderThanTheHotWindowAreCompacted() {
+        TieredLedgerStorage storage = new TieredLedgerStorage(16, Duration.ofDays(30), 1024);
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        for (int i = 0; i < 100; i++) {
+            storage.appendTransaction("R1", new Transaction("r" + i, "R1", AccountType.SAVINGS,
+                    TransactionType.DEPOSIT, BigDecimal.ONE, "EUR", now.minusMinutes(100 - i), null, null));
+        }
+        assertEquals(0, storage.coldRows());
+
+        for (int i = 0; i < 100; i++) {
+            storage.appendTransaction("R2", new Transaction("o" + i, "R2", AccountType.SAVINGS,
+                    TransactionType.DEPOSIT, BigDecimal.ONE, "EUR", now.minusDays(90).plusMinutes(i), null, null));
+        }
+        // Only whole segments are compacted: 100 rows leave 96 cold and 4 hot
+        assertEquals(96, storage.coldRows());
+        assertEquals(0, new BigDecimal(100).compareTo(storage.getBalance("R2")));
+        assertEquals(0, new BigDecimal(50).compareTo(storage.getBalanceAt("R2", now.minusDays(90).plusMinutes(49))));
+    }
+
+    @Test
+    void rowsOfAccountsNoLongerWrittenAreCompactedOnceTheyAgeOut() throws InterruptedException {
+        TieredLedgerStorage storage = new TieredLedgerStorage(16, Duration.ofMillis(200), 1024);
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        for (int i = 0; i < 40; i++) {
+            storage.appendTransaction("D1", new Transaction("d" + i, "D1", AccountType.SAVINGS,
+                    TransactionType.DEPOSIT, BigDecimal.ONE, "EUR", now.plusNanos(i * 1_000L), null, null));
+        }
+        storage.compactAll();
+        assertEquals(0, storage.coldRows());
+
+        // No further writes to D1: only the background pass can compact it
+        Thread.sleep(300);
+        storage.compactAll();
+        assertEquals(32, storage.coldRows());
+        assertEquals(0, new BigDecimal(40).compareTo(storage.getBalance("D1")));
+        assertEquals(40, storage.getTransactionsForAccount("D1").size());
+        assertEquals("d0", storage.getTransactionsForAccount("D1").get(0).getId());
+    }
+
+    @Test
+    void serviceReplaysReferencesAndPagesOverTieredStorage() {
+        LedgerService service = new LedgerServiceImpl(new TieredLedgerStorage(8, Duration.ZERO, 16));
+        for (int i = 0; i < 100; i++) {
+            service.recordTransaction("S1", AccountType.SAVINGS, TransactionType.DEPOSIT, BigDecimal.TEN,
+                    BASE.plusHours(i), "dep-" + i, null, "USD");
+        }
+        assertEquals("dep-3", service.recordTransaction("S1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                BigDecimal.TEN, BASE.plusHours(3), "dep-3", null, "USD").getReferenceId());
+        assertEquals(0, new BigDecimal(1000).compareTo(service.getCurrentBalance("S1")));
+
+        LedgerPage first = service.getTransactionHistoryPage("S1", null, 30);
+        LedgerPage second = service.getTransactionHistoryPage("S1", first.getNextCursor(), 30);
+        assertEquals(BASE.plusHours(30), second.getItems().get(0).getTimestamp());
+    }
+
+    @Test
+    void segmentInvalidatedWhileBeingHydratedIsNotCachedAgain() {
+        SegmentCache cache = new SegmentCache(1024, new CompositeMeterRegistry());
+        Transaction[] entries = new Transaction[4];
+        long[] sequences = new long[4];
+        for (int i = 0; i < 4; i++) {
+            entries[i] = new Transaction("c" + i, "C1", AccountType.SAVINGS, TransactionType.DEPOSIT,
+                    BigDecimal.ONE, "USD", BASE.plusMinutes(i), null, null);
+            sequences[i] = i + 1;
+        }
+        ColdSegment segment = ColdSegment.of(entries, sequences, 0, 4);
+        cache.rows(segment);
+        assertEquals(4, cache.rows());
+
+        // A reader still holding the replaced segment hydrates it after compaction invalidated it
+        cache.invalidate(segment);
+        assertEquals("c2", cache.rows(segment).entries()[2].getId());
+        assertEquals(0, cache.rows());
+    }
+}